@@ -0,0 +1,85 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.bags.preservation;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * benchmarks for looking up the member bag containing a file via {@link HeadBagUtils#lookupFile}
+ * using a synthetic, in-memory <code>multibag/file-lookup.tsv</code> file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeadBagUtilsBenchmark {
+
+    /** the number of lines in the lookup file */
+    @Param({"100000"})
+    public int lines;
+
+    byte[] lookup = null;
+    String first = null;
+    String middle = null;
+    String last = null;
+
+    @Setup(Level.Trial)
+    public void createLookup() {
+        StringBuilder sb = new StringBuilder(lines * 60);
+        for (int i=0; i < lines; i++) {
+            String path = String.format("data/set%03d/trial%06d.json", i % 200, i);
+            if (i == 0) first = path;
+            if (i == lines / 2) middle = path;
+            last = path;
+            sb.append(path).append('\t').append("mds1491.mbag0_4-").append(i / 5000).append('\n');
+        }
+        lookup = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String lookupFirst() throws IOException {
+        return HeadBagUtils.lookupFile(new ByteArrayInputStream(lookup), first);
+    }
+
+    @Benchmark
+    public String lookupMiddle() throws IOException {
+        return HeadBagUtils.lookupFile(new ByteArrayInputStream(lookup), middle);
+    }
+
+    @Benchmark
+    public String lookupLast() throws IOException {
+        return HeadBagUtils.lookupFile(new ByteArrayInputStream(lookup), last);
+    }
+
+    @Benchmark
+    public String lookupMissing() throws IOException {
+        return HeadBagUtils.lookupFile(new ByteArrayInputStream(lookup), "data/goober.json");
+    }
+}
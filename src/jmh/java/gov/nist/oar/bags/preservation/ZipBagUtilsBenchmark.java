@@ -0,0 +1,113 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.bags.preservation;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * benchmarks for locating a file in a serialized (zipped) bag via {@link ZipBagUtils#openFile}.
+ * <p>
+ * As a zip file is read as a stream, the cost of opening a file depends on how far into the zip file
+ * its entry appears; these benchmarks open the first and the last entry of a synthetic bag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipBagUtilsBenchmark {
+
+    static final String bagname = "mds1491.mbag0_4-0";
+
+    /** the number of data files in the bag */
+    @Param({"2000"})
+    public int filecount;
+
+    /** the size of each data file, in bytes */
+    @Param({"50000"})
+    public int filesize;
+
+    File workdir = null;
+    File zipfile = null;
+    String first = null;
+    String last = null;
+
+    @Setup(Level.Trial)
+    public void createBag() throws IOException {
+        workdir = Files.createTempDirectory("zipbagbench").toFile();
+        zipfile = new File(workdir, bagname+".zip");
+
+        // random content keeps the deflated entries close to their full size
+        Random rand = new Random(1491L);
+        byte[] data = new byte[filesize];
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipfile))) {
+            for (int i=0; i < filecount; i++) {
+                String path = String.format("%s/data/trial%05d.dat", bagname, i);
+                if (i == 0) first = path;
+                last = path;
+                rand.nextBytes(data);
+                zos.putNextEntry(new ZipEntry(path));
+                zos.write(data);
+                zos.closeEntry();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workdir);
+    }
+
+    long open(String filepath) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(zipfile))) {
+            ZipBagUtils.OpenEntry ntry = ZipBagUtils.openFile(is, filepath);
+            return ntry.info.getSize();
+        }
+    }
+
+    @Benchmark
+    public void openFirstEntry(Blackhole bh) throws IOException {
+        bh.consume(open(first));
+    }
+
+    @Benchmark
+    public void openLastEntry(Blackhole bh) throws IOException {
+        bh.consume(open(last));
+    }
+}
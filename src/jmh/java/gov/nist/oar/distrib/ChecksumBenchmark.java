@@ -0,0 +1,65 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * benchmarks for {@link Checksum#calcSHA256(java.io.InputStream,int)} over a range of read buffer
+ * sizes.  The data is held in memory so that the results reflect the hashing and copying costs
+ * rather than storage speed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChecksumBenchmark {
+
+    /** the number of bytes read from the stream at a time */
+    @Param({"4096", "8192", "50000", "65536", "262144", "1048576"})
+    public int bufsize;
+
+    /** the size of the data being hashed */
+    @Param({"16777216"})
+    public int datasize;
+
+    byte[] data = null;
+
+    @Setup(Level.Trial)
+    public void createData() {
+        data = new byte[datasize];
+        new Random(256L).nextBytes(data);
+    }
+
+    @Benchmark
+    public Checksum calcSHA256() throws IOException {
+        return Checksum.calcSHA256(new ByteArrayInputStream(data), bufsize);
+    }
+}
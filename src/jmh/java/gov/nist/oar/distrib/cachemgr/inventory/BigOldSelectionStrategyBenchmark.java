@@ -0,0 +1,85 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+
+/**
+ * benchmarks for scoring and sorting cache objects with a {@link BigOldSelectionStrategy}, as is
+ * done when creating a deletion plan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BigOldSelectionStrategyBenchmark {
+
+    /** the number of candidate objects */
+    @Param({"10000"})
+    public int objcount;
+
+    List<CacheObject> objs = null;
+
+    @Setup(Level.Trial)
+    public void createObjects() {
+        Random rand = new Random(10000L);
+        long now = System.currentTimeMillis();
+        objs = new ArrayList<CacheObject>(objcount);
+        for (int i=0; i < objcount; i++) {
+            JSONObject md = new JSONObject();
+            md.put("size", 1000L + (long) (rand.nextDouble() * rand.nextDouble() * 2000000000L));
+            md.put("since", now - (long) (rand.nextDouble() * 90 * 24 * 3600 * 1000L));
+            md.put("priority", 1 + rand.nextInt(20));
+            objs.add(new CacheObject(String.format("mds2-%05d/trial%03d.json", i / 100, i % 100), md, "vol0"));
+        }
+    }
+
+    @Benchmark
+    public void score(Blackhole bh) {
+        // no limit, so that every object gets scored
+        BigOldSelectionStrategy strat = new BigOldSelectionStrategy(Long.MAX_VALUE);
+        for (CacheObject co : objs)
+            bh.consume(strat.score(co));
+    }
+
+    @Benchmark
+    public List<CacheObject> scoreAndSort() {
+        BigOldSelectionStrategy strat = new BigOldSelectionStrategy(Long.MAX_VALUE);
+        List<CacheObject> out = new ArrayList<CacheObject>(objs);
+        for (CacheObject co : out)
+            strat.score(co);
+        strat.sort(out);
+        return out;
+    }
+}
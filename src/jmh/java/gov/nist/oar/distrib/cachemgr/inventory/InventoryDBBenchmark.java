@@ -0,0 +1,174 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.InventoryException;
+
+/**
+ * benchmarks for the inventory queries made while serving and managing the cache, run against a
+ * synthetic SQLite inventory.
+ * <p>
+ * The inventory is seeded once per trial with <code>rows</code> objects spread evenly across
+ * {@link #VOLCOUNT} volumes, with sizes, access times, and priorities drawn from a fixed-seed
+ * random sequence.  Seeding a million rows takes a noticeable amount of time; use
+ * <code>-p rows=...</code> to try smaller inventories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InventoryDBBenchmark {
+
+    static final int VOLCOUNT = 4;
+
+    /** the number of objects in the inventory */
+    @Param({"1000000"})
+    public int rows;
+
+    File workdir = null;
+    SQLiteStorageInventoryDB sidb = null;
+    String[] names = null;
+    String[] vols = null;
+    int next = 0;
+
+    @Setup(Level.Trial)
+    public void createInventory() throws IOException, InventoryException, SQLException {
+        workdir = Files.createTempDirectory("invdbbench").toFile();
+        String dbfile = new File(workdir, "data.sqlite").getAbsolutePath();
+        SQLiteStorageInventoryDB.initializeDB(dbfile);
+
+        sidb = new SQLiteStorageInventoryDB(dbfile);
+        sidb.registerAlgorithm("sha256");
+        for (int v=0; v < VOLCOUNT; v++)
+            sidb.registerVolume("vol"+v, 1000L * rows * 1000000L, null);
+
+        // bulk load directly via JDBC; adding a million objects one-by-one through the API would
+        // dominate the run.
+        Random rand = new Random(1000000L);
+        long now = System.currentTimeMillis();
+        names = new String[rows];
+        vols = new String[rows];
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:"+dbfile)) {
+            int[] volids = new int[VOLCOUNT];
+            int algid = 0;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM volumes WHERE name=?")) {
+                for (int v=0; v < VOLCOUNT; v++) {
+                    stmt.setString(1, "vol"+v);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        volids[v] = rs.getInt(1);
+                    }
+                }
+            }
+            try (ResultSet rs = conn.createStatement().executeQuery("SELECT id FROM algorithms")) {
+                rs.next();
+                algid = rs.getInt(1);
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO objects(objid,name,size,checksum,algorithm,priority,volume,since,checked,"+
+                     "cached,metadata,filepath,aipid) VALUES (?,?,?,?,?,?,?,?,?,1,?,?,?)"))
+            {
+                for (int i=0; i < rows; i++) {
+                    String aipid = String.format("mds2-%05d", i / 100);
+                    String filepath = String.format("trial%03d.json", i % 100);
+                    names[i] = aipid + "/" + filepath;
+                    vols[i] = "vol" + (i % VOLCOUNT);
+                    long since = now - (long) (rand.nextDouble() * 90 * 24 * 3600 * 1000L);
+
+                    stmt.setString(1, names[i]);
+                    stmt.setString(2, names[i]);
+                    stmt.setLong(3, 1000L + (long) (rand.nextDouble() * rand.nextDouble() * 2000000000L));
+                    stmt.setString(4, Long.toHexString(rand.nextLong()));
+                    stmt.setInt(5, algid);
+                    stmt.setInt(6, 1 + rand.nextInt(20));
+                    stmt.setInt(7, volids[i % VOLCOUNT]);
+                    stmt.setLong(8, since);
+                    stmt.setLong(9, since);
+                    stmt.setString(10, "{\"contentType\":\"application/json\"}");
+                    stmt.setString(11, filepath);
+                    stmt.setString(12, aipid);
+                    stmt.addBatch();
+                    if (i % 10000 == 9999)
+                        stmt.executeBatch();
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+
+        // look objects up in a scattered but reproducible order
+        for (int i=names.length-1; i > 0; i--) {
+            int j = rand.nextInt(i+1);
+            String t = names[i];  names[i] = names[j];  names[j] = t;
+            t = vols[i];  vols[i] = vols[j];  vols[j] = t;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workdir);
+    }
+
+    @Benchmark
+    public CacheObject findObject() throws InventoryException {
+        int i = next++ % names.length;
+        return sidb.findObject(vols[i], names[i]);
+    }
+
+    @Benchmark
+    public List<CacheObject> findObjectById() throws InventoryException {
+        return sidb.findObject(names[next++ % names.length]);
+    }
+
+    @Benchmark
+    public List<CacheObject> selectObjectsFromByPriority() throws InventoryException {
+        return sidb.selectObjectsFrom("vol0", "deletion_p", 500);
+    }
+
+    @Benchmark
+    public List<CacheObject> selectObjectsFromBigOld() throws InventoryException {
+        // select enough objects to free about 50 GB
+        return sidb.selectObjectsFrom("vol0", new BigOldSelectionStrategy(50000000000L));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import gov.nist.oar.distrib.DistributionException;
+import gov.nist.oar.distrib.web.InvalidInputException;
+
+/**
+ * benchmarks for {@link DownloadBundlePlanner#getBundleDownloadPlan()}.
+ * <p>
+ * The planner checks the size of each requested file with an HTTP HEAD request; to keep the results
+ * reproducible and free of network access, the requested URLs point to a small HTTP server on the
+ * loopback interface that answers each HEAD request immediately with a size derived from the URL.
+ * The results thus reflect the planner's own overhead plus the cost of a local HTTP round trip per
+ * file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadBundlePlannerBenchmark {
+
+    /** the number of files requested in the bundle */
+    @Param({"100", "1000"})
+    public int filecount;
+
+    HttpServer server = null;
+    ExecutorService handlers = null;
+    BundleRequest request = null;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/od/ds/", exch -> {
+            // sizes range from 1 kB to about 200 MB
+            long size = 1000L + (exch.getRequestURI().getPath().hashCode() & 0x7fffffffL) % 200000000L;
+            exch.getResponseHeaders().set("Content-Length", Long.toString(size));
+            exch.sendResponseHeaders(200, -1);
+            exch.close();
+        });
+        handlers = Executors.newFixedThreadPool(4);
+        server.setExecutor(handlers);
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/od/ds/";
+        FileRequest[] files = new FileRequest[filecount];
+        for (int i=0; i < filecount; i++) {
+            String filepath = String.format("mds2-%04d/set%02d/trial%05d.json", i / 500, i % 20, i);
+            files[i] = new FileRequest(filepath, base + filepath);
+        }
+        request = new BundleRequest("benchbundle", files, 0, filecount);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Benchmark
+    public BundleDownloadPlan getBundleDownloadPlan() throws DistributionException, InvalidInputException {
+        DownloadBundlePlanner planner =
+            new DownloadBundlePlanner(request, 1000000000L, 100, "127\\.0\\.0\\.1", "benchbundle", 3);
+        return planner.getBundleDownloadPlan();
+    }
+}
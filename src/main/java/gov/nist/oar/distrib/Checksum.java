@@ -82,11 +82,21 @@ public class Checksum {
      * @param ds    an open stream set at the beginning of the file
      */
     public static Checksum calcSHA256(InputStream ds) throws IOException {
+        return calcSHA256(ds, 50000);
+    }
+
+    /**
+     * calculate the SHA-256 checksum of a file, reading it in chunks of a given size
+     *
+     * @param ds       an open stream set at the beginning of the file
+     * @param bufsize  the number of bytes to read from the stream at a time
+     */
+    public static Checksum calcSHA256(InputStream ds, int bufsize) throws IOException {
         MessageDigest md = null;
         
         try {
             md = MessageDigest.getInstance("SHA-256");
-            byte[] buf = new byte[50000];
+            byte[] buf = new byte[bufsize];
             int nr = 0;
             while ( (nr = ds.read(buf)) >= 0 ) 
                 md.update(buf, 0, nr);
@@ -0,0 +1,73 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+/**
+ * a {@link StorageInventoryDB} that can register <i>aliases</i>--alternate identifiers--for the
+ * objects it tracks.
+ * <p>
+ * An alias allows a single cached copy of an object to be made available under several identifiers.
+ * An alias belongs to a named <i>group</i> (e.g. all the aliases created for a single access request)
+ * so that it can be released together with the other members of its group, and it can be given an
+ * expiration time.  An implementation's {@link StorageInventoryDB#findObject(String,int) findObject()}
+ * method resolves unexpired aliases to the objects they refer to.
+ * <p>
+ * An object stored to be shared via aliases should be marked as such by setting the
+ * {@link #SHARED_METADATUM} metadatum to true; {@link CacheExpiryCheck} will then retain it for as long
+ * as it has unexpired aliases referring to it (rather than by its own <code>expires</code> metadatum).
+ */
+public interface AliasingInventoryDB extends StorageInventoryDB {
+
+    /**
+     * the name of the boolean metadatum that marks an object as being shared via aliases
+     */
+    public static final String SHARED_METADATUM = "shared";
+
+    /**
+     * register an alias for an object.  If the alias is already registered, it will be updated to
+     * refer to the given object.
+     * @param alias    the new identifier to register
+     * @param objid    the identifier of the object that the alias should refer to
+     * @param group    the name of the group the alias belongs to
+     * @param expires  the time, in epoch milliseconds, when the alias should expire; a non-positive
+     *                   value means that it does not expire.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public void addAlias(String alias, String objid, String group, long expires) throws InventoryException;
+
+    /**
+     * return the identifier of the object that an unexpired alias refers to, or null if the given
+     * identifier is not a registered, unexpired alias.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public String resolveAlias(String alias) throws InventoryException;
+
+    /**
+     * return the number of unexpired aliases that refer to the object with the given identifier
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public int countAliases(String objid) throws InventoryException;
+
+    /**
+     * remove all of the aliases belonging to the given group
+     * @return int -- the number of aliases removed
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public int removeAliases(String group) throws InventoryException;
+
+    /**
+     * remove all aliases that have expired
+     * @return int -- the number of aliases removed
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public int removeExpiredAliases() throws InventoryException;
+}
@@ -70,6 +70,12 @@ public abstract class BasicCache extends Cache {
 
     protected Logger log = null;
 
+    /**
+     * the record of recent {@link #findObject(String)} results, or null if such results should not be 
+     * remembered (the default).  See {@link #setLookupCaching(long,long,int)}.
+     */
+    ObjectLookupCache lookups = null;
+
     /**
      * create the Cache without volumes.  The provided inventory database should be empty of 
      * object records and with no volumes registered.  To create a Cache with a prepopulated 
@@ -160,6 +166,37 @@ public abstract class BasicCache extends Cache {
         }
     }
 
+    /**
+     * turn on (or off) the remembering of recent {@link #findObject(String)} results.  When on, 
+     * repeated lookups of the same object within the given time limits are answered from memory 
+     * without querying the inventory or confirming the object's existence in its volume.  
+     * Remembered results are forgotten when the object is saved into or removed from the cache 
+     * via this instance (including via deletion plans); changes made to the inventory by other 
+     * means (e.g. by the integrity monitor) are seen once the result expires.  
+     * @param hitTTL      the time in milliseconds to remember the location of a found object;
+     *                      zero or less disables remembering found objects.
+     * @param missTTL     the time in milliseconds to remember that an object is not in the cache;
+     *                      zero or less disables remembering misses.
+     * @param maxEntries  the maximum number of lookup results to remember
+     */
+    public void setLookupCaching(long hitTTL, long missTTL, int maxEntries) {
+        if ((hitTTL <= 0 && missTTL <= 0) || maxEntries <= 0)
+            lookups = null;
+        else
+            lookups = new ObjectLookupCache(hitTTL, missTTL, maxEntries);
+    }
+
+    /**
+     * forget any remembered result of looking up the object with the given identifier.  A client 
+     * that fails to open an object returned by {@link #findObject(String)} should call this before 
+     * looking it up again.
+     */
+    public void forgetLookup(String id) {
+        ObjectLookupCache lc = lookups;
+        if (lc != null)
+            lc.invalidate(id);
+    }
+
     /**
      * return the names of the volumes that comprise this cache
      */
@@ -195,6 +232,7 @@ public abstract class BasicCache extends Cache {
      */
     @Override
     public void uncache(String id) throws CacheManagementException {
+        forgetLookup(id);
         List<CacheObject> cos = db.findObject(id, db.VOL_FOR_UPDATE);
         for (CacheObject co : cos) {
             try {
@@ -216,12 +254,32 @@ public abstract class BasicCache extends Cache {
 
     /**
      * return a CacheObject representation of a data object if it already exists in the cache;
-     * otherwise, return null. 
+     * otherwise, return null.  If lookup caching is turned on (see 
+     * {@link #setLookupCaching(long,long,int)}), a recent result for the same identifier may be 
+     * returned without consulting the inventory or volume.
      * @param id       the identifier for the data object of interest.
      * @throws InventoryException  if an error occurs while searching or updating the inventory.
      */
     @Override
     public CacheObject findObject(String id) throws CacheManagementException {
+        ObjectLookupCache lc = lookups;
+        if (lc == null)
+            return _findObject(id);
+
+        ObjectLookupCache.Entry prev = lc.lookup(id);
+        if (prev != null)
+            return prev.getObject();
+
+        long mark = lc.mark();
+        CacheObject out = _findObject(id);
+        if (out == null)
+            lc.missed(id, mark);
+        else
+            lc.found(id, out, mark);
+        return out;
+    }
+
+    private CacheObject _findObject(String id) throws CacheManagementException {
         List<CacheObject> cos = db.findObject(id, db.VOL_FOR_GET);
         if (cos.size() == 0)
             return null;
@@ -400,6 +458,26 @@ public abstract class BasicCache extends Cache {
         log.warn(message, exc);
     }
         
+    @Override
+    void notifyObjectSaved(CacheObject object) {
+        forgetLookup(object.id);
+        super.notifyObjectSaved(object);
+    }
+
+    @Override
+    void notifyObjectsDeleted(CacheVolume volume, List<String> deleted, long freed) {
+        ObjectLookupCache lc = lookups;
+        if (lc != null) {
+            if (deleted != null)
+                lc.invalidate(deleted);
+            else if (volume != null)
+                lc.invalidateVolume(volume.getName());
+            else
+                lc.clear();
+        }
+        super.notifyObjectsDeleted(volume, deleted, freed);
+    }
+
     /**
      * return a deletion planner for a particular use.
      * @param preferences  an and-ed set of bits indicating what the space will be used for.
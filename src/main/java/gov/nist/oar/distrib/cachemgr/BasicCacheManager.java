@@ -13,13 +13,20 @@
  */
 package gov.nist.oar.distrib.cachemgr;
 
+import gov.nist.oar.distrib.Checksum;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.ObjectNotFoundException;
 
 import org.json.JSONObject;
 import org.json.JSONException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * a basic implementation of the base {@link gov.nist.oar.distrib.cachemgr.CacheManager} class.
@@ -40,6 +47,26 @@ public abstract class BasicCacheManager extends CacheManager {
      */
     protected Restorer restorer = null;
 
+    /**
+     * the identifiers of objects currently being cached as they are read from long-term storage
+     * (see {@link #cacheWhileReading(String,InputStream,long)}).
+     */
+    protected Set<String> readingThrough = ConcurrentHashMap.newKeySet();
+
+    /**
+     * the maximum number of bytes that may remain unread when a read-through stream is closed
+     * early for the object to still be finished and cached in the background.
+     */
+    protected long readThroughFinishLimit = 100_000_000L;
+
+    /**
+     * the restorations currently in progress, keyed by object identifier.  Each future completes 
+     * with the restored object (or null if, in the end, the object was not cached).  This allows 
+     * concurrent requests to cache the same object to share a single restoration.
+     */
+    protected ConcurrentHashMap<String, CompletableFuture<CacheObject>> inflight =
+        new ConcurrentHashMap<String, CompletableFuture<CacheObject>>();
+
     /**
      * create the CacheManager by wrapping a Cache and Restorer.
      */
@@ -48,6 +75,11 @@ public abstract class BasicCacheManager extends CacheManager {
         restorer = rest;
     }
 
+    /**
+     * return the name of the cache being managed
+     */
+    public String getCacheName() { return theCache.getName(); }
+
     /**
      * return true if the data object with the given identifier is held in the cache
      * @param id   the identifier for the data object of interest.
@@ -81,6 +113,17 @@ public abstract class BasicCacheManager extends CacheManager {
         return theCache.confirmAccessOf(obj);
     }
 
+    /**
+     * forget any remembered result of looking up the object with the given identifier (see 
+     * {@link BasicCache#setLookupCaching(long,long,int)}).  A client that fails to open an object 
+     * returned by {@link #findObject(String)} should call this so that the next lookup consults the 
+     * inventory afresh.
+     */
+    public void forgetLookup(String id) {
+        if (theCache instanceof BasicCache)
+            ((BasicCache) theCache).forgetLookup(id);
+    }
+
     /**
      * remove all copies of the data object with the given ID from the cache
      * @param id       the identifier for the data object of interest.
@@ -108,7 +151,105 @@ public abstract class BasicCacheManager extends CacheManager {
     public boolean cache(String id, int prefs, boolean recache) throws CacheManagementException {
         if (! recache && theCache.isCached(id))
             return false;
+        restoreOnce(id, prefs, recache);
+        return true;
+    }
+
+    /**
+     * return a CacheObject representation of a data object having a given identifier, restoring it 
+     * into the cache if necessary.  If the object is already being restored by another thread, this 
+     * will wait for and return the result of that restoration rather than restoring it again.
+     * @param id       the identifier for the data object of interest.
+     */
+    @Override
+    public CacheObject getObject(String id) throws CacheManagementException {
+        CacheObject out = theCache.findObject(id);
+        if (out != null) {
+            confirmAccessOf(out);
+            return out;
+        }
+        out = restoreOnce(id, 0, false);
+        return (out != null) ? out : theCache.findObject(id);
+    }
+
+    /**
+     * return true if the data object with the given identifier is currently being restored into 
+     * the cache (including when an object read via {@link #cacheWhileReading(String,InputStream,long)}
+     * is being saved).
+     */
+    public boolean isRestoring(String id) {
+        return inflight.containsKey(id);
+    }
+
+    /**
+     * restore an object into the cache, coordinating with any other restorations of the same object 
+     * already in progress.  If another thread is restoring the object, this call waits for it to 
+     * finish and returns its result (re-raising its failure, if any); if that restoration ends 
+     * without caching the object (as when a read-through download is abandoned), this thread will 
+     * restore it itself.
+     * @param id       the identifier for the data object of interest.
+     * @param prefs    the caching preferences to apply; if less than 1, defaults are applied
+     * @param recache  if false and, upon taking charge of the restoration, this thread finds that the
+     *                 object has just been cached by another thread, the restoration is skipped.  
+     * @return CacheObject -- the restored object, or null if the object was already cached (and 
+     *                        <code>recache</code> is false) or could not be found after restoration.
+     */
+    protected CacheObject restoreOnce(String id, int prefs, boolean recache)
+        throws CacheManagementException
+    {
+        CompletableFuture<CacheObject> mine = new CompletableFuture<CacheObject>();
+        CompletableFuture<CacheObject> leader = null;
+        while ((leader = inflight.putIfAbsent(id, mine)) != null) {
+            CacheObject co = awaitRestoration(id, leader);
+            if (co != null)
+                return co;
+            // the other restoration did not cache it; try it ourselves
+        }
+
+        try {
+            // another restoration may have finished just before we took charge
+            CacheObject out = (recache) ? null : theCache.findObject(id);
+            if (out == null)
+                out = restore(id, prefs);
+            mine.complete(out);
+            return out;
+        }
+        catch (CacheManagementException | RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+        finally {
+            inflight.remove(id, mine);
+        }
+    }
 
+    private CacheObject awaitRestoration(String id, CompletableFuture<CacheObject> leader)
+        throws CacheManagementException
+    {
+        try {
+            return leader.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CacheManagementException("Interrupted while waiting for restoration of "+id, ex);
+        }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof CacheManagementException)
+                throw (CacheManagementException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new CacheManagementException("Restoration of "+id+" failed: "+cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * restore the data object with the given identifier into the cache, replacing any existing copies.
+     * This is called via {@link #restoreOnce(String,int,boolean)} which ensures that only one thread restores 
+     * a particular object at a time.
+     * @return CacheObject -- the restored object as registered in the cache
+     */
+    private CacheObject restore(String id, int prefs) throws CacheManagementException {
         try {
             // get rid of any previously existing copies
             theCache.uncache(id);
@@ -146,7 +287,153 @@ public abstract class BasicCacheManager extends CacheManager {
             throw new CacheVolumeException(ex);
         }
         
-        return true;
+        return theCache.findObject(id);
+    }
+
+    /**
+     * wrap a stream of a data object's contents being read from long-term storage so that the
+     * object gets saved into the cache as it is read.  This allows an object that is being
+     * delivered to a user from long-term storage to be cached without retrieving it a second time.
+     * The object is committed to the cache (in the background) once the wrapped stream has been read
+     * to its end and its size and checksum (if known) have been verified; space for it is only 
+     * reserved then.  See {@link ReadThroughCachingStream} for what happens when the
+     * stream is closed early.
+     * <p>
+     * Null is returned if the object cannot or need not be cached this way--namely, if its size is
+     * unknown, it is already cached, or it is already being restored (either via another 
+     * read-through stream or via {@link #cache(String,int,boolean)}).  In this case, the caller 
+     * should continue reading from the original stream.  Because the read-through lasts as long as 
+     * the user's download, calls to <code>cache()</code> made while the stream is still being read 
+     * do not wait for it but restore the object from long-term storage as usual; the object is only 
+     * registered as being restored while the read-through copy is being saved, and that copy is 
+     * discarded if the object was cached by other means in the meantime.
+     * @param id     the identifier for the data object being read
+     * @param src    the stream of the object's contents
+     * @param size   the size of the object in bytes, or a negative number if unknown
+     * @return ReadThroughCachingStream -- the stream to read from instead of <code>src</code>, or null
+     * @throws CacheManagementException  if a failure occurs while setting up the read-through
+     */
+    public ReadThroughCachingStream cacheWhileReading(String id, InputStream src, long size)
+        throws CacheManagementException
+    {
+        if (size < 0 || inflight.containsKey(id) || theCache.isCached(id))
+            return null;
+        if (! readingThrough.add(id))
+            return null;       // already being read through
+        CompletableFuture<CacheObject> mine = new CompletableFuture<CacheObject>();
+
+        ReadThroughCachingStream out = null;
+        try {
+            int prefs = getDefaultPreferencesFor(id, size);
+            JSONObject md = new JSONObject();
+            md.put("size", size);
+            md.put("cachePrefs", prefs);
+            enrichMetadata(id, md);
+            describeForCaching(id, md);
+
+            out = new ReadThroughCachingStream(src, id, (is, meta) -> saveReadThrough(id, is, size, prefs, meta),
+                                               md, size, readThroughFinishLimit,
+                                               () -> claimReadThrough(id, mine),
+                                               () -> readingThrough.remove(id));
+            out.getResult().whenComplete((co, ex) -> {
+                inflight.remove(id, mine);
+                mine.complete(co);
+            });
+            return out;
+        }
+        catch (IOException ex) {
+            throw new CacheManagementException("Unable to set up read-through caching for id="+id+": "+
+                                               ex.getMessage(), ex);
+        }
+        catch (JSONException ex) {
+            throw new RestorationException("Unexpected failure saving metadata for id="+id+": "+
+                                           ex.getMessage(), ex);
+        }
+        finally {
+            if (out == null) {
+                readingThrough.remove(id);
+                mine.complete(null);
+            }
+        }
+    }
+
+    /**
+     * reserve space for an object that was read via {@link #cacheWhileReading(String,InputStream,long)} 
+     * and save it there.
+     */
+    private CacheObject saveReadThrough(String id, InputStream is, long size, int prefs, JSONObject md)
+        throws CacheManagementException
+    {
+        Reservation resv = theCache.reserveSpace(size, prefs);
+        try {
+            return resv.saveAs(is, id, determineCacheObjectName(resv.getVolumeName(), id), md);
+        }
+        finally {
+            if (resv.getSize() > 0) resv.drop();
+        }
+    }
+
+    /**
+     * register a read-through object as being restored just before it is saved into the cache.
+     * @return boolean -- false if the object is being restored or has been cached by other means, in 
+     *                    which case the read-through copy should be discarded.
+     */
+    private boolean claimReadThrough(String id, CompletableFuture<CacheObject> mine) {
+        if (inflight.putIfAbsent(id, mine) != null)
+            return false;
+        try {
+            if (! theCache.isCached(id))
+                return true;
+        }
+        catch (CacheManagementException ex) {
+            // can't tell; saving a second copy is harmless, as restore() replaces copies anyway
+            return true;
+        }
+        inflight.remove(id, mine);
+        return false;
+    }
+
+    /**
+     * return true if the data object with the given identifier is currently being cached via a
+     * stream returned by {@link #cacheWhileReading(String,InputStream,long)}.
+     */
+    public boolean isReadingThrough(String id) {
+        return readingThrough.contains(id);
+    }
+
+    /**
+     * set the maximum number of bytes that may remain unread when a read-through stream is closed
+     * early for the object to still be finished and cached in the background.
+     */
+    public void setReadThroughFinishLimit(long bytes) { readThroughFinishLimit = bytes; }
+
+    /**
+     * add to the given metadata the information about the data object that would normally be
+     * determined by the {@link Restorer} during a restoration--in particular, its checksum--so that
+     * an object cached via {@link #cacheWhileReading(String,InputStream,long)} can be verified and
+     * described in the same way.  This implementation adds the checksum reported by the restorer,
+     * if available; subclasses may override this to add more.
+     * @param id       the identifier for the data object
+     * @param mdata    the metadata container to add information into
+     * @throws CacheManagementException   if a failure occurs while looking up the information
+     */
+    protected void describeForCaching(String id, JSONObject mdata) throws CacheManagementException {
+        if (mdata.has("checksum"))
+            return;
+        try {
+            Checksum cs = restorer.getChecksum(id);
+            if (cs != null) {
+                mdata.put("checksum", cs.hash);
+                mdata.put("checksumAlgorithm", cs.algorithm);
+            }
+        }
+        catch (UnsupportedOperationException ex) { /* checksum will not be verified */ }
+        catch (ObjectNotFoundException ex) {
+            throw new RestorationTargetNotFoundException(ex, id);
+        }
+        catch (StorageVolumeException ex) {
+            throw new CacheVolumeException(ex);
+        }
     }
 
     /**
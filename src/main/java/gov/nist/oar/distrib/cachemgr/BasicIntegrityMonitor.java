@@ -18,7 +18,22 @@ import gov.nist.oar.distrib.ObjectNotFoundException;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 import java.time.Instant;
 
 import org.slf4j.Logger;
@@ -35,6 +50,13 @@ import org.slf4j.LoggerFactory;
  * (via {@link StorageInventoryDB#selectObjects(String,int)}).  Thus, in the latter case, the 
  * {@link StorageInventoryDB} must support the "check" purpose and return a sensible selection of objects.
  * (Subclasses of {@link gov.nist.oar.distrib.cachemgr.inventory.JDBCStorageInventoryDB} all do.)
+ * <p>
+ * By default, {@link #selectCorruptedObjects(List,List,boolean)} checks objects one at a time.  With 
+ * {@link #setParallelism(int)}, objects in different volumes--and up to the given number of objects 
+ * within each volume--are checked concurrently.  The check times of objects that pass are recorded 
+ * in the inventory in one batch per volume.  The number of objects and bytes checked and the time spent 
+ * checking them are accumulated and available via {@link #getObjectsChecked()}, 
+ * {@link #getBytesChecked()}, and {@link #getCheckTime()}.
  */
 public class BasicIntegrityMonitor implements IntegrityMonitor {
 
@@ -44,6 +66,11 @@ public class BasicIntegrityMonitor implements IntegrityMonitor {
     protected Map<String, CacheVolume> volumes = null;
     protected SelectionStrategy selstrat = null;
     protected Logger log = null;
+    private int parallelism = 1;
+    private boolean virtualThreads = false;
+    private final AtomicLong objschecked = new AtomicLong(0L);
+    private final AtomicLong byteschecked = new AtomicLong(0L);
+    private final AtomicLong checktime = new AtomicLong(0L);
 
     /**
      * create a basic monitor attached to a simple cache.  
@@ -168,6 +195,51 @@ public class BasicIntegrityMonitor implements IntegrityMonitor {
     @Override
     public String getCacheName() { return name; }
 
+    /**
+     * return the maximum number of objects within a single volume that will be checked concurrently
+     */
+    public int getParallelism() { return parallelism; }
+
+    /**
+     * set the maximum number of objects within a single volume that will be checked concurrently by 
+     * {@link #selectCorruptedObjects(List,List,boolean)}.  A value of 1 (the default) means that 
+     * all objects will be checked one at a time in the calling thread.
+     */
+    public void setParallelism(int perVolume) {
+        if (perVolume < 1)
+            throw new IllegalArgumentException("setParallelism(): perVolume must be positive");
+        parallelism = perVolume;
+    }
+
+    /**
+     * return true if concurrent checks are run on virtual threads
+     */
+    public boolean usesVirtualThreads() { return virtualThreads; }
+
+    /**
+     * set whether the concurrent checks run by {@link #selectCorruptedObjects(List,List,boolean)} should 
+     * be run on virtual threads rather than on a pool of platform threads.  Because the checks spend 
+     * most of their time waiting on storage I/O, this allows a high parallelism without tying up as 
+     * many platform threads.  The default is false.
+     */
+    public void setUseVirtualThreads(boolean use) { virtualThreads = use; }
+
+    /**
+     * return the total number of objects that have been checked by this monitor (successfully or not)
+     */
+    public long getObjectsChecked() { return objschecked.get(); }
+
+    /**
+     * return the total number of bytes in the objects that have been checked by this monitor
+     */
+    public long getBytesChecked() { return byteschecked.get(); }
+
+    /**
+     * return the total time, in milliseconds, that this monitor has spent in 
+     * {@link #selectCorruptedObjects(List,List,boolean)}
+     */
+    public long getCheckTime() { return checktime.get(); }
+
     /**
      * Check the given object from the cache by applying all configured integrity checks.  If all 
      * checks pass, the object's entry in the inventory database will be updated accordingly.
@@ -192,14 +264,7 @@ public class BasicIntegrityMonitor implements IntegrityMonitor {
     public void check(CacheObject co)
         throws IntegrityException, StorageVolumeException, CacheManagementException
     {
-        if (co.volume == null)
-            throw new IllegalArgumentException("CacheObject's volume field is null");
-        for (CacheObjectCheck chk : checks) {
-            chk.check(co);   // exception thrown upon failure
-        }
-
-        // success!
-        log.debug("Successfully checked: "+co.volname+":"+co.name);
+        runChecks(co);
         try {
             db.updateCheckedTime(co.volname, co.name, Instant.now().toEpochMilli());
         }
@@ -210,6 +275,22 @@ public class BasicIntegrityMonitor implements IntegrityMonitor {
         }
     }
 
+    /**
+     * apply all configured checks to the given object without recording the result in the inventory
+     */
+    protected void runChecks(CacheObject co)
+        throws IntegrityException, StorageVolumeException, CacheManagementException
+    {
+        if (co.volume == null)
+            throw new IllegalArgumentException("CacheObject's volume field is null");
+        for (CacheObjectCheck chk : checks) {
+            chk.check(co);   // exception thrown upon failure
+        }
+
+        // success!
+        log.debug("Successfully checked: "+co.volname+":"+co.name);
+    }
+
     /**
      * Return a list of CacheObjects that are most in need of being checked.  The list will be ordered 
      * from most in need to less than in need.  (Ordering is controlled by the {@link SelectionStrategy} 
@@ -261,45 +342,191 @@ public class BasicIntegrityMonitor implements IntegrityMonitor {
     public int selectCorruptedObjects(List<CacheObject> cos, List<CacheObject> failed, boolean deleteOnFail)
         throws StorageVolumeException, CacheManagementException
     {
-        int errlim=10, errcnt=0, successcnt=0;
-        for(CacheObject co : cos) {
-            try {
-                check(co);
-                successcnt++;
+        long started = System.currentTimeMillis();
+        Map<String, List<String>> passed = new LinkedHashMap<String, List<String>>();
+        List<CacheObject> syncfailed = Collections.synchronizedList(failed);
+        AtomicInteger errcnt = new AtomicInteger(0);
+        try {
+            if (parallelism <= 1 || cos.size() <= 1) {
+                for (CacheObject co : cos)
+                    checkObject(co, passed, syncfailed, deleteOnFail, errcnt);
             }
-            catch (IntegrityException ex) {
-                failed.add(co);
-                if (deleteOnFail) removeObject(co);
+            else {
+                checkConcurrently(cos, passed, syncfailed, deleteOnFail, errcnt);
             }
-            catch (ObjectNotFoundException ex) {
-                log.warn("Unable to check object as it is no longer in cache volume: volname={}, name={}",
-                         co.volname, co.name);
-                failed.add(co);
-                if (deleteOnFail) removeObject(co);
+        }
+        finally {
+            checktime.addAndGet(System.currentTimeMillis() - started);
+            recordPassed(passed);
+        }
+
+        int successcnt = 0;
+        for (List<String> names : passed.values())
+            successcnt += names.size();
+        return successcnt;
+    }
+
+    private void checkConcurrently(List<CacheObject> cos, Map<String, List<String>> passed,
+                                   List<CacheObject> failed, boolean deleteOnFail, AtomicInteger errcnt)
+        throws StorageVolumeException, CacheManagementException
+    {
+        // queue up the objects by volume so that each volume gets its own set of workers
+        Map<String, Queue<CacheObject>> byvol = new LinkedHashMap<String, Queue<CacheObject>>();
+        for (CacheObject co : cos)
+            byvol.computeIfAbsent(co.volname, k -> new ConcurrentLinkedQueue<CacheObject>()).add(co);
+
+        // the first failure that should stop all of the workers
+        final AtomicReference<Exception> halt = new AtomicReference<Exception>();
+        List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+        for (Queue<CacheObject> q : byvol.values()) {
+            int n = Math.min(parallelism, q.size());
+            for (int i=0; i < n; i++) {
+                workers.add(() -> {
+                    CacheObject co = null;
+                    while (halt.get() == null && (co = q.poll()) != null) {
+                        try {
+                            checkObject(co, passed, failed, deleteOnFail, errcnt);
+                        }
+                        catch (StorageVolumeException ex) {
+                            halt.compareAndSet(null, ex);
+                        }
+                        catch (CacheManagementException ex) {
+                            log.error("Problem removing failed object (volname={}, name={}): {}",
+                                      co.volname, co.name, ex.getMessage());
+                        }
+                        catch (RuntimeException ex) {
+                            halt.compareAndSet(null, ex);
+                            throw ex;
+                        }
+                    }
+                    return null;
+                });
             }
-            catch (StorageVolumeException ex) {
-                if (++errcnt > errlim)
-                    throw new StorageVolumeException("Too many check errors; latest: "+ex.getMessage(), ex);
-                failed.add(co);
-                log.error("Problem accessing object in storage during check (volname={}, name={}): {}",
-                          co.volname, co.name, ex.getMessage());
+        }
+
+        ExecutorService exec = null;
+        if (virtualThreads)
+            exec = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(getCacheName()+"-check-", 0)
+                                                                        .factory());
+        else 
+            exec = Executors.newFixedThreadPool(workers.size(), r -> {
+                Thread t = new Thread(r, getCacheName()+"-check");
+                t.setDaemon(true);
+                t.setPriority(Thread.currentThread().getPriority());
+                return t;
+            });
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>(workers.size());
+            for (Callable<Void> w : workers)
+                results.add(exec.submit(w));
+            exec.shutdown();
+            for (Future<Void> res : results) {
+                try {
+                    while (true) {
+                        try {
+                            res.get(1, TimeUnit.MINUTES);
+                            break;
+                        }
+                        catch (TimeoutException ex) {
+                            log.debug("Still checking objects in cache, {}", getCacheName());
+                        }
+                    }
+                }
+                catch (ExecutionException ex) {
+                    // a worker died of something other than a RuntimeException (e.g. an Error)
+                    Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+                    halt.compareAndSet(null, (cause instanceof Exception) ? (Exception) cause : ex);
+                }
             }
-            catch (CacheManagementException ex) {
-                log.error("Problem interacting with cache during check (volname={}, name={}): {}",
-                          co.volname, co.name, ex.getMessage());
-                failed.add(co);
-                if (deleteOnFail) removeObject(co);
+        }
+        catch (InterruptedException ex) {
+            exec.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new CacheManagementException("Interrupted while checking objects in cache, "+getCacheName());
+        }
+
+        Exception ex = halt.get();
+        if (ex instanceof StorageVolumeException)
+            throw (StorageVolumeException) ex;
+        if (ex instanceof RuntimeException)
+            throw (RuntimeException) ex;
+        if (ex != null)
+            throw new CacheManagementException("Unexpected failure while checking objects in cache, "+
+                                               getCacheName()+": "+ex.getMessage(), ex);
+    }
+
+    /**
+     * check a single object, adding it to either the passed or failed collection
+     */
+    private void checkObject(CacheObject co, Map<String, List<String>> passed, List<CacheObject> failed,
+                             boolean deleteOnFail, AtomicInteger errcnt)
+        throws StorageVolumeException, CacheManagementException
+    {
+        final int errlim = 10;
+        try {
+            runChecks(co);
+            synchronized (passed) {
+                passed.computeIfAbsent(co.volname, k -> new ArrayList<String>()).add(co.name);
+            }
+        }
+        catch (IntegrityException ex) {
+            failed.add(co);
+            if (deleteOnFail) removeObject(co);
+        }
+        catch (ObjectNotFoundException ex) {
+            log.warn("Unable to check object as it is no longer in cache volume: volname={}, name={}",
+                     co.volname, co.name);
+            failed.add(co);
+            if (deleteOnFail) removeObject(co);
+        }
+        catch (StorageVolumeException ex) {
+            if (errcnt.incrementAndGet() > errlim)
+                throw new StorageVolumeException("Too many check errors; latest: "+ex.getMessage(), ex);
+            failed.add(co);
+            log.error("Problem accessing object in storage during check (volname={}, name={}): {}",
+                      co.volname, co.name, ex.getMessage());
+        }
+        catch (CacheManagementException ex) {
+            log.error("Problem interacting with cache during check (volname={}, name={}): {}",
+                      co.volname, co.name, ex.getMessage());
+            failed.add(co);
+            if (deleteOnFail) removeObject(co);
+        }
+        finally {
+            objschecked.incrementAndGet();
+            if (co.getSize() > 0)
+                byteschecked.addAndGet(co.getSize());
+        }
+    }
+
+    /**
+     * record the check time for objects that passed their checks, one batch per volume
+     */
+    private void recordPassed(Map<String, List<String>> passed) throws InventoryException {
+        long now = Instant.now().toEpochMilli();
+        for (Map.Entry<String, List<String>> vol : passed.entrySet()) {
+            try {
+                db.updateCheckedTimes(vol.getKey(), vol.getValue(), now);
+            }
+            catch (InventoryException ex) {
+                log.error("Problem updating check status for {} objects in volume={}: {}",
+                          vol.getValue().size(), vol.getKey(), ex.getMessage());
+                throw ex;
             }
         }
-        return successcnt;
     }
 
     protected boolean removeObject(CacheObject co) throws StorageVolumeException, InventoryException {
-        synchronized (db) {
+        Lock lock = db.getLock();
+        lock.lock();
+        try {
             boolean out = co.volume.remove(co.name);
             db.removeObject(co.volname, co.name);
             return out;
         }
+        finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -0,0 +1,79 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+/**
+ * a simple token-bucket limiter on the rate at which bytes are processed.
+ * <p>
+ * Any number of threads may share a limiter; each calls {@link #acquire(long)} before (or after)
+ * processing a chunk of bytes, and the call blocks as long as necessary to keep the aggregate rate
+ * across all threads at or below the configured number of bytes per second.  Up to one second's
+ * worth of unused allowance can accumulate, allowing short bursts.
+ */
+public class ByteRateLimiter {
+
+    private volatile long rate;
+    private double tokens = 0.0;
+    private long last;
+
+    /**
+     * create the limiter
+     * @param bytesPerSecond   the maximum average rate; a non-positive value means unlimited.
+     */
+    public ByteRateLimiter(long bytesPerSecond) {
+        rate = bytesPerSecond;
+        last = System.nanoTime();
+        tokens = (rate > 0) ? rate : 0.0;
+    }
+
+    /**
+     * return the maximum rate in bytes per second; a non-positive value means unlimited.
+     */
+    public long getBytesPerSecond() { return rate; }
+
+    /**
+     * reset the maximum rate in bytes per second; a non-positive value means unlimited.
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        refill();
+        rate = bytesPerSecond;
+        if (rate > 0 && tokens > rate) tokens = rate;
+    }
+
+    /**
+     * account for the processing of the given number of bytes, blocking as needed to keep the
+     * processing rate under the limit.
+     * @throws InterruptedException  if the thread was interrupted while waiting.
+     */
+    public void acquire(long nbytes) throws InterruptedException {
+        if (nbytes <= 0 || rate <= 0)
+            return;
+
+        long waitns = 0L;
+        synchronized (this) {
+            refill();
+            // take the tokens now (possibly going into debt) and wait off the debt outside the lock
+            tokens -= nbytes;
+            if (tokens < 0)
+                waitns = (long) (-tokens * 1.0e9 / rate);
+        }
+        if (waitns > 0)
+            Thread.sleep(waitns / 1000000L, (int) (waitns % 1000000L));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (rate > 0)
+            tokens = Math.min(rate, tokens + (now - last) * rate / 1.0e9);
+        last = now;
+    }
+}
@@ -3,21 +3,40 @@ package gov.nist.oar.distrib.cachemgr;
 import gov.nist.oar.distrib.StorageVolumeException;
 
 import java.time.Instant;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Implements a cache object check to identify and remove objects that have been in the cache
  * longer than a specified duration, specifically two weeks. This check helps in
  * managing cache integrity by ensuring that stale or outdated data are removed
  * from the cache.
+ * <p>
+ * Objects marked as shared via aliases (see {@link AliasingInventoryDB#SHARED_METADATUM}) are handled
+ * differently when the inventory supports aliases:  expired aliases are first purged, and the object
+ * is removed only when no unexpired aliases refer to it anymore.  A newly cached shared object is
+ * kept for a grace period (one day by default) to give its first aliases time to be registered.
  */
 public class CacheExpiryCheck implements CacheObjectCheck {
 
     private StorageInventoryDB inventoryDB;
+    private long sharedGracePeriod = 86400000L;   // 1 day
 
     public CacheExpiryCheck(StorageInventoryDB inventoryDB) {
         this.inventoryDB = inventoryDB;
     }
 
+    /**
+     * return the time in milliseconds after a shared object is cached during which it will not be
+     * removed even if no aliases refer to it.
+     */
+    public long getSharedGracePeriod() { return sharedGracePeriod; }
+
+    /**
+     * set the time in milliseconds after a shared object is cached during which it will not be
+     * removed even if no aliases refer to it.
+     */
+    public void setSharedGracePeriod(long msec) { sharedGracePeriod = msec; }
+
     /**
      * Checks if a cache object is expired and removes it from the cache if it is.
      * The method uses the {@code expires} metadata field to determine the expiration status.
@@ -35,6 +54,13 @@ public class CacheExpiryCheck implements CacheObjectCheck {
             throw new IllegalArgumentException("CacheObject or StorageInventoryDB is null");
         }
 
+        if (inventoryDB instanceof AliasingInventoryDB &&
+            co.exportMetadata().optBoolean(AliasingInventoryDB.SHARED_METADATUM, false))
+        {
+            checkShared(co, (AliasingInventoryDB) inventoryDB);
+            return;
+        }
+
         if (co.hasMetadatum("expires")) {
             long expiresDuration = co.getMetadatumLong("expires", -1L);
             if (expiresDuration == -1L) {
@@ -63,6 +89,33 @@ public class CacheExpiryCheck implements CacheObjectCheck {
         }
     }
 
+    /**
+     * remove a shared object if no unexpired aliases refer to it and its grace period has passed
+     */
+    protected void checkShared(CacheObject co, AliasingInventoryDB aliasdb)
+        throws IntegrityException, StorageVolumeException, CacheManagementException
+    {
+        aliasdb.removeExpiredAliases();
+        if (aliasdb.countAliases(co.id) > 0)
+            return;
+
+        long lastModified = co.getLastModified();
+        if (lastModified == -1L)
+            lastModified = co.getMetadatumLong("since", -1L);
+        if (lastModified == -1L) {
+            throw new IntegrityException("CacheObject 'lastModified' time not available");
+        }
+        if (lastModified + sharedGracePeriod >= Instant.now().toEpochMilli())
+            return;
+
+        try {
+            if (! removeObject(co))
+                throw new CacheManagementException("Failed to remove unreferenced shared object: " + co.name);
+        } catch (InventoryException e) {
+            throw new CacheManagementException("Error removing shared object from inventory database: " + co.name, e);
+        }
+    }
+
     /**
      * Attempts to remove a cache object from both its physical volume and the inventory database.
      * Synchronization ensures thread-safe removal operations.
@@ -73,10 +126,15 @@ public class CacheExpiryCheck implements CacheObjectCheck {
      * @throws InventoryException if an error occurs updating the inventory database.
      */
     protected boolean removeObject(CacheObject co) throws StorageVolumeException, InventoryException {
-        synchronized (inventoryDB) {
+        Lock lock = inventoryDB.getLock();
+        lock.lock();
+        try {
             boolean out = co.volume.remove(co.name);
             inventoryDB.removeObject(co.volname, co.name);
             return out;
         }
+        finally {
+            lock.unlock();
+        }
     }
 }
@@ -0,0 +1,226 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+
+/**
+ * a collector of operational metrics for the cache and its supporting components, recorded via
+ * Micrometer.
+ * <p>
+ * The cache classes are not, in general, managed by Spring, so rather than having a registry injected
+ * into each, they record their metrics through a shared default instance (see {@link #getDefault()})
+ * that writes to Micrometer's global registry.  Spring Boot adds its own registries (e.g. the
+ * Prometheus one behind <code>/actuator/prometheus</code>) to the global one, so the metrics get
+ * exported without further wiring; when no registry is attached, recording a metric is a no-op.
+ * Tests can install an instance backed by their own registry via {@link #setDefault(CacheMetrics)}.
+ * <p>
+ * The following meters are recorded (as named by Micrometer; Prometheus converts the dots to
+ * underscores):
+ * <dl>
+ *   <dt> <code>oar.cache.lookups</code> (counter) </dt>
+ *   <dd> lookups of data files in the cache by the download service (whether for streaming, 
+ *        redirecting, or serving a web request directly), tagged by <code>cache</code>, 
+ *        <code>volume</code>, and <code>result</code> (<code>hit</code> or <code>miss</code>) </dd>
+ *   <dt> <code>oar.cache.restore</code> (timer) and <code>oar.cache.restore.size</code> (summary) </dt>
+ *   <dd> the time taken and bytes written saving objects into the cache, tagged by
+ *        <code>cache</code>, <code>volume</code>, and <code>outcome</code>.  These are recorded by 
+ *        {@link Reservation#saveAs(java.io.InputStream,String,String,org.json.JSONObject)}, so they 
+ *        cover every way objects get cached (single-file and dataset restores, bag caching, and 
+ *        read-through caching). </dd>
+ *   <dt> <code>oar.cache.queue.depth</code> (gauge) and <code>oar.cache.queue.items</code> (timer) </dt>
+ *   <dd> the number of requests waiting in a cache manager's caching queue and the time taken to
+ *        process each, tagged by <code>cache</code> (and <code>outcome</code>) </dd>
+ *   <dt> <code>oar.cache.deletion.plan</code> (timer) </dt>
+ *   <dd> the time taken to create a deletion plan, tagged by <code>volume</code> and
+ *        <code>outcome</code> </dd>
+ *   <dt> <code>oar.cache.inventory.query</code> (timer) </dt>
+ *   <dd> the time taken by inventory database queries, tagged by <code>op</code> </dd>
+ * </dl>
+ * The <code>cache</code> tag gives the name of the {@link Cache} the metric refers to, which
+ * reflects that cache's role in the service (e.g. "data" for the data file cache, "headbags" for
+ * the head bag cache).
+ */
+public class CacheMetrics {
+
+    /** the prefix used on all meter names */
+    public static final String PREFIX = "oar.cache.";
+
+    /** the tag value used when a tag's value is not known */
+    public static final String UNKNOWN = "unknown";
+
+    private static volatile CacheMetrics defaultMetrics = null;
+
+    private final MeterRegistry registry;
+
+    // meters are remembered here so that recording avoids rebuilding meter IDs on each call
+    private final Map<String, Meter> meters = new ConcurrentHashMap<String, Meter>();
+
+    /**
+     * create the collector
+     * @param registry   the registry to record metrics to
+     */
+    public CacheMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * return the shared instance used by the cache components, which records to Micrometer's global
+     * registry unless another instance was installed via {@link #setDefault(CacheMetrics)}.
+     */
+    public static CacheMetrics getDefault() {
+        CacheMetrics out = defaultMetrics;
+        if (out == null) {
+            synchronized (CacheMetrics.class) {
+                if (defaultMetrics == null)
+                    defaultMetrics = new CacheMetrics(Metrics.globalRegistry);
+                out = defaultMetrics;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * install the shared instance used by the cache components.  If null, the next call to
+     * {@link #getDefault()} will create one that records to Micrometer's global registry.
+     */
+    public static void setDefault(CacheMetrics metrics) {
+        defaultMetrics = metrics;
+    }
+
+    /**
+     * return the registry metrics are recorded to
+     */
+    public MeterRegistry getRegistry() { return registry; }
+
+    /**
+     * record a request for a data object that was either served from the cache or not
+     * @param cache    the name of the cache that was searched
+     * @param volume   the name of the volume the object was found in; ignored if <code>hit</code>
+     *                   is false
+     * @param hit      true if the object was found in the cache
+     */
+    public void recordLookup(String cache, String volume, boolean hit) {
+        String result = (hit) ? "hit" : "miss";
+        if (! hit) volume = "none";
+        String c = tagval(cache), v = tagval(volume);
+        ((Counter) meters.computeIfAbsent(key("lookups", c, v, result), k ->
+            Counter.builder(PREFIX+"lookups")
+                   .description("requests for data objects served (or not) from the cache")
+                   .tags("cache", c, "volume", v, "result", result)
+                   .register(registry))).increment();
+    }
+
+    /**
+     * record the restoration of an object into the cache
+     * @param cache     the name of the cache the object was restored into
+     * @param volume    the name of the volume the object was written to
+     * @param bytes     the number of bytes written; ignored if <code>ok</code> is false
+     * @param nanos     the time spent restoring the object, in nanoseconds
+     * @param ok        true if the restoration was successful
+     */
+    public void recordRestore(String cache, String volume, long bytes, long nanos, boolean ok) {
+        String outcome = outcome(ok);
+        String c = tagval(cache), v = tagval(volume);
+        ((Timer) meters.computeIfAbsent(key("restore", c, v, outcome), k ->
+            Timer.builder(PREFIX+"restore")
+                 .description("time taken to restore objects into the cache")
+                 .tags("cache", c, "volume", v, "outcome", outcome)
+                 .register(registry))).record(nanos, TimeUnit.NANOSECONDS);
+        if (ok && bytes >= 0) {
+            ((DistributionSummary) meters.computeIfAbsent(key("restore.size", c, v), k ->
+                DistributionSummary.builder(PREFIX+"restore.size")
+                                   .description("sizes of objects restored into the cache")
+                                   .baseUnit(BaseUnits.BYTES)
+                                   .tags("cache", c, "volume", v)
+                                   .register(registry))).record(bytes);
+        }
+    }
+
+    /**
+     * record the processing of an item from a cache manager's caching queue
+     * @param cache     the name of the cache the item was cached into
+     * @param nanos     the time spent caching the item, in nanoseconds
+     * @param ok        true if the item was cached successfully
+     */
+    public void recordQueueItem(String cache, long nanos, boolean ok) {
+        String outcome = outcome(ok);
+        String c = tagval(cache);
+        ((Timer) meters.computeIfAbsent(key("queue.items", c, outcome), k ->
+            Timer.builder(PREFIX+"queue.items")
+                 .description("time taken to process requests from the caching queue")
+                 .tags("cache", c, "outcome", outcome)
+                 .register(registry))).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * register a gauge reporting the depth of a cache manager's caching queue.  As with all
+     * Micrometer gauges, only a weak reference to <code>obj</code> is kept.
+     * @param cache   the name of the cache the queue feeds
+     * @param obj     the object to report the depth of
+     * @param depth   the function that returns the depth from <code>obj</code>
+     */
+    public <T> void gaugeQueueDepth(String cache, T obj, ToDoubleFunction<T> depth) {
+        Gauge.builder(PREFIX+"queue.depth", obj, depth)
+             .description("the number of requests waiting in the caching queue")
+             .tags("cache", tagval(cache))
+             .register(registry);
+    }
+
+    /**
+     * record the creation of a deletion plan
+     * @param volume    the name of the volume the plan is for
+     * @param nanos     the time spent creating the plan, in nanoseconds
+     * @param ok        true if a viable plan was created
+     */
+    public void recordDeletionPlan(String volume, long nanos, boolean ok) {
+        String outcome = outcome(ok);
+        String v = tagval(volume);
+        ((Timer) meters.computeIfAbsent(key("deletion.plan", v, outcome), k ->
+            Timer.builder(PREFIX+"deletion.plan")
+                 .description("time taken to create deletion plans")
+                 .tags("volume", v, "outcome", outcome)
+                 .register(registry))).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * record the execution of an inventory database query
+     * @param op       a label for the type of query (e.g. "findObject")
+     * @param nanos    the time spent executing the query, in nanoseconds
+     */
+    public void recordInventoryQuery(String op, long nanos) {
+        String o = tagval(op);
+        ((Timer) meters.computeIfAbsent(key("inventory.query", o), k ->
+            Timer.builder(PREFIX+"inventory.query")
+                 .description("time taken by inventory database queries")
+                 .tags("op", o)
+                 .register(registry))).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(boolean ok) { return (ok) ? "success" : "failure"; }
+
+    private static String tagval(String val) { return (val == null) ? UNKNOWN : val; }
+
+    private static String key(String... parts) { return String.join("\t", parts); }
+}
@@ -16,6 +16,7 @@ package gov.nist.oar.distrib.cachemgr;
 import java.util.Set;
 import org.json.JSONObject;
 import org.json.JSONException;
+import org.json.JSONTokener;
 
 /**
  * a simple container class representing an object that can be stored in a
@@ -77,7 +78,14 @@ public class CacheObject {
     /**
      * the object metadata
      */
-    protected JSONObject _md = null;
+    protected volatile JSONObject _md = null;
+
+    /**
+     * additional metadata, encoded as a JSON object, that has not yet been parsed and merged into 
+     * {@link #_md}.  This allows metadata retrieved from an inventory database to be parsed only if 
+     * it is actually accessed.
+     */
+    protected volatile String _pending = null;
 
     /**
      * initialize the CacheObject with a name and a null volume ID
@@ -149,11 +157,63 @@ public class CacheObject {
             _md = new JSONObject();
     }
 
+    /**
+     * initialize the CacheObject with metadata, some of which is still in its JSON-encoded form.  
+     * The encoded metadata will not be parsed until a metadatum not found in <code>md</code> is 
+     * requested.  
+     * @param name    the name of the object within the volume.  This may be 
+     *                  different from its location-idenpendent identifier.
+     *                  (may be null)
+     * @param md      the object metadata provided as a JSON object; these values take precedence 
+     *                  over those in <code>encmd</code>.
+     * @param encmd   additional object metadata, encoded as a JSON object (may be null)
+     * @param vol     the identifer of the volume where the object is located
+     *                  (may be null).  If non-null, the cached flag will be set to true.
+     */
+    public CacheObject(String name, JSONObject md, String encmd, String vol) {
+        this(name, md, vol);
+        if (encmd != null && encmd.length() > 2)
+            _pending = encmd;
+    }
+
+    /**
+     * return the complete set of metadata, parsing any still-encoded metadata as necessary.  
+     * @throws JSONException  if the encoded metadata is not a legal JSON object
+     */
+    protected JSONObject _metadata() {
+        if (_pending != null) {
+            synchronized (this) {
+                if (_pending != null) {
+                    // merge into a new object so that readers of the current one are not disturbed
+                    JSONObject md = new JSONObject(new JSONTokener(_pending));
+                    JSONObject cur = _md;
+                    for (String prop : cur.keySet())
+                        md.put(prop, cur.get(prop));
+                    _md = md;
+                    _pending = null;
+                }
+            }
+        }
+        return _md;
+    }
+
+    /**
+     * return the metadata container that should hold the datum with the given name, parsing 
+     * still-encoded metadata only if needed.
+     */
+    private JSONObject _metadataFor(String name) {
+        String pending = _pending;
+        JSONObject md = _md;
+        if (pending == null || md.has(name))
+            return md;
+        return _metadata();
+    }
+
     /**
      * return the names of available metadata
      */
     public Set<String> metadatumNames() {
-        return _md.keySet();
+        return _metadata().keySet();
     }
 
     /**
@@ -162,7 +222,7 @@ public class CacheObject {
      * @param name   the name of the metadatum
      */
     public boolean hasMetadatum(String name) {
-        return _md.has(name);
+        return _metadataFor(name).has(name);
     }
 
     /**
@@ -198,9 +258,10 @@ public class CacheObject {
      *     stored as an int.
      */
     public int getMetadatumInt(String name, int defval) {
-        if (! _md.has(name))
+        JSONObject md = _metadataFor(name);
+        if (! md.has(name))
             return defval;
-        return _md.getInt(name);
+        return md.getInt(name);
     }
 
     /**
@@ -212,9 +273,10 @@ public class CacheObject {
      *     stored as an int.
      */
     public long getMetadatumLong(String name, long defval) {
-        if (! _md.has(name))
+        JSONObject md = _metadataFor(name);
+        if (! md.has(name))
             return defval;
-        return _md.getLong(name);
+        return md.getLong(name);
     }
 
     /**
@@ -226,18 +288,20 @@ public class CacheObject {
      *     stored as an int.
      */
     public String getMetadatumString(String name, String defval) {
-        if (! _md.has(name))
+        JSONObject md = _metadataFor(name);
+        if (! md.has(name))
             return defval;
-        return _md.getString(name);
+        return md.getString(name);
     }
 
     /**
      * return a copy of the metadata as a JSONObject instance
      */
     public JSONObject exportMetadata() {
-        String[] names = JSONObject.getNames(_md);
+        JSONObject md = _metadata();
+        String[] names = JSONObject.getNames(md);
         if (names == null)
             return new JSONObject();
-        return new JSONObject(_md, names);
+        return new JSONObject(md, names);
     }
 }
@@ -130,4 +130,24 @@ public interface CacheVolume {
      * @throws UnsupportedOperationException  if this operation is not supported on this volume
      */
     public URL getRedirectFor(String name) throws StorageVolumeException, UnsupportedOperationException;
+
+    /**
+     * return a URL that the object with the given name can be alternatively read from, taking 
+     * into account the object's metadata.  Implementations that can tailor the response a web 
+     * client will receive from the URL (e.g. its content type or download file name) can use the 
+     * metadata to do so.  This default implementation ignores the metadata and returns the 
+     * result of {@link #getRedirectFor(String)}.
+     * @param name       the name of the object to get
+     * @param md         the metadata describing the object (as from 
+     *                     {@link CacheObject#exportMetadata()}); may be null
+     * @return URL      a URL where the object can be streamed from
+     * @throws StorageVolumeException     if there is an internal error while trying to 
+     *                                     form the URL
+     * @throws UnsupportedOperationException  if this operation is not supported on this volume
+     */
+    default URL getRedirectFor(String name, JSONObject md)
+        throws StorageVolumeException, UnsupportedOperationException
+    {
+        return getRedirectFor(name);
+    }
 }
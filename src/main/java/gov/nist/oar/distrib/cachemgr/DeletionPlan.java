@@ -16,7 +16,13 @@ package gov.nist.oar.distrib.cachemgr;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.ObjectNotFoundException;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +47,10 @@ import org.slf4j.LoggerFactory;
  */
 public class DeletionPlan {
 
+    // locks that serialize the execution of plans on the same volume
+    private static final Map<CacheVolume, Lock> volumeLocks =
+        Collections.synchronizedMap(new WeakHashMap<CacheVolume, Lock>());
+
     /**
      * the CacheVolume instance that this plan is designed for.  This may be null if not known.
      */
@@ -205,7 +215,9 @@ public class DeletionPlan {
         if (volume == null)
             throw new IllegalStateException("No CacheVolume instance attached to this plan");
 
-        synchronized (inventory) {
+        Lock dblock = inventory.getLock();
+        dblock.lock();
+        try {
             if (inventory.getVolumeStatus(volume.getName()) < inventory.VOL_FOR_UPDATE)
                 throw new IllegalStateException("CacheVolume "+volume.getName()+
                                                 " not available for updates");
@@ -213,22 +225,30 @@ public class DeletionPlan {
             // lock this volume out from having another plan applied to or created for it 
             inventory.setVolumeStatus(volume.getName(), inventory.VOL_FOR_GET);
         }
+        finally {
+            dblock.unlock();
+        }
 
-        synchronized (volume) {
+        Lock vlock = lockFor(volume);
+        vlock.lock();
+        try {
             try {
-                return _execute();
+                return _execute(null);
             }
             finally {
                 // unlock this volume
                 inventory.setVolumeStatus(volume.getName(), inventory.VOL_FOR_UPDATE);
             }
         }
+        finally {
+            vlock.unlock();
+        }
     }
 
     /*
      * this implementation does not include locking
      */
-    private long _execute() throws DeletionFailureException, InventoryException {
+    private long _execute(List<String> deleted) throws DeletionFailureException, InventoryException {
         long removed = 0L;
         if (getByteCountToBeRemoved() > 0)
             log.info("Removing {} bytes via deletion plan on {}", getByteCountToBeRemoved(),
@@ -249,6 +269,8 @@ public class DeletionPlan {
                     // we will assume that the inventory is out of sync; we'll let this slide
                 }
                 inventory.removeObject(volume.getName(), co.name);
+                if (deleted != null && co.id != null)
+                    deleted.add(co.id);
             } catch (StorageVolumeException ex) {
                 fails++;
                 log.error("Problem executing deletion plan on volume, "+getVolumeName());
@@ -285,7 +307,9 @@ public class DeletionPlan {
         if (volume == null)
             throw new IllegalStateException("No CacheVolume instance attached to this plan");
 
-        synchronized (inventory) {
+        Lock dblock = inventory.getLock();
+        dblock.lock();
+        try {
             if (inventory.getVolumeStatus(volume.getName()) < inventory.VOL_FOR_UPDATE)
                 throw new IllegalStateException("CacheVolume "+volume.getName()+
                                                 " not available for updates");
@@ -293,12 +317,18 @@ public class DeletionPlan {
             // lock this volume out from having another plan applied to or created for it 
             inventory.setVolumeStatus(volume.getName(), inventory.VOL_FOR_GET);
         }
+        finally {
+            dblock.unlock();
+        }
 
-        synchronized (volume) {
+        Lock vlock = lockFor(volume);
+        vlock.lock();
+        try {
             try {
-                long removed = _execute();
+                List<String> deleted = new ArrayList<String>();
+                long removed = _execute(deleted);
                 if (cache != null)
-                    cache.notifyObjectsDeleted(volume, null, removed);
+                    cache.notifyObjectsDeleted(volume, deleted, removed);
                 if (removed < toBeRemoved)
                     throw new DeletionFailureException("Deletion plan for "+volname+" proved insufficient: " +
                                                  Long.toString(toBeRemoved) + " bytes needed; removed only " +
@@ -318,6 +348,13 @@ public class DeletionPlan {
                 inventory.setVolumeStatus(volume.getName(), inventory.VOL_FOR_UPDATE);
             }
         }
+        finally {
+            vlock.unlock();
+        }
+    }
+
+    private static Lock lockFor(CacheVolume vol) {
+        return volumeLocks.computeIfAbsent(vol, v -> new ReentrantLock());
     }
 
     /**
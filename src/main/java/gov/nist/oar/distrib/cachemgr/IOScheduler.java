@@ -0,0 +1,348 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * a scheduler that shares the I/O bandwidth of storage channels--cache volumes and long-term
+ * storage--between user downloads and background cache work.
+ * <p>
+ * Each byte read through the scheduler is attributed to a channel (e.g. the name of a cache volume, or
+ * {@link #LTS_CHANNEL} for long-term storage) and an {@link IOClass}.  Each class gets its own token
+ * bucket (a {@link ByteRateLimiter}) per channel, which can be given a fixed maximum rate.  In addition,
+ * if a channel is given a total capacity, the background classes ({@link IOClass#PREFETCH} and
+ * {@link IOClass#INTEGRITY}) automatically back off as interactive demand rises:  each is limited to
+ * the capacity not currently being used by interactive reads, but never less than a configured
+ * minimum share of the capacity.  Interactive reads are never slowed down by background work.
+ * <p>
+ * The class of I/O done by a thread defaults to {@link IOClass#INTERACTIVE}; background threads
+ * should declare their class via {@link #setThreadClass(IOClass)}.  Streams are placed under the
+ * scheduler's control via {@link #throttle(InputStream,String)}.  If no channel has been configured,
+ * streams are returned unwrapped, so an unconfigured scheduler costs nothing.
+ * <p>
+ * The cache components share the instance returned by {@link #getDefault()}.
+ */
+public class IOScheduler {
+
+    /**
+     * the classes of I/O that the scheduler distinguishes
+     */
+    public enum IOClass {
+        /** reads on behalf of a user waiting for the data */
+        INTERACTIVE,
+
+        /** background caching, such as processing of the cache queue */
+        PREFETCH,
+
+        /** background integrity checking of cached data */
+        INTEGRITY
+    }
+
+    /** the channel name used for reads from long-term storage */
+    public static final String LTS_CHANNEL = "lts";
+
+    /** the channel name whose configuration applies to channels that have not been configured */
+    public static final String DEFAULT_CHANNEL = "default";
+
+    static final long WINDOW_NS = 1000000000L;   // the interval over which demand is measured
+
+    private static volatile IOScheduler defaultScheduler = new IOScheduler();
+    private static final ThreadLocal<IOClass> threadClass =
+        ThreadLocal.withInitial(() -> IOClass.INTERACTIVE);
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<String, Channel>();
+    private final Map<String, Limits> config = new ConcurrentHashMap<String, Limits>();
+    private volatile double minShare = 0.1;
+
+    /**
+     * the limits configured for a channel
+     */
+    static class Limits {
+        final long capacity;
+        final EnumMap<IOClass, Long> ceilings = new EnumMap<IOClass, Long>(IOClass.class);
+        Limits(long capacity, long interactive, long prefetch, long integrity) {
+            this.capacity = capacity;
+            ceilings.put(IOClass.INTERACTIVE, interactive);
+            ceilings.put(IOClass.PREFETCH, prefetch);
+            ceilings.put(IOClass.INTEGRITY, integrity);
+        }
+    }
+
+    /**
+     * the state of a channel:  a token bucket for each class and a measure of interactive demand
+     */
+    class Channel {
+        final Limits limits;
+        final EnumMap<IOClass, ByteRateLimiter> buckets = new EnumMap<IOClass, ByteRateLimiter>(IOClass.class);
+        private long windowStart = System.nanoTime();
+        private long current = 0L;
+        private long previous = 0L;
+
+        Channel(Limits lim) {
+            limits = lim;
+            for (IOClass cls : IOClass.values())
+                buckets.put(cls, new ByteRateLimiter(lim.ceilings.get(cls)));
+        }
+
+        synchronized void recordDemand(long nbytes) {
+            roll();
+            current += nbytes;
+        }
+
+        /**
+         * return the recent interactive demand in bytes per second:  the larger of the amounts read
+         * in the last complete window and so far in the current one (so that rising demand is
+         * noticed right away).
+         */
+        synchronized long getDemand() {
+            roll();
+            return Math.max(previous, current) * 1000000000L / WINDOW_NS;
+        }
+
+        private void roll() {
+            long elapsed = System.nanoTime() - windowStart;
+            if (elapsed >= 2 * WINDOW_NS) {
+                previous = 0L;
+                current = 0L;
+                windowStart += elapsed;
+            }
+            else if (elapsed >= WINDOW_NS) {
+                previous = current;
+                current = 0L;
+                windowStart += WINDOW_NS;
+            }
+        }
+
+        /**
+         * return the rate currently allowed to the given class
+         */
+        long allowedRate(IOClass cls) {
+            long ceiling = limits.ceilings.get(cls);
+            if (cls == IOClass.INTERACTIVE || limits.capacity <= 0)
+                return ceiling;
+
+            long spare = Math.max((long) (limits.capacity * minShare), limits.capacity - getDemand());
+            return (ceiling > 0) ? Math.min(ceiling, spare) : spare;
+        }
+
+        void acquire(IOClass cls, long nbytes) throws InterruptedException {
+            ByteRateLimiter bucket = buckets.get(cls);
+            if (cls == IOClass.INTERACTIVE) {
+                recordDemand(nbytes);
+            }
+            else {
+                long rate = allowedRate(cls);
+                if (rate != bucket.getBytesPerSecond())
+                    bucket.setBytesPerSecond(rate);
+            }
+            bucket.acquire(nbytes);
+        }
+    }
+
+    /**
+     * create a scheduler with no channels configured
+     */
+    public IOScheduler() { }
+
+    /**
+     * return the shared instance used by the cache components.  Unless another instance was installed
+     * via {@link #setDefault(IOScheduler)}, this will be an unconfigured scheduler that imposes no limits.
+     */
+    public static IOScheduler getDefault() { return defaultScheduler; }
+
+    /**
+     * install the shared instance used by the cache components.  If null, an unconfigured scheduler
+     * is installed.
+     */
+    public static void setDefault(IOScheduler sched) {
+        defaultScheduler = (sched == null) ? new IOScheduler() : sched;
+    }
+
+    /**
+     * return the class of I/O being done by the current thread
+     */
+    public static IOClass getThreadClass() { return threadClass.get(); }
+
+    /**
+     * declare the class of I/O that will be done by the current thread
+     * @return IOClass  the class that was previously set, so that it can be restored
+     */
+    public static IOClass setThreadClass(IOClass cls) {
+        IOClass out = threadClass.get();
+        threadClass.set((cls == null) ? IOClass.INTERACTIVE : cls);
+        return out;
+    }
+
+    /**
+     * set the limits on a channel.  Rates are in bytes per second; a non-positive value means
+     * unlimited.  This should be called before the channel is used.
+     * @param channel      the name of the channel (a cache volume name, {@link #LTS_CHANNEL}, or
+     *                     {@link #DEFAULT_CHANNEL})
+     * @param capacity     the total rate the channel can sustain; if positive, background classes
+     *                     will back off as interactive demand approaches it.
+     * @param interactive  the maximum rate for interactive reads
+     * @param prefetch     the maximum rate for background caching
+     * @param integrity    the maximum rate for integrity checking
+     */
+    public void configure(String channel, long capacity, long interactive, long prefetch, long integrity) {
+        config.put(channel, new Limits(capacity, interactive, prefetch, integrity));
+        channels.remove(channel);
+        if (DEFAULT_CHANNEL.equals(channel))
+            channels.clear();
+    }
+
+    /**
+     * return true if at least one channel has been configured
+     */
+    public boolean isConfigured() { return ! config.isEmpty(); }
+
+    /**
+     * return the minimum fraction of a channel's capacity that background classes are allowed even
+     * when interactive demand would use all of it
+     */
+    public double getMinBackgroundShare() { return minShare; }
+
+    /**
+     * set the minimum fraction of a channel's capacity that background classes are allowed even
+     * when interactive demand would use all of it.  The default is 0.1.
+     */
+    public void setMinBackgroundShare(double frac) {
+        if (frac < 0.0 || frac > 1.0)
+            throw new IllegalArgumentException("setMinBackgroundShare(): fraction not between 0 and 1");
+        minShare = frac;
+    }
+
+    /**
+     * return the recent interactive demand on a channel, in bytes per second
+     */
+    public long getInteractiveDemand(String channel) {
+        return channelFor(channel).getDemand();
+    }
+
+    /**
+     * return the rate, in bytes per second, currently allowed to a class on a channel; a non-positive
+     * value means unlimited.
+     */
+    public long getAllowedRate(String channel, IOClass cls) {
+        return channelFor(channel).allowedRate(cls);
+    }
+
+    /**
+     * account for the transfer of bytes on a channel, blocking as needed to keep the class within
+     * its limits.
+     * @throws InterruptedException  if the thread was interrupted while waiting.
+     */
+    public void acquire(String channel, IOClass cls, long nbytes) throws InterruptedException {
+        if (nbytes <= 0 || config.isEmpty())
+            return;
+        channelFor(channel).acquire(cls, nbytes);
+    }
+
+    /**
+     * wrap a stream so that reads from it are accounted to the given channel under the class of
+     * the current thread.
+     */
+    public InputStream throttle(InputStream in, String channel) {
+        return throttle(in, channel, getThreadClass());
+    }
+
+    /**
+     * wrap a stream so that reads from it are accounted to the given channel and class.  If no
+     * channels have been configured, the stream is returned as is.
+     */
+    public InputStream throttle(InputStream in, String channel, IOClass cls) {
+        if (in == null || config.isEmpty() || in instanceof ThrottledInputStream)
+            return in;
+        return new ThrottledInputStream(in, channel, cls);
+    }
+
+    /**
+     * change the class that reads from a stream returned by {@link #throttle(InputStream,String)} are
+     * accounted to, as when the rest of a stream that a user stopped reading is read in the background.
+     * A stream that is not under a scheduler's control is left as is.
+     * @return boolean -- true if the stream was reclassified
+     */
+    public static boolean reclassify(InputStream in, IOClass cls) {
+        if (! (in instanceof ThrottledInputStream))
+            return false;
+        ((ThrottledInputStream) in).cls = (cls == null) ? IOClass.INTERACTIVE : cls;
+        return true;
+    }
+
+    private Channel channelFor(String name) {
+        if (name == null)
+            name = DEFAULT_CHANNEL;
+        return channels.computeIfAbsent(name, n -> {
+            Limits lim = config.get(n);
+            if (lim == null)
+                lim = config.get(DEFAULT_CHANNEL);
+            if (lim == null)
+                lim = new Limits(0L, 0L, 0L, 0L);
+            return new Channel(lim);
+        });
+    }
+
+    /**
+     * a stream whose reads are paced by this scheduler
+     */
+    class ThrottledInputStream extends FilterInputStream {
+        private final Channel channel;
+        private volatile IOClass cls;
+
+        ThrottledInputStream(InputStream in, String channel, IOClass cls) {
+            super(in);
+            this.channel = channelFor(channel);
+            this.cls = cls;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = in.read();
+            if (c >= 0)
+                pace(1);
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0)
+                pace(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long s = in.skip(n);
+            if (s > 0)
+                pace(s);
+            return s;
+        }
+
+        private void pace(long nbytes) throws IOException {
+            try {
+                channel.acquire(cls, nbytes);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for I/O bandwidth");
+            }
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import gov.nist.oar.distrib.StorageVolumeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * an in-memory tier that holds the contents of the most frequently requested small objects from a
+ * cache so that they can be delivered without any disk or network I/O.
+ * <p>
+ * The contents of admitted objects are held off the Java heap in direct {@link ByteBuffer}s, up
+ * to a configured byte budget.  (Note that the JVM's direct memory limit,
+ * <code>-XX:MaxDirectMemorySize</code>, must accommodate the budget.)  Only objects no larger than
+ * a configured size are considered.  Which objects are held is governed by the W-TinyLFU policy:
+ * the access frequency of every requested object (held or not) is tracked in a compact, aging
+ * count-min sketch; newly loaded objects enter a small LRU "window", and when they are pushed out
+ * of it, they are admitted into the main region only if they have been requested more often than
+ * the object that would have to be evicted to make room.  The main region is a segmented LRU
+ * (probation and protected segments), so objects requested repeatedly are shielded from one-time
+ * scans.  An object is not loaded into memory until it has been requested at least twice, and
+ * concurrent requests that miss on the same object share a single load of it.
+ * <p>
+ * This tier is consulted with a {@link CacheObject} returned by a cache lookup (see
+ * {@link #open(String,CacheObject)}).  A held copy is only delivered if it matches that object
+ * (same volume, name, size, and checksum), so a stale copy is never delivered after an object has
+ * been recached; the stale copy is simply replaced.
+ */
+public class MemoryHotTier {
+
+    private static Logger log = LoggerFactory.getLogger(MemoryHotTier.class);
+
+    /**
+     * a held object
+     */
+    private static class Entry {
+        final String volname;
+        final String name;
+        final String checksum;
+        final ByteBuffer data;      // read-only; duplicated for each reader
+        Entry(CacheObject co, ByteBuffer data) {
+            volname = co.volname;
+            name = co.name;
+            checksum = co.getMetadatumString("checksum", null);
+            this.data = data.asReadOnlyBuffer();
+        }
+        long size() { return data.capacity(); }
+        boolean matches(CacheObject co) {
+            return Objects.equals(volname, co.volname) && Objects.equals(name, co.name) &&
+                   size() == co.getSize() &&
+                   Objects.equals(checksum, co.getMetadatumString("checksum", null));
+        }
+    }
+
+    private final long budget;
+    private final long maxObjectSize;
+    private final long windowMax;
+    private final long protectedMax;
+    private final FrequencySketch sketch;
+
+    // all three are access-ordered; guarded by this
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> protect = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long windowBytes = 0L;
+    private long probationBytes = 0L;
+    private long protectedBytes = 0L;
+
+    // the objects currently being loaded into memory, mapped to the copies they will provide
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> loading =
+        new ConcurrentHashMap<String, CompletableFuture<Entry>>();
+
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+
+    /**
+     * create the tier
+     * @param budget         the maximum number of bytes of object content to hold in memory
+     * @param maxObjectSize  the size of the largest object that will be held
+     */
+    public MemoryHotTier(long budget, long maxObjectSize) {
+        if (budget <= 0)
+            throw new IllegalArgumentException("MemoryHotTier: budget must be positive");
+        this.budget = budget;
+        this.maxObjectSize = Math.min(maxObjectSize, Math.min(budget, Integer.MAX_VALUE));
+        windowMax = Math.max(budget / 100, this.maxObjectSize);
+        protectedMax = (budget - Math.min(windowMax, budget)) * 4 / 5;
+
+        // size the sketch for the number of objects that could be held if they were 4 kB on average
+        sketch = new FrequencySketch((int) Math.min(budget / 4096, 1 << 20));
+    }
+
+    /**
+     * return the maximum number of bytes of content this tier will hold
+     */
+    public long getBudget() { return budget; }
+
+    /**
+     * return the size of the largest object that will be held by this tier
+     */
+    public long getMaxObjectSize() { return maxObjectSize; }
+
+    /**
+     * return a stream for reading the contents of the given object from memory, loading it if it
+     * is not already held but is popular enough.  The access is counted toward the object's
+     * popularity whether or not it is held.  Null is returned if the object is not (and will not
+     * now be) held, in which case the caller should read it from its volume as usual.
+     * @param id   the identifier of the object
+     * @param co   the object as returned by a lookup in the cache; its <code>volume</code> field
+     *               must be set in order for the object to be loaded.
+     * @return InputStream -- the contents of the object, or null if it is not held in memory
+     */
+    public InputStream open(String id, CacheObject co) {
+        long size = co.getSize();
+        if (size < 0 || size > maxObjectSize)
+            return null;
+        sketch.increment(id);
+
+        Entry e = null;
+        synchronized (this) {
+            e = touch(id);
+            if (e != null && ! e.matches(co)) {
+                remove(id);
+                e = null;
+            }
+        }
+        if (e != null) {
+            hits.incrementAndGet();
+            return new ByteBufferInputStream(e.data.duplicate());
+        }
+
+        misses.incrementAndGet();
+        if (co.volume == null || sketch.frequency(id) < 2)
+            return null;
+
+        // only one thread loads a given object; the others wait for it and share its copy
+        CompletableFuture<Entry> mine = new CompletableFuture<Entry>();
+        CompletableFuture<Entry> leader = loading.putIfAbsent(id, mine);
+        if (leader != null) {
+            e = awaitLoad(id, leader);
+            return (e != null && e.matches(co)) ? new ByteBufferInputStream(e.data.duplicate()) : null;
+        }
+
+        try {
+            ByteBuffer data = load(co);
+            if (data == null)
+                return null;
+            e = new Entry(co, data);
+            synchronized (this) {
+                remove(id);
+                window.put(id, e);
+                windowBytes += e.size();
+                evict();
+            }
+            return new ByteBufferInputStream(e.data.duplicate());
+        }
+        finally {
+            loading.remove(id, mine);
+            mine.complete(e);
+        }
+    }
+
+    private Entry awaitLoad(String id, CompletableFuture<Entry> leader) {
+        try {
+            return leader.get();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException ex) {
+            // the loading thread always completes normally
+            log.warn("Unexpected failure while loading {} into memory: {}", id, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * drop any copy of the object with the given identifier held in memory
+     */
+    public synchronized void invalidate(String id) {
+        remove(id);
+    }
+
+    /**
+     * drop all objects held in memory
+     */
+    public synchronized void clear() {
+        window.clear();
+        probation.clear();
+        protect.clear();
+        windowBytes = probationBytes = protectedBytes = 0L;
+    }
+
+    /**
+     * return the number of objects currently held in memory
+     */
+    public synchronized int size() {
+        return window.size() + probation.size() + protect.size();
+    }
+
+    /**
+     * return the number of bytes of content currently held in memory
+     */
+    public synchronized long getUsedBytes() {
+        return windowBytes + probationBytes + protectedBytes;
+    }
+
+    /**
+     * return a summary of the state and effectiveness of this tier
+     */
+    public JSONObject getStatus() {
+        JSONObject out = new JSONObject();
+        synchronized (this) {
+            out.put("objects", size());
+            out.put("used", getUsedBytes());
+        }
+        out.put("budget", budget);
+        out.put("maxObjectSize", maxObjectSize);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        return out;
+    }
+
+    /*
+     * look up an entry, updating its position according to the SLRU policy
+     */
+    private Entry touch(String id) {
+        Entry e = window.get(id);
+        if (e != null)
+            return e;
+        e = protect.get(id);
+        if (e != null)
+            return e;
+        e = probation.remove(id);
+        if (e != null) {
+            // promote to protected
+            probationBytes -= e.size();
+            protect.put(id, e);
+            protectedBytes += e.size();
+            while (protectedBytes > protectedMax && protect.size() > 1) {
+                Map.Entry<String, Entry> old = protect.entrySet().iterator().next();
+                protect.remove(old.getKey());
+                protectedBytes -= old.getValue().size();
+                probation.put(old.getKey(), old.getValue());
+                probationBytes += old.getValue().size();
+            }
+        }
+        return e;
+    }
+
+    private void remove(String id) {
+        Entry e = window.remove(id);
+        if (e != null) {
+            windowBytes -= e.size();
+            return;
+        }
+        e = probation.remove(id);
+        if (e != null) {
+            probationBytes -= e.size();
+            return;
+        }
+        e = protect.remove(id);
+        if (e != null)
+            protectedBytes -= e.size();
+    }
+
+    /*
+     * move objects out of the window into the main region, applying the TinyLFU admission filter
+     */
+    private void evict() {
+        long mainMax = budget - windowMax;
+        Iterator<Map.Entry<String, Entry>> wit = window.entrySet().iterator();
+        while (windowBytes > windowMax && wit.hasNext()) {
+            Map.Entry<String, Entry> cand = wit.next();
+            wit.remove();
+            windowBytes -= cand.getValue().size();
+            int candFreq = sketch.frequency(cand.getKey());
+
+            boolean admit = true;
+            while (admit && probationBytes + protectedBytes + cand.getValue().size() > mainMax) {
+                Map.Entry<String, Entry> victim = eldest(probation);
+                if (victim == null)
+                    victim = eldest(protect);
+                if (victim == null || candFreq <= sketch.frequency(victim.getKey()))
+                    admit = false;     // the candidate loses
+                else
+                    remove(victim.getKey());
+            }
+            if (admit) {
+                probation.put(cand.getKey(), cand.getValue());
+                probationBytes += cand.getValue().size();
+            }
+            else if (log.isDebugEnabled())
+                log.debug("Hot tier declined to keep {}", cand.getKey());
+        }
+    }
+
+    private static Map.Entry<String, Entry> eldest(LinkedHashMap<String, Entry> seg) {
+        Iterator<Map.Entry<String, Entry>> it = seg.entrySet().iterator();
+        return (it.hasNext()) ? it.next() : null;
+    }
+
+    /*
+     * read the object's contents from its volume into a direct buffer
+     */
+    private ByteBuffer load(CacheObject co) {
+        long size = co.getSize();
+        ByteBuffer buf = ByteBuffer.allocateDirect((int) size);
+        try (InputStream is = co.volume.getStream(co.name);
+             ReadableByteChannel ch = Channels.newChannel(is))
+        {
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0)
+                    break;
+            }
+            if (buf.hasRemaining() || is.read() >= 0) {
+                log.warn("{}: size in volume does not match inventory; not holding in memory", co.name);
+                return null;
+            }
+        }
+        catch (StorageVolumeException | IOException ex) {
+            log.warn("Unable to load {} into memory: {}", co.name, ex.getMessage());
+            return null;
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * an InputStream over the (remaining) contents of a ByteBuffer
+     */
+    static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+        ByteBufferInputStream(ByteBuffer buf) { this.buf = buf; }
+
+        @Override
+        public int read() {
+            return (buf.hasRemaining()) ? (buf.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (! buf.hasRemaining())
+                return -1;
+            len = Math.min(len, buf.remaining());
+            buf.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            if (n <= 0)
+                return 0L;
+            int k = (int) Math.min(n, buf.remaining());
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() { return buf.remaining(); }
+    }
+
+    /**
+     * a count-min sketch of 4-bit counters used to estimate how often objects are requested.  To
+     * favor recent popularity, all counters are halved after a number of increments proportional to
+     * the sketch's size.
+     */
+    static class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int[] SEEDS = { 0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f };
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int expectedItems) {
+            int width = Integer.highestOneBit(Math.max(64, expectedItems) - 1) << 1;
+            table = new byte[DEPTH][width];
+            mask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return h & mask;
+        }
+
+        synchronized void increment(String key) {
+            int hash = key.hashCode();
+            int min = frequency(hash);
+            if (min >= 15)
+                return;
+            for (int i = 0; i < DEPTH; i++) {
+                // conservative update: only raise the counters that are at the minimum
+                int j = index(hash, i);
+                if (table[i][j] == min)
+                    table[i][j]++;
+            }
+            if (++additions >= sampleSize)
+                reset();
+        }
+
+        synchronized int frequency(String key) {
+            return frequency(key.hashCode());
+        }
+
+        private int frequency(int hash) {
+            int min = 15;
+            for (int i = 0; i < DEPTH; i++)
+                min = Math.min(min, table[i][index(hash, i)]);
+            return min;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int j = 0; j < row.length; j++)
+                    row[j] >>= 1;
+            }
+            additions /= 2;
+        }
+    }
+}
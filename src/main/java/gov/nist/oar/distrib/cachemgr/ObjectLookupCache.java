@@ -0,0 +1,186 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+/**
+ * a short-lived, in-memory record of recent {@link BasicCache#findObject(String)} results.
+ * <p>
+ * Looking up an object in a cache requires a query of the inventory database followed by a check
+ * that the object actually exists in its volume--for a volume in AWS S3, a network round trip.
+ * This class remembers the outcome of recent lookups--both hits (the located {@link CacheObject})
+ * and misses--for a short time so that repeated requests for the same object need not repeat that
+ * work.  Hits and misses have separate time-to-live values; a zero TTL disables caching of that
+ * kind of result.  Entries are explicitly invalidated when the owning cache adds or removes the
+ * object; changes made to the inventory by other means are reflected once the entry expires.
+ * <p>
+ * The number of entries is bounded; when the limit is reached, expired entries are purged, and if
+ * that is not sufficient, all entries are dropped.  To avoid remembering a result that was made
+ * stale by a concurrent change, a result is only recorded if no invalidation occurred since the
+ * lookup began (see {@link #mark()}).
+ */
+class ObjectLookupCache {
+
+    /**
+     * a remembered lookup result
+     */
+    static class Entry {
+        final CacheObject found;   // null for a recorded miss
+        final long expires;
+        Entry(CacheObject co, long expires) {
+            this.found = co;
+            this.expires = expires;
+        }
+
+        /**
+         * return the object that was found or null if the lookup was a miss.  A copy of the 
+         * remembered object--including its metadata--is returned so that callers setting its fields 
+         * or updating its metadata do not alter the entry.
+         */
+        CacheObject getObject() {
+            return (found == null) ? null : copy(found);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final long hitTTL;
+    private final long missTTL;
+    private final int maxEntries;
+    private final AtomicLong generation = new AtomicLong(0L);
+
+    /**
+     * create the lookup cache
+     * @param hitTTL      the time in milliseconds to remember a successful lookup
+     * @param missTTL     the time in milliseconds to remember a failed lookup
+     * @param maxEntries  the maximum number of lookups to remember
+     */
+    ObjectLookupCache(long hitTTL, long missTTL, int maxEntries) {
+        this.hitTTL = hitTTL;
+        this.missTTL = missTTL;
+        this.maxEntries = maxEntries;
+        entries = new ConcurrentHashMap<String, Entry>(Math.min(maxEntries, 1024));
+    }
+
+    /**
+     * return the remembered result of a recent lookup of the object with the given identifier, or
+     * null if no unexpired result is remembered.
+     */
+    Entry lookup(String id) {
+        Entry e = entries.get(id);
+        if (e == null)
+            return null;
+        if (e.expires < System.currentTimeMillis()) {
+            entries.remove(id, e);
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * return a token to be passed to {@link #found(String,CacheObject,long)} or 
+     * {@link #missed(String,long)} upon completing a lookup.  This should be called before the 
+     * lookup is started.
+     */
+    long mark() { return generation.get(); }
+
+    /**
+     * remember that the object with the given identifier was found.
+     * @param mark   the value returned by {@link #mark()} before the lookup began
+     */
+    void found(String id, CacheObject co, long mark) {
+        if (hitTTL > 0)
+            put(id, new Entry(copy(co), System.currentTimeMillis() + hitTTL), mark);
+    }
+
+    /**
+     * remember that the object with the given identifier was not found in the cache.
+     * @param mark   the value returned by {@link #mark()} before the lookup began
+     */
+    void missed(String id, long mark) {
+        if (missTTL > 0)
+            put(id, new Entry(null, System.currentTimeMillis() + missTTL), mark);
+    }
+
+    private void put(String id, Entry e, long mark) {
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries)
+                entries.clear();
+        }
+        entries.put(id, e);
+
+        // if something changed while the lookup was happening, the result may be stale
+        if (generation.get() != mark)
+            entries.remove(id, e);
+    }
+
+    /**
+     * forget any lookup of the object with the given identifier.
+     */
+    void invalidate(String id) {
+        generation.incrementAndGet();
+        if (id != null)
+            entries.remove(id);
+    }
+
+    /**
+     * forget the lookups of the objects with the given identifiers.
+     */
+    void invalidate(Collection<String> ids) {
+        for (String id : ids)
+            invalidate(id);
+    }
+
+    /**
+     * forget all successful lookups of objects found in the volume with the given name.
+     */
+    void invalidateVolume(String volname) {
+        generation.incrementAndGet();
+        entries.values().removeIf(e -> e.found != null && volname.equals(e.found.volname));
+    }
+
+    /**
+     * forget all lookups
+     */
+    void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * return the number of lookups currently remembered (including any that have expired but
+     * have not yet been purged).
+     */
+    int size() { return entries.size(); }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expires < now);
+    }
+
+    private static CacheObject copy(CacheObject co) {
+        // read the pending metadata first: once it is cleared, _md is fully merged
+        String pending = co._pending;
+        JSONObject md = new JSONObject(co._md.toString());
+        CacheObject out = new CacheObject(co.name, md, pending, co.volname);
+        out.id = co.id;
+        out.volume = co.volume;
+        out.score = co.score;
+        out.cached = co.cached;
+        return out;
+    }
+}
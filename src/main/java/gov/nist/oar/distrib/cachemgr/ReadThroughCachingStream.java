@@ -0,0 +1,428 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import gov.nist.oar.distrib.Checksum;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * an InputStream that saves the data object it delivers into the cache as it is read.
+ * <p>
+ * This stream wraps a stream of an object's content coming from long-term storage (e.g. as it is
+ * being delivered to a user).  The bytes read through it are spooled to a temporary file; when the
+ * end of the source stream is reached, the object's size and (if known) checksum are verified, and
+ * the object is handed to a {@link Saver} that reserves space for it and saves it into the cache.
+ * The save happens on a background thread so that the reader is not delayed.
+ * <p>
+ * The object is spooled rather than written straight into a cache volume as it is read for three
+ * reasons:  the reader is not held to the pace of the volume (whose writes are throttled as 
+ * background I/O; see {@link IOScheduler}); an object is only registered in the inventory once it has
+ * been verified in full; and space in the cache is only reserved (possibly evicting other objects)
+ * for objects that will actually be saved.
+ * <p>
+ * If the stream is closed before it is fully read (e.g. because the user canceled the download),
+ * the remainder of the object will be read from the source in the background and cached anyway,
+ * provided that the amount remaining does not exceed a configured limit; otherwise, the partial
+ * object is discarded.  Instances are created via
+ * {@link BasicCacheManager#cacheWhileReading(String,InputStream,long)}.
+ */
+public class ReadThroughCachingStream extends FilterInputStream {
+
+    /**
+     * a function that saves a verified object into the cache, reserving the space for it.
+     */
+    @FunctionalInterface
+    interface Saver {
+        /**
+         * save the object
+         * @param content   the object's content
+         * @param md        the metadata to save with the object
+         * @return CacheObject -- the saved object
+         */
+        CacheObject save(InputStream content, JSONObject md) throws CacheManagementException;
+    }
+
+    private static Logger log = LoggerFactory.getLogger(ReadThroughCachingStream.class);
+    private static final AtomicInteger threadCount = new AtomicInteger(0);
+    private static volatile ExecutorService finisher = createFinisher(false);
+
+    private final String id;
+    private final Saver saver;
+    private final JSONObject md;
+    private final long size;
+    private final long finishLimit;
+    private final Runnable onDone;
+    private final BooleanSupplier onSave;
+    private final String expectedHash;
+    private final MessageDigest digest;
+    private final Path spool;
+    private final OutputStream spoolOut;
+    private final CompletableFuture<CacheObject> result = new CompletableFuture<CacheObject>();
+    private final ReentrantLock lock = new ReentrantLock();   // guards the spool; does not pin virtual threads
+
+    private long count = 0L;
+    private boolean failed = false;
+    private boolean ended = false;
+
+    /**
+     * wrap a stream
+     * @param src          the stream providing the object's content
+     * @param id           the identifier of the object
+     * @param saver        the function to use to save the verified object into the cache
+     * @param md           the metadata to save with the object; if it includes a SHA-256 checksum,
+     *                       the object will be verified against it before being saved.
+     * @param size         the expected size of the object
+     * @param finishLimit  the maximum number of bytes that may remain unread when this stream is
+     *                       closed for the object to still be saved.
+     * @param onDone       a function to call when the object has been saved or abandoned (can be null)
+     */
+    ReadThroughCachingStream(InputStream src, String id, Saver saver, JSONObject md,
+                             long size, long finishLimit, Runnable onDone)
+        throws IOException
+    {
+        this(src, id, saver, md, size, finishLimit, null, onDone);
+    }
+
+    /**
+     * wrap a stream
+     * @param src          the stream providing the object's content
+     * @param id           the identifier of the object
+     * @param saver        the function to use to save the verified object into the cache
+     * @param md           the metadata to save with the object; if it includes a SHA-256 checksum,
+     *                       the object will be verified against it before being saved.
+     * @param size         the expected size of the object
+     * @param finishLimit  the maximum number of bytes that may remain unread when this stream is
+     *                       closed for the object to still be saved.
+     * @param onSave       a function to call once the object has been verified, just before it is
+     *                       saved; if it returns false, the object is discarded instead (can be null)
+     * @param onDone       a function to call when the object has been saved or abandoned (can be null)
+     */
+    ReadThroughCachingStream(InputStream src, String id, Saver saver, JSONObject md,
+                             long size, long finishLimit, BooleanSupplier onSave, Runnable onDone)
+        throws IOException
+    {
+        super(src);
+        this.id = id;
+        this.saver = saver;
+        this.md = md;
+        this.size = size;
+        this.finishLimit = finishLimit;
+        this.onDone = onDone;
+        this.onSave = onSave;
+
+        String hash = md.optString("checksum", null);
+        if (hash != null && Checksum.SHA256.equals(md.optString("checksumAlgorithm", Checksum.SHA256))) {
+            expectedHash = hash;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 not supported by JVM", ex);
+            }
+        }
+        else {
+            expectedHash = null;
+            digest = null;
+        }
+
+        spool = Files.createTempFile("readthru-", ".part");
+        spoolOut = new BufferedOutputStream(Files.newOutputStream(spool));
+    }
+
+    private static ExecutorService createFinisher(boolean virtual) {
+        if (virtual)
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("read-through-cacher-", 1)
+                                                                        .factory());
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "read-through-cacher-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * set whether objects should be finished and saved in the background on virtual threads rather 
+     * than on (low-priority) platform threads.  This affects all streams that finish after this call.
+     */
+    public static void setUseVirtualThreads(boolean use) {
+        ExecutorService old = finisher;
+        finisher = createFinisher(use);
+        old.shutdown();
+    }
+
+    /**
+     * return the identifier of the object being cached
+     */
+    public String getId() { return id; }
+
+    /**
+     * return a handle on the outcome of the caching.  Its value is the saved object, or null if
+     * the object was not saved.
+     */
+    public CompletableFuture<CacheObject> getResult() { return result; }
+
+    @Override
+    public int read() throws IOException {
+        int c = in.read();
+        if (c < 0)
+            ended();
+        else
+            capture(new byte[] { (byte) c }, 0, 1);
+        return c;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n < 0)
+            ended();
+        else if (n > 0)
+            capture(b, off, n);
+        return n;
+    }
+
+    /**
+     * skip over bytes.  The skipped bytes are still read (and captured) from the source.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buf = new byte[(int) Math.min(n, 32768)];
+        long skipped = 0L;
+        while (skipped < n) {
+            int r = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+            if (r < 0)
+                break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() { return false; }
+
+    @Override
+    public synchronized void mark(int readlimit) { }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        lock.lock();
+        try {
+            if (failed || ended)
+                return;
+            count += len;
+            if (count > size) {
+                log.warn("{}: more bytes than expected read from source; will not cache", id);
+                failed = true;
+                return;
+            }
+            try {
+                spoolOut.write(b, off, len);
+                if (digest != null)
+                    digest.update(b, off, len);
+            } catch (IOException ex) {
+                log.warn("{}: failed to spool data for caching: {}", id, ex.getMessage());
+                failed = true;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void ended() {
+        lock.lock();
+        try {
+            if (ended)
+                return;
+            ended = true;
+            finisher.submit(this::commit);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * close the stream.  If the end of the source has not been reached yet, the rest of the
+     * object may be read and cached in the background.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (ended) {
+                in.close();
+                return;
+            }
+            ended = true;
+            if (failed || size - count > finishLimit) {
+                log.debug("{}: read aborted after {} of {} bytes; discarding", id, count, size);
+                try {
+                    in.close();
+                } finally {
+                    abandon();
+                }
+                return;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        log.debug("{}: read aborted after {} of {} bytes; finishing in background", id, count, size);
+
+        // no one is waiting for the rest, so it should be read as background work
+        IOScheduler.reclassify(in, IOScheduler.IOClass.PREFETCH);
+        finisher.submit(() -> {
+            try {
+                byte[] buf = new byte[32768];
+                int n;
+                while ((n = in.read(buf)) >= 0)
+                    captureRemainder(buf, n);
+            }
+            catch (IOException ex) {
+                log.warn("{}: failed to read remainder of object: {}", id, ex.getMessage());
+                lock.lock();
+                try {
+                    failed = true;
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+            finally {
+                try { in.close(); } catch (IOException ex) { }
+            }
+            commit();
+        });
+    }
+
+    private void captureRemainder(byte[] buf, int n) {
+        lock.lock();
+        try {
+            // capture() ignores data once ended, so write directly
+            count += n;
+            if (failed || count > size) {
+                failed = true;
+                return;
+            }
+            try {
+                spoolOut.write(buf, 0, n);
+                if (digest != null)
+                    digest.update(buf, 0, n);
+            } catch (IOException ex) {
+                failed = true;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * verify the spooled object and save it into the reservation
+     */
+    private void commit() {
+        CacheObject out = null;
+        boolean bad;
+        long got;
+        lock.lock();
+        try {
+            bad = failed;
+            got = count;
+        }
+        finally {
+            lock.unlock();
+        }
+
+        try {
+            spoolOut.close();
+            if (bad)
+                return;
+            if (got != size) {
+                log.warn("{}: read {} bytes, expected {}; will not cache", id, got, size);
+                return;
+            }
+            if (digest != null) {
+                String hash = HexFormat.of().formatHex(digest.digest());
+                if (! hash.equalsIgnoreCase(expectedHash)) {
+                    log.warn("{}: checksum mismatch ({} != {}); will not cache", id, hash, expectedHash);
+                    return;
+                }
+            }
+            if (onSave != null && ! onSave.getAsBoolean()) {
+                log.debug("{}: cached by other means while being read; discarding", id);
+                return;
+            }
+
+            // the user already has the data, so saving it is background work
+            IOScheduler.IOClass prev = IOScheduler.setThreadClass(IOScheduler.IOClass.PREFETCH);
+            try (InputStream is = Files.newInputStream(spool)) {
+                out = saver.save(is, md);
+                log.info("Cached {} (read-through)", id);
+            }
+            finally {
+                IOScheduler.setThreadClass(prev);
+            }
+        }
+        catch (IOException | CacheManagementException ex) {
+            log.warn("{}: failed to save read-through object: {}", id, ex.getMessage());
+        }
+        catch (RuntimeException ex) {
+            log.error("{}: unexpected failure saving read-through object: {}", id, ex.getMessage(), ex);
+        }
+        finally {
+            cleanup();
+            result.complete(out);
+        }
+    }
+
+    private void abandon() {
+        try { spoolOut.close(); } catch (IOException ex) { }
+        cleanup();
+        result.complete(null);
+    }
+
+    private void cleanup() {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException ex) {
+            log.warn("Unable to remove read-through spool file, {}: {}", spool, ex.getMessage());
+        }
+        if (onDone != null)
+            onDone.run();
+    }
+}
@@ -17,6 +17,7 @@ import gov.nist.oar.distrib.StorageVolumeException;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.json.JSONObject;
 import org.json.JSONException;
@@ -33,6 +34,7 @@ import org.apache.commons.lang3.RandomStringUtils;
 public class Reservation {
     private String _name = null;
     private long _size = 0L;
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * the volume where the space is reserved.
@@ -118,7 +120,7 @@ public class Reservation {
      * @param objname a cache-specific name to give to the saved object.  
      * @return CacheObject  a CacheObject instance representing the data saved by this method call.
      */
-    public synchronized CacheObject saveAs(InputStream from, String id, String objname)
+    public CacheObject saveAs(InputStream from, String id, String objname)
         throws CacheManagementException
     {
         return this.saveAs(from, id, objname, null);
@@ -136,7 +138,20 @@ public class Reservation {
      * @param metadata  metadata to associate with the saved object
      * @return CacheObject  a CacheObject instance representing the data saved by this method call.
      */
-    public synchronized CacheObject saveAs(InputStream from, String id, String objname, JSONObject metadata)
+    public CacheObject saveAs(InputStream from, String id, String objname, JSONObject metadata)
+        throws CacheManagementException
+    {
+        // a lock rather than a monitor, so that a virtual thread waiting on a save does not pin its carrier
+        lock.lock();
+        try {
+            return saveObject(from, id, objname, metadata);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private CacheObject saveObject(InputStream from, String id, String objname, JSONObject metadata)
         throws CacheManagementException
     {
         if (_size <= 0)
@@ -148,7 +163,10 @@ public class Reservation {
             try { size = metadata.getLong("size"); }
             catch (JSONException ex) { }
         }
-        CountingInputStream is = new CountingInputStream(from);
+        // writes into the volume are paced according to the class of I/O being done by this thread
+        InputStream src = IOScheduler.getDefault().throttle(from, vol.getName());
+        CountingInputStream is = new CountingInputStream(src);
+        long start = System.nanoTime();
         try {
             vol.saveAs(is, objname, metadata);
 
@@ -174,6 +192,7 @@ public class Reservation {
                 catch (IntegrityException ex) {
                     db.removeObject(out.volname, objname);
                     vol.remove(objname);
+                    out = null;
                     throw ex;
                 }
             }
@@ -198,6 +217,12 @@ public class Reservation {
             throw new CacheManagementException("Problem updating inventory for id="+id+": "+
                                                ex.getMessage()+" (aborted save)", ex);
         }
+        finally {
+            // every path that restores objects into the cache goes through here
+            CacheMetrics.getDefault().recordRestore((cache == null) ? null : cache.getName(), vol.getName(),
+                                                    (out == null) ? -1L : is.count(),
+                                                    System.nanoTime() - start, out != null);
+        }
 
         if (_size <= 0) {
             // unregister the reservation from the storage inventory
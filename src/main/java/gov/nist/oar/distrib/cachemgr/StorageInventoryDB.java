@@ -17,6 +17,7 @@ import org.json.JSONObject;
 import java.util.List;
 import java.util.Map;
 import java.util.Collection;
+import java.util.concurrent.locks.Lock;
 
 /**
  * an interface for storing metadata about objects in the cache, including
@@ -177,6 +178,29 @@ public interface StorageInventoryDB extends VolumeStatus {
      */
     public boolean updateCheckedTime(String volname, String objname, long timemilli) throws InventoryException;
 
+    /**
+     * update the time of last successful integrity check for several objects in the same volume.  
+     * Implementations should override this default, which simply calls 
+     * {@link #updateCheckedTime(String,String,long)} for each object, to make the updates in a single 
+     * transaction.  
+     * @param volname    the name of the volume containing the objects that were checked
+     * @param objnames   the names of the objects in that volume that were checked
+     * @param timemilli  the time when the checks were successfully completed, in milliseconds since 
+     *                   the epoch
+     * @return int       the number of objects found and updated
+     * @throws InventoryException   if there is a failure updating the database.
+     */
+    default int updateCheckedTimes(String volname, Collection<String> objnames, long timemilli)
+        throws InventoryException
+    {
+        int out = 0;
+        for (String objname : objnames) {
+            if (updateCheckedTime(volname, objname, timemilli))
+                out++;
+        }
+        return out;
+    }
+
     /**
      * record the removal of the object with the given name from the given volume.  
      * <p>
@@ -281,4 +305,11 @@ public interface StorageInventoryDB extends VolumeStatus {
      * @throws InventoryException  if there is an error accessing the underlying database.
      */
     public Map<String, Long> getUsedSpace() throws InventoryException;
+
+    /**
+     * return the lock that implementations hold while updating the database.  A caller that needs 
+     * to make several calls atomically with respect to other updates (e.g. checking and then changing 
+     * an object's status) can hold this lock across them.  
+     */
+    public Lock getLock();
 }
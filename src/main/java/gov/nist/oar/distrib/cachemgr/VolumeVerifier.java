@@ -0,0 +1,321 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * a utility for checking, in parallel, that the storage behind a set of cache volumes is available.
+ * <p>
+ * Checking a volume (e.g. that an S3 bucket exists) can require a slow call to a remote service.
+ * Rather than checking each volume in turn as it is created, an application can register a check for
+ * each volume with this class and run them all at once, so that the total time is that of the slowest
+ * check rather than the sum of them.  Two modes are supported:
+ * <ul>
+ *   <li> {@link #verifyAll()} waits for all of the checks and fails if any of them fail. </li>
+ *   <li> {@link #verifyInBackground(long)} waits only a limited time.  Any volume that has not passed its
+ *        check by then is given the status {@link VolumeStatus#VOL_FOR_INFO} in the inventory (so that
+ *        the cache will neither read from nor write to it) and is checked again periodically; once it
+ *        passes, its original status is restored. </li>
+ * </ul>
+ * The original status of a lowered volume is saved with the volume's metadata in the inventory (as
+ * {@link #PRIOR_STATUS}), so that if the application is restarted before the volume passes its
+ * check, the next verifier still knows what status to restore it to.
+ */
+public class VolumeVerifier {
+
+    /**
+     * a check of a volume's availability
+     */
+    @FunctionalInterface
+    public interface Check {
+        /**
+         * return normally if the volume is available; otherwise, throw an exception.
+         */
+        public void verify() throws Exception;
+    }
+
+    /**
+     * the name of the volume metadatum that records the status a volume had before its status was 
+     * lowered for failing its check.  It is removed when the status is restored.
+     */
+    public static final String PRIOR_STATUS = "statusBeforeVerify";
+
+    class Entry {
+        final String volname;
+        final Check check;
+        int status = VolumeStatus.VOL_FOR_UPDATE;  // the status to return the volume to
+        volatile boolean verified = false;
+        boolean downgraded = false;
+        boolean firstDone = false;
+        Entry(String name, Check chk) { volname = name; check = chk; }
+    }
+
+    private StorageInventoryDB db = null;
+    private Map<String, Entry> volumes = new LinkedHashMap<String, Entry>();
+    private int parallelism = 4;
+    private long retryms = 60000L;
+    private ScheduledExecutorService exec = null;
+    private CountDownLatch firstRound = null;
+    private Logger log = null;
+
+    /**
+     * create the verifier
+     * @param invdb        the inventory database where the volumes are registered
+     * @param parallelism  the maximum number of checks to run at once
+     * @param retryms      the time, in milliseconds, to wait before re-checking a volume that failed
+     *                     its check in background mode; a non-positive value means do not retry.
+     * @param log          the Logger to send messages to; if null, a default is used.
+     */
+    public VolumeVerifier(StorageInventoryDB invdb, int parallelism, long retryms, Logger log) {
+        db = invdb;
+        this.parallelism = Math.max(1, parallelism);
+        this.retryms = retryms;
+        if (log == null)
+            log = LoggerFactory.getLogger(getClass());
+        this.log = log;
+    }
+
+    /**
+     * register a check for the volume with the given name.  The volume should already be registered
+     * with the inventory database.
+     */
+    public synchronized void add(String volname, Check check) {
+        volumes.put(volname, new Entry(volname, check));
+    }
+
+    /**
+     * return the names of the volumes that have not (yet) passed their checks
+     */
+    public synchronized List<String> getUnverified() {
+        List<String> out = new ArrayList<String>();
+        for (Entry e : volumes.values()) {
+            if (! e.verified)
+                out.add(e.volname);
+        }
+        return out;
+    }
+
+    /**
+     * run all checks in parallel and wait for them to finish.
+     * @throws CacheManagementException  if any of the volumes fail their checks.  The cause will be
+     *                                   set to the exception from the first failed check.
+     */
+    public void verifyAll() throws CacheManagementException {
+        List<Entry> entries = null;
+        synchronized (this) { entries = new ArrayList<Entry>(volumes.values()); }
+        if (entries.isEmpty())
+            return;
+
+        Map<Entry, Exception> failures = new LinkedHashMap<Entry, Exception>();
+        ScheduledExecutorService pool = createExecutor(entries.size());
+        CountDownLatch done = new CountDownLatch(entries.size());
+        try {
+            for (Entry e : entries) {
+                pool.execute(() -> {
+                    try {
+                        e.check.verify();
+                        synchronized (e) {
+                            // undo a lowering left behind by an earlier background verification
+                            loadStatus(e);
+                            if (e.downgraded) restore(e);
+                            e.verified = true;
+                        }
+                    }
+                    catch (Exception ex) {
+                        synchronized (failures) { failures.put(e, ex); }
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CacheManagementException("Interrupted while verifying cache volumes");
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        if (! failures.isEmpty()) {
+            Map.Entry<Entry, Exception> first = failures.entrySet().iterator().next();
+            throw new CacheManagementException("Cache volume, " + first.getKey().volname +
+                                               ", failed verification: " + first.getValue().getMessage(),
+                                               first.getValue());
+        }
+    }
+
+    /**
+     * start all checks in parallel, waiting only a limited time for them to finish.  Each volume that
+     * has not passed its check when this method returns will have its status in the inventory lowered
+     * to {@link VolumeStatus#VOL_FOR_INFO}; checks continue in the background, and once a volume passes,
+     * its prior status is restored.
+     * @param waitms   the maximum time, in milliseconds, to wait for the first round of checks
+     *                 before returning.  If zero or less, this method returns immediately.
+     * @return boolean -- true if all volumes passed their checks before this method returned
+     * @throws CacheManagementException  if a volume's status cannot be read or updated in the inventory
+     */
+    public boolean verifyInBackground(long waitms) throws CacheManagementException {
+        List<Entry> entries = null;
+        synchronized (this) {
+            if (exec != null)
+                throw new IllegalStateException("Background verification already started");
+            entries = new ArrayList<Entry>(volumes.values());
+            if (entries.isEmpty())
+                return true;
+            for (Entry e : entries)
+                loadStatus(e);
+            exec = createExecutor(entries.size());
+            firstRound = new CountDownLatch(entries.size());
+        }
+
+        for (Entry e : entries)
+            exec.execute(() -> attempt(e));
+
+        if (waitms > 0) {
+            try {
+                firstRound.await(waitms, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean allgood = true;
+        for (Entry e : entries) {
+            synchronized (e) {
+                if (! e.verified) {
+                    downgrade(e);
+                    allgood = false;
+                }
+            }
+        }
+        return allgood;
+    }
+
+    /**
+     * stop any background checking
+     */
+    public synchronized void shutdown() {
+        if (exec != null)
+            exec.shutdownNow();
+    }
+
+    void attempt(Entry e) {
+        Exception failure = null;
+        try {
+            e.check.verify();
+        }
+        catch (Exception ex) {
+            failure = ex;
+        }
+
+        synchronized (e) {
+            try {
+                if (failure == null) {
+                    if (e.downgraded)
+                        restore(e);
+                    e.verified = true;
+                }
+                else {
+                    log.warn("Cache volume, {}, is not available: {}", e.volname, failure.getMessage());
+                    downgrade(e);
+                    if (retryms > 0 && ! exec.isShutdown())
+                        exec.schedule(() -> attempt(e), retryms, TimeUnit.MILLISECONDS);
+                }
+            }
+            catch (InventoryException ex) {
+                log.error("Failed to update status of cache volume, {}: {}", e.volname, ex.getMessage());
+            }
+            finally {
+                if (! e.firstDone) {
+                    e.firstDone = true;
+                    firstRound.countDown();
+                }
+            }
+        }
+
+        if (failure == null && getUnverified().isEmpty())
+            exec.shutdown();
+    }
+
+    /**
+     * read the status to restore a volume to from the inventory.  If an earlier verifier lowered 
+     * the volume's status (and it was never restored), the status it had before is used.
+     */
+    private void loadStatus(Entry e) throws InventoryException {
+        JSONObject info = db.getVolumeInfo(e.volname);
+        e.status = info.optInt("status", VolumeStatus.VOL_FOR_UPDATE);
+        if (info.has(PRIOR_STATUS)) {
+            e.status = info.optInt(PRIOR_STATUS, e.status);
+            e.downgraded = true;
+        }
+    }
+
+    /**
+     * set the status of a volume in the inventory, recording or clearing the status it should 
+     * eventually be restored to
+     */
+    private void setStatus(Entry e, int status, Integer prior) throws InventoryException {
+        JSONObject info = db.getVolumeInfo(e.volname);
+        info.put("status", status);
+        if (prior == null)
+            info.remove(PRIOR_STATUS);
+        else
+            info.put(PRIOR_STATUS, prior.intValue());
+        db.registerVolume(e.volname, info.optLong("capacity", 0L), info);
+    }
+
+    private void restore(Entry e) throws InventoryException {
+        setStatus(e, e.status, null);
+        e.downgraded = false;
+        log.info("Cache volume, {}, is now available", e.volname);
+    }
+
+    private void downgrade(Entry e) {
+        if (e.downgraded || e.status <= VolumeStatus.VOL_FOR_INFO)
+            return;
+        try {
+            setStatus(e, VolumeStatus.VOL_FOR_INFO, e.status);
+            e.downgraded = true;
+            log.warn("Cache volume, {}, set to info-only until it can be verified", e.volname);
+        }
+        catch (InventoryException ex) {
+            log.error("Failed to update status of cache volume, {}: {}", e.volname, ex.getMessage());
+        }
+    }
+
+    private ScheduledExecutorService createExecutor(int count) {
+        ScheduledThreadPoolExecutor out =
+            new ScheduledThreadPoolExecutor(Math.min(count, parallelism), r -> {
+                Thread t = new Thread(r, "volume-verifier");
+                t.setDaemon(true);
+                return t;
+            });
+        out.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return out;
+    }
+}
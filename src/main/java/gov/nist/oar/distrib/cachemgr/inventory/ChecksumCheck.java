@@ -13,16 +13,36 @@
  */
 package gov.nist.oar.distrib.cachemgr.inventory;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nist.oar.distrib.cachemgr.ByteRateLimiter;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
+import gov.nist.oar.distrib.cachemgr.IOScheduler.IOClass;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheObjectCheck;
 import gov.nist.oar.distrib.cachemgr.IntegrityException;
+import gov.nist.oar.distrib.cachemgr.InventoryException;
+import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.Checksum;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.ObjectNotFoundException;
+import gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume;
 
 /**
  * a CacheObjectCheck that will calculate the checksum of an object to ensure it matches the value
@@ -44,11 +64,38 @@ import gov.nist.oar.distrib.ObjectNotFoundException;
  * be stored in the {@link gov.nist.oar.distrib.CacheObject} metadatum, "volumeChecksum", with a format 
  * "LABEL HASH", where "LABEL" is the name of the checksum algorithm, and "HASH" is the checksum's hash 
  * value.  If this volume-provided hash is available, a checksum is calculated as normal. 
+ *
+ * When a checksum must be calculated, the object is read in large chunks; objects in a 
+ * {@link gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume} are read directly from their 
+ * files via a direct buffer borrowed from a shared pool.  The rate at which bytes are read for 
+ * checksumming can be capped via {@link #setRateLimiter(ByteRateLimiter)}; a single limiter may be 
+ * shared among several checks (and threads) to cap their combined rate.
+ *
+ * This check can also be put into an <i>incremental</i> mode via 
+ * {@link #setIncremental(StorageInventoryDB,long)}.  In this mode, each successful calculation of the 
+ * full checksum is recorded in the inventory along with the object's size, last-modified time, and 
+ * volume-native digest (if available) as seen by the volume at that time (as the metadata 
+ * "verified", "verifiedSize", "verifiedModified", and "verifiedVolumeChecksum").  Subsequent checks 
+ * pass without reading the object as long as those volume-reported properties are unchanged, until the 
+ * configured full-check period has passed since the last full calculation; then the full checksum is 
+ * calculated again (even if a volume checksum could otherwise be used).  
  */
 public class ChecksumCheck implements CacheObjectCheck {
 
     boolean _useVolChkSum = false;
     boolean _checkMod = false;
+    ByteRateLimiter _limiter = null;
+    StorageInventoryDB _db = null;
+    long _fullperiod = 0L;
+    final AtomicLong _fullcnt = new AtomicLong(0L);
+    final AtomicLong _skipcnt = new AtomicLong(0L);
+
+    private static final Logger log = LoggerFactory.getLogger(ChecksumCheck.class);
+
+    static final int BUFSIZE = 1024 * 1024;
+    // direct buffers are shared through a pool rather than held per thread:  a thread-local would
+    // allocate a fresh 1 MiB buffer for every (short-lived) virtual thread doing a check.
+    static final Queue<ByteBuffer> _dbufs = new ConcurrentLinkedQueue<ByteBuffer>();
 
     /**
      * create a <code>CacheObjectCheck</code> that can run checksum checks
@@ -94,6 +141,59 @@ public class ChecksumCheck implements CacheObjectCheck {
      */
     public boolean requireUnmodifiedByDate() { return _checkMod; }
 
+    /**
+     * set the limiter to use to cap the rate at which bytes are read to calculate checksums.
+     * @param limiter   the limiter; if null, reading will not be throttled.
+     */
+    public void setRateLimiter(ByteRateLimiter limiter) { _limiter = limiter; }
+
+    /**
+     * return the limiter used to cap the rate at which bytes are read to calculate checksums, or null
+     * if reading is not throttled.
+     */
+    public ByteRateLimiter getRateLimiter() { return _limiter; }
+
+    /**
+     * turn on (or off) incremental checking.  
+     * @param db          the inventory database to record full checksum verifications in; if null, 
+     *                    incremental checking is turned off.
+     * @param fullPeriod  the time, in milliseconds, after a full checksum verification that the checksum 
+     *                    must be fully recalculated again; if not positive, incremental checking is 
+     *                    turned off.
+     */
+    public void setIncremental(StorageInventoryDB db, long fullPeriod) {
+        if (db == null || fullPeriod <= 0L) {
+            _db = null;
+            _fullperiod = 0L;
+        }
+        else {
+            _db = db;
+            _fullperiod = fullPeriod;
+        }
+    }
+
+    /**
+     * return true if this check is operating in incremental mode
+     */
+    public boolean isIncremental() { return _db != null; }
+
+    /**
+     * return the time, in milliseconds, after a full checksum verification that the checksum must be 
+     * fully recalculated when in incremental mode.  Zero is returned if incremental checking is off.
+     */
+    public long getFullCheckPeriod() { return _fullperiod; }
+
+    /**
+     * return the number of checks this instance has done that calculated the full checksum
+     */
+    public long getFullCheckCount() { return _fullcnt.get(); }
+
+    /**
+     * return the number of checks this instance has passed based on unchanged volume metadata alone 
+     * (in incremental mode)
+     */
+    public long getMetadataOnlyCheckCount() { return _skipcnt.get(); }
+
     /**
      * run the checksum check on an object
      * @throws IntegrityException       if the check was executed successfully but found problem with the 
@@ -120,8 +220,20 @@ public class ChecksumCheck implements CacheObjectCheck {
         if (requireUnmodifiedByDate())
             _checkLastModified(vco, co);
 
+        // In incremental mode, skip the checksum while the volume's view of the object is unchanged
+        // since the last full verification, unless a new full verification is due.
+        boolean fulldue = false;
+        if (isIncremental()) {
+            long verified = co.getMetadatumLong("verified", 0L);
+            fulldue = System.currentTimeMillis() - verified >= _fullperiod;
+            if (! fulldue && unchangedSinceVerified(vco, co)) {
+                _skipcnt.incrementAndGet();
+                return;
+            }
+        }
+
         // If allowed and available, try using the volume-calculated hash
-        if (canUseVolumeChecksum() &&
+        if (! fulldue && canUseVolumeChecksum() &&
             co.hasMetadatum("volumeChecksum") && vco.hasMetadatum("volumeChecksum"))
         {
             if (! requireUnmodifiedByDate())
@@ -144,20 +256,109 @@ public class ChecksumCheck implements CacheObjectCheck {
             throw new CacheManagementException("Cache object is missing 'checksum' metadatum");
 
         if (alg.equals(Checksum.SHA256)) {
-            try (InputStream is = co.volume.getStream(co.name)) {
-                Checksum calc = Checksum.calcSHA256(is);
-                if (! hash.equals(calc.hash))
-                    throw new ChecksumMismatchException(co, calc.hash, vsz);
+            try {
+                String calc = calcSHA256(co);
+                _fullcnt.incrementAndGet();
+                if (! hash.equals(calc))
+                    throw new ChecksumMismatchException(co, calc, vsz);
             }
             catch (IOException ex) {
                 throw new CacheManagementException("IO exception while calculating checksum for " +
                                                    co.volume.getName() + ":" + co.name + ": " +
                                                    ex.getMessage(), ex);
             }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CacheManagementException("Interrupted while calculating checksum for " +
+                                                   co.volume.getName() + ":" + co.name);
+            }
         }
         else {
             throw new CacheManagementException("Unsupported checksum algorithm: "+alg);
         }
+
+        if (isIncremental())
+            recordVerified(co, vco);
+    }
+
+    /**
+     * return true if the size, last-modified time, and volume-native digest reported by the volume 
+     * match those recorded at the object's last full verification.
+     */
+    boolean unchangedSinceVerified(CacheObject fromVol, CacheObject fromDB) {
+        if (! fromDB.hasMetadatum("verifiedModified") || ! fromDB.hasMetadatum("verifiedSize"))
+            return false;
+        if (fromVol.getLastModified() <= 0L ||
+            fromVol.getLastModified() != fromDB.getMetadatumLong("verifiedModified", -1L))
+            return false;
+        if (fromVol.getSize() != fromDB.getMetadatumLong("verifiedSize", -1L))
+            return false;
+        return fromVol.getMetadatumString("volumeChecksum", "")
+                      .equals(fromDB.getMetadatumString("verifiedVolumeChecksum", ""));
+    }
+
+    private void recordVerified(CacheObject fromDB, CacheObject fromVol) {
+        JSONObject md = new JSONObject();
+        md.put("verified", System.currentTimeMillis());
+        md.put("verifiedSize", fromVol.getSize());
+        md.put("verifiedModified", fromVol.getLastModified());
+        md.put("verifiedVolumeChecksum", fromVol.getMetadatumString("volumeChecksum", ""));
+        try {
+            _db.updateMetadata(fromDB.volname, fromDB.name, md);
+        }
+        catch (InventoryException ex) {
+            // the object passed; failing to record that only means it will get fully checked again
+            log.warn("Unable to record checksum verification for {}:{}: {}",
+                     fromDB.volname, fromDB.name, ex.getMessage());
+        }
+    }
+
+    /**
+     * calculate the SHA-256 hash of the given object's bytes
+     */
+    String calcSHA256(CacheObject co) throws StorageVolumeException, IOException, InterruptedException {
+        MessageDigest md = null;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("Unexpected Java configuration: SHA-256 algorithm not supported!");
+        }
+
+        if (co.volume instanceof FilesystemCacheVolume) {
+            File f = new File(((FilesystemCacheVolume) co.volume).getRootDir(), co.name);
+            if (! f.isFile())
+                throw new ObjectNotFoundException(co.name, co.volume.getName());
+            ByteBuffer buf = _dbufs.poll();
+            if (buf == null)
+                buf = ByteBuffer.allocateDirect(BUFSIZE);
+            try (FileChannel fc = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                buf.clear();
+                while (fc.read(buf) >= 0) {
+                    buf.flip();
+                    if (_limiter != null) _limiter.acquire(buf.remaining());
+                    IOScheduler.getDefault().acquire(co.volume.getName(), IOClass.INTEGRITY, buf.remaining());
+                    md.update(buf);
+                    buf.clear();
+                }
+            }
+            finally {
+                _dbufs.offer(buf);
+            }
+        }
+        else {
+            try (InputStream is = co.volume.getStream(co.name)) {
+                byte[] buf = new byte[BUFSIZE];
+                int nr = 0;
+                while ((nr = is.readNBytes(buf, 0, buf.length)) > 0) {
+                    if (_limiter != null) _limiter.acquire(nr);
+                    IOScheduler.getDefault().acquire(co.volume.getName(), IOClass.INTEGRITY, nr);
+                    md.update(buf, 0, nr);
+                }
+            }
+        }
+
+        return HexFormat.of().formatHex(md.digest());
     }
 
     private void _checkLastModified(CacheObject fromVol, CacheObject fromChkr)
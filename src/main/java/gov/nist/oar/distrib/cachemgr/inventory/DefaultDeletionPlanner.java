@@ -15,6 +15,7 @@ package gov.nist.oar.distrib.cachemgr.inventory;
 
 import gov.nist.oar.distrib.cachemgr.CacheVolume;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.CacheMetrics;
 import gov.nist.oar.distrib.cachemgr.DeletionPlanner;
 import gov.nist.oar.distrib.cachemgr.DeletionPlan;
 import gov.nist.oar.distrib.cachemgr.DeletionStrategy;
@@ -134,36 +135,42 @@ public class DefaultDeletionPlanner implements DeletionPlanner {
     {
         String volname = cv.getName();
         DeletionPlan out = null;
-        if (! invdb.volumes().contains(cv.getName()))
-            throw new InventoryException(cv.getName() + ": Not a registered volume");
+        long start = System.nanoTime();
+        try {
+            if (! invdb.volumes().contains(cv.getName()))
+                throw new InventoryException(cv.getName() + ": Not a registered volume");
         
-        // first determine if the volume already has the space available within it
-        long avail = invdb.getAvailableSpaceIn(volname);
-        if (avail > (1 + delheadroom) * size) {
-            out = new DeletionPlan(cv, invdb, new ArrayList<CacheObject>(), 0L, size);
-            out.score = 0.0;
-            return out;
-        }
-        long removeBytes = Math.round((1 + delheadroom) * size) - avail;
+            // first determine if the volume already has the space available within it
+            long avail = invdb.getAvailableSpaceIn(volname);
+            if (avail > (1 + delheadroom) * size) {
+                out = new DeletionPlan(cv, invdb, new ArrayList<CacheObject>(), 0L, size);
+                out.score = 0.0;
+                return out;
+            }
+            long removeBytes = Math.round((1 + delheadroom) * size) - avail;
 
-        // There's not enough free space, we need to make some.
-        DeletionStrategy strat =
-            getStrategyFor(volname, removeBytes, Math.round((1 + selheadroom) * (size - avail)));
-        List<CacheObject> selected = invdb.selectObjectsFrom(volname, strat);
+            // There's not enough free space, we need to make some.
+            DeletionStrategy strat =
+                getStrategyFor(volname, removeBytes, Math.round((1 + selheadroom) * (size - avail)));
+            List<CacheObject> selected = invdb.selectObjectsFrom(volname, strat);
 
-        if (strat.getSufficientSize() < removeBytes)
-            // Can't create a viable plan with this volume
-            // (size is probably too big or there's not enough removable stuff in it)
-            return null;
+            if (strat.getSufficientSize() < removeBytes)
+                // Can't create a viable plan with this volume
+                // (size is probably too big or there's not enough removable stuff in it)
+                return null;
 
-        // Prep the plan for output
-        strat.sort(selected);
-        out = new DeletionPlan(cv, invdb, selected, strat.getSufficientSize(), size);
+            // Prep the plan for output
+            strat.sort(selected);
+            out = new DeletionPlan(cv, invdb, selected, strat.getSufficientSize(), size);
 
-        // calculate a score
-        out.score = calculatePlanScore(selected, size, avail);
+            // calculate a score
+            out.score = calculatePlanScore(selected, size, avail);
 
-        return out;
+            return out;
+        }
+        finally {
+            CacheMetrics.getDefault().recordDeletionPlan(volname, System.nanoTime() - start, out != null);
+        }
     }
 
     /**
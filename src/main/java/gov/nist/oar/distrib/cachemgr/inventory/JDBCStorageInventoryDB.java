@@ -20,6 +20,7 @@ import gov.nist.oar.distrib.cachemgr.InventorySearchException;
 import gov.nist.oar.distrib.cachemgr.InventoryMetadataException;
 import gov.nist.oar.distrib.cachemgr.VolumeNotFoundException;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.CacheMetrics;
 
 import org.json.JSONObject;
 import org.json.JSONTokener;
@@ -34,10 +35,16 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.io.StringReader;
 import java.time.Instant;
 import java.time.ZonedDateTime;
@@ -74,15 +81,54 @@ import java.time.format.DateTimeFormatter;
  *    since     integer NOT NULL,
  *    checked   integer NOT NULL,
  *    cached    boolean NOT NULL DEFAULT 0,
- *    metadata  text
+ *    metadata  text,
+ *    contentType text,
+ *    filepath  text,
+ *    aipid     text,
+ *    version   text,
+ *    bagfile   text,
+ *    expires   integer
  * );
  * </pre>
+ * <p>
+ * Object metadata that are not stored in their own columns are stored as a JSON-encoded object in the 
+ * <code>metadata</code> column.  To avoid the cost of parsing this JSON for every object read from 
+ * the database, commonly accessed metadata (see {@link #typed_columns}) are stored in their own 
+ * typed columns, and the JSON is only parsed when other metadata is actually accessed from a 
+ * returned {@link gov.nist.oar.distrib.cachemgr.CacheObject}.  The typed columns are added 
+ * automatically to databases created before they were supported; in such databases, values for 
+ * existing objects will continue to be read from the JSON.
  */
 public class JDBCStorageInventoryDB implements StorageInventoryDB {
 
+    /**
+     * the commonly accessed metadata that are stored in their own typed columns in the objects table
+     * rather than as part of the JSON-encoded metadata column.  Each is mapped to its SQL type, either 
+     * {@link java.sql.Types#VARCHAR} or {@link java.sql.Types#BIGINT}.  
+     */
+    protected static final Map<String, Integer> typed_columns;
+    static {
+        Map<String, Integer> cols = new LinkedHashMap<String, Integer>(8);
+        cols.put("contentType", Types.VARCHAR);
+        cols.put("filepath",    Types.VARCHAR);
+        cols.put("aipid",       Types.VARCHAR);
+        cols.put("version",     Types.VARCHAR);
+        cols.put("bagfile",     Types.VARCHAR);
+        cols.put("expires",     Types.BIGINT);
+        typed_columns = Collections.unmodifiableMap(cols);
+    }
+
+    /**
+     * the metadata that are always stored in (or derived from) the base columns of the objects table 
+     * and so never need to be stored in the JSON-encoded metadata column
+     */
+    static final Set<String> column_props =
+        Set.of("size", "priority", "since", "sinceDate", "checked", "checkedDate");
+
     protected static final String find_sql_base =
         "SELECT d.objid as id, d.name as name, v.name as volume, d.size as size, d.checked, d.cached, "+
-        "d.priority as priority, d.since as since, d.metadata as metadata " +
+        "d.priority as priority, d.since as since, " +
+        "d.contentType, d.filepath, d.aipid, d.version, d.bagfile, d.expires, d.metadata as metadata " +
         "FROM objects d, volumes v WHERE d.volume=v.id ";
 
     static final String deletion_pSelect = 
@@ -116,6 +162,16 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
 
     protected String dplanselect = defaultDeletionPlanSelect;
 
+    private volatile boolean typedColumnsReady = false;
+    private final ReentrantLock typedColumnsLock = new ReentrantLock();
+
+    /**
+     * the lock that serializes updates to the database (and reads that must not overlap a deletion 
+     * plan in progress).  A {@link ReentrantLock} is used rather than <code>synchronized</code> so that 
+     * a virtual thread waiting on a database call does not pin its carrier thread.
+     */
+    protected final ReentrantLock dblock = new ReentrantLock();
+
     /**
      * create an inventory database around a database accessible via a given JDBC URL.  
      * It is assumed that a JDBC driver for the database exists in the Java CLASSPATH.  
@@ -164,7 +220,50 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
     public void setCheckGracePeriod(long gracemsec) { checkGracePeriod = gracemsec; }
 
     protected Connection connect() throws SQLException {
-        return DriverManager.getConnection(_dburl);
+        Connection conn = DriverManager.getConnection(_dburl);
+        if (! typedColumnsReady) {
+            try {
+                ensureTypedColumns(conn);
+            }
+            catch (SQLException ex) {
+                quietDisconnect(conn);
+                throw ex;
+            }
+        }
+        return conn;
+    }
+
+    /**
+     * add any of the {@link #typed_columns} that are missing from the objects table (as in a database 
+     * created before they were supported).  
+     */
+    private void ensureTypedColumns(Connection conn) throws SQLException {
+        typedColumnsLock.lock();
+        try {
+            if (typedColumnsReady)
+                return;
+
+            Set<String> have = new HashSet<String>();
+            try (ResultSet rs = conn.getMetaData().getColumns(null, null, "objects", null)) {
+                while (rs.next())
+                    have.add(rs.getString("COLUMN_NAME").toLowerCase());
+            }
+            if (have.isEmpty())
+                // the objects table has not been created yet
+                return;
+
+            try (Statement stmt = conn.createStatement()) {
+                for (Map.Entry<String, Integer> col : typed_columns.entrySet()) {
+                    if (! have.contains(col.getKey().toLowerCase()))
+                        stmt.execute("ALTER TABLE objects ADD COLUMN " + col.getKey() +
+                                     ((col.getValue() == Types.BIGINT) ? " integer" : " text"));
+                }
+            }
+            typedColumnsReady = true;
+        }
+        finally {
+            typedColumnsLock.unlock();
+        }
     }
 
     protected void disconnect(Connection conn) throws SQLException {
@@ -207,9 +306,31 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
 
         // lock access to the db in case a deletion plan is progress, unless the caller just
         // wants information. 
-        Object lock = (purpose >= VOL_FOR_GET) ? this : new Object();
-        synchronized (lock) {
-            return queryForObjects(sql.toString());
+        return queryForObjects(sql.toString(), purpose >= VOL_FOR_GET);
+    }
+
+    /**
+     * return the lock that serializes updates to this database.  
+     */
+    @Override
+    public Lock getLock() { return dblock; }
+
+    /**
+     * submit an SQL to the underlying data base to return matching objects, optionally while 
+     * holding the database lock (so as not to overlap with a deletion plan in progress).
+     *
+     * @param objsql   an SQL query that returns a list of data objects
+     * @param locked   if true, the query is made while holding the lock returned by {@link #getLock()}
+     */
+    protected List<CacheObject> queryForObjects(String objsql, boolean locked) throws InventoryException {
+        if (! locked)
+            return queryForObjects(objsql);
+        dblock.lock();
+        try {
+            return queryForObjects(objsql);
+        }
+        finally {
+            dblock.unlock();
         }
     }
 
@@ -219,6 +340,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      * @param objsql   an SQL query that returns a list of data objects
      */
     public List<CacheObject> queryForObjects(String objsql) throws InventoryException {
+        long start = System.nanoTime();
         Connection conn = null;
         Statement stmt = null;
         try {
@@ -237,6 +359,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
             quietDisconnect(conn);
+            CacheMetrics.getDefault().recordInventoryQuery("query", System.nanoTime() - start);
         }
     }
 
@@ -244,16 +367,12 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      * load metadata stored in columns in the given search result into a JSONObject.  This is called 
      * by {@link #extractObject(ResultSet)} to export a row as a 
      * {@link gov.nist.oar.distrib.cachemgr.CacheObject}; it can be overridden by subclasses to add
-     * additional metadata that are not part of the base data model for this class.  
+     * additional metadata that are not part of the base data model for this class.  Unlike 
+     * {@link #metadataToJSON(ResultSet)}, this does not include the metadata encoded in the 
+     * <code>metadata</code> column.
      */
-    protected JSONObject metadataToJSON(ResultSet rs) throws SQLException, InventoryException {
-        JSONObject md = null;
-        String jmd = rs.getString("metadata");
-
-        if (jmd != null)
-            md = parseMetadata(jmd);
-        else 
-            md = new JSONObject();
+    protected JSONObject columnsToJSON(ResultSet rs) throws SQLException, InventoryException {
+        JSONObject md = new JSONObject();
         if (rs.getObject("size") != null)
             md.put("size", rs.getLong("size"));
         if (rs.getObject("priority") != null)
@@ -274,21 +393,130 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
                                                    .format(DateTimeFormatter.ISO_INSTANT));
         }
 
+        int col = 0;
+        for (Map.Entry<String, Integer> tcol : typed_columns.entrySet()) {
+            try {
+                col = rs.findColumn(tcol.getKey());
+            } catch (SQLException ex) {
+                // not selected by this query
+                continue;
+            }
+            if (tcol.getValue() == Types.BIGINT) {
+                long val = rs.getLong(col);
+                if (! rs.wasNull())
+                    md.put(tcol.getKey(), val);
+            }
+            else {
+                String val = rs.getString(col);
+                if (val != null)
+                    md.put(tcol.getKey(), val);
+            }
+        }
+
+        return md;
+    }
+
+    /**
+     * load all metadata for the object in the given search result into a JSONObject, including the 
+     * metadata encoded in the <code>metadata</code> column.  
+     */
+    protected JSONObject metadataToJSON(ResultSet rs) throws SQLException, InventoryException {
+        JSONObject md = null;
+        String jmd = rs.getString("metadata");
+
+        if (jmd != null)
+            md = parseMetadata(jmd);
+        else 
+            md = new JSONObject();
+
+        JSONObject cols = columnsToJSON(rs);
+        for (String prop : cols.keySet())
+            md.put(prop, cols.get(prop));
         return md;
     }
 
     /**
-     * convert the given database result into a CacheObject
+     * convert the given database result into a CacheObject.  The metadata encoded in the 
+     * <code>metadata</code> column is not parsed until it is needed.
      */
     protected CacheObject extractObject(ResultSet rs) throws SQLException, InventoryException {
-        JSONObject md = metadataToJSON(rs);
-        CacheObject co = new CacheObject(rs.getString("name"), md, (String) rs.getString("volume"));
+        JSONObject md = columnsToJSON(rs);
+        CacheObject co = new CacheObject(rs.getString("name"), md, rs.getString("metadata"),
+                                         (String) rs.getString("volume"));
         co.cached = rs.getInt("cached") != 0;
         if (rs.getObject("id") != null)
             co.id = rs.getString("id");
         return co;
     }
 
+    /**
+     * return true if the given metadatum is stored in its own column rather than in the JSON-encoded 
+     * <code>metadata</code> column.  A metadatum that normally has its own typed column will be 
+     * stored in the JSON if its value is not of the column's type.
+     */
+    protected boolean isColumnMetadatum(String name, Object value) {
+        if (column_props.contains(name))
+            return true;
+        Integer type = typed_columns.get(name);
+        if (type == null)
+            return false;
+        return (type == Types.BIGINT) ? (value instanceof Integer || value instanceof Long)
+                                      : value instanceof String;
+    }
+
+    /**
+     * return the JSON encoding of the given metadata that should be stored in the <code>metadata</code>
+     * column, excluding those that are stored in their own columns.
+     */
+    protected String encodeStoredMetadata(JSONObject metadata) {
+        JSONObject out = new JSONObject();
+        for (String prop : metadata.keySet()) {
+            Object val = metadata.get(prop);
+            if (! isColumnMetadatum(prop, val))
+                out.put(prop, val);
+        }
+        return out.toString();
+    }
+
+    /**
+     * set the values of the {@link #typed_columns} from the given metadata as parameters of an 
+     * INSERT statement.  The columns are expected to appear consecutively in the order of 
+     * {@link #typed_columns}.
+     * @param stmt      the statement to set the parameters in
+     * @param first     the index of the parameter for the first typed column
+     * @param metadata  the metadata to take the values from
+     */
+    protected void setTypedColumns(PreparedStatement stmt, int first, JSONObject metadata)
+        throws SQLException
+    {
+        int i = first;
+        Object val = null;
+        for (Map.Entry<String, Integer> tcol : typed_columns.entrySet()) {
+            val = metadata.opt(tcol.getKey());
+            if (val == null || ! isColumnMetadatum(tcol.getKey(), val))
+                stmt.setNull(i++, tcol.getValue());
+            else if (tcol.getValue() == Types.BIGINT)
+                stmt.setLong(i++, ((Number) val).longValue());
+            else
+                stmt.setString(i++, (String) val);
+        }
+    }
+
+    /**
+     * return the names of the {@link #typed_columns}, comma-separated, for use in an INSERT statement
+     */
+    protected static String typedColumnNames() {
+        return String.join(",", typed_columns.keySet());
+    }
+
+    /**
+     * return a parameter placeholder for each of the {@link #typed_columns}, comma-separated, for use 
+     * in an INSERT statement
+     */
+    protected static String typedColumnParams() {
+        return String.join(",", Collections.nCopies(typed_columns.size(), "?"));
+    }
+
     /**
      * return all data objects found in the specified data volume for a particular purpose.  The 
      * purpose specified can affect what files are selected and/or how they are sorted in the returned 
@@ -314,6 +542,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
 
         String selectquery = _selectQuery(purpose);
 
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         try {
@@ -321,7 +550,8 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
             stmt = conn.prepareStatement(selectquery);
             stmt.setString(1, volname);
 
-            synchronized (this) {
+            dblock.lock();
+            try {
                 ResultSet rs = stmt.executeQuery();
                 ArrayList<CacheObject> out = new ArrayList<CacheObject>();
                 while (i < lim && rs.next()) {
@@ -332,6 +562,9 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
                 // log limit reached?
                 return out;
             }
+            finally {
+                dblock.unlock();
+            }
         }
         catch (SQLException ex) {
             throw new InventoryException("Failure while listing objects in vol=" + volname +
@@ -340,6 +573,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
             quietDisconnect(conn);
+            CacheMetrics.getDefault().recordInventoryQuery("selectObjectsFrom", System.nanoTime() - start);
         }
     }
 
@@ -367,6 +601,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         strategy.reset();
         String selectquery = _selectQuery(strategy.getPurpose());
 
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         try {
@@ -374,7 +609,8 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
             stmt = conn.prepareStatement(selectquery);
             stmt.setString(1, volname);
 
-            synchronized (this) {
+            dblock.lock();
+            try {
                 ResultSet rs = stmt.executeQuery();
                 ArrayList<CacheObject> out = new ArrayList<CacheObject>();
                 CacheObject co = null;
@@ -387,6 +623,9 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
                 strategy.sort(out);
                 return out;
             }
+            finally {
+                dblock.unlock();
+            }
         }
         catch (SQLException ex) {
             throw new InventoryException("Failure while listing objects in vol=" + volname +
@@ -395,6 +634,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
             quietDisconnect(conn);
+            CacheMetrics.getDefault().recordInventoryQuery("selectObjectsFrom", System.nanoTime() - start);
         }
     }
     
@@ -417,6 +657,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
 
         String selectquery = _selectQuery(purpose);
 
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         try {
@@ -425,7 +666,8 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
             if (purpose.startsWith("check"))
                 stmt.setLong(1, System.currentTimeMillis() - checkGracePeriod);
 
-            synchronized (this) {
+            dblock.lock();
+            try {
                 ResultSet rs = stmt.executeQuery();
                 ArrayList<CacheObject> out = new ArrayList<CacheObject>();
                 while (i < lim && rs.next()) {
@@ -436,6 +678,9 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
                 // log limit reached?
                 return out;
             }
+            finally {
+                dblock.unlock();
+            }
         }
         catch (SQLException ex) {
             throw new InventoryException("Failure while selecting objects: " + ex.getMessage(), ex);
@@ -443,6 +688,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
             quietDisconnect(conn);
+            CacheMetrics.getDefault().recordInventoryQuery("selectObjects", System.nanoTime() - start);
         }
 
     }
@@ -460,6 +706,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         strategy.reset();
         String selectquery = _selectQuery(strategy.getPurpose());
 
+        long start = System.nanoTime();
         Connection conn = null;
         PreparedStatement stmt = null;
         try {
@@ -468,7 +715,8 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
             if (strategy.getPurpose().startsWith("check"))
                 stmt.setLong(1, System.currentTimeMillis() - checkGracePeriod);
 
-            synchronized (this) {
+            dblock.lock();
+            try {
                 ResultSet rs = stmt.executeQuery();
                 ArrayList<CacheObject> out = new ArrayList<CacheObject>();
                 CacheObject co = null;
@@ -481,6 +729,9 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
                 strategy.sort(out);
                 return out;
             }
+            finally {
+                dblock.unlock();
+            }
         }
         catch (SQLException ex) {
             throw new InventoryException("Failure while selecting objects: " + ex.getMessage(), ex);
@@ -488,6 +739,7 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
             quietDisconnect(conn);
+            CacheMetrics.getDefault().recordInventoryQuery("selectObjects", System.nanoTime() - start);
         }
     }
 
@@ -504,17 +756,21 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
 
         // lock access to the db in case a deletion plan is progress, unless the caller just
         // wants information. 
-        synchronized (this) {
+        dblock.lock();
+        try {
             objs = queryForObjects(fsql);
         }
+        finally {
+            dblock.unlock();
+        }
         if (objs.size() == 0) return null;
 
         return objs.get(0);
     }
 
     protected String add_sql = "INSERT INTO objects(" +
-        "objid,name,size,checksum,algorithm,priority,volume,since,checked,cached,metadata" +
-        ") VALUES (?,?,?,?,?,?,?,?,0,?,?)";
+        "objid,name,size,checksum,algorithm,priority,volume,since,checked,cached,metadata," +
+        typedColumnNames() + ") VALUES (?,?,?,?,?,?,?,?,0,?,?," + typedColumnParams() + ")";
     
     /**
      * record the addition of an object to a volume.  The metadata stored with the 
@@ -530,98 +786,105 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      * @throws InventoryException  if a problem occurs while interacting with the inventory database.
      * @throws VolumeNotFoundException  if a volname is not recognized as a registered volume name.
      */
-    public synchronized CacheObject addObject(String id, String volname, String objname, JSONObject metadata)
+    public CacheObject addObject(String id, String volname, String objname, JSONObject metadata)
         throws InventoryException
     {
-        // the time the file was added.  It is assumed that the file will actually be copied into the
-        // volume soon before or after the call to this method.
-        // long since = System.currentTimeMillis();
-        Instant since = Instant.now();
+        dblock.lock();
+        try {
+            // the time the file was added.  It is assumed that the file will actually be copied into the
+            // volume soon before or after the call to this method.
+            // long since = System.currentTimeMillis();
+            Instant since = Instant.now();
 
-        int volid = getVolumeID(volname);
-        if (volid < 0)
-            throw new VolumeNotFoundException(volname);
+            int volid = getVolumeID(volname);
+            if (volid < 0)
+                throw new VolumeNotFoundException(volname);
 
-        long size = -1;
-        String csum = null;
-        String alg = "sha256";
-        int priority = 10;
-        String jmd = null;
-
-        // pull info from metadata object that have their own columns in the table.
-        if (metadata != null) {
-            metadata = this.copy(metadata);
-            metadata.put("since", since.toEpochMilli());
-            metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
-                                                   .format(DateTimeFormatter.ISO_INSTANT));
+            long size = -1;
+            String csum = null;
+            String alg = "sha256";
+            int priority = 10;
+            String jmd = null;
+
+            // pull info from metadata object that have their own columns in the table.
+            if (metadata != null) {
+                metadata = this.copy(metadata);
+                metadata.put("since", since.toEpochMilli());
+                metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
+                                                       .format(DateTimeFormatter.ISO_INSTANT));
             
-            jmd = metadata.toString();
-            String nm = "size";
-            try {
-                size = getMetadatumLong(metadata, nm, size);
-                nm = "checksum";
-                csum = getMetadatumString(metadata, nm, csum);
-                nm = "checksumAlgorithm";
-                alg = getMetadatumString(metadata, nm, alg);
-                nm = "priority";
-                priority = getMetadatumInt(metadata, nm, priority);
+                jmd = encodeStoredMetadata(metadata);
+                String nm = "size";
+                try {
+                    size = getMetadatumLong(metadata, nm, size);
+                    nm = "checksum";
+                    csum = getMetadatumString(metadata, nm, csum);
+                    nm = "checksumAlgorithm";
+                    alg = getMetadatumString(metadata, nm, alg);
+                    nm = "priority";
+                    priority = getMetadatumInt(metadata, nm, priority);
+                }
+                catch (JSONException ex) {
+                    throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
+                                                         ex.getMessage(), nm, ex);
+                }
             }
-            catch (JSONException ex) {
-                throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
-                                                     ex.getMessage(), nm, ex);
+            else {
+                // create a metadata object for output
+                metadata = new JSONObject();
+                metadata.put("size", size);
+                metadata.put("priority", priority);
+                metadata.put("since", since.toEpochMilli());
+                metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
+                                                       .format(DateTimeFormatter.ISO_INSTANT));
             }
-        }
-        else {
-            // create a metadata object for output
-            metadata = new JSONObject();
-            metadata.put("size", size);
-            metadata.put("priority", priority);
-            metadata.put("since", since.toEpochMilli());
-            metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
-                                                   .format(DateTimeFormatter.ISO_INSTANT));
-        }
         
-        int algid = getAlgorithmID(alg);
-        if (algid < 0)
-            throw new InventoryException("Not a registered algorithm: " + alg);
-
-        // check to see if we have this record in the database already
-        StringBuilder sb = new StringBuilder(find_sql_base);
-        sb.append("AND v.name='").append(volname);
-        sb.append("' AND d.name='").append(objname).append("';");
-        List<CacheObject> found = queryForObjects(sb.toString());
-        for(CacheObject co : found)
-            // remove these entries with the same name
-            removeObject(co.volname, co.name, true);
-
-        // add the new object name to the database
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        try {
-            conn = connect();
-            stmt = conn.prepareStatement(add_sql);
-            stmt.setString(1, id);
-            stmt.setString(2, objname);
-            stmt.setLong(3, size);
-            stmt.setString(4, csum);
-            stmt.setInt(5, algid);
-            stmt.setInt(6, priority);
-            stmt.setInt(7, volid);
-            stmt.setLong(8, since.toEpochMilli());
-            stmt.setBoolean(9, true);
-            stmt.setString(10, jmd);
+            int algid = getAlgorithmID(alg);
+            if (algid < 0)
+                throw new InventoryException("Not a registered algorithm: " + alg);
+
+            // check to see if we have this record in the database already
+            StringBuilder sb = new StringBuilder(find_sql_base);
+            sb.append("AND v.name='").append(volname);
+            sb.append("' AND d.name='").append(objname).append("';");
+            List<CacheObject> found = queryForObjects(sb.toString());
+            for(CacheObject co : found)
+                // remove these entries with the same name
+                removeObject(co.volname, co.name, true);
+
+            // add the new object name to the database
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            try {
+                conn = connect();
+                stmt = conn.prepareStatement(add_sql);
+                stmt.setString(1, id);
+                stmt.setString(2, objname);
+                stmt.setLong(3, size);
+                stmt.setString(4, csum);
+                stmt.setInt(5, algid);
+                stmt.setInt(6, priority);
+                stmt.setInt(7, volid);
+                stmt.setLong(8, since.toEpochMilli());
+                stmt.setBoolean(9, true);
+                stmt.setString(10, jmd);
+                setTypedColumns(stmt, 11, metadata);
             
-            stmt.executeUpdate();
-        }
-        catch (SQLException ex) {
-            throw new InventoryException("Failed to register object " + id + ": " + ex.getMessage(), ex);
+                stmt.executeUpdate();
+            }
+            catch (SQLException ex) {
+                throw new InventoryException("Failed to register object " + id + ": " + ex.getMessage(), ex);
+            }
+            finally {
+                try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+                quietDisconnect(conn);
+            }
+
+            return new CacheObject(objname, metadata, volname);
         }
         finally {
-            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
-            quietDisconnect(conn);
+            dblock.unlock();
         }
-
-        return new CacheObject(objname, metadata, volname);
     }
 
     /**
@@ -639,60 +902,101 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      *                       consistency errors.  
      * @throws VolumeNotFoundException  if a volname is not recognized as a registered volume name.
      */
-    public synchronized boolean updateMetadata(String volname, String objname, JSONObject metadata)
+    public boolean updateMetadata(String volname, String objname, JSONObject metadata)
         throws InventoryException
     {
-        CacheObject obj = findObject(volname, objname);
-        if (obj == null) return false;
-
-        int volid = getVolumeID(volname);
-        if (volid < 0)
-            // should not happen
-            throw new VolumeNotFoundException(volname);
+        dblock.lock();
+        try {
+            // add sinceDate if necessary
+            if (metadata.has("since") && ! metadata.has("sinceDate")) {
+                metadata = new JSONObject(metadata, JSONObject.getNames(metadata));
+                String sinceDate = ZonedDateTime.ofInstant(Instant.ofEpochMilli(metadata.getLong("since")),
+                                                           ZoneOffset.UTC)
+                                                .format(DateTimeFormatter.ISO_INSTANT);
+                metadata.put("sinceDate", sinceDate);
+            }
 
-        // add sinceDate if necessary
-        if (metadata.has("since") && ! metadata.has("sinceDate")) {
-            metadata = new JSONObject(metadata, JSONObject.getNames(metadata));
-            String sinceDate = ZonedDateTime.ofInstant(Instant.ofEpochMilli(metadata.getLong("since")),
-                                                       ZoneOffset.UTC)
-                                            .format(DateTimeFormatter.ISO_INSTANT);
-            metadata.put("sinceDate", sinceDate);
-        }
+            // update the metadata
+            StringBuilder sql = new StringBuilder("UPDATE objects SET");
+            setUpdateMetadataStmt(sql, metadata);
 
-        // update the metadata
-        StringBuilder sql = new StringBuilder("UPDATE objects SET");
-        setUpdateMetadataStmt(sql, metadata);
+            // the JSON-encoded metadata only needs to be rewritten if there are updates to metadata that
+            // are not stored in their own columns
+            boolean columnsOnly = sql.charAt(sql.length()-1) == ',';
+            for (String prop : metadata.keySet()) {
+                if (! columnsOnly) break;
+                columnsOnly = isColumnMetadatum(prop, metadata.get(prop));
+            }
 
-        Connection conn = null;
-        Statement stmt = null;
-        try {
-            conn = connect();
-            JSONObject md = obj.exportMetadata();
-            for (String prop : metadata.keySet())
-                md.put(prop, metadata.get(prop));
+            String jmd = null;
+            if (columnsOnly) {
+                sql.deleteCharAt(sql.length()-1);
+            }
+            else {
+                CacheObject obj = findObject(volname, objname);
+                if (obj == null) return false;
+
+                JSONObject md = obj.exportMetadata();
+                for (String prop : metadata.keySet())
+                    md.put(prop, metadata.get(prop));
+                jmd = encodeStoredMetadata(md);
+
+                // values for typed columns may have come from JSON written before the columns existed;
+                // as they are now dropped from the JSON, make sure they get saved to their columns.
+                JSONObject upd = null;
+                for (String col : typed_columns.keySet()) {
+                    if (md.has(col) && ! metadata.has(col)) {
+                        if (upd == null) {
+                            upd = new JSONObject();
+                            for (String prop : metadata.keySet())
+                                upd.put(prop, metadata.get(prop));
+                        }
+                        upd.put(col, md.get(col));
+                    }
+                }
+                if (upd != null) {
+                    sql = new StringBuilder("UPDATE objects SET");
+                    setUpdateMetadataStmt(sql, upd);
+                }
+                sql.append(" metadata=?");
+            }
+            sql.append(" WHERE name=? AND volume=? AND cached=1;");
 
-            StringBuilder updsql = new StringBuilder(sql.toString());
-            updsql.append(" metadata='").append(md.toString())
-                  .append("' WHERE name='").append(objname)
-                  .append("' AND volume=").append(volid).append(";");
+            int volid = getVolumeID(volname);
+            if (volid < 0) {
+                if (columnsOnly) return false;
+                // should not happen
+                throw new VolumeNotFoundException(volname);
+            }
 
-            synchronized (this) {
-                stmt = conn.createStatement();
-                stmt.execute(updsql.toString());
-                if (stmt.getUpdateCount() < 1)
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            try {
+                conn = connect();
+                stmt = conn.prepareStatement(sql.toString());
+                int i = 1;
+                if (jmd != null)
+                    stmt.setString(i++, jmd);
+                stmt.setString(i++, objname);
+                stmt.setInt(i++, volid);
+
+                if (stmt.executeUpdate() < 1)
                     return false;
             }
-        }
-        catch (SQLException ex) {
-            throw new InventoryException("Failed to update object " + volname+":"+objname +
-                                         ": " + ex.getMessage(), ex);
+            catch (SQLException ex) {
+                throw new InventoryException("Failed to update object " + volname+":"+objname +
+                                             ": " + ex.getMessage(), ex);
+            }
+            finally {
+                try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+                quietDisconnect(conn);
+            }
+
+            return true;
         }
         finally {
-            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
-            quietDisconnect(conn);
+            dblock.unlock();
         }
-
-        return true;
     }
 
     /**
@@ -733,6 +1037,19 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
                 nm = "checked";
                 stmt.append(" checked=").append(Long.toString(metadata.getLong(nm))).append(",");
             }
+
+            Object val = null;
+            for (String col : typed_columns.keySet()) {
+                val = metadata.opt(col);
+                if (val == null || ! isColumnMetadatum(col, val))
+                    continue;
+                stmt.append(" ").append(col).append("=");
+                if (val instanceof String)
+                    stmt.append("'").append(((String) val).replace("'", "''")).append("'");
+                else
+                    stmt.append(Long.toString(((Number) val).longValue()));
+                stmt.append(",");
+            }
                     
         } catch (JSONException ex) {
             throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
@@ -773,6 +1090,64 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         return updateMetadata(volname, objname, md);
     }
 
+    /**
+     * update the time of last successful integrity check for several objects in the same volume.  
+     * The updates are made within a single transaction.
+     * @param volname    the name of the volume containing the objects that were checked
+     * @param objnames   the names of the objects in that volume that were checked
+     * @param timemilli  the time when the checks were successfully completed, in milliseconds since the epoch
+     * @return int       the number of objects found and updated
+     * @throws VolumeNotFoundException  if a volname is not recognized as a registered volume name.
+     */
+    @Override
+    public int updateCheckedTimes(String volname, Collection<String> objnames, long timemilli)
+        throws InventoryException
+    {
+        if (objnames.isEmpty())
+            return 0;
+        int volid = getVolumeID(volname);
+        if (volid < 0)
+            throw new VolumeNotFoundException(volname);
+
+        int out = 0;
+        Connection conn = null;
+        dblock.lock();
+        try {
+            try {
+                conn = connect();
+                conn.setAutoCommit(false);
+                // the checked time is stored only in its own column
+                try (PreparedStatement upd = conn.prepareStatement(
+                         "UPDATE objects SET checked=? WHERE cached=1 AND name=? AND volume=?"))
+                {
+                    for (String objname : objnames) {
+                        upd.setLong(1, timemilli);
+                        upd.setString(2, objname);
+                        upd.setInt(3, volid);
+                        upd.addBatch();
+                    }
+                    for (int cnt : upd.executeBatch()) {
+                        if (cnt > 0 || cnt == Statement.SUCCESS_NO_INFO)
+                            out++;
+                    }
+                }
+                conn.commit();
+            }
+            catch (SQLException ex) {
+                try { if (conn != null) conn.rollback(); } catch (SQLException e) { }
+                throw new InventoryException("Failed to update checked times for objects in " + volname +
+                                             ": " + ex.getMessage(), ex);
+            }
+            finally {
+                quietDisconnect(conn);
+            }
+        }
+        finally {
+            dblock.unlock();
+        }
+        return out;
+    }
+
     private long getMetadatumLong(JSONObject md, String name, long defval) {
         if (! md.has(name))
             return defval;
@@ -895,8 +1270,14 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      * @throws InventoryException  if a problem occurs while interacting with the inventory database.
      * @throws VolumeNotFoundException  if a volname is not recognized as a registered volume name.
      */
-    public synchronized void removeObject(String volname, String objname) throws InventoryException {
-        removeObject(volname, objname, false);
+    public void removeObject(String volname, String objname) throws InventoryException {
+        dblock.lock();
+        try {
+            removeObject(volname, objname, false);
+        }
+        finally {
+            dblock.unlock();
+        }
     }
 
     /**
@@ -915,29 +1296,35 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
         _removeObject(volname, objname, sql);
     }
 
-    private synchronized void _removeObject(String volname, String objname, String sqltmpl)
+    private void _removeObject(String volname, String objname, String sqltmpl)
         throws InventoryException
     {
-        int volid = getVolumeID(volname);
-        if (volid < 0)
-            throw new VolumeNotFoundException(volname);
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
+        dblock.lock();
         try {
-            conn = connect();
-            stmt = conn.prepareStatement(sqltmpl);
-            stmt.setInt(1, volid);
-            stmt.setString(2, objname);
-            stmt.executeUpdate();
-        }
-        catch (SQLException ex) {
-            throw new InventoryException("Failed to remove object " + objname + " from volume " +
-                                         volname + ": " + ex.getMessage(), ex);
+            int volid = getVolumeID(volname);
+            if (volid < 0)
+                throw new VolumeNotFoundException(volname);
+
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            try {
+                conn = connect();
+                stmt = conn.prepareStatement(sqltmpl);
+                stmt.setInt(1, volid);
+                stmt.setString(2, objname);
+                stmt.executeUpdate();
+            }
+            catch (SQLException ex) {
+                throw new InventoryException("Failed to remove object " + objname + " from volume " +
+                                             volname + ": " + ex.getMessage(), ex);
+            }
+            finally {
+                try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+                quietDisconnect(conn);
+            }
         }
         finally {
-            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
-            quietDisconnect(conn);
+            dblock.unlock();
         }
     }
 
@@ -945,22 +1332,28 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      * remove all object entries.  This should be used when reinitializing the database.
      * @return boolean   false if the database was apparently empty already, true otherwise.
      */
-    public synchronized boolean removeAllObjects() throws InventoryException {
-        String sql = "DELETE FROM objects;";
-        Connection conn = null;
-        Statement stmt = null;
+    public boolean removeAllObjects() throws InventoryException {
+        dblock.lock();
         try {
-            conn = connect();
-            stmt = conn.createStatement();
-            stmt.execute(sql);
-            return (stmt.getUpdateCount() > 0);
-        }
-        catch (SQLException ex) {
-            throw new InventoryException("Problem emptying database: "+ex.getMessage(), ex);
+            String sql = "DELETE FROM objects;";
+            Connection conn = null;
+            Statement stmt = null;
+            try {
+                conn = connect();
+                stmt = conn.createStatement();
+                stmt.execute(sql);
+                return (stmt.getUpdateCount() > 0);
+            }
+            catch (SQLException ex) {
+                throw new InventoryException("Problem emptying database: "+ex.getMessage(), ex);
+            }
+            finally {
+                try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+                quietDisconnect(conn);
+            }
         }
         finally {
-            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
-            quietDisconnect(conn);
+            dblock.unlock();
         }
     }
 
@@ -1006,91 +1399,97 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      * @param capacity  the number of bytes of data that this volume can hold.
      * @param metadata  arbitrary metadata describing this volume.  This can be null.
      */
-    public synchronized void registerVolume(String name, long capacity, JSONObject metadata)
+    public void registerVolume(String name, long capacity, JSONObject metadata)
         throws InventoryException
     {
-        int id = getVolumeID(name);
+        dblock.lock();
+        try {
+            int id = getVolumeID(name);
         
-        Integer priority = null;
-        int status = VOL_FOR_UPDATE;  // fully functional
-        String nm = "priority", jmd = null;
-        if (metadata != null) {
-            try {
-                priority = (Integer) metadata.opt(nm);
-                nm = "status";
-                status = metadata.optInt(nm, status);
-            }
-            catch (JSONException ex) {
-                throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
-                                                     ex.getMessage(), nm, ex);
-            }
-            catch (ClassCastException ex) {
-                throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
-                                                     ex.getMessage(), nm, ex);
+            Integer priority = null;
+            int status = VOL_FOR_UPDATE;  // fully functional
+            String nm = "priority", jmd = null;
+            if (metadata != null) {
+                try {
+                    priority = (Integer) metadata.opt(nm);
+                    nm = "status";
+                    status = metadata.optInt(nm, status);
+                }
+                catch (JSONException ex) {
+                    throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
+                                                         ex.getMessage(), nm, ex);
+                }
+                catch (ClassCastException ex) {
+                    throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
+                                                         ex.getMessage(), nm, ex);
+                }
+                jmd = metadata.toString();
             }
-            jmd = metadata.toString();
-        }
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        if (id < 0) {
-            try {
-                // not registered yet
-                // FYI: add_vol_sql =
-                //   "INSERT INTO volumes(name,capacity,priority,status,metadata) VALUES (?,?,?,?,?)";
-                conn = connect();
-                stmt = conn.prepareStatement(add_vol_sql);
-                stmt.setString(1, name);
-                stmt.setLong(2, capacity);
-                if (priority == null)
-                    stmt.setNull(3, Types.INTEGER);
-                else
-                    stmt.setInt(3, priority.intValue());
-                stmt.setInt(4, status);
-                if (jmd == null)
-                    stmt.setNull(5, Types.VARCHAR);
-                else
-                    stmt.setString(5, jmd);
 
-                stmt.executeUpdate();
-            }
-            catch (SQLException ex) {
-                throw new InventoryException("Failed to register new volume in DB ("+name+
-                                             "): "+ex.getMessage(), ex);
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            if (id < 0) {
+                try {
+                    // not registered yet
+                    // FYI: add_vol_sql =
+                    //   "INSERT INTO volumes(name,capacity,priority,status,metadata) VALUES (?,?,?,?,?)";
+                    conn = connect();
+                    stmt = conn.prepareStatement(add_vol_sql);
+                    stmt.setString(1, name);
+                    stmt.setLong(2, capacity);
+                    if (priority == null)
+                        stmt.setNull(3, Types.INTEGER);
+                    else
+                        stmt.setInt(3, priority.intValue());
+                    stmt.setInt(4, status);
+                    if (jmd == null)
+                        stmt.setNull(5, Types.VARCHAR);
+                    else
+                        stmt.setString(5, jmd);
+
+                    stmt.executeUpdate();
+                }
+                catch (SQLException ex) {
+                    throw new InventoryException("Failed to register new volume in DB ("+name+
+                                                 "): "+ex.getMessage(), ex);
+                }
+                finally {
+                    try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+                    quietDisconnect(conn);
+                }
             }
-            finally {
-                try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
-                quietDisconnect(conn);
+            else {
+                try {
+                    // was previously registered; update its information
+                    // FYI: upd_vol_sql =
+                    //    "UPDATE volumes SET capacity=?, priority=?, status=?, metadata=? WHERE name=?";
+                    conn = connect();
+                    stmt = conn.prepareStatement(upd_vol_sql);
+                    stmt.setLong(1, capacity);
+                    if (priority == null)
+                        stmt.setNull(2, Types.INTEGER);
+                    else
+                        stmt.setInt(2, priority.intValue());
+                    stmt.setInt(3, status);
+                    stmt.setString(4, jmd);
+                    stmt.setString(5, name);
+
+                    stmt.executeUpdate();
+                }
+                catch (SQLException ex) {
+                    throw new InventoryException("Failed to update info for registered volume ("+name+
+                                                 "): "+ex.getMessage(), ex);
+                }
+                finally {
+                    try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+                    quietDisconnect(conn);
+                }
             }
+            loadVolumes();
         }
-        else {
-            try {
-                // was previously registered; update its information
-                // FYI: upd_vol_sql =
-                //    "UPDATE volumes SET capacity=?, priority=?, status=?, metadata=? WHERE name=?";
-                conn = connect();
-                stmt = conn.prepareStatement(upd_vol_sql);
-                stmt.setLong(1, capacity);
-                if (priority == null)
-                    stmt.setNull(2, Types.INTEGER);
-                else
-                    stmt.setInt(2, priority.intValue());
-                stmt.setInt(3, status);
-                stmt.setString(4, jmd);
-                stmt.setString(5, name);
-
-                stmt.executeUpdate();
-            }
-            catch (SQLException ex) {
-                throw new InventoryException("Failed to update info for registered volume ("+name+
-                                             "): "+ex.getMessage(), ex);
-            }
-            finally {
-                try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
-                quietDisconnect(conn);
-            }
+        finally {
+            dblock.unlock();
         }
-        loadVolumes();
     }
 
     String get_vol_info = "SELECT metadata,capacity,priority,status FROM volumes WHERE name=?";
@@ -1143,27 +1542,33 @@ public class JDBCStorageInventoryDB implements StorageInventoryDB {
      * @throws InventoryException  if there is an error accessing the underlying database.
      * @throws VolumeNotFoundException  if a volname is not recognized as a registered volume name.
      */
-    public synchronized void setVolumeStatus(String volname, int status) throws InventoryException {
-        int volid = getVolumeID(volname);
-        if (volid < 0)
-            throw new VolumeNotFoundException(volname);
+    public void setVolumeStatus(String volname, int status) throws InventoryException {
+        dblock.lock();
+        try {
+            int volid = getVolumeID(volname);
+            if (volid < 0)
+                throw new VolumeNotFoundException(volname);
 
-        String sql = "UPDATE volumes SET status="+Integer.toString(status)+" WHERE id="+volid+";";
+            String sql = "UPDATE volumes SET status="+Integer.toString(status)+" WHERE id="+volid+";";
 
-        Connection conn = null;
-        Statement stmt = null;
-        try {
-            conn = connect();
-            stmt = conn.createStatement();
-            stmt.executeUpdate(sql);
-        }
-        catch (SQLException ex) {
-            throw new InventoryException("Failed to update status of volume " +
-                                         volname + ": " + ex.getMessage(), ex);
+            Connection conn = null;
+            Statement stmt = null;
+            try {
+                conn = connect();
+                stmt = conn.createStatement();
+                stmt.executeUpdate(sql);
+            }
+            catch (SQLException ex) {
+                throw new InventoryException("Failed to update status of volume " +
+                                             volname + ": " + ex.getMessage(), ex);
+            }
+            finally {
+                try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+                quietDisconnect(conn);
+            }
         }
         finally {
-            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
-            quietDisconnect(conn);
+            dblock.unlock();
         }
     }
 
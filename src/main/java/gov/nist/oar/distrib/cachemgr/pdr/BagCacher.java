@@ -23,6 +23,7 @@ import gov.nist.oar.distrib.cachemgr.BasicCache;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.InventoryException;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
 import gov.nist.oar.distrib.cachemgr.NoMatchingVolumesException;
 import gov.nist.oar.distrib.cachemgr.Reservation;
 import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
@@ -145,7 +146,8 @@ public class BagCacher implements PDRCacheRoles {
         int prefs = defprefs;
 
         // start by getting the metadata from the head bag
-        InputStream fs = bagstore.openFile(headbag);
+        InputStream fs = IOScheduler.getDefault().throttle(bagstore.openFile(headbag),
+                                                           IOScheduler.LTS_CHANNEL);
         try {
             // we extract only metadata on this visit
             cacheFromBag(aipid, version, fs, ser, 0, null, null);
@@ -184,7 +186,8 @@ public class BagCacher implements PDRCacheRoles {
                      */
                     if (! member.endsWith(".zip"))
                         member = member+".zip";
-                    fs = bagstore.openFile(member);
+                    fs = IOScheduler.getDefault().throttle(bagstore.openFile(member),
+                                                           IOScheduler.LTS_CHANNEL);
                     got = new HashSet<String>();
                     try {
                         cacheFromBag(aipid, version, fs, ser, prefs, need, got);
@@ -291,7 +294,8 @@ public class BagCacher implements PDRCacheRoles {
                 cap = files.size();
             HashSet<String> cached = new HashSet<String>(cap);
             
-            InputStream fs = bagstore.openFile(bagfile);
+            InputStream fs = IOScheduler.getDefault().throttle(bagstore.openFile(bagfile),
+                                                               IOScheduler.LTS_CHANNEL);
             try {
                 cacheFromBag(aipid, vers, fs, ser, prefs, files, cached);
                 return cached;
@@ -74,10 +74,7 @@ public abstract class HeadBagDB extends PDRStorageInventoryDB {
 
         // lock access to the db in case a deletion plan is progress, unless the caller just
         // wants information. 
-        Object lock = (purpose >= VOL_FOR_GET) ? this : new Object();
-        synchronized (lock) {
-            return queryForObjects(sql.toString());
-        }
+        return queryForObjects(sql.toString(), purpose >= VOL_FOR_GET);
     }
 
     /**
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -40,10 +41,14 @@ import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.cachemgr.BasicCache;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.CacheMetrics;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheObjectCheck;
 import gov.nist.oar.distrib.cachemgr.IntegrityMonitor;
+import gov.nist.oar.distrib.cachemgr.BasicIntegrityMonitor;
 import gov.nist.oar.distrib.cachemgr.InventoryException;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
+import gov.nist.oar.distrib.cachemgr.ReadThroughCachingStream;
 import gov.nist.oar.distrib.cachemgr.VolumeStatus;
 import gov.nist.oar.distrib.cachemgr.inventory.JDBCStorageInventoryDB;
 
@@ -87,6 +92,9 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
     File monstatus = null;
     MonitorThread month = null;
     CachingThread cath = null;
+    volatile long lastcyclebytes = 0L;
+    volatile long lastcyclemillis = 0L;
+    final AtomicInteger queueDepth = new AtomicInteger(0);
 
     /**
      * create a CacheManager specialized for the PDR
@@ -127,6 +135,7 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
 
         cath = new CachingThread(new File(admdir, "cacheq"));
         cath.setPriority(Math.min(Thread.currentThread().getPriority() - 2, Thread.MIN_PRIORITY));
+        CacheMetrics.getDefault().gaugeQueueDepth(cache.getName(), queueDepth, AtomicInteger::get);
     }
 
     /**
@@ -182,6 +191,12 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
             throw new CacheManagementException("cache-queuing failed due to storage issue: "+ex.getMessage(), ex);
         }
 
+        if (file != null && (isRestoring(id) || isReadingThrough(id))) {
+            // the file is already being restored (e.g. as it is streamed to a user)
+            log.debug("{} is already being restored; not queuing", id);
+            return;
+        }
+
         if (file != null) {
             // the file is presumed to be not in the cache, so queue it.
             try {
@@ -290,15 +305,69 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
         // FUTURE: email results
     }
 
+    /**
+     * set the maximum number of objects within a single cache volume that the integrity monitor 
+     * will check concurrently.  
+     */
+    public void setMonitorParallelism(int perVolume) {
+        if (datamon instanceof BasicIntegrityMonitor)
+            ((BasicIntegrityMonitor) datamon).setParallelism(perVolume);
+        if (hbmon instanceof BasicIntegrityMonitor)
+            ((BasicIntegrityMonitor) hbmon).setParallelism(perVolume);
+    }
+
+    /**
+     * set whether the short-lived background work done on behalf of this manager--concurrent integrity
+     * checks and the finishing of read-through caching--should run on virtual threads.  The long-running 
+     * monitoring and caching threads remain platform threads as they rely on thread priorities.
+     */
+    public void setUseVirtualThreads(boolean use) {
+        if (datamon instanceof BasicIntegrityMonitor)
+            ((BasicIntegrityMonitor) datamon).setUseVirtualThreads(use);
+        if (hbmon instanceof BasicIntegrityMonitor)
+            ((BasicIntegrityMonitor) hbmon).setUseVirtualThreads(use);
+        ReadThroughCachingStream.setUseVirtualThreads(use);
+    }
+
     /**
      * return data describing the integrity montoring status.  This data includes when the last time
-     * the integrity monitor was ran, how many files were checked, and which ones had to be deleted.  
+     * the integrity monitor was ran, how many files were checked, which ones had to be deleted, and 
+     * the checking throughput, both for the last cycle and since the service started.  
      */
     public JSONObject getMonitorStatus() throws CacheManagementException {
         JSONObject out = retrieveMonitorStatus();
         out.put("running", getMonitorThread().isAlive());
+
+        long[] totals = monitorTotals();
+        JSONObject tot = new JSONObject();
+        tot.put("filecount", totals[0]);
+        tot.put("bytesChecked", totals[1]);
+        tot.put("checkTimeMillis", totals[2]);
+        tot.put("bytesPerSecond", bytesPerSecond(totals[1], totals[2]));
+        out.put("sinceStartup", tot);
         return out;
     }
+
+    /**
+     * return the cumulative number of objects checked, bytes checked, and milliseconds spent 
+     * checking by the integrity monitors
+     */
+    long[] monitorTotals() {
+        long[] out = new long[3];
+        for (IntegrityMonitor mon : new IntegrityMonitor[] { datamon, hbmon }) {
+            if (mon instanceof BasicIntegrityMonitor) {
+                BasicIntegrityMonitor bmon = (BasicIntegrityMonitor) mon;
+                out[0] += bmon.getObjectsChecked();
+                out[1] += bmon.getBytesChecked();
+                out[2] += bmon.getCheckTime();
+            }
+        }
+        return out;
+    }
+
+    private static long bytesPerSecond(long bytes, long millis) {
+        return (millis > 0) ? bytes * 1000L / millis : 0L;
+    }
     private JSONObject retrieveMonitorStatus() {
         JSONObject out = null;
         if (monstatus.exists()) {
@@ -361,6 +430,9 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
             rec.put("lastChecked", ran.toEpochMilli());
             rec.put("lastCheckedDate", ranDate);
             rec.put("filecount", checked);
+            rec.put("bytesChecked", lastcyclebytes);
+            rec.put("checkTimeMillis", lastcyclemillis);
+            rec.put("bytesPerSecond", bytesPerSecond(lastcyclebytes, lastcyclemillis));
 
             JSONArray del = new JSONArray();
             if (deleted.size() > 0) {
@@ -491,6 +563,7 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
 
         @Override
         public void run() {
+            IOScheduler.setThreadClass(IOScheduler.IOClass.INTEGRITY);
             log.info("Monitoring started with auto-repeat {}", (once) ? "off" : "on");
 
             int checked = 0;
@@ -596,9 +669,17 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
         {
             int out = 0;
             int count = -1;
-            while (count != 0) {
-                count = monitorOnce(deleted, hbmax, dmax);
-                out += count;
+            long[] before = monitorTotals();
+            long started = System.currentTimeMillis();
+            try {
+                while (count != 0) {
+                    count = monitorOnce(deleted, hbmax, dmax);
+                    out += count;
+                }
+            }
+            finally {
+                lastcyclebytes = monitorTotals()[1] - before[1];
+                lastcyclemillis = System.currentTimeMillis() - started;
             }
             return out;
         }
@@ -663,7 +744,7 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
             _queuef = savedqueue;
             if (_queuef.exists())
                 // test to make sure the queue is readable
-                loadQueue();
+                queueDepth.set(loadQueue().size());
         }
 
         synchronized void saveQueue(Queue<String> queue) throws IOException {
@@ -680,6 +761,7 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
                     log.warn("Trouble closing cache request queue file after save: "+ex.getMessage());
                 }
             }
+            queueDepth.set(queue.size());
         }
 
         synchronized Queue<String> loadQueue() throws IOException {
@@ -724,6 +806,7 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
                         log.warn("Trouble closing cache request queue file after addition: "+ex.getMessage());
                     }
                 }
+                queueDepth.incrementAndGet();
             } catch (IOException ex) {
                 log.error("Can't queue: Trouble writing to persistent cache: "+ ex.getMessage());
                 throw new CacheManagementException("Cache queue IO failure: "+ ex.getMessage());
@@ -777,6 +860,8 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
             if (parts.length > 2) version = parts[2];
             
             parts = ((PDRDatasetRestorer) restorer).parseId(nextid);
+            long start = System.nanoTime();
+            boolean ok = false;
             try {
                 if (parts[1].length() == 0) 
                     // dataset identifier
@@ -784,6 +869,7 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
                 else if (opts.recache || ! isCached(nextid))
                     // data file identifier
                     cache(nextid, true);
+                ok = true;
             }
             catch (ResourceNotFoundException ex) {
                 throw new CacheManagementException("Unable to cache "+nextid+": resource not found", ex);
@@ -794,12 +880,14 @@ public class PDRCacheManager extends PDRDatasetCacheManager implements PDRConsta
             }
             finally {
                 inprocess = null;
+                CacheMetrics.getDefault().recordQueueItem(getCacheName(), System.nanoTime() - start, ok);
             }
 
             return nextid;
         }
 
         public void run() {
+            IOScheduler.setThreadClass(IOScheduler.IOClass.PREFETCH);
             String item = null;
             try {
                 if (hasPending())
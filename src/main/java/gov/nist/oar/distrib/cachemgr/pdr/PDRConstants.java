@@ -36,4 +36,11 @@ public interface PDRConstants {
      * The ARK identifier NAAN assigned to NIST
      */
     public final String NIST_ARK_NAAN = "88434";
+
+    /**
+     * The prefix given to the cache identifiers of restricted data files that are stored once and 
+     * shared by multiple access requests via aliases (see 
+     * {@link gov.nist.oar.distrib.cachemgr.AliasingInventoryDB}).
+     */
+    public final String SHARED_CONTENT_PREFIX = "rps-";
 }
@@ -16,19 +16,23 @@ package gov.nist.oar.distrib.cachemgr.pdr;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.nist.oar.distrib.ObjectNotFoundException;
 import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.cachemgr.BasicCache;
 import gov.nist.oar.distrib.cachemgr.BasicCacheManager;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.CacheVolumeException;
 import gov.nist.oar.distrib.cachemgr.InventoryException;
+import gov.nist.oar.distrib.cachemgr.RestorationTargetNotFoundException;
 import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.VolumeNotFoundException;
 import gov.nist.oar.distrib.cachemgr.VolumeStatus;
@@ -113,6 +117,28 @@ public class PDRDatasetCacheManager extends BasicCacheManager implements VolumeS
         return ((PDRDatasetRestorer) restorer).nameForObject(id, roles);
     }
 
+    /**
+     * add to the given metadata the information that the restorer would normally record about the 
+     * data object upon restoring it (its filepath, contentType, and SHA-256 checksum).  This is used
+     * when the object is cached as it is streamed from long-term storage.
+     */
+    @Override
+    protected void describeForCaching(String id, JSONObject mdata) throws CacheManagementException {
+        try {
+            JSONObject cachemd = ((PDRDatasetRestorer) restorer).getCacheMetadataFor(id);
+            for (String prop : cachemd.keySet()) {
+                if (! mdata.has(prop))
+                    mdata.put(prop, cachemd.get(prop));
+            }
+        }
+        catch (ObjectNotFoundException ex) {
+            throw new RestorationTargetNotFoundException(ex, id);
+        }
+        catch (StorageVolumeException ex) {
+            throw new CacheVolumeException(ex);
+        }
+    }
+
     int getRolesFor(String volname) {
         StorageInventoryDB sidb = ((BasicCache) theCache).getInventoryDB();
         int roles = 0;
@@ -134,7 +160,8 @@ public class PDRDatasetCacheManager extends BasicCacheManager implements VolumeS
     /**
      * return a list of objects known to the cache that are part of the dataset having the given AIP dataset 
      * id.  The cache knows about an object if the object is currently in the cache or has once been in the 
-     * cache.  The returned list may include different versions of a file.  
+     * cache.  The returned list may include different versions of a file.  If <code>dsid</code> is the name 
+     * of a group of aliases, the shared objects that the group's unexpired aliases refer to are included.
      * @param dsid     the AIP id for the dataset; this is either the old-style EDI-ID or 
      *                   local portion of the PDR ARK identifier (e.g., <code>"mds2-2119"</code>).  
      * @param status   A {@link gov.nist.oar.distrib.cachemgr.VolumeStatus} value indicating the status 
@@ -152,6 +179,7 @@ public class PDRDatasetCacheManager extends BasicCacheManager implements VolumeS
     public List<CacheObject> selectDatasetObjects(String dsid, int status) throws CacheManagementException {
         PDRStorageInventoryDB sidb = getInventoryDB();
         List<CacheObject> matched = sidb.selectObjectsLikeID(dsid+"/%", status);
+        matched.addAll(sidb.selectAliasedObjects(dsid, status));
         CacheObject co = null;
         for (Iterator<CacheObject> it = matched.iterator(); it.hasNext();) {
             co = it.next();
@@ -160,6 +188,87 @@ public class PDRDatasetCacheManager extends BasicCacheManager implements VolumeS
         return matched;
     }
 
+    /**
+     * pass each of the objects known to the cache that are part of the dataset having the given AIP 
+     * dataset id to a consumer, one at a time as they are read from the inventory.  The objects selected 
+     * are the same as those returned by {@link #selectDatasetObjects(String,int)}; however, they are 
+     * never all held in memory at once, and they can be retrieved a page at a time.  (The 
+     * <code>volume</code> field of the objects is not set.)  See 
+     * {@link PDRStorageInventoryDB#forEachDatasetObject(String,int,String,String,int,Consumer)} for 
+     * details on paging.
+     * @param dsid      the AIP id for the dataset
+     * @param status    A {@link gov.nist.oar.distrib.cachemgr.VolumeStatus} value indicating the status 
+     *                    of the desired objects (see {@link #selectDatasetObjects(String,int)}).
+     * @param afterId   if not null, return only objects that sort after the object with this identifier
+     *                    in the volume named <code>afterVol</code>.
+     * @param afterVol  the volume name that qualifies <code>afterId</code>
+     * @param limit     the maximum number of objects to return; a non-positive value means no limit.
+     * @param consumer  the function to pass each object to
+     * @return int -- the number of objects passed to the consumer
+     */
+    public int forEachDatasetObject(String dsid, int status, String afterId, String afterVol, int limit,
+                                    Consumer<CacheObject> consumer)
+        throws CacheManagementException
+    {
+        return getInventoryDB().forEachDatasetObject(dsid, status, afterId, afterVol, limit, consumer);
+    }
+
+    /**
+     * release all of the aliases belonging to the given group (e.g. created for the data cached under a
+     * temporary random identifier).  The shared objects that the aliases referred to are not removed
+     * right away; they will be removed by the cache's expiry checks once no other aliases refer to them.
+     * @param group   the name of the group of aliases
+     * @return int -- the number of aliases released
+     */
+    public int releaseAliases(String group) throws CacheManagementException {
+        return getInventoryDB().removeAliases(group);
+    }
+
+    /**
+     * record the state of a job caching a dataset under a given identifier so that it is remembered 
+     * across restarts of the service.  See 
+     * {@link PDRStorageInventoryDB#saveCachingJob(String,JSONObject)} for the properties of 
+     * <code>state</code>.
+     * @param jobid   the identifier for the job (e.g. the <code>target</code> identifier passed to 
+     *                  {@link #cacheDataset(String,String,boolean,int,String)})
+     * @param state   the state of the job
+     */
+    public void saveCachingJob(String jobid, JSONObject state) throws CacheManagementException {
+        getInventoryDB().saveCachingJob(jobid, state);
+    }
+
+    /**
+     * return the recorded state of the caching job with the given identifier, or null if no such 
+     * job is recorded.
+     */
+    public JSONObject getCachingJob(String jobid) throws CacheManagementException {
+        return getInventoryDB().getCachingJob(jobid);
+    }
+
+    /**
+     * return the recorded states of the caching jobs that still need attention after a restart of the
+     * service (see {@link PDRStorageInventoryDB#selectPendingCachingJobs()}).
+     */
+    public List<JSONObject> getPendingCachingJobs() throws CacheManagementException {
+        return getInventoryDB().selectPendingCachingJobs();
+    }
+
+    /**
+     * forget the caching job with the given identifier
+     * @return boolean -- true if a job record was removed
+     */
+    public boolean removeCachingJob(String jobid) throws CacheManagementException {
+        return getInventoryDB().removeCachingJob(jobid) > 0;
+    }
+
+    /**
+     * forget the caching jobs that finished before the given time (in epoch milliseconds)
+     * @return int -- the number of job records removed
+     */
+    public int removeFinishedCachingJobs(long before) throws CacheManagementException {
+        return getInventoryDB().removeFinishedCachingJobs(before);
+    }
+
     /**
      * return a list of objects representing particular files from a dataset having the given AIP dataset 
      * id.  The cache knows about an object if the object is currently in the cache or has once been in the 
@@ -316,5 +425,36 @@ public class PDRDatasetCacheManager extends BasicCacheManager implements VolumeS
     public JSONArray summarizeContents(String volname) throws InventoryException {
         return getInventoryDB().summarizeContents(volname);
     }
+
+    /**
+     * pass a summary of each dataset with files in the cache to a consumer, one at a time as they are 
+     * read from the inventory.  Each summary has the same properties as returned by 
+     * {@link #summarizeDataset(String)}.  See 
+     * {@link PDRStorageInventoryDB#forEachDatasetSummary(String,String,long,int,Consumer)} for details 
+     * on paging.
+     * @param volname       the name of the volume to restrict results to; if null, results span across 
+     *                      volumes
+     * @param afterEdiid    if not null, return only summaries that sort after the dataset with this EDI 
+     *                      identifier and a "checked" time of <code>afterChecked</code>.
+     * @param afterChecked  the "checked" time that qualifies <code>afterEdiid</code>
+     * @param limit         the maximum number of summaries to return; a non-positive value means no limit.
+     * @param consumer      the function to pass each summary to
+     * @return int -- the number of summaries passed to the consumer
+     */
+    public int forEachDatasetSummary(String volname, String afterEdiid, long afterChecked, int limit,
+                                     Consumer<JSONObject> consumer)
+        throws InventoryException
+    {
+        return getInventoryDB().forEachDatasetSummary(volname, afterEdiid, afterChecked, limit, consumer);
+    }
+
+    /**
+     * return the AIP identifiers of the datasets with files in the cache that were most recently
+     * accessed or added, most recent first.
+     * @param limit    the maximum number of identifiers to return; a non-positive value means no limit.
+     */
+    public List<String> selectRecentDatasets(int limit) throws InventoryException {
+        return getInventoryDB().selectRecentDatasets(limit);
+    }
 }
 
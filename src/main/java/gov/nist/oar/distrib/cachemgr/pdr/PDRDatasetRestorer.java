@@ -32,6 +32,7 @@ import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.RestorationException;
 import gov.nist.oar.distrib.cachemgr.InventoryException;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
 
 import java.util.Collection;
 import java.util.List;
@@ -228,6 +229,29 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
         return new Checksum(chksum.optString("hash", ""), alg.optString("tag", "unknown"));
     }
 
+    /**
+     * return the metadata that would be stored in the cache inventory for the object with the given 
+     * identifier upon its restoration (namely, its filepath, contentType, size, and SHA-256 checksum).
+     * This allows an object that is cached by other means (e.g. as it is being streamed to a user) to 
+     * be described in the same way as one restored via {@link #restoreObject}.
+     * @param id   the distribution ID for the object
+     * @throws ObjectNotFoundException    if the object can not be found in the underlying storage
+     */
+    public JSONObject getCacheMetadataFor(String id)
+        throws StorageVolumeException, CacheManagementException
+    {
+        String[] parts = parseId(id);
+        try {
+            return getCacheMDFrom(hbcm.resolveDistribution(parts[0], parts[1], parts[2]));
+        }
+        catch (ResourceNotFoundException ex) {
+            throw new ObjectNotFoundException(id);
+        }
+        catch (FileNotFoundException ex) {
+            throw new ObjectNotFoundException(id);
+        }
+    }
+
     /**
      * restore the identified object to the CacheVolume associated with the given Reservation
      * @param id        the storage-independent identifier for the data object
@@ -287,7 +311,7 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
 
         InputStream bstrm = null;
         try {
-            bstrm = openBag(srcbag);
+            bstrm = IOScheduler.getDefault().throttle(openBag(srcbag), IOScheduler.LTS_CHANNEL);
             ZipBagUtils.OpenEntry ntry = ZipBagUtils.openDataFile(bstrm, bagname, idparts[1]);
             resv.saveAs(ntry.stream, id, name, cachemd);
             log.info("Cached "+id);
@@ -482,6 +506,7 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
                     if (into.isCached(idForObject(aipid, fp, version, target))) {
                         it.remove();
                         cached.add(fp);
+                        fileCached(aipid, fp, version, target);
                     }
                 }
                 if (need.size() == 0) {
@@ -627,7 +652,7 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
             fs = co.volume.getStream(bagfile);
         }
         else
-            fs = store.openFile(bagfile);
+            fs = IOScheduler.getDefault().throttle(store.openFile(bagfile), IOScheduler.LTS_CHANNEL);
 
         Map<String,String> manifest = null;
         List<String> fix = new ArrayList<String>();
@@ -671,6 +696,7 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
                     else {
                         if (need != null) need.remove(filepath);
                         cached.add(filepath);
+                        fileCached(aipid, filepath, forVersion, target);
                         log.info("Skipping already cached {}", id);
                         continue;
                     }
@@ -694,7 +720,7 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
                 md.put("cachePrefs", prefs);
 
                 // a hook for handling the expiration logic
-                updateMetadata(md, prefs);
+                updateMetadata(md, prefs, target);
 
                 // find space in the cache, and copy the data file into it
                 try {
@@ -715,6 +741,7 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
                 if (need != null)
                     need.remove(filepath);
                 cached.add(filepath);
+                fileCached(aipid, filepath, forVersion, target);
             }
         }
         catch (IOException ex) {
@@ -745,6 +772,31 @@ public class PDRDatasetRestorer implements Restorer, PDRConstants, PDRCacheRoles
         // Subclasses can override this to implement specific logic.
     }
 
+    /**
+     * Method intended for customization of metadata before caching into a particular target.  This 
+     * default implementation calls {@link #updateMetadata(JSONObject,int)}.
+     *
+     * @param md The metadata JSONObject to be customized.
+     * @param prefs flags for data roles
+     * @param target the target identifier prefix the data is being cached under (can be null)
+     */
+    protected void updateMetadata(JSONObject md, int prefs, String target) {
+        updateMetadata(md, prefs);
+    }
+
+    /**
+     * Method called as each file of a dataset becomes available in the cache under a target (either 
+     * because it was just cached or because it was found to be cached already).  This default 
+     * implementation does nothing; subclasses can override it to act on files while the rest of 
+     * the dataset is still being restored.
+     *
+     * @param aipid      the AIP identifier of the dataset the file is part of
+     * @param filepath   the path of the file within the dataset
+     * @param forVersion the version the file was cached for (null for the latest)
+     * @param target     the target identifier prefix the file was cached under (can be null)
+     */
+    protected void fileCached(String aipid, String filepath, String forVersion, String target) { }
+
     /**
      * helper method to generate an ID for the object to be cached
      */
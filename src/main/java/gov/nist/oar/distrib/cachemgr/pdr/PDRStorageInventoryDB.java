@@ -27,12 +27,15 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import gov.nist.oar.distrib.cachemgr.AliasingInventoryDB;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.InventoryException;
 import gov.nist.oar.distrib.cachemgr.InventoryMetadataException;
@@ -50,6 +53,15 @@ import gov.nist.oar.distrib.cachemgr.inventory.JDBCStorageInventoryDB;
  * be different from the AIP identifier (stored in the <code>id</code> column).  This class, thus, adds 
  * two additional methods for selecting objects based on these identifiers.
  * <p>
+ * This class also implements the {@link gov.nist.oar.distrib.cachemgr.AliasingInventoryDB} interface,
+ * allowing a single cached copy of a (restricted) data file to be accessed via multiple identifiers.
+ * The aliases are stored in an <code>aliases</code> table, which is created automatically if it 
+ * does not yet exist in the database.  Because only caches holding shared content need it, 
+ * {@link #findObject(String,int)} only falls back to looking up an identifier as an alias when 
+ * alias resolution has been turned on via {@link #setAliasResolution(boolean)}.  Similarly, the state of jobs that cache whole datasets in the 
+ * background (see {@link #saveCachingJob(String,JSONObject)}) is kept in a <code>cachejobs</code> table
+ * so that it survives a restart of the service.
+ * <p>
  * The implementation assumes the following table definitions exist in the database:
  * <pre>
  * CREATE TABLE IF NOT EXISTS algorithms (
@@ -79,14 +91,61 @@ import gov.nist.oar.distrib.cachemgr.inventory.JDBCStorageInventoryDB;
  *    cached    boolean NOT NULL DEFAULT 0,
  *    pdrid     text,
  *    ediid     text,
- *    metadata  text
+ *    metadata  text,
+ *    contentType text,
+ *    filepath  text,
+ *    aipid     text,
+ *    version   text,
+ *    bagfile   text,
+ *    expires   integer
+ * );
+ *
+ * CREATE TABLE IF NOT EXISTS aliases (
+ *    alias     text NOT NULL,
+ *    objid     text NOT NULL,
+ *    grp       text NOT NULL,
+ *    since     integer NOT NULL,
+ *    expires   integer NOT NULL     // epoch msecs; &lt;= 0 means never
+ * );
+ * CREATE INDEX IF NOT EXISTS aliases_alias ON aliases(alias);
+ * CREATE INDEX IF NOT EXISTS aliases_grp ON aliases(grp);
+ * CREATE INDEX IF NOT EXISTS aliases_objid ON aliases(objid);
+ *
+ * CREATE TABLE IF NOT EXISTS cachejobs (
+ *    jobid     text NOT NULL,
+ *    dsid      text NOT NULL,
+ *    version   text,
+ *    status    text NOT NULL,
+ *    message   text,
+ *    since     integer NOT NULL,
+ *    finished  integer NOT NULL,    // epoch msecs; 0 means not finished
+ *    recordid  text                 // the request waiting on the job, if not yet notified
  * );
  * </pre>
  * <p>
  * To create an instance of this class (which is abstract), one should use the static factory function
  * {@link #createSQLiteDB(String)}.
  */
-public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB implements PDRConstants {
+public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB
+    implements AliasingInventoryDB, PDRConstants
+{
+    static final String alias_create_sql =
+        "CREATE TABLE IF NOT EXISTS aliases (alias text NOT NULL, objid text NOT NULL, " +
+        "grp text NOT NULL, since integer NOT NULL, expires integer NOT NULL)";
+    static final String[] alias_index_sql = {
+        "CREATE INDEX IF NOT EXISTS aliases_alias ON aliases(alias)",
+        "CREATE INDEX IF NOT EXISTS aliases_grp ON aliases(grp)",
+        "CREATE INDEX IF NOT EXISTS aliases_objid ON aliases(objid)"
+    };
+
+    static final String job_create_sql =
+        "CREATE TABLE IF NOT EXISTS cachejobs (jobid text NOT NULL, dsid text NOT NULL, version text, " +
+        "status text NOT NULL, message text, since integer NOT NULL, finished integer NOT NULL, " +
+        "recordid text)";
+
+    private volatile boolean aliasTableReady = false;
+    private volatile boolean jobTableReady = false;
+    private volatile boolean resolveAliases = false;
 
     /**
      * create an inventory database around a database accessible via a given JDBC URL.  
@@ -101,8 +160,8 @@ public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB imple
         super(dburl);
 
         add_sql = "INSERT INTO objects(" +
-            "objid,name,size,checksum,algorithm,priority,volume,since,checked,cached,pdrid,ediid,metadata" +
-            ") VALUES (?,?,?,?,?,?,?,?,0,?,?,?,?)";        
+            "objid,name,size,checksum,algorithm,priority,volume,since,checked,cached,pdrid,ediid,metadata," +
+            typedColumnNames() + ") VALUES (?,?,?,?,?,?,?,?,0,?,?,?,?," + typedColumnParams() + ")";
     }
 
     /*
@@ -162,105 +221,112 @@ public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB imple
      * @throws VolumeNotFoundException  if a volname is not recognized as a registered volume name.
      */
     @Override
-    public synchronized CacheObject addObject(String id, String volname, String objname, JSONObject metadata)
+    public CacheObject addObject(String id, String volname, String objname, JSONObject metadata)
         throws InventoryException
     {
-        // the time the file was added.  It is assumed that the file will actually be copied into the
-        // volume soon before or after the call to this method.
-        // long since = System.currentTimeMillis();
-        Instant since = Instant.now();
+        dblock.lock();
+        try {
+            // the time the file was added.  It is assumed that the file will actually be copied into the
+            // volume soon before or after the call to this method.
+            // long since = System.currentTimeMillis();
+            Instant since = Instant.now();
 
-        int volid = getVolumeID(volname);
-        if (volid < 0)
-            throw new VolumeNotFoundException(volname);
+            int volid = getVolumeID(volname);
+            if (volid < 0)
+                throw new VolumeNotFoundException(volname);
+
+            long size = -1;
+            String csum = null;
+            String alg = "sha256";
+            int priority = 10;
+            String jmd = null;
+            String pdrid = null, ediid = null;
 
-        long size = -1;
-        String csum = null;
-        String alg = "sha256";
-        int priority = 10;
-        String jmd = null;
-        String pdrid = null, ediid = null;
-
-        // pull info from metadata object that have their own columns in the table.
-        if (metadata != null) {
-            metadata = this.copy(metadata);
-            metadata.put("since", since.toEpochMilli());
-            metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
-                                                   .format(DateTimeFormatter.ISO_INSTANT));
+            // pull info from metadata object that have their own columns in the table.
+            if (metadata != null) {
+                metadata = this.copy(metadata);
+                metadata.put("since", since.toEpochMilli());
+                metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
+                                                       .format(DateTimeFormatter.ISO_INSTANT));
             
-            jmd = metadata.toString();
-            String nm = "size";
-            try {
-                size = getMetadatumLong(metadata, nm, size);
-                nm = "checksum";
-                csum = getMetadatumString(metadata, nm, csum);
-                nm = "checksumAlgorithm";
-                alg = getMetadatumString(metadata, nm, alg);
-                nm = "priority";
-                priority = getMetadatumInt(metadata, nm, priority);
-                nm = "pdrid";
-                pdrid = getMetadatumString(metadata, nm, pdrid);
-                nm = "ediid";
-                ediid = getMetadatumString(metadata, nm, ediid);
+                jmd = encodeStoredMetadata(metadata);
+                String nm = "size";
+                try {
+                    size = getMetadatumLong(metadata, nm, size);
+                    nm = "checksum";
+                    csum = getMetadatumString(metadata, nm, csum);
+                    nm = "checksumAlgorithm";
+                    alg = getMetadatumString(metadata, nm, alg);
+                    nm = "priority";
+                    priority = getMetadatumInt(metadata, nm, priority);
+                    nm = "pdrid";
+                    pdrid = getMetadatumString(metadata, nm, pdrid);
+                    nm = "ediid";
+                    ediid = getMetadatumString(metadata, nm, ediid);
+                }
+                catch (JSONException ex) {
+                    throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
+                                                         ex.getMessage(), nm, ex);
+                }
             }
-            catch (JSONException ex) {
-                throw new InventoryMetadataException(nm + ": Metadatum has unexpected type: " + 
-                                                     ex.getMessage(), nm, ex);
+            else {
+                // create a metadata object for output
+                metadata = new JSONObject();
+                metadata.put("size", size);
+                metadata.put("priority", priority);
+                metadata.put("since", since.toEpochMilli());
+                metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
+                                                       .format(DateTimeFormatter.ISO_INSTANT));
             }
-        }
-        else {
-            // create a metadata object for output
-            metadata = new JSONObject();
-            metadata.put("size", size);
-            metadata.put("priority", priority);
-            metadata.put("since", since.toEpochMilli());
-            metadata.put("sinceDate", ZonedDateTime.ofInstant(since, ZoneOffset.UTC)
-                                                   .format(DateTimeFormatter.ISO_INSTANT));
-        }
         
-        int algid = getAlgorithmID(alg);
-        if (algid < 0)
-            throw new InventoryException("Not a registered algorithm: " + alg);
-
-        // check to see if we have this record in the database already
-        StringBuilder sb = new StringBuilder(find_sql_base);
-        sb.append("AND v.name='").append(volname);
-        sb.append("' AND d.name='").append(objname).append("';");
-        List<CacheObject> found = queryForObjects(sb.toString());
-        for(CacheObject co : found)
-            // remove these entries with the same name
-            removeObject(co.volname, co.name);
-
-        // add the new object name to the database
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        try {
-            conn = connect();
-            stmt = conn.prepareStatement(add_sql);
-            stmt.setString(1, id);
-            stmt.setString(2, objname);
-            stmt.setLong(3, size);
-            stmt.setString(4, csum);
-            stmt.setInt(5, algid);
-            stmt.setInt(6, priority);
-            stmt.setInt(7, volid);
-            stmt.setLong(8, since.toEpochMilli());
-            stmt.setBoolean(9, true);
-            stmt.setString(10, pdrid);
-            stmt.setString(11, ediid);
-            stmt.setString(12, jmd);
+            int algid = getAlgorithmID(alg);
+            if (algid < 0)
+                throw new InventoryException("Not a registered algorithm: " + alg);
+
+            // check to see if we have this record in the database already
+            StringBuilder sb = new StringBuilder(find_sql_base);
+            sb.append("AND v.name='").append(volname);
+            sb.append("' AND d.name='").append(objname).append("';");
+            List<CacheObject> found = queryForObjects(sb.toString());
+            for(CacheObject co : found)
+                // remove these entries with the same name
+                removeObject(co.volname, co.name);
+
+            // add the new object name to the database
+            Connection conn = null;
+            PreparedStatement stmt = null;
+            try {
+                conn = connect();
+                stmt = conn.prepareStatement(add_sql);
+                stmt.setString(1, id);
+                stmt.setString(2, objname);
+                stmt.setLong(3, size);
+                stmt.setString(4, csum);
+                stmt.setInt(5, algid);
+                stmt.setInt(6, priority);
+                stmt.setInt(7, volid);
+                stmt.setLong(8, since.toEpochMilli());
+                stmt.setBoolean(9, true);
+                stmt.setString(10, pdrid);
+                stmt.setString(11, ediid);
+                stmt.setString(12, jmd);
+                setTypedColumns(stmt, 13, metadata);
             
-            stmt.executeUpdate();
-        }
-        catch (SQLException ex) {
-            throw new InventoryException("Failed to register object " + id + ": " + ex.getMessage(), ex);
+                stmt.executeUpdate();
+            }
+            catch (SQLException ex) {
+                throw new InventoryException("Failed to register object " + id + ": " + ex.getMessage(), ex);
+            }
+            finally {
+                try { if (stmt != null) stmt.close(); } catch (SQLException ex) {  }
+                try { disconnect(conn); } catch (SQLException ex) {} 
+            }
+
+            return new CacheObject(objname, metadata, volname);
         }
         finally {
-            try { if (stmt != null) stmt.close(); } catch (SQLException ex) {  }
-            try { disconnect(conn); } catch (SQLException ex) {} 
+            dblock.unlock();
         }
-
-        return new CacheObject(objname, metadata, volname);
     }
 
 
@@ -312,10 +378,7 @@ public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB imple
 
         // lock access to the db in case a deletion plan is progress, unless the caller just
         // wants information. 
-        Object lock = (purpose >= VOL_FOR_GET) ? this : new Object();
-        synchronized (lock) {
-            return queryForObjects(sql.toString());
-        }
+        return queryForObjects(sql.toString(), purpose >= VOL_FOR_GET);
     }
 
     /**
@@ -335,10 +398,7 @@ public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB imple
 
         // lock access to the db in case a deletion plan is progress, unless the caller just
         // wants information. 
-        Object lock = (purpose >= VOL_FOR_GET) ? this : new Object();
-        synchronized (lock) {
-            return queryForObjects(sql.toString());
-        }
+        return queryForObjects(sql.toString(), purpose >= VOL_FOR_GET);
     }
 
     /**
@@ -360,9 +420,520 @@ public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB imple
 
         // lock access to the db in case a deletion plan is progress, unless the caller just
         // wants information. 
-        Object lock = (purpose >= VOL_FOR_GET) ? this : new Object();
-        synchronized (lock) {
-            return queryForObjects(sql.toString());
+        return queryForObjects(sql.toString(), purpose >= VOL_FOR_GET);
+    }
+
+    /**
+     * return all the known locations of an object with a given id in the volumes managed by this 
+     * database.  If the identifier is not found among the objects and alias resolution is turned on 
+     * (see {@link #setAliasResolution(boolean)}), it will be looked up as an alias; if it is a 
+     * registered, unexpired alias, the locations of the object it refers to are returned.  
+     * @param id       the identifier for the desired object
+     * @param purpose  an integer indicating the purpose for locating the object.  Recognized 
+     *                 values are defined in the {@link gov.nist.oar.distrib.cachemgr.VolumeStatus} interface.
+     * @return List<CacheObject>  the copies of the object in the cache.  Each element represents
+     *                             a copy in a different cache volume.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    @Override
+    public List<CacheObject> findObject(String id, int purpose) throws InventoryException {
+        List<CacheObject> out = super.findObject(id, purpose);
+        if (out.size() > 0 || ! resolveAliases)
+            return out;
+
+        String objid = resolveAlias(id);
+        if (objid == null)
+            return out;
+        return super.findObject(objid, purpose);
+    }
+
+    /**
+     * return a list of cache objects that are referred to by the unexpired aliases in the given group
+     * @param group    the name of the group of aliases
+     * @param purpose  an integer indicating the purpose for locating the object.  Recognized 
+     *                 values are defined in the {@link gov.nist.oar.distrib.cachemgr.VolumeStatus} interface.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public List<CacheObject> selectAliasedObjects(String group, int purpose) throws InventoryException {
+        ensureAliasTable();
+        StringBuilder sql = new StringBuilder(find_sql_base);
+        sql.append("AND d.objid IN (SELECT a.objid FROM aliases a WHERE a.grp=? ")
+           .append("AND (a.expires <= 0 OR a.expires > ?)) AND v.status >= ?");
+        if (purpose >= VOL_FOR_GET)
+            sql.append(" AND d.cached=1");
+        sql.append(";");
+
+        return queryForObjects(sql.toString(), purpose >= VOL_FOR_GET,
+                               group, System.currentTimeMillis(), purpose);
+    }
+
+    /**
+     * pass each of the objects that are part of the dataset with the given AIP identifier--including 
+     * the shared objects that the unexpired aliases in the group of the same name refer to--to a 
+     * consumer, one at a time, as they are read from the database.  Unlike 
+     * {@link #selectObjectsLikeID(String,int)}, the matching objects are never all held in memory at 
+     * once, making this suitable for listing very large datasets.  Objects are returned in order of 
+     * identifier and volume name, so that a large listing can be retrieved in pages by passing the 
+     * identifier and volume of the last object of the previous page as <code>afterId</code> and 
+     * <code>afterVol</code>.  
+     * <p>
+     * Because the consumer may take an arbitrary amount of time to process each object, the database
+     * is not locked against concurrent deletions while the objects are passed; thus, this method is 
+     * intended for informational listings.  
+     * @param aipid     the AIP identifier of the dataset
+     * @param purpose   an integer indicating the purpose for locating the objects.  Recognized 
+     *                  values are defined in the {@link gov.nist.oar.distrib.cachemgr.VolumeStatus} 
+     *                  interface.
+     * @param afterId   if not null, return only objects that sort after the object with this identifier
+     *                  in the volume named <code>afterVol</code>.
+     * @param afterVol  the volume name that qualifies <code>afterId</code>; ignored if afterId is null.
+     * @param limit     the maximum number of objects to return; a non-positive value means no limit.
+     * @param consumer  the function to pass each object to
+     * @return int -- the number of objects passed to the consumer
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public int forEachDatasetObject(String aipid, int purpose, String afterId, String afterVol, int limit,
+                                    Consumer<CacheObject> consumer)
+        throws InventoryException
+    {
+        ensureAliasTable();
+        List<Object> args = new ArrayList<Object>();
+        StringBuilder sql = new StringBuilder(find_sql_base);
+        sql.append("AND (d.objid LIKE ? OR d.objid IN (SELECT a.objid FROM aliases a WHERE a.grp=? ")
+           .append("AND (a.expires <= 0 OR a.expires > ?))) AND v.status >= ?");
+        args.add(aipid + "/%");
+        args.add(aipid);
+        args.add(System.currentTimeMillis());
+        args.add(purpose);
+        if (purpose >= VOL_FOR_GET)
+            sql.append(" AND d.cached=1");
+        if (afterId != null) {
+            sql.append(" AND (d.objid > ? OR (d.objid = ? AND v.name > ?))");
+            args.add(afterId);
+            args.add(afterId);
+            args.add((afterVol == null) ? "" : afterVol);
+        }
+        sql.append(" ORDER BY d.objid, v.name");
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+            args.add(limit);
+        }
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        int count = 0;
+        try {
+            conn = connect();
+            stmt = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < args.size(); i++)
+                stmt.setObject(i+1, args.get(i));
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                consumer.accept(extractObject(rs));
+                count++;
+            }
+            return count;
+        }
+        catch (SQLException ex) {
+            throw new InventorySearchException(ex);
+        }
+        finally {
+            try { if (rs != null) rs.close(); } catch (SQLException ex) { }
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+        }
+    }
+
+    /**
+     * return the currently cached, shareable copies of the files from a particular version of a dataset.
+     * These are objects whose identifiers start with {@link PDRConstants#SHARED_CONTENT_PREFIX}.  
+     * @param aipid    the AIP identifier of the dataset
+     * @param version  the version of the dataset; if null, only copies cached without a version 
+     *                 label (i.e. for the latest version) are returned.
+     * @return List<CacheObject> -- the matching objects, most recently cached first
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public List<CacheObject> selectSharedObjects(String aipid, String version) throws InventoryException {
+        StringBuilder sql = new StringBuilder(find_sql_base);
+        sql.append("AND d.objid LIKE ? AND d.cached=1 AND v.status >= ? ORDER BY d.since DESC;");
+
+        List<CacheObject> out = new ArrayList<CacheObject>();
+        String prefix = null;
+        String suffix = (version != null && version.length() > 0) ? "#" + version : null;
+        for (CacheObject co : queryForObjects(sql.toString(), false,
+                                              SHARED_CONTENT_PREFIX + "%/" + aipid + "/%", VOL_FOR_GET))
+        {
+            // the LIKE pattern is only approximate; enforce an exact match on the dataset and version
+            prefix = co.id.substring(0, co.id.indexOf('/') + 1);
+            if (! co.id.startsWith(prefix + aipid + "/"))
+                continue;
+            if ((suffix == null) ? co.id.contains("#") : ! co.id.endsWith(suffix))
+                continue;
+            out.add(co);
+        }
+        return out;
+    }
+
+    private void ensureAliasTable() throws InventoryException {
+        if (aliasTableReady)
+            return;
+
+        // databases created before aliases were supported will not have the table (or its indexes) yet
+        createTable("aliases", alias_create_sql);
+        for (String sql : alias_index_sql)
+            createTable("aliases", sql);
+        aliasTableReady = true;
+    }
+
+    private void ensureJobTable() throws InventoryException {
+        if (jobTableReady)
+            return;
+
+        // databases created before caching jobs were recorded will not have the table yet
+        createTable("cachejobs", job_create_sql);
+        jobTableReady = true;
+    }
+
+    private void createTable(String name, String sql) throws InventoryException {
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = connect();
+            stmt = conn.createStatement();
+            stmt.execute(sql);
+        }
+        catch (SQLException ex) {
+            throw new InventoryException("Failed to create "+name+" table: " + ex.getMessage(), ex);
+        }
+        finally {
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+        }
+    }
+
+    /**
+     * submit a parameterized SQL query to the underlying data base to return matching objects, 
+     * optionally while holding the database lock.
+     * @param objsql   an SQL query that returns a list of data objects
+     * @param locked   if true, the query is made while holding the lock returned by {@link #getLock()}
+     * @param args     the values to substitute for the <code>?</code> placeholders in the query
+     */
+    protected List<CacheObject> queryForObjects(String objsql, boolean locked, Object... args)
+        throws InventoryException
+    {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        if (locked) dblock.lock();
+        try {
+            conn = connect();
+            stmt = conn.prepareStatement(objsql);
+            for (int i = 0; i < args.length; i++)
+                stmt.setObject(i+1, args[i]);
+            rs = stmt.executeQuery();
+            List<CacheObject> out = new ArrayList<CacheObject>();
+            while (rs.next())
+                out.add(extractObject(rs));
+            return out;
+        }
+        catch (SQLException ex) {
+            throw new InventorySearchException(ex);
+        }
+        finally {
+            try { if (rs != null) rs.close(); } catch (SQLException ex) { }
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+            if (locked) dblock.unlock();
+        }
+    }
+
+    private int updateAliases(String sql, Object... args) throws InventoryException {
+        ensureAliasTable();
+        return update("aliases", sql, args);
+    }
+
+    private int updateJobs(String sql, Object... args) throws InventoryException {
+        ensureJobTable();
+        return update("caching jobs", sql, args);
+    }
+
+    private int update(String what, String sql, Object... args) throws InventoryException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = connect();
+            stmt = conn.prepareStatement(sql);
+            for (int i = 0; i < args.length; i++)
+                stmt.setObject(i+1, args[i]);
+            return stmt.executeUpdate();
+        }
+        catch (SQLException ex) {
+            throw new InventoryException("Failed to update "+what+": " + ex.getMessage(), ex);
+        }
+        finally {
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+        }
+    }
+
+    /**
+     * set whether {@link #findObject(String,int)} should look up an identifier that does not match 
+     * any object as an alias.  This is off by default, as it costs an additional query for every 
+     * lookup of an uncached object; it should be turned on for caches that hold shared content.
+     */
+    public void setAliasResolution(boolean resolve) { resolveAliases = resolve; }
+
+    /**
+     * return true if {@link #findObject(String,int)} looks up unmatched identifiers as aliases
+     */
+    public boolean isResolvingAliases() { return resolveAliases; }
+
+    /**
+     * register an alias for an object.  If the alias is already registered, it will be updated to
+     * refer to the given object.
+     * @param alias    the new identifier to register
+     * @param objid    the identifier of the object that the alias should refer to
+     * @param group    the name of the group the alias belongs to
+     * @param expires  the time, in epoch milliseconds, when the alias should expire; a non-positive
+     *                   value means that it does not expire.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    @Override
+    public void addAlias(String alias, String objid, String group, long expires)
+        throws InventoryException
+    {
+        dblock.lock();
+        try {
+            updateAliases("DELETE FROM aliases WHERE alias=?", alias);
+            updateAliases("INSERT INTO aliases(alias,objid,grp,since,expires) VALUES (?,?,?,?,?)",
+                          alias, objid, group, System.currentTimeMillis(), expires);
+        }
+        finally {
+            dblock.unlock();
+        }
+    }
+
+    /**
+     * return the identifier of the object that an unexpired alias refers to, or null if the given
+     * identifier is not a registered, unexpired alias.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    @Override
+    public String resolveAlias(String alias) throws InventoryException {
+        ensureAliasTable();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        try {
+            conn = connect();
+            stmt = conn.prepareStatement("SELECT objid FROM aliases WHERE alias=? AND " +
+                                         "(expires <= 0 OR expires > ?) ORDER BY since DESC");
+            stmt.setString(1, alias);
+            stmt.setLong(2, System.currentTimeMillis());
+            res = stmt.executeQuery();
+            return (res.next()) ? res.getString("objid") : null;
+        }
+        catch (SQLException ex) {
+            throw new InventorySearchException(ex);
+        }
+        finally {
+            try { if (res != null) res.close(); } catch (SQLException ex) { }
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+        }
+    }
+
+    /**
+     * return the number of unexpired aliases that refer to the object with the given identifier
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    @Override
+    public int countAliases(String objid) throws InventoryException {
+        ensureAliasTable();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        try {
+            conn = connect();
+            stmt = conn.prepareStatement("SELECT count(*) as count FROM aliases WHERE objid=? AND " +
+                                         "(expires <= 0 OR expires > ?)");
+            stmt.setString(1, objid);
+            stmt.setLong(2, System.currentTimeMillis());
+            res = stmt.executeQuery();
+            return (res.next()) ? res.getInt("count") : 0;
+        }
+        catch (SQLException ex) {
+            throw new InventorySearchException(ex);
+        }
+        finally {
+            try { if (res != null) res.close(); } catch (SQLException ex) { }
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+        }
+    }
+
+    /**
+     * remove all of the aliases belonging to the given group
+     * @return int -- the number of aliases removed
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    @Override
+    public int removeAliases(String group) throws InventoryException {
+        dblock.lock();
+        try {
+            return updateAliases("DELETE FROM aliases WHERE grp=?", group);
+        }
+        finally {
+            dblock.unlock();
+        }
+    }
+
+    /**
+     * remove all aliases that have expired
+     * @return int -- the number of aliases removed
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    @Override
+    public int removeExpiredAliases() throws InventoryException {
+        dblock.lock();
+        try {
+            return updateAliases("DELETE FROM aliases WHERE expires > 0 AND expires <= ?",
+                                 System.currentTimeMillis());
+        }
+        finally {
+            dblock.unlock();
+        }
+    }
+
+    /**
+     * record the state of a job that caches a dataset in the background.  If a job with the given 
+     * identifier is already recorded, its state is replaced.  The recognized properties of 
+     * <code>state</code> are
+     * <dl>
+     * <dd> <b>dsid</b> -- the identifier of the dataset being cached (required) </dd>
+     * <dd> <b>version</b> -- the version of the dataset being cached </dd>
+     * <dd> <b>status</b> -- a label for the state of the job (required) </dd>
+     * <dd> <b>message</b> -- an explanation of the status (e.g. why the job failed) </dd>
+     * <dd> <b>since</b> -- the time the job was created, in epoch milliseconds </dd>
+     * <dd> <b>finished</b> -- the time the job finished, in epoch milliseconds; 0 if it has not </dd>
+     * <dd> <b>recordid</b> -- the identifier of the request whose requester is waiting to be told 
+     *                         that the job has finished; omitted once the requester has been told </dd>
+     * </dl>
+     * @param jobid   the identifier for the job (e.g. the identifier the dataset is being cached under)
+     * @param state   the state of the job (see above)
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public void saveCachingJob(String jobid, JSONObject state) throws InventoryException {
+        dblock.lock();
+        try {
+            updateJobs("DELETE FROM cachejobs WHERE jobid=?", jobid);
+            updateJobs("INSERT INTO cachejobs(jobid,dsid,version,status,message,since,finished,recordid) " +
+                       "VALUES (?,?,?,?,?,?,?,?)",
+                       jobid, state.getString("dsid"), state.optString("version", null),
+                       state.getString("status"), state.optString("message", null),
+                       state.optLong("since", System.currentTimeMillis()), state.optLong("finished", 0L),
+                       state.optString("recordid", null));
+        }
+        catch (JSONException ex) {
+            throw new InventoryMetadataException("Incomplete caching job state for "+jobid+": "+
+                                                 ex.getMessage(), ex);
+        }
+        finally {
+            dblock.unlock();
+        }
+    }
+
+    /**
+     * return the recorded state of the job with the given identifier, or null if no such job is 
+     * recorded.  The properties of the returned object are those described for 
+     * {@link #saveCachingJob(String,JSONObject)}.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public JSONObject getCachingJob(String jobid) throws InventoryException {
+        List<JSONObject> found = selectCachingJobs("SELECT * FROM cachejobs WHERE jobid=?", jobid);
+        return (found.isEmpty()) ? null : found.get(0);
+    }
+
+    /**
+     * return the recorded states of the jobs that still need attention after a restart of the service:
+     * those that have not finished and those whose requesters have not yet been told that they have.
+     * The properties of the returned objects are those described for 
+     * {@link #saveCachingJob(String,JSONObject)}, plus <b>jobid</b>.
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public List<JSONObject> selectPendingCachingJobs() throws InventoryException {
+        return selectCachingJobs("SELECT * FROM cachejobs WHERE finished = 0 OR recordid IS NOT NULL");
+    }
+
+    private List<JSONObject> selectCachingJobs(String sql, Object... args) throws InventoryException {
+        ensureJobTable();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        try {
+            conn = connect();
+            stmt = conn.prepareStatement(sql);
+            for (int i = 0; i < args.length; i++)
+                stmt.setObject(i+1, args[i]);
+            res = stmt.executeQuery();
+
+            List<JSONObject> out = new ArrayList<JSONObject>();
+            while (res.next()) {
+                JSONObject job = new JSONObject();
+                job.put("jobid", res.getString("jobid"));
+                job.put("dsid", res.getString("dsid"));
+                if (res.getString("version") != null)
+                    job.put("version", res.getString("version"));
+                job.put("status", res.getString("status"));
+                if (res.getString("message") != null)
+                    job.put("message", res.getString("message"));
+                job.put("since", res.getLong("since"));
+                job.put("finished", res.getLong("finished"));
+                if (res.getString("recordid") != null)
+                    job.put("recordid", res.getString("recordid"));
+                out.add(job);
+            }
+            return out;
+        }
+        catch (SQLException ex) {
+            throw new InventorySearchException(ex);
+        }
+        finally {
+            try { if (res != null) res.close(); } catch (SQLException ex) { }
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+        }
+    }
+
+    /**
+     * forget the job with the given identifier
+     * @return int -- the number of job records removed
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public int removeCachingJob(String jobid) throws InventoryException {
+        dblock.lock();
+        try {
+            return updateJobs("DELETE FROM cachejobs WHERE jobid=?", jobid);
+        }
+        finally {
+            dblock.unlock();
+        }
+    }
+
+    /**
+     * forget the jobs that finished before the given time
+     * @param before   the cut-off time, in epoch milliseconds
+     * @return int -- the number of job records removed
+     * @throws InventoryException  if there is an error accessing the underlying database.
+     */
+    public int removeFinishedCachingJobs(long before) throws InventoryException {
+        dblock.lock();
+        try {
+            return updateJobs("DELETE FROM cachejobs WHERE finished > 0 AND finished < ?", before);
+        }
+        finally {
+            dblock.unlock();
         }
     }
 
@@ -500,29 +1071,113 @@ public abstract class PDRStorageInventoryDB extends JDBCStorageInventoryDB imple
      * @throws InventoryException   if there is an error accessing this database
      */
     public JSONArray summarizeContents(String volname) throws InventoryException {
-        String qsel = "SELECT d.ediid,d.pdrid,count(*) as count,sum(d.size) as totsz,max(d.since) as newest," +
-                      "min(d.checked) as oldest FROM objects d, volumes v WHERE d.volume=v.id AND d.cached=1";
-        if (volname != null) 
-            qsel += " AND v.name='" + volname + "'";
+        JSONArray out = new JSONArray();
+        forEachDatasetSummary(volname, null, 0L, 0, out::put);
+        return out;
+    }
+
+    /**
+     * pass a summary of each dataset with files in the cache to a consumer, one at a time, as they are 
+     * read from the database.  Each summary has the same properties as returned by 
+     * {@link #summarizeDataset(String)}.  Summaries are returned in order of their "checked" time and 
+     * then EDI identifier, so that a large listing can be retrieved in pages by passing the "ediid" and 
+     * "checked" values of the last summary of the previous page as <code>afterEdiid</code> and 
+     * <code>afterChecked</code>.  
+     * @param volname       the name of the volume to restrict results to; if null, results span across 
+     *                      volumes
+     * @param afterEdiid    if not null, return only summaries that sort after the dataset with this EDI 
+     *                      identifier and a "checked" time of <code>afterChecked</code>.
+     * @param afterChecked  the "checked" time that qualifies <code>afterEdiid</code>; ignored if 
+     *                      afterEdiid is null.
+     * @param limit         the maximum number of summaries to return; a non-positive value means no limit.
+     * @param consumer      the function to pass each summary to
+     * @return int -- the number of summaries passed to the consumer
+     * @throws InventoryException   if there is an error accessing this database
+     */
+    public int forEachDatasetSummary(String volname, String afterEdiid, long afterChecked, int limit,
+                                     Consumer<JSONObject> consumer)
+        throws InventoryException
+    {
+        List<Object> args = new ArrayList<Object>();
+        StringBuilder qsel = new StringBuilder();
+        qsel.append("SELECT d.ediid,d.pdrid,count(*) as count,sum(d.size) as totsz,max(d.since) as newest,")
+            .append("min(d.checked) as oldest FROM objects d, volumes v WHERE d.volume=v.id AND d.cached=1");
+        if (volname != null) {
+            qsel.append(" AND v.name=?");
+            args.add(volname);
+        }
         else
-            qsel += " AND v.name!='old'";
-        qsel += " GROUP BY d.ediid ORDER BY oldest";
+            qsel.append(" AND v.name!='old'");
+        qsel.append(" GROUP BY d.ediid");
+        if (afterEdiid != null) {
+            qsel.append(" HAVING (min(d.checked) > ? OR (min(d.checked) = ? AND d.ediid > ?))");
+            args.add(afterChecked);
+            args.add(afterChecked);
+            args.add(afterEdiid);
+        }
+        qsel.append(" ORDER BY oldest, d.ediid");
+        if (limit > 0) {
+            qsel.append(" LIMIT ?");
+            args.add(limit);
+        }
 
         Connection conn = null;
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet res = null;
+        int count = 0;
         try {
             conn = connect();
-            
-            JSONArray out = new JSONArray();
-            JSONObject row = null;
-            stmt = conn.createStatement();
-            res = stmt.executeQuery(qsel);
+            stmt = conn.prepareStatement(qsel.toString());
+            for (int i = 0; i < args.size(); i++)
+                stmt.setObject(i+1, args.get(i));
+            res = stmt.executeQuery();
             while (res.next()) {
-                row = extractDatasetInfo(res);
-                out.put(row);
+                consumer.accept(extractDatasetInfo(res));
+                count++;
             }
+            return count;
+        }
+        catch (SQLException ex) {
+            throw new InventorySearchException(ex);
+        }
+        finally {
+            try { if (res != null) res.close(); } catch (SQLException ex) { }
+            try { if (stmt != null) stmt.close(); } catch (SQLException ex) { }
+            quietDisconnect(conn);
+        }
+    }
+
+    /**
+     * return the AIP identifiers of the datasets with files in the cache that were most recently
+     * accessed or added, most recent first.  A dataset's recency is the latest "since" time of any
+     * of its cached files.
+     * @param limit    the maximum number of identifiers to return; a non-positive value means no limit.
+     * @return List -- the AIP identifiers (without an ARK prefix)
+     * @throws InventoryException   if there is an error accessing this database
+     */
+    public List<String> selectRecentDatasets(int limit) throws InventoryException {
+        StringBuilder qsel = new StringBuilder();
+        qsel.append("SELECT d.ediid,max(d.since) as newest FROM objects d, volumes v ")
+            .append("WHERE d.volume=v.id AND d.cached=1 AND v.name!='old' ")
+            .append("GROUP BY d.ediid ORDER BY newest DESC");
+        if (limit > 0)
+            qsel.append(" LIMIT ?");
 
+        List<String> out = new ArrayList<String>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        try {
+            conn = connect();
+            stmt = conn.prepareStatement(qsel.toString());
+            if (limit > 0)
+                stmt.setInt(1, limit);
+            res = stmt.executeQuery();
+            while (res.next()) {
+                String id = res.getString("ediid");
+                if (id != null && id.length() > 0)
+                    out.add(PDR_ARK_PAT.matcher(id).replaceFirst(""));
+            }
             return out;
         }
         catch (SQLException ex) {
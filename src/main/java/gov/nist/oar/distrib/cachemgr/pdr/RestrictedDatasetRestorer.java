@@ -21,13 +21,24 @@ import gov.nist.oar.distrib.ObjectNotFoundException;
 import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.BagStorage;
 import gov.nist.oar.distrib.cachemgr.Reservation;
+import gov.nist.oar.distrib.cachemgr.AliasingInventoryDB;
+import gov.nist.oar.distrib.cachemgr.BasicCache;
 import gov.nist.oar.distrib.cachemgr.Cache;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.InventoryException;
 import gov.nist.oar.distrib.cachemgr.RestorationException;
 
 import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.security.SecureRandom;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.FileNotFoundException;
@@ -55,6 +66,14 @@ import org.json.JSONException;
  * long-term storage.  Thus, to obtain a complete restricted public dataset, data must be retrieved from
  * multiple (2) long-term storage locations.  This class handles the special requirements for restoring
  * restricted public data.  
+ * </p><p>
+ * Restricted data is normally cached separately for each approved access request, under an identifier 
+ * prefixed with the request's (random) target identifier.  If content sharing is turned on (see 
+ * {@link #setShareContent(boolean)}) and the cache's inventory supports aliases, each file of a dataset 
+ * version is instead cached just once under an unguessable shared identifier (prefixed by 
+ * {@link PDRConstants#SHARED_CONTENT_PREFIX}), and each request's identifiers are registered as expiring 
+ * aliases to those shared copies.  Only the first request for a dataset version then pays the cost of 
+ * restoring it; the shared copies are removed once no unexpired aliases refer to them.
  * </p>
  * @see HeadBagRestorer
  * @see HeadBagCacheManager
@@ -62,6 +81,11 @@ import org.json.JSONException;
 public class RestrictedDatasetRestorer extends PDRDatasetRestorer {
     BagStorage restrictedLtstore = null;
     long expiryTime = 1209600000L; // 2 weeks in milliseconds
+    boolean shareContent = false;
+
+    final Map<String, SharingLock> sharingLocks = new ConcurrentHashMap<String, SharingLock>();
+    private final Map<String, AliasRequest> aliasing = new ConcurrentHashMap<String, AliasRequest>();
+    private static final SecureRandom rand = new SecureRandom();
 
     /**
      * create the restorer
@@ -125,6 +149,21 @@ public class RestrictedDatasetRestorer extends PDRDatasetRestorer {
         this.expiryTime = expiryTime;
     }
 
+    /**
+     * return true if restricted files are cached once and shared by multiple requests via aliases
+     */
+    public boolean isSharingContent() {
+        return shareContent;
+    }
+
+    /**
+     * set whether restricted files should be cached once and shared by multiple requests via aliases.
+     * Sharing only takes effect if the cache's inventory database supports aliases.
+     */
+    public void setShareContent(boolean share) {
+        shareContent = share;
+    }
+
     /**
      * return true if an object does <i>not</i> exist in the long term storage system.  Returning
      * true indicates that the object <i>may</i> exist, but it is not guaranteed.  These semantics
@@ -252,6 +291,13 @@ public class RestrictedDatasetRestorer extends PDRDatasetRestorer {
     public Set<String> cacheDataset(String aipid, String version, Cache into, boolean recache, int prefs, String target)
             throws StorageVolumeException, ResourceNotFoundException, CacheManagementException {
 
+        if (shareContent && target != null && ! target.isEmpty()) {
+            PDRStorageInventoryDB sidb = getSharingInventory(into);
+            if (sidb != null)
+                return cacheDatasetShared(aipid, version, into, prefs, target, sidb);
+            log.warn("Cache inventory does not support aliases; caching {} without sharing", aipid);
+        }
+
         Set<String> cachedFiles;
         CacheOpts opts = new CacheOpts(recache, prefs, null);
 
@@ -264,6 +310,147 @@ public class RestrictedDatasetRestorer extends PDRDatasetRestorer {
         return cachedFiles;
     }
 
+    /**
+     * cache a dataset into shared storage and register the files under the given target as aliases 
+     * to the shared copies.  Only the files not already available in shared storage are restored.  
+     * @return Set<String> -- a list of the filepaths for files that are available under the target
+     */
+    protected Set<String> cacheDatasetShared(String aipid, String version, Cache into, int prefs,
+                                             String target, PDRStorageInventoryDB sidb)
+            throws StorageVolumeException, ResourceNotFoundException, CacheManagementException
+    {
+        // serialize requests for the same dataset version so that only the first one restores it
+        String key = aipid+"#"+((version == null) ? "" : version);
+        SharingLock lock = sharingLocks.compute(key, (k, l) -> {
+            if (l == null) l = new SharingLock();
+            l.users++;
+            return l;
+        });
+        try {
+            // a lock rather than a monitor, so that virtual threads waiting on a restore do not pin
+            // their carriers
+            lock.lock();
+            try {
+                String group = findSharedGroup(aipid, version, sidb);
+                if (group == null) {
+                    byte[] rid = new byte[12];
+                    rand.nextBytes(rid);
+                    group = SHARED_CONTENT_PREFIX + HexFormat.of().formatHex(rid);
+                }
+                else
+                    log.info("Sharing previously cached content for {} with {}", aipid, target);
+
+                // the aliases are registered (via fileCached()) as each file becomes available so that 
+                // the requester can see the progress of the restoration
+                long expires = (expiryTime > 0L) ? System.currentTimeMillis() + expiryTime : 0L;
+                aliasing.put(group, new AliasRequest(target, sidb, expires));
+                CacheOpts opts = new CacheOpts(false, prefs, null);
+                try {
+                    return cacheDatasetFromStore(aipid, version, into, opts, group, restrictedLtstore);
+                } catch (ResourceNotFoundException ex) {
+                    return cacheDatasetFromStore(aipid, version, into, opts, group, ltstore);
+                }
+                finally {
+                    aliasing.remove(group);
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        finally {
+            // forget the lock once no request for the dataset version is using it
+            sharingLocks.computeIfPresent(key, (k, l) -> (--l.users > 0) ? l : null);
+        }
+    }
+
+    /**
+     * register the alias for a file that has become available as shared content
+     */
+    @Override
+    protected void fileCached(String aipid, String filepath, String forVersion, String target) {
+        AliasRequest req = (target == null) ? null : aliasing.get(target);
+        if (req == null)
+            return;
+        try {
+            req.sidb.addAlias(idForObject(aipid, filepath, forVersion, req.target),
+                              idForObject(aipid, filepath, forVersion, target), req.target, req.expires);
+        }
+        catch (InventoryException ex) {
+            log.error("Failed to register alias for {} under {}: {}", filepath, req.target, ex.getMessage());
+        }
+    }
+
+    /**
+     * return the identifier prefix of the most recently cached shared copy of a dataset version whose
+     * files all match the dataset's current metadata, or null if there is no such copy.
+     */
+    String findSharedGroup(String aipid, String version, PDRStorageInventoryDB sidb)
+        throws CacheManagementException
+    {
+        List<CacheObject> shared = sidb.selectSharedObjects(aipid, version);
+        if (shared.size() == 0)
+            return null;
+
+        JSONObject resmd = null;
+        try {
+            resmd = hbcm.resolveAIPID(aipid, version);
+        } catch (ResourceNotFoundException ex) {
+            return null;
+        }
+
+        // a copy is only reusable if the checksums still match (e.g. the latest version has not changed)
+        Map<String, Boolean> groups = new LinkedHashMap<String, Boolean>();
+        for (CacheObject co : shared) {
+            String group = co.id.substring(0, co.id.indexOf('/'));
+            if (Boolean.FALSE.equals(groups.get(group)))
+                continue;
+            String fp = co.getMetadatumString("filepath", null);
+            JSONObject cmp = (fp == null) ? null : HeadBagCacheManager.findComponentByFilepath(resmd, fp);
+            String hash = (cmp == null || cmp.optJSONObject("checksum") == null) ? null
+                                                     : cmp.getJSONObject("checksum").optString("hash", null);
+            groups.put(group, cmp != null && Objects.equals(hash, co.getMetadatumString("checksum", null)));
+        }
+        for (Map.Entry<String, Boolean> grp : groups.entrySet()) {
+            if (grp.getValue())
+                return grp.getKey();
+        }
+        return null;
+    }
+
+    private PDRStorageInventoryDB getSharingInventory(Cache into) {
+        if (! (into instanceof BasicCache))
+            return null;
+        Object sidb = ((BasicCache) into).getInventoryDB();
+        if (! (sidb instanceof PDRStorageInventoryDB))
+            return null;
+
+        // the requests' identifiers only find the shared copies if the inventory resolves aliases
+        ((PDRStorageInventoryDB) sidb).setAliasResolution(true);
+        return (PDRStorageInventoryDB) sidb;
+    }
+
+    /**
+     * a lock serializing the sharing of a dataset version, along with a count of the requests using it
+     */
+    static class SharingLock extends ReentrantLock {
+        int users = 0;
+    }
+
+    /**
+     * the request that the files being cached into a shared group should be aliased for
+     */
+    static class AliasRequest {
+        final String target;
+        final PDRStorageInventoryDB sidb;
+        final long expires;
+        AliasRequest(String target, PDRStorageInventoryDB sidb, long expires) {
+            this.target = target;
+            this.sidb = sidb;
+            this.expires = expires;
+        }
+    }
+
     protected int getDefaultPrefs(boolean versionSpecific) {
         return (versionSpecific) ? ROLE_OLD_RESTRICTED_DATA : ROLE_RESTRICTED_DATA;
     }
@@ -290,6 +477,23 @@ public class RestrictedDatasetRestorer extends PDRDatasetRestorer {
      * @param md The metadata JSONObject to be customized.
      * @param prefs flags for data roles
      */
+    /**
+     * Updates the metadata for files being cached.  Files cached for sharing via aliases are marked as 
+     * shared and are not given an expiration time of their own; they are kept as long as unexpired 
+     * aliases refer to them.  Otherwise, {@link #updateMetadata(JSONObject,int)} is applied.
+     *
+     * @param md The metadata JSONObject to be customized.
+     * @param prefs flags for data roles
+     * @param target the target identifier prefix the data is being cached under
+     */
+    @Override
+    protected void updateMetadata(JSONObject md, int prefs, String target) {
+        if (target != null && target.startsWith(SHARED_CONTENT_PREFIX))
+            md.put(AliasingInventoryDB.SHARED_METADATUM, true);
+        else
+            updateMetadata(md, prefs);
+    }
+
     @Override
     protected void updateMetadata(JSONObject md, int prefs) {
         if ((prefs & ROLE_RESTRICTED_DATA) != 0) {
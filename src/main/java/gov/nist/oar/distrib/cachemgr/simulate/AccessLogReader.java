@@ -0,0 +1,235 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.simulate;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * a reader that extracts data file downloads from the service's Tomcat access logs (i.e. the
+ * <code>tomcat-access-log</code> files) so that they can be replayed against a simulated cache.
+ * <p>
+ * Lines are expected to follow the "common" (or "combined") log pattern,
+ * <code>%h %l %u %t "%r" %s %b</code>.  Only successful GET requests on dataset file paths
+ * (<code>/od/ds/{dsid}/{filepath}</code>, <code>/od/ds/ark:/{naan}/{dsid}/{filepath}</code>,
+ * and their <code>_v/{version}/</code> forms) are kept; requests for AIP metadata
+ * (<code>_aip</code>) and directory listings are skipped.  Each kept request is turned into a
+ * {@link Request} carrying the cache identifier that the
+ * {@link gov.nist.oar.distrib.service.CacheEnabledFileDownloadService} would use for the file
+ * (<code>dsid/filepath[#version]</code>), the time of the request, and the size of the file.
+ * <p>
+ * The size is taken from the response's byte count.  Downloads that were redirected (e.g. to a
+ * cache volume's redirect URL) do not report a size; for these, the size last seen for the same
+ * file is used.  If the size has never been seen, the request is skipped.
+ */
+public class AccessLogReader {
+
+    /** the default path prefix identifying file downloads */
+    public static final String DEFAULT_PREFIX = "/od/ds/";
+
+    static final Pattern LOG_LINE =
+        Pattern.compile("^\\S+ \\S+ \\S+ \\[([^\\]]+)\\] \"(\\S+) (\\S+)[^\"]*\" (\\d{3}) (\\S+)");
+
+    static final DateTimeFormatter LOG_TIME =
+        DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH);
+
+    /**
+     * a file download request extracted from the access log
+     */
+    public static class Request {
+        /** the cache identifier for the requested file */
+        public final String id;
+
+        /** the time of the request, in milliseconds since the epoch */
+        public final long time;
+
+        /** the size of the requested file in bytes */
+        public final long size;
+
+        public Request(String id, long time, long size) {
+            this.id = id;
+            this.time = time;
+            this.size = size;
+        }
+    }
+
+    private String prefix = DEFAULT_PREFIX;
+    private Map<String, Long> sizes = new HashMap<String, Long>();
+    private long skipped = 0L;
+
+    /**
+     * create a reader that recognizes file downloads under the default path prefix,
+     * {@link #DEFAULT_PREFIX}.
+     */
+    public AccessLogReader() { }
+
+    /**
+     * create a reader that recognizes file downloads under the given path prefix
+     * @param pathprefix   the URL path that dataset identifiers appear under (e.g. "/od/ds/")
+     */
+    public AccessLogReader(String pathprefix) {
+        if (pathprefix != null) {
+            if (! pathprefix.endsWith("/")) pathprefix += "/";
+            prefix = pathprefix;
+        }
+    }
+
+    /**
+     * return the number of log lines that looked like file downloads but could not be used
+     * (because they could not be parsed or the file's size was unknown).
+     */
+    public long getSkippedCount() { return skipped; }
+
+    /**
+     * parse a single log line.
+     * @return Request   the extracted file request, or null if the line is not a successful
+     *                   file download
+     */
+    public Request parseLine(String line) {
+        Matcher m = LOG_LINE.matcher(line);
+        if (! m.find())
+            return null;
+        if (! "GET".equals(m.group(2)))
+            return null;
+
+        String id = toCacheId(m.group(3));
+        if (id == null)
+            return null;
+
+        int status = Integer.parseInt(m.group(4));
+        long size = -1L;
+        if (status == 200) {
+            if (! "-".equals(m.group(5))) {
+                size = Long.parseLong(m.group(5));
+                sizes.put(id, size);
+            }
+        }
+        else if (status < 300 || status >= 400) {
+            // partial content and failures do not tell us anything about the file
+            return null;
+        }
+        if (size < 0)
+            size = sizes.getOrDefault(id, -1L);
+
+        long time = 0L;
+        try {
+            time = ZonedDateTime.parse(m.group(1), LOG_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            skipped++;
+            return null;
+        }
+
+        if (size < 0) {
+            skipped++;
+            return null;
+        }
+        return new Request(id, time, size);
+    }
+
+    /**
+     * convert a request URL path to the identifier the file would be cached under, or null if
+     * the path does not refer to a data file.
+     */
+    String toCacheId(String path) {
+        int q = path.indexOf('?');
+        if (q >= 0)
+            path = path.substring(0, q);
+        try {
+            path = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) { /* use it as is */ }
+
+        if (! path.startsWith(prefix))
+            return null;
+        path = path.substring(prefix.length());
+
+        if (path.startsWith("ark:/")) {
+            // strip off "ark:/{naan}/"
+            int i = path.indexOf('/', "ark:/".length());
+            if (i < 0) return null;
+            path = path.substring(i+1);
+        }
+
+        int i = path.indexOf('/');
+        if (i <= 0) return null;
+        String dsid = path.substring(0, i);
+        String filepath = path.substring(i+1);
+
+        String version = null;
+        if (filepath.startsWith("_v/")) {
+            filepath = filepath.substring(3);
+            i = filepath.indexOf('/');
+            if (i <= 0) return null;
+            version = filepath.substring(0, i);
+            filepath = filepath.substring(i+1);
+        }
+
+        if (filepath.length() == 0 || filepath.endsWith("/") || filepath.startsWith("_aip"))
+            return null;
+
+        String id = dsid + "/" + filepath;
+        if (version != null)
+            id += "#" + version;
+        return id;
+    }
+
+    /**
+     * read all of the file requests from the given log stream, appending them to the given list
+     */
+    public void read(Reader log, List<Request> into) throws IOException {
+        BufferedReader rdr = new BufferedReader(log);
+        String line = null;
+        Request req = null;
+        while ((line = rdr.readLine()) != null) {
+            req = parseLine(line);
+            if (req != null)
+                into.add(req);
+        }
+    }
+
+    /**
+     * read all of the file requests from the given log files, in the order given.  Files with
+     * names ending in ".gz" are expected to be gzip-compressed.
+     */
+    public List<Request> read(List<File> logfiles) throws IOException {
+        List<Request> out = new ArrayList<Request>();
+        for (File f : logfiles) {
+            InputStream is = new FileInputStream(f);
+            try {
+                if (f.getName().endsWith(".gz"))
+                    is = new GZIPInputStream(is);
+                read(new InputStreamReader(is, StandardCharsets.UTF_8), out);
+            }
+            finally {
+                is.close();
+            }
+        }
+        return out;
+    }
+}
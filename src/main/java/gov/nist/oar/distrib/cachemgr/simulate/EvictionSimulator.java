@@ -0,0 +1,370 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.simulate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.ConfigurableCache;
+import gov.nist.oar.distrib.cachemgr.Reservation;
+import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
+import gov.nist.oar.distrib.cachemgr.VolumeConfig;
+import gov.nist.oar.distrib.cachemgr.pdr.PDRDatasetRestorer;
+import gov.nist.oar.distrib.cachemgr.pdr.PDRStorageInventoryDB;
+import gov.nist.oar.distrib.cachemgr.storage.NullCacheVolume;
+
+/**
+ * a simulator that replays a stream of file requests (typically extracted from the service's access
+ * logs via {@link AccessLogReader}) against a model of the data cache in order to evaluate a cache
+ * configuration.
+ * <p>
+ * The model is built from the same classes used by the running service:  a {@link ConfigurableCache}
+ * backed by a (temporary) SQLite {@link PDRStorageInventoryDB} inventory, with volumes configured
+ * described by {@link SimulatedVolume}s (read from the same properties as the service's
+ * <code>distrib.cachemgr.volumes</code> configuration) and thus using the real {@link gov.nist.oar.distrib.cachemgr.DeletionStrategy} implementations,
+ * deletion planning, and volume roles.  Only the storage is simulated:  each volume is a
+ * {@link NullCacheVolume}, so no data is actually copied.  Volume selection follows
+ * {@link PDRDatasetRestorer#getPreferencesFor(String,long,int)}.  Object access times are taken
+ * from the log (see {@link SimulatedClockStrategy}).
+ * <p>
+ * For each request, the simulator looks for the file in the cache; if it is not found, the request
+ * is counted as a miss and the file is "restored" into the cache, which may trigger the eviction of
+ * other files.  The results are gathered into a {@link Report}.
+ * <p>
+ * The {@link #main(String[])} method provides a command-line interface that compares several
+ * configurations at once; see {@link #usage(PrintStream)}.
+ */
+public class EvictionSimulator {
+
+    private String name = null;
+    private File workdir = null;
+    private StorageInventoryDB db = null;
+    private ConfigurableCache cache = null;
+    private PDRDatasetRestorer prefs = null;
+    private long now = 0L;
+    private Report report = null;
+
+    /**
+     * set up a simulated cache
+     * @param name           a name for the configuration being simulated
+     * @param volumes        the descriptions of the cache's volumes
+     * @param smallSizeLimit the size limit for files that should preferentially go into volumes with
+     *                         the "small" role.
+     * @param workdir        a directory where the inventory database can be written
+     * @throws CacheManagementException if the simulated cache cannot be set up
+     */
+    public EvictionSimulator(String name, List<SimulatedVolume> volumes, long smallSizeLimit,
+                             File workdir)
+        throws CacheManagementException
+    {
+        this.name = name;
+        this.workdir = workdir;
+        report = new Report(name);
+        Logger log = LoggerFactory.getLogger("simulate." + name);
+
+        String dbfile = new File(workdir, "data.sqlite").getAbsolutePath();
+        PDRStorageInventoryDB.initializeSQLiteDB(dbfile);
+        PDRStorageInventoryDB sidb = PDRStorageInventoryDB.createSQLiteDB(dbfile);
+        sidb.registerAlgorithm("sha256");
+        db = sidb;
+
+        cache = new ConfigurableCache(name, sidb, volumes.size(), log);
+        int i = 0;
+        for (SimulatedVolume vol : volumes) {
+            String volname = vol.getName();
+            if (volname == null)
+                volname = "vol" + Integer.toString(i);
+            VolumeConfig vc = new VolumeConfig(vol.getVolumeConfig().getStatus())
+                                  .withRoles(vol.getVolumeConfig().getRoles())
+                                  .withDeletionStrategy(new SimulatedClockStrategy(
+                                      vol.getVolumeConfig().getDeletionStrategy(), () -> now));
+            cache.addCacheVolume(new NullCacheVolume(volname), vol.getCapacity(), null, vc, true);
+            i++;
+        }
+
+        cache.addDeletionListener((c, vol, deleted, freed) -> {
+            report.evictions += (deleted == null) ? 0 : deleted.size();
+            report.bytesEvicted += freed;
+            return false;
+        });
+
+        prefs = new PDRDatasetRestorer(null, null, smallSizeLimit, log);
+    }
+
+    /**
+     * return the name of the configuration being simulated
+     */
+    public String getName() { return name; }
+
+    /**
+     * return the results gathered so far
+     */
+    public Report getReport() { return report; }
+
+    /**
+     * replay the given requests, in order, against the simulated cache and return the accumulated
+     * results.
+     */
+    public Report replay(List<AccessLogReader.Request> requests) throws CacheManagementException {
+        for (AccessLogReader.Request req : requests)
+            replay(req);
+        return report;
+    }
+
+    /**
+     * replay a single request against the simulated cache
+     */
+    public void replay(AccessLogReader.Request req) throws CacheManagementException {
+        // keep the clock monotonic, even if the logs are slightly out of order
+        if (req.time > now)
+            now = req.time;
+        report.requests++;
+        report.bytesRequested += req.size;
+
+        JSONObject md = new JSONObject();
+        md.put("since", now);
+
+        CacheObject co = cache.findObject(req.id);
+        if (co != null) {
+            report.hits++;
+            db.updateMetadata(co.volname, co.name, md);
+            return;
+        }
+
+        // a miss:  restore the file into the cache
+        report.bytesRestored += req.size;
+        Reservation resv = null;
+        try {
+            resv = cache.reserveSpace(req.size, prefs.getPreferencesFor(req.id, req.size, -1));
+        }
+        catch (CacheManagementException ex) {
+            // e.g. no volume has room for it; the file would be streamed without being cached
+            report.uncached++;
+            return;
+        }
+
+        try {
+            JSONObject omd = new JSONObject();
+            omd.put("size", req.size);
+            db.addObject(req.id, resv.getVolumeName(), req.id, omd);
+            db.updateMetadata(resv.getVolumeName(), req.id, md);
+            ((NullCacheVolume) cache.getVolume(resv.getVolumeName())).addObjectName(req.id);
+        }
+        finally {
+            resv.drop();
+        }
+    }
+
+    /**
+     * delete the simulation's working files
+     */
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workdir);
+    }
+
+    /**
+     * the results of replaying requests against a cache configuration
+     */
+    public static class Report {
+        /** the name of the simulated configuration */
+        public final String name;
+
+        /** the number of file requests replayed */
+        public long requests = 0L;
+
+        /** the number of requests for files that were found in the cache */
+        public long hits = 0L;
+
+        /** the total number of bytes requested */
+        public long bytesRequested = 0L;
+
+        /** the number of bytes that had to be restored from long-term storage */
+        public long bytesRestored = 0L;
+
+        /** the number of files evicted from the cache to make room for others */
+        public long evictions = 0L;
+
+        /** the number of bytes evicted from the cache */
+        public long bytesEvicted = 0L;
+
+        /** the number of missed files that could not be cached at all */
+        public long uncached = 0L;
+
+        public Report(String name) { this.name = name; }
+
+        /**
+         * return the fraction of requests that were found in the cache
+         */
+        public double getHitRatio() {
+            return (requests == 0L) ? 0.0 : (double) hits / requests;
+        }
+
+        /**
+         * return the fraction of requested bytes that were served from the cache
+         */
+        public double getByteHitRatio() {
+            return (bytesRequested == 0L) ? 0.0 : 1.0 - (double) bytesRestored / bytesRequested;
+        }
+
+        /**
+         * return a JSON encoding of this report
+         */
+        public JSONObject toJSON() {
+            JSONObject out = new JSONObject();
+            out.put("name", name);
+            out.put("requests", requests);
+            out.put("hits", hits);
+            out.put("hitRatio", getHitRatio());
+            out.put("byteHitRatio", getByteHitRatio());
+            out.put("bytesRequested", bytesRequested);
+            out.put("bytesRestored", bytesRestored);
+            out.put("evictions", evictions);
+            out.put("bytesEvicted", bytesEvicted);
+            out.put("uncached", uncached);
+            return out;
+        }
+
+        static final String HEADER_FORMAT = "%-20s %10s %10s %8s %8s %16s %10s %16s %9s%n";
+        static final String ROW_FORMAT = "%-20s %10d %10d %8.4f %8.4f %16d %10d %16d %9d%n";
+
+        static void printHeader(PrintStream out) {
+            out.printf(HEADER_FORMAT, "configuration", "requests", "hits", "hit%", "bytehit%",
+                       "bytesRestored", "evictions", "bytesEvicted", "uncached");
+        }
+
+        void printRow(PrintStream out) {
+            out.printf(ROW_FORMAT, name, requests, hits, getHitRatio(), getByteHitRatio(),
+                       bytesRestored, evictions, bytesEvicted, uncached);
+        }
+    }
+
+    /**
+     * convert the JSON description of a cache's volumes to volume descriptions.  Each item in the
+     * array is an object with the same properties as a <code>distrib.cachemgr.volumes</code> item
+     * (see {@link SimulatedVolume#fromJSON(JSONObject,String)}).
+     */
+    public static List<SimulatedVolume> parseVolumes(JSONArray vols) throws CacheManagementException {
+        List<SimulatedVolume> out = new ArrayList<SimulatedVolume>(vols.length());
+        try {
+            for (int i=0; i < vols.length(); i++)
+                out.add(SimulatedVolume.fromJSON(vols.getJSONObject(i), "vol" + Integer.toString(i)));
+        }
+        catch (JSONException ex) {
+            throw new CacheManagementException("Bad volume description: " + ex.getMessage(), ex);
+        }
+        return out;
+    }
+
+    /**
+     * print the command-line usage
+     */
+    public static void usage(PrintStream out) {
+        out.println("Usage: EvictionSimulator [-p PATHPREFIX] [-j] -c CONFIGFILE LOGFILE ...");
+        out.println();
+        out.println("Replay the file downloads recorded in Tomcat access logs against simulated caches");
+        out.println("and report hit ratios, bytes restored, and eviction churn for each configuration.");
+        out.println();
+        out.println("  -c CONFIGFILE  a JSON file of the form");
+        out.println("                   { \"smallSizeLimit\": BYTES,");
+        out.println("                     \"configurations\": [ { \"name\": NAME, \"volumes\": [ ... ] }, ... ] }");
+        out.println("                 where each volume has the properties of a distrib.cachemgr.volumes item");
+        out.println("  -p PATHPREFIX  the URL path that file downloads appear under (default: " +
+                    AccessLogReader.DEFAULT_PREFIX + ")");
+        out.println("  -j             print the results as JSON");
+        out.println("  LOGFILE        access log files (optionally gzipped), in chronological order");
+    }
+
+    /**
+     * run the simulator from the command line
+     */
+    public static void main(String[] args) {
+        File config = null;
+        String prefix = null;
+        boolean json = false;
+        List<File> logs = new ArrayList<File>();
+        for (int i=0; i < args.length; i++) {
+            if ("-c".equals(args[i]) && i+1 < args.length)
+                config = new File(args[++i]);
+            else if ("-p".equals(args[i]) && i+1 < args.length)
+                prefix = args[++i];
+            else if ("-j".equals(args[i]))
+                json = true;
+            else if ("-h".equals(args[i]) || "--help".equals(args[i])) {
+                usage(System.out);
+                System.exit(0);
+            }
+            else if (args[i].startsWith("-")) {
+                System.err.println("EvictionSimulator: unrecognized option: " + args[i]);
+                usage(System.err);
+                System.exit(1);
+            }
+            else
+                logs.add(new File(args[i]));
+        }
+        if (config == null || logs.size() == 0) {
+            usage(System.err);
+            System.exit(1);
+        }
+
+        try {
+            JSONObject cfg = new JSONObject(Files.readString(config.toPath(), StandardCharsets.UTF_8));
+            long smszlim = cfg.optLong("smallSizeLimit", 10000000L);
+
+            AccessLogReader rdr = new AccessLogReader(prefix);
+            List<AccessLogReader.Request> requests = rdr.read(logs);
+            System.err.println("Replaying " + requests.size() + " file requests (" + rdr.getSkippedCount() +
+                               " unusable requests skipped)");
+
+            JSONArray results = new JSONArray();
+            if (! json)
+                Report.printHeader(System.out);
+            JSONArray configs = cfg.getJSONArray("configurations");
+            for (int i=0; i < configs.length(); i++) {
+                JSONObject c = configs.getJSONObject(i);
+                String name = c.optString("name", "config" + Integer.toString(i));
+                File workdir = Files.createTempDirectory("evictsim").toFile();
+                EvictionSimulator sim = new EvictionSimulator(name, parseVolumes(c.getJSONArray("volumes")),
+                                                              c.optLong("smallSizeLimit", smszlim), workdir);
+                try {
+                    Report rep = sim.replay(requests);
+                    if (json)
+                        results.put(rep.toJSON());
+                    else
+                        rep.printRow(System.out);
+                }
+                finally {
+                    sim.cleanUp();
+                }
+            }
+            if (json)
+                System.out.println(results.toString(2));
+        }
+        catch (IOException | JSONException | CacheManagementException ex) {
+            System.err.println("EvictionSimulator: " + ex.getMessage());
+            System.exit(2);
+        }
+    }
+}
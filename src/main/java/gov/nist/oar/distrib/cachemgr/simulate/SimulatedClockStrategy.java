@@ -0,0 +1,100 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.simulate;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.json.JSONObject;
+
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.DeletionStrategy;
+
+/**
+ * a {@link DeletionStrategy} that wraps a real strategy so that it scores objects against a
+ * simulated clock rather than the wall clock.
+ * <p>
+ * The age-sensitive strategies (e.g.
+ * {@link gov.nist.oar.distrib.cachemgr.inventory.OldSelectionStrategy} and
+ * {@link gov.nist.oar.distrib.cachemgr.inventory.BigOldSelectionStrategy}) compute an object's
+ * age from its <code>since</code> metadatum and the current system time.  When replaying a log,
+ * the objects' <code>since</code> times are log times, so this wrapper shifts each object's
+ * <code>since</code> by the difference between the system time and the simulated time before
+ * handing it to the wrapped strategy.  The wrapped strategy thus sees the same ages that it would
+ * have seen had it been running when the logged request was made.
+ */
+public class SimulatedClockStrategy implements DeletionStrategy {
+
+    private DeletionStrategy dep = null;
+    private LongSupplier clock = null;
+    private long offset = 0L;
+
+    /**
+     * wrap a deletion strategy
+     * @param strategy   the strategy to wrap
+     * @param simclock   the source of the current simulated time, in milliseconds since the epoch
+     */
+    public SimulatedClockStrategy(DeletionStrategy strategy, LongSupplier simclock) {
+        dep = strategy;
+        clock = simclock;
+        offset = System.currentTimeMillis() - clock.getAsLong();
+    }
+
+    /**
+     * return the wrapped strategy
+     */
+    public DeletionStrategy getWrappedStrategy() { return dep; }
+
+    @Override
+    public double score(CacheObject co) {
+        if (! co.hasMetadatum("since"))
+            return dep.score(co);
+
+        JSONObject md = co.exportMetadata();
+        md.put("since", md.getLong("since") + offset);
+        CacheObject shifted = new CacheObject(co.name, md, co.volname);
+        shifted.id = co.id;
+        co.score = dep.score(shifted);
+        return co.score;
+    }
+
+    @Override
+    public String getPurpose() { return dep.getPurpose(); }
+
+    @Override
+    public void reset() {
+        dep.reset();
+        offset = System.currentTimeMillis() - clock.getAsLong();
+    }
+
+    @Override
+    public void sort(List<CacheObject> objs) { dep.sort(objs); }
+
+    @Override
+    public boolean limitReached() { return dep.limitReached(); }
+
+    @Override
+    public long getTotalSize() { return dep.getTotalSize(); }
+
+    @Override
+    public long getSufficientSize() { return dep.getSufficientSize(); }
+
+    @Override
+    public DeletionStrategy newForSize(long minsize, long sizelimit) {
+        return new SimulatedClockStrategy(dep.newForSize(minsize, sizelimit), clock);
+    }
+
+    @Override
+    public Object clone() {
+        return new SimulatedClockStrategy((DeletionStrategy) dep.clone(), clock);
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.simulate;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.DeletionStrategy;
+import gov.nist.oar.distrib.cachemgr.VolumeConfig;
+import gov.nist.oar.distrib.cachemgr.VolumeStatus;
+import gov.nist.oar.distrib.cachemgr.inventory.BigOldSelectionStrategy;
+import gov.nist.oar.distrib.cachemgr.inventory.BySizeSelectionStrategy;
+import gov.nist.oar.distrib.cachemgr.inventory.OldSelectionStrategy;
+import gov.nist.oar.distrib.cachemgr.pdr.PDRCacheRoles;
+
+/**
+ * the description of one volume of a simulated cache:  its name, capacity, and the
+ * {@link VolumeConfig} (status, roles, and deletion strategy) it is added to the cache with.
+ * <p>
+ * A description is normally read from JSON via {@link #fromJSON(JSONObject,String)}, which accepts
+ * the properties of a <code>distrib.cachemgr.volumes</code> item of the service's configuration
+ * (<code>name</code>, <code>capacity</code>, <code>status</code>, <code>roles</code>, and
+ * <code>deletionStrategy</code>) and interprets them the same way the service does.  Properties
+ * that only matter to real storage (e.g. <code>location</code> and the redirect properties) are
+ * ignored.
+ */
+public class SimulatedVolume {
+
+    /**
+     * the deletion strategy type used when a description does not specify one
+     */
+    public final static String DEFAULT_DELETION_STRATEGY_TYPE = "oldest";
+
+    private String name = null;
+    private long capacity = 0L;
+    private VolumeConfig config = null;
+
+    /**
+     * describe a simulated volume
+     * @param name      the volume's name
+     * @param capacity  the volume's capacity in bytes
+     * @param config    the volume's status, roles, and deletion strategy
+     */
+    public SimulatedVolume(String name, long capacity, VolumeConfig config) {
+        this.name = name;
+        this.capacity = capacity;
+        this.config = config;
+    }
+
+    /**
+     * return the volume's name
+     */
+    public String getName() { return name; }
+
+    /**
+     * return the volume's capacity in bytes
+     */
+    public long getCapacity() { return capacity; }
+
+    /**
+     * return the volume's status, roles, and deletion strategy
+     */
+    public VolumeConfig getVolumeConfig() { return config; }
+
+    /**
+     * create a volume description from its JSON form
+     * @param vol      the JSON description; only <code>capacity</code> is required.
+     * @param defname  the name to give the volume if the description does not include one
+     * @throws CacheManagementException  if the description is invalid
+     */
+    public static SimulatedVolume fromJSON(JSONObject vol, String defname) throws CacheManagementException {
+        try {
+            VolumeConfig vc = new VolumeConfig(parseStatus(vol.optString("status", "update")));
+            if (vol.has("roles"))
+                vc.setRoles(parseRoles(vol.getJSONArray("roles")));
+            vc.setDeletionStrategy(parseDeletionStrategy(vol.optJSONObject("deletionStrategy")));
+            return new SimulatedVolume(vol.optString("name", defname), vol.getLong("capacity"), vc);
+        }
+        catch (JSONException ex) {
+            throw new CacheManagementException("Bad volume description: " + ex.getMessage(), ex);
+        }
+    }
+
+    static int parseStatus(String status) throws CacheManagementException {
+        if ("info".equals(status))
+            return VolumeStatus.VOL_FOR_INFO;
+        if ("get".equals(status))
+            return VolumeStatus.VOL_FOR_GET;
+        if ("update".equals(status))
+            return VolumeStatus.VOL_FOR_UPDATE;
+        throw new CacheManagementException("Unrecognized volume status: " + status);
+    }
+
+    static int parseRoles(JSONArray roles) {
+        int out = 0;
+        for (Object role : roles) {
+            switch (role.toString()) {
+                case "general":        out |= PDRCacheRoles.ROLE_GENERAL_PURPOSE;     break;
+                case "fast":           out |= PDRCacheRoles.ROLE_FAST_ACCESS;         break;
+                case "small":          out |= PDRCacheRoles.ROLE_SMALL_OBJECTS;       break;
+                case "large":          out |= PDRCacheRoles.ROLE_LARGE_OBJECTS;       break;
+                case "old":            out |= PDRCacheRoles.ROLE_OLD_VERSIONS;        break;
+                case "restricted":     out |= PDRCacheRoles.ROLE_RESTRICTED_DATA;     break;
+                case "old-restricted": out |= PDRCacheRoles.ROLE_OLD_RESTRICTED_DATA; break;
+                default:
+            }
+        }
+        return out;
+    }
+
+    static DeletionStrategy parseDeletionStrategy(JSONObject strat) throws CacheManagementException {
+        String type = (strat == null) ? DEFAULT_DELETION_STRATEGY_TYPE : strat.optString("type", null);
+        if (type == null)
+            throw new CacheManagementException("deletionStrategy is missing required sub-property, type");
+
+        if ("oldest".equals(type))
+            return new OldSelectionStrategy(1, 1, strat == null ? 10 : strat.optInt("priority0", 10));
+        if ("biggest".equals(type))
+            return new BySizeSelectionStrategy(1, strat.optDouble("normSize", 1.0));
+        if ("bigoldest".equals(type))
+            return new BigOldSelectionStrategy(1L, strat.optDouble("ageTurnOver", 2.5 * 3600000),
+                                               strat.optDouble("sizeTurnOver", 0.5 * 1.0e9));
+
+        throw new CacheManagementException("Unrecognized deletionStrategy type: " + type);
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+
+/**
+ * a {@link gov.nist.oar.distrib.cachemgr cachemgr} sub-package that provides an offline simulator for
+ * evaluating data cache configurations.
+ * <p>
+ * The {@link gov.nist.oar.distrib.cachemgr.simulate.EvictionSimulator} replays the file downloads 
+ * recorded in the service's access logs (as read by 
+ * {@link gov.nist.oar.distrib.cachemgr.simulate.AccessLogReader}) against a 
+ * {@link gov.nist.oar.distrib.cachemgr.ConfigurableCache} whose volumes hold no actual data, so that 
+ * deletion strategies and volume capacities can be compared by their hit ratios, the amount of data 
+ * restored from long-term storage, and eviction churn.
+ */
+package gov.nist.oar.distrib.cachemgr.simulate;
@@ -23,18 +23,23 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.util.UriUtils;
 
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.exception.SdkServiceException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.S3ServiceClientConfiguration;
 import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
@@ -58,6 +63,8 @@ import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheVolume;
 import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
 /**
  * an implementation of the CacheVolume interface that stores its data
@@ -77,6 +84,9 @@ public class AWSS3CacheVolume implements CacheVolume {
     public final String name;
     protected S3Client s3client = null;
     protected String baseurl = null;
+    protected S3Presigner presigner = null;
+    protected Duration presignedTTL = null;
+    private final ReentrantLock volLock = new ReentrantLock();
     private static final Logger logger = LoggerFactory.getLogger(AWSS3CacheVolume.class);
 
     /**
@@ -155,7 +165,32 @@ public class AWSS3CacheVolume implements CacheVolume {
      */
     public AWSS3CacheVolume(String bucketname, String folder, String name, S3Client s3, String redirectBaseURL)
             throws FileNotFoundException, S3Exception, MalformedURLException {
-        this(bucketname, folder, name, s3);
+        this(bucketname, folder, name, s3, redirectBaseURL, true);
+    }
+
+    /**
+     * create the storage instance, optionally deferring the check that the bucket and folder exist
+     * (see {@link #AWSS3CacheVolume(String,String,String,S3Client,boolean)}).
+     * 
+     * @param bucketname      the name of the S3 bucket that provides the storage
+     *                        for this interface
+     * @param folder          the name of the folder within the bucket where objects
+     *                        will be stored. 
+     * @param name            a name to refer to this volume by
+     * @param s3              the AmazonS3 client instance to use to access the
+     *                        bucket
+     * @param redirectBaseURL a base URL to use to form redirect URLs based on
+     *                        object names (see 
+     *                        {@link #AWSS3CacheVolume(String,String,String,S3Client,String)}).
+     * @param verify          if true, check that the bucket and folder exist before returning.
+     * @throws FileNotFoundException if verify is true and the specified bucket does not exist
+     * @throws MalformedURLException if the given <code>redirectBaseURL</code>
+     *                               cannot be used to form legal URLs
+     */
+    public AWSS3CacheVolume(String bucketname, String folder, String name, S3Client s3, String redirectBaseURL,
+                            boolean verify)
+            throws FileNotFoundException, S3Exception, MalformedURLException {
+        this(bucketname, folder, name, s3, verify);
 
         baseurl = redirectBaseURL;
         if (baseurl != null)
@@ -211,6 +246,28 @@ public class AWSS3CacheVolume implements CacheVolume {
      */
     public AWSS3CacheVolume(String bucketname, String folder, String name, S3Client s3)
             throws FileNotFoundException {
+        this(bucketname, folder, name, s3, true);
+    }
+
+    /**
+     * create the storage instance, optionally deferring the check that the bucket and folder exist.
+     * Because verification requires calls to the S3 service, an application that sets up several
+     * volumes can create them with <code>verify=false</code> and later call {@link #verify()} on
+     * each of them concurrently.
+     * 
+     * @param bucketname the name of the S3 bucket that provides the storage for
+     *                   this interface
+     * @param folder     the name of the folder within the bucket where objects will
+     *                   be stored. If null or an empty string, it will be assumed that 
+     *                   the objects should reside at the root of the bucket.
+     * @param name       a name to refer to this volume by
+     * @param s3         the AmazonS3 client instance to use to access the bucket
+     * @param verify     if true, check that the bucket and folder exist (via {@link #verify()})
+     *                   before returning.
+     * @throws FileNotFoundException if verify is true and the specified bucket does not exist
+     */
+    public AWSS3CacheVolume(String bucketname, String folder, String name, S3Client s3, boolean verify)
+            throws FileNotFoundException {
         bucket = bucketname;
 
         if (folder != null && folder.length() == 0) {
@@ -219,6 +276,26 @@ public class AWSS3CacheVolume implements CacheVolume {
         this.folder = folder;
         s3client = s3;
 
+        // Set the name field
+        if (name == null) {
+            name = "s3:/" + bucket + "/";
+            if (folder != null) {
+                name += folder + "/";
+            }
+        }
+        this.name = name;
+
+        if (verify)
+            verify();
+    }
+
+    /**
+     * check that this volume's bucket and folder exist
+     * 
+     * @throws FileNotFoundException if the bucket or folder does not exist
+     * @throws SdkServiceException   if there is a problem accessing the S3 service.
+     */
+    public void verify() throws FileNotFoundException {
         // Check if the bucket exists
         try {
             s3client.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
@@ -244,15 +321,6 @@ public class AWSS3CacheVolume implements CacheVolume {
                 throw ex;
             }
         }
-
-        // Set the name field
-        if (name == null) {
-            name = "s3:/" + bucket + "/";
-            if (folder != null) {
-                name += folder + "/";
-            }
-        }
-        this.name = name;
     }
 
     /**
@@ -515,23 +583,29 @@ public class AWSS3CacheVolume implements CacheVolume {
      *                                 if the given CacheObject is not sufficiently
      *                                 specified.
      */
-    public synchronized void saveAs(CacheObject obj, String name) throws StorageVolumeException {
-        if (obj.name == null)
-            throw new StorageVolumeException("name for cache object (in volume, " + obj.volname +
-                    ") not set.");
-        if (obj.volume == null)
-            throw new StorageVolumeException("Unable to locate volume, " + obj.volname +
-                    ", for cache object, " + obj.name);
-        if (this.name.equals(obj.volname) && name.equals(obj.name))
-            throw new StorageVolumeException("Request to copy " + obj.volname + ":" + obj.name +
-                    " onto itself");
-        if (!obj.volume.exists(obj.name))
-            throw new ObjectNotFoundException(obj.name, obj.volname);
-
-        try (InputStream is = obj.volume.getStream(obj.name)) {
-            this.saveAs(is, name, obj.exportMetadata());
-        } catch (IOException ex) {
-            throw new StorageVolumeException("Trouble closing source stream while reading object " + obj.name);
+    public void saveAs(CacheObject obj, String name) throws StorageVolumeException {
+        volLock.lock();
+        try {
+            if (obj.name == null)
+                throw new StorageVolumeException("name for cache object (in volume, " + obj.volname +
+                        ") not set.");
+            if (obj.volume == null)
+                throw new StorageVolumeException("Unable to locate volume, " + obj.volname +
+                        ", for cache object, " + obj.name);
+            if (this.name.equals(obj.volname) && name.equals(obj.name))
+                throw new StorageVolumeException("Request to copy " + obj.volname + ":" + obj.name +
+                        " onto itself");
+            if (!obj.volume.exists(obj.name))
+                throw new ObjectNotFoundException(obj.name, obj.volname);
+
+            try (InputStream is = obj.volume.getStream(obj.name)) {
+                this.saveAs(is, name, obj.exportMetadata());
+            } catch (IOException ex) {
+                throw new StorageVolumeException("Trouble closing source stream while reading object " + obj.name);
+            }
+        }
+        finally {
+            volLock.unlock();
         }
     }
 
@@ -635,6 +709,44 @@ public class AWSS3CacheVolume implements CacheVolume {
         }
     }
 
+    /**
+     * turn on the use of pre-signed URLs by {@link #getRedirectFor(String,JSONObject)}.  A pre-signed 
+     * URL lets a web client download an object directly from S3 (without the bucket being public and 
+     * without the bytes passing through this service) until the URL expires.  The presigner is 
+     * configured with the same credentials, region, and endpoint as this volume's S3 client.
+     * @param ttl   the time the pre-signed URLs should remain valid; if null or not positive, the use 
+     *              of pre-signed URLs is turned off.
+     */
+    public void enablePresignedRedirects(Duration ttl) {
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            if (presigner != null)
+                presigner.close();
+            presigner = null;
+            presignedTTL = null;
+            return;
+        }
+
+        if (presigner == null) {
+            S3ServiceClientConfiguration cfg = s3client.serviceClientConfiguration();
+            S3Presigner.Builder bldr = S3Presigner.builder()
+                                                  .credentialsProvider(cfg.credentialsProvider())
+                                                  .region(cfg.region());
+            if (cfg.endpointOverride().isPresent()) {
+                bldr.endpointOverride(cfg.endpointOverride().get())
+                    .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+            }
+            presigner = bldr.build();
+        }
+        presignedTTL = ttl;
+    }
+
+    /**
+     * return true if this volume will return pre-signed URLs from {@link #getRedirectFor(String)}
+     */
+    public boolean isPresigningRedirects() {
+        return presigner != null;
+    }
+
     /**
      * return a URL that th eobject with the given name can be alternatively
      * read from. This allows for a potentially faster way to deliver a file
@@ -643,15 +755,41 @@ public class AWSS3CacheVolume implements CacheVolume {
      *
      * This implementation throws an UnsupportedOperationException if
      * {@linkplain #AWSS3CacheVolume(String,String,AmazonS3,String) the constructor}
-     * was not provided with a <code>redirectBaseURL</code> argument.
+     * was not provided with a <code>redirectBaseURL</code> argument and 
+     * {@linkplain #enablePresignedRedirects(Duration) pre-signed URLs} have not been enabled.
      *
      * @param name the name of the object to get
      * @return URL a URL where the object can be streamed from
-     * @throws UnsupportedOperationException always as this function is not
-     *                                       supported
+     * @throws UnsupportedOperationException if redirects are not supported by this volume
      */
     @Override
     public URL getRedirectFor(String name) throws StorageVolumeException, UnsupportedOperationException {
+        return getRedirectFor(name, null);
+    }
+
+    /**
+     * return a URL that the object with the given name can be alternatively read from.  
+     * <p>
+     * If {@linkplain #enablePresignedRedirects(Duration) pre-signed URLs} are enabled, the returned 
+     * URL will be a short-lived pre-signed GET URL for the object.  The object's existence is not 
+     * checked (so that no call to S3 is required), and the response S3 delivers for it will carry a 
+     * <code>Content-Disposition</code> header built from the <code>filepath</code> metadatum (or, 
+     * if not available, the object name) and, if provided, a <code>Content-Type</code> from the 
+     * <code>contentType</code> metadatum.  Otherwise, the URL is formed as described for 
+     * {@link #getRedirectFor(String)}.
+     *
+     * @param name the name of the object to get
+     * @param md   the object's metadata (e.g. from {@link CacheObject#exportMetadata()}); may be null
+     * @return URL a URL where the object can be streamed from
+     * @throws UnsupportedOperationException if redirects are not supported by this volume
+     */
+    @Override
+    public URL getRedirectFor(String name, JSONObject md)
+        throws StorageVolumeException, UnsupportedOperationException
+    {
+        if (presigner != null)
+            return presignedURLFor(name, md);
+
         if (baseurl == null) {
             throw new UnsupportedOperationException("AWSS3CacheVolume: getRedirectFor not supported");
         }
@@ -681,6 +819,44 @@ public class AWSS3CacheVolume implements CacheVolume {
         }
     }
 
+    private URL presignedURLFor(String name, JSONObject md) throws StorageVolumeException {
+        String filepath = (md == null) ? null : md.optString("filepath", null);
+        if (filepath == null || filepath.isEmpty())
+            filepath = name;
+        String contentType = (md == null) ? null : md.optString("contentType", null);
+
+        GetObjectRequest.Builder req = GetObjectRequest.builder()
+                                                       .bucket(bucket)
+                                                       .key(s3name(name))
+                                                       .responseContentDisposition(contentDisposition(filepath));
+        if (contentType != null && ! contentType.isEmpty())
+            req.responseContentType(contentType);
+
+        try {
+            return presigner.presignGetObject(GetObjectPresignRequest.builder()
+                                                                     .signatureDuration(presignedTTL)
+                                                                     .getObjectRequest(req.build())
+                                                                     .build())
+                            .url();
+        } catch (SdkException ex) {
+            throw new StorageVolumeException("Failed to pre-sign redirect URL for name=" + name + ": " +
+                                             ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * return a Content-Disposition header value for downloading a file with the given path.  As with 
+     * files streamed by the service, slashes in the path are converted to underscores.  
+     */
+    static String contentDisposition(String filepath) {
+        String filename = filepath.replaceAll("/+", "_");
+        String ascii = filename.replaceAll("[^\\x20-\\x7e]", "_").replaceAll("[\"\\\\]", "_");
+        String out = "attachment; filename=\"" + ascii + "\"";
+        if (! ascii.equals(filename))
+            out += "; filename*=UTF-8''" + UriUtils.encode(filename, StandardCharsets.UTF_8);
+        return out;
+    }
+
     /**
      * create a folder/subdirectory in a bucket if it already doesn't exist
      *
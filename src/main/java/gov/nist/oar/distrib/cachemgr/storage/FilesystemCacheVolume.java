@@ -28,6 +28,7 @@ import java.nio.file.Files;
 import java.time.Instant;
 import java.net.URL;
 import java.net.MalformedURLException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.json.JSONObject;
 import org.springframework.web.util.UriUtils;
@@ -48,6 +49,9 @@ public class FilesystemCacheVolume implements CacheVolume {
     protected String name = null;
     protected String baseurl = null;
 
+    // serializes updates to the volume; not synchronized so as not to pin virtual threads during file I/O
+    private final ReentrantLock volLock = new ReentrantLock();
+
     /**
      * create a FilesystemCacheVolume without support for {@link #getRedirectFor(String)}.
      * 
@@ -183,18 +187,24 @@ public class FilesystemCacheVolume implements CacheVolume {
      *                 are ignored (or overridden) in this implementation.
      * @throws StorageVolumeException  if the method fails to save the object correctly.
      */
-    public synchronized void saveAs(InputStream from, String name, JSONObject md)
+    public void saveAs(InputStream from, String name, JSONObject md)
         throws StorageVolumeException
     {
-        File out = new File(root, name);
+        volLock.lock();
         try {
-            FileUtils.copyToFile(from, out);
-            if (md != null) 
-                md.put("modified", getLastModifiedTimeOf(out));
-        } catch (IOException ex) {
-            if (out.exists()) out.delete();
-            throw new StorageVolumeException(this.name+":"+name+": Failed to save object: "+
-                                             ex.getMessage(), ex);
+            File out = new File(root, name);
+            try {
+                FileUtils.copyToFile(from, out);
+                if (md != null) 
+                    md.put("modified", getLastModifiedTimeOf(out));
+            } catch (IOException ex) {
+                if (out.exists()) out.delete();
+                throw new StorageVolumeException(this.name+":"+name+": Failed to save object: "+
+                                                 ex.getMessage(), ex);
+            }
+        }
+        finally {
+            volLock.unlock();
         }
     }
     
@@ -211,24 +221,30 @@ public class FilesystemCacheVolume implements CacheVolume {
      *               or if the request calls for copying an object to itself or 
      *               if the given CacheObject is not sufficiently specified. 
      */
-    public synchronized void saveAs(CacheObject obj, String name) throws StorageVolumeException {
-        if (obj.name == null)
-            throw new StorageVolumeException("name for cache object (in volume, "+obj.volname+
-                                           ") not set.");
-        if (obj.volume == null)
-            throw new StorageVolumeException("Unable to locate volume, "+obj.volname+
-                                           ", for cache object, "+obj.name);
-        if (this.name.equals(obj.volname) && name.equals(obj.name))
-            throw new StorageVolumeException("Request to copy "+obj.volname+":"+obj.name+
-                                           " onto itself");
-        if (! obj.volume.exists(obj.name))
-            throw new ObjectNotFoundException(obj.name, obj.volname);
+    public void saveAs(CacheObject obj, String name) throws StorageVolumeException {
+        volLock.lock();
+        try {
+            if (obj.name == null)
+                throw new StorageVolumeException("name for cache object (in volume, "+obj.volname+
+                                               ") not set.");
+            if (obj.volume == null)
+                throw new StorageVolumeException("Unable to locate volume, "+obj.volname+
+                                               ", for cache object, "+obj.name);
+            if (this.name.equals(obj.volname) && name.equals(obj.name))
+                throw new StorageVolumeException("Request to copy "+obj.volname+":"+obj.name+
+                                               " onto itself");
+            if (! obj.volume.exists(obj.name))
+                throw new ObjectNotFoundException(obj.name, obj.volname);
 
-        try (InputStream is = obj.volume.getStream(obj.name)) {
-            this.saveAs(is, name, obj.exportMetadata());
+            try (InputStream is = obj.volume.getStream(obj.name)) {
+                this.saveAs(is, name, obj.exportMetadata());
+            }
+            catch (IOException ex) {
+                throw new StorageVolumeException("Trouble closing source stream while reading object "+obj.name);
+            }
         }
-        catch (IOException ex) {
-            throw new StorageVolumeException("Trouble closing source stream while reading object "+obj.name);
+        finally {
+            volLock.unlock();
         }
     }
 
@@ -240,15 +256,21 @@ public class FilesystemCacheVolume implements CacheVolume {
      * @throws StorageVolumeException     if there is any other problem opening the 
      *                                     named object
      */
-    public synchronized InputStream getStream(String name) throws StorageVolumeException {
-        if (! this.exists(name))
-            throw new ObjectNotFoundException(name, this.getName());
+    public InputStream getStream(String name) throws StorageVolumeException {
+        volLock.lock();
         try {
-            return new FileInputStream(new File(root, name));
+            if (! this.exists(name))
+                throw new ObjectNotFoundException(name, this.getName());
+            try {
+                return new FileInputStream(new File(root, name));
+            }
+            catch (IOException ex) {
+                throw new StorageVolumeException(this.name+":"+name+": Failed to open object: "+
+                                               ex.getMessage(), ex);
+            }
         }
-        catch (IOException ex) {
-            throw new StorageVolumeException(this.name+":"+name+": Failed to open object: "+
-                                           ex.getMessage(), ex);
+        finally {
+            volLock.unlock();
         }
     }
 
@@ -287,18 +309,24 @@ public class FilesystemCacheVolume implements CacheVolume {
      * @throws StorageVolumeException     if there is an internal error while trying to 
      *                                     remove the Object
      */
-    public synchronized boolean remove(String name) throws StorageVolumeException {
-        if (! this.exists(name))
-            return false;
-
-        File target = new File(root, name);
+    public boolean remove(String name) throws StorageVolumeException {
+        volLock.lock();
         try {
-            target.delete();
-        } catch (SecurityException ex) {
-            throw new StorageVolumeException("Unexpected SecurityException: "+ex.getMessage(), ex);
-        }
+            if (! this.exists(name))
+                return false;
+
+            File target = new File(root, name);
+            try {
+                target.delete();
+            } catch (SecurityException ex) {
+                throw new StorageVolumeException("Unexpected SecurityException: "+ex.getMessage(), ex);
+            }
         
-        return true;
+            return true;
+        }
+        finally {
+            volLock.unlock();
+        }
     }
 
     /**
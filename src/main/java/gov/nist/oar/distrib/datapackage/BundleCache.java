@@ -0,0 +1,425 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nist.oar.distrib.StorageVolumeException;
+import gov.nist.oar.distrib.cachemgr.Cache;
+import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.ConfigurableCache;
+import gov.nist.oar.distrib.cachemgr.Reservation;
+import gov.nist.oar.distrib.cachemgr.inventory.SQLiteStorageInventoryDB;
+import gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume;
+
+/**
+ * a content-addressed store of finished data bundles (zip files) that allows identical bundle
+ * requests to be served from disk rather than being reassembled from their remote sources.
+ * <p>
+ * A bundle is identified by a key computed (via {@link #keyFor(BundleRequest)}) as a SHA-256 hash
+ * over its normalized file list--the path, download URL, size and (if given) checksum of each
+ * requested file, sorted by path.  Two requests for the same files thus map to the same key
+ * regardless of the order of the files or the name requested for the bundle.
+ * <p>
+ * Bundles are saved into a {@link gov.nist.oar.distrib.cachemgr.Cache} as they are being streamed
+ * to the first requester:  the client's output is teed into a {@link Capture}, and once the bundle
+ * is complete, the captured file is committed to the cache in the background via a
+ * {@link gov.nist.oar.distrib.cachemgr.Reservation}.  The cache's deletion strategy makes room for
+ * new bundles when it fills up.  Because the URLs in a request do not normally identify a
+ * particular version of a file, a cached bundle is only served until it reaches a configured age
+ * (see {@link #setTimeToLive(Duration)}).
+ * <p>
+ * The total size of the requested files, as found when the original request was validated, can be
+ * saved with a bundle (see {@link Capture#setRequestedSize(long)}) so that a later identical
+ * request can be validated without examining each file again (see {@link #getRequestedSize}).
+ */
+public class BundleCache implements Closeable {
+
+    /**
+     * the prefix given to the cache identifiers of bundles
+     */
+    public static final String ID_PREFIX = "bundle:";
+
+    /**
+     * the default maximum age of a bundle that can be served from the cache: 1 day
+     */
+    public static final Duration DEF_TTL = Duration.ofDays(1);
+
+    /**
+     * the name of the metadatum that records when a bundle was created
+     */
+    static final String BUNDLED_PROP = "bundled";
+
+    /**
+     * the name of the metadatum that records the total size of the requested files as determined
+     * when the bundle's request was validated
+     */
+    static final String REQUESTED_SIZE_PROP = "requestedSize";
+
+    protected static Logger logger = LoggerFactory.getLogger(BundleCache.class);
+
+    private final Cache cache;
+    private Duration ttl = DEF_TTL;
+    private long maxBundleSize = -1L;
+    private final ExecutorService saver;
+
+    /**
+     * wrap a Cache that should be used to store bundles
+     * @param cache   the Cache instance to store bundles in; this cache should be dedicated to
+     *                bundles.
+     */
+    public BundleCache(Cache cache) {
+        this.cache = cache;
+        saver = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "bundle-cache-saver");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * create a BundleCache that stores bundles under a local directory.  The directory will hold
+     * a single cache volume and an SQLite inventory database, which are created if necessary.
+     * @param rootdir    the directory to store bundles under; it must exist.
+     * @param capacity   the maximum number of bytes of bundles to store
+     * @throws FileNotFoundException     if rootdir does not exist as a directory
+     * @throws CacheManagementException  if the inventory database cannot be created or accessed
+     */
+    public static BundleCache create(File rootdir, long capacity)
+        throws FileNotFoundException, CacheManagementException
+    {
+        if (! rootdir.isDirectory())
+            throw new FileNotFoundException(rootdir+": Not an existing directory");
+
+        File dbf = new File(rootdir, "inventory.sqlite");
+        if (! dbf.exists())
+            SQLiteStorageInventoryDB.initializeDB(dbf.getAbsolutePath());
+        SQLiteStorageInventoryDB sidb = new SQLiteStorageInventoryDB(dbf.getAbsolutePath());
+        sidb.registerAlgorithm("sha256");
+
+        ConfigurableCache cache = new ConfigurableCache("bundles", sidb, 1,
+                                                        LoggerFactory.getLogger("bundle-cache"));
+        File cvd = new File(rootdir, "cv0");
+        if (! cvd.exists()) cvd.mkdir();
+        cache.addCacheVolume(new FilesystemCacheVolume(cvd, "cv0"), capacity, null, true);
+
+        BundleCache out = new BundleCache(cache);
+        out.setMaxBundleSize(capacity / 2);
+        return out;
+    }
+
+    /**
+     * set the maximum age of a bundle that can be served from the cache.  Bundles older than
+     * this will be rebuilt when next requested.
+     */
+    public void setTimeToLive(Duration ttl) { this.ttl = ttl; }
+
+    /**
+     * return the maximum age of a bundle that can be served from the cache
+     */
+    public Duration getTimeToLive() { return ttl; }
+
+    /**
+     * set the size of the largest bundle that will be saved into the cache.  A negative value
+     * means there is no limit beyond the capacity of the cache itself.
+     */
+    public void setMaxBundleSize(long bytes) { maxBundleSize = bytes; }
+
+    /**
+     * return the size of the largest bundle that will be saved into the cache, or a negative
+     * number if there is no limit.
+     */
+    public long getMaxBundleSize() { return maxBundleSize; }
+
+    /**
+     * compute the cache key for the bundle that would be produced for the given request
+     * @param req   the bundle request
+     * @return String -- a hexadecimal SHA-256 hash identifying the bundle's content
+     */
+    public static String keyFor(BundleRequest req) {
+        FileRequest[] files = req.getIncludeFiles();
+        List<FileRequest> sorted = (files == null) ? new ArrayList<FileRequest>()
+                                                   : new ArrayList<FileRequest>(Arrays.asList(files));
+        sorted.sort(Comparator.comparing(FileRequest::getFilePath,
+                                         Comparator.nullsFirst(Comparator.naturalOrder()))
+                              .thenComparing(FileRequest::getDownloadUrl,
+                                             Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        MessageDigest md = sha256();
+        FileRequest prev = null;
+        for (FileRequest fr : sorted) {
+            if (fr.equals(prev))
+                // duplicates are dropped from bundles
+                continue;
+            StringBuilder sb = new StringBuilder();
+            sb.append(fr.getFilePath()).append('\n')
+              .append(fr.getDownloadUrl()).append('\n')
+              .append(fr.getFileSize()).append('\n')
+              .append((fr.getChecksum() == null) ? "" : fr.getChecksum()).append('\n');
+            md.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+            prev = fr;
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not supported by JVM", ex);
+        }
+    }
+
+    /**
+     * return the cached bundle with the given key or null if it is not in the cache (or has
+     * expired).  The returned object's <code>volume</code> field will be set so that its
+     * content can be retrieved.
+     * @throws CacheManagementException  if there is a problem accessing the cache
+     */
+    public CacheObject find(String key) throws CacheManagementException {
+        CacheObject co = cache.findObject(ID_PREFIX + key);
+        if (co == null)
+            return null;
+
+        long bundled = co.getMetadatumLong(BUNDLED_PROP, 0L);
+        if (System.currentTimeMillis() - bundled > ttl.toMillis()) {
+            logger.debug("Cached bundle {} has expired", key);
+            return null;
+        }
+        return co;
+    }
+
+    /**
+     * return the total size of the files requested for a bundle previously returned by
+     * {@link #find(String)}, as determined when the request that built it was validated, or -1 if
+     * it was not recorded.
+     */
+    public long getRequestedSize(CacheObject bundle) {
+        return bundle.getMetadatumLong(REQUESTED_SIZE_PROP, -1L);
+    }
+
+    /**
+     * open the content of a bundle previously returned by {@link #find(String)} and record that
+     * it has been accessed.
+     * @throws StorageVolumeException    if the bundle cannot be opened
+     */
+    public InputStream open(CacheObject bundle) throws StorageVolumeException {
+        InputStream out = bundle.volume.getStream(bundle.name);
+        try {
+            cache.confirmAccessOf(bundle);
+        } catch (CacheManagementException ex) {
+            logger.warn("Failed to update access time for bundle {}: {}", bundle.name, ex.getMessage());
+        }
+        return out;
+    }
+
+    /**
+     * start capturing a bundle with the given key as it is written out.  The caller should
+     * write the bundle to the returned capture's output stream and then either
+     * {@link Capture#commit() commit} or {@link Capture#close() close} it.
+     * @throws IOException   if a temporary file cannot be created for the capture
+     */
+    public Capture startCapture(String key) throws IOException {
+        return new Capture(key);
+    }
+
+    /**
+     * save a completed capture into the cache.  This is called from the background saver.
+     */
+    CacheObject save(Capture cap) throws CacheManagementException, IOException {
+        String id = ID_PREFIX + cap.key;
+        if (cache.isCached(id)) {
+            // another request for the same bundle got here first
+            CacheObject co = find(cap.key);
+            if (co != null)
+                return co;
+            cache.uncache(id);
+        }
+
+        long size = Files.size(cap.file);
+        JSONObject md = new JSONObject();
+        md.put("size", size);
+        md.put("contentType", "application/zip");
+        md.put("checksum", cap.checksum);
+        md.put("checksumAlgorithm", "sha256");
+        md.put(BUNDLED_PROP, System.currentTimeMillis());
+        if (cap.requestedSize >= 0L)
+            md.put(REQUESTED_SIZE_PROP, cap.requestedSize);
+
+        Reservation res = cache.reserveSpace(size, 0);
+        try (InputStream is = Files.newInputStream(cap.file)) {
+            CacheObject out = res.saveAs(is, id, cap.key + ".zip", md);
+            logger.info("Cached bundle {} ({} bytes)", cap.key, size);
+            return out;
+        }
+        catch (CacheManagementException | IOException ex) {
+            res.drop();
+            throw ex;
+        }
+    }
+
+    /**
+     * stop the background saving of bundles.  Saves in progress are abandoned.
+     */
+    @Override
+    public void close() {
+        saver.shutdownNow();
+    }
+
+    /**
+     * a bundle being captured as it is written out.  Failures writing to the capture are not
+     * propagated to the writer (so that they do not interrupt delivery of the bundle to the
+     * client); instead, the capture is marked as failed and will not be committed.
+     */
+    public class Capture implements Closeable {
+        final String key;
+        final Path file;
+        private final OutputStream fos;
+        private final MessageDigest digest = sha256();
+        private long count = 0L;
+        private boolean failed = false;
+        private boolean done = false;
+        String checksum = null;
+        volatile long requestedSize = -1L;
+
+        Capture(String key) throws IOException {
+            this.key = key;
+            file = Files.createTempFile("bundle-", ".zip");
+            fos = new BufferedOutputStream(Files.newOutputStream(file));
+        }
+
+        /**
+         * return the stream to write the bundle into
+         */
+        public OutputStream getOutputStream() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    capture(b, off, len);
+                }
+
+                @Override
+                public void close() { /* closed via commit() or Capture.close() */ }
+            };
+        }
+
+        private synchronized void capture(byte[] b, int off, int len) {
+            if (failed || done)
+                return;
+            count += len;
+            if (maxBundleSize >= 0 && count > maxBundleSize) {
+                logger.debug("Bundle {} too large to cache", key);
+                failed = true;
+                return;
+            }
+            try {
+                fos.write(b, off, len);
+                digest.update(b, off, len);
+            } catch (IOException ex) {
+                logger.warn("Failed to capture bundle {}: {}", key, ex.getMessage());
+                failed = true;
+            }
+        }
+
+        /**
+         * record the total size of the requested files as determined when the request was
+         * validated; this is saved with the bundle when it is committed.
+         */
+        public void setRequestedSize(long size) { requestedSize = size; }
+
+        /**
+         * save the captured bundle to the cache.  The save happens asynchronously; the captured
+         * data is discarded if it fails.
+         * @return Future  a handle for the save operation whose result is the cached object,
+         *                 or null if the capture was not saved.
+         */
+        public synchronized Future<CacheObject> commit() {
+            if (done)
+                return CompletableFuture.completedFuture(null);
+            done = true;
+            try {
+                fos.close();
+            } catch (IOException ex) {
+                logger.warn("Failed to capture bundle {}: {}", key, ex.getMessage());
+                failed = true;
+            }
+            if (failed) {
+                discard();
+                return CompletableFuture.completedFuture(null);
+            }
+            checksum = HexFormat.of().formatHex(digest.digest());
+
+            return saver.submit(() -> {
+                try {
+                    return save(this);
+                } catch (Exception ex) {
+                    logger.warn("Failed to cache bundle {}: {}", key, ex.getMessage());
+                    return null;
+                } finally {
+                    discard();
+                }
+            });
+        }
+
+        /**
+         * abandon the capture without saving it.  This has no effect if the capture has already
+         * been committed.
+         */
+        @Override
+        public synchronized void close() {
+            if (done)
+                return;
+            done = true;
+            try { fos.close(); } catch (IOException ex) { }
+            discard();
+        }
+
+        private void discard() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                logger.warn("Unable to remove bundle capture file, {}: {}", file, ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a helper for {@link DownloadBundlePlanner} that packs files into as few bundles as it can while
+ * respecting the bundle size and file count limits.
+ * <p>
+ * The packing is a first-fit-decreasing bin packing:  the items to pack are taken largest first,
+ * and each is placed in the first bundle that still has room for it, starting a new bundle only when
+ * none does.  To keep related files together, the files from each directory are first gathered into
+ * a single item; only a directory too big (or with too many files) to fit into one bundle is broken
+ * up into its individual files.  The files within each resulting bundle are ordered by path.
+ * <p>
+ * As with the planner's sequential bundling, a bundle's total size is kept strictly below the size
+ * limit.  Files that are at or above the limit on their own are expected to be given bundles of
+ * their own by the caller and should not be passed in.
+ */
+class BundlePacker {
+
+    /**
+     * a unit of packing:  either a whole directory's worth of files or a single file
+     */
+    static class Item {
+        final String dir;
+        final List<FileRequest> files = new ArrayList<FileRequest>();
+        long size = 0L;
+
+        Item(String dir) { this.dir = dir; }
+
+        void add(FileRequest file) {
+            files.add(file);
+            size += file.getFileSize();
+        }
+    }
+
+    /**
+     * a bundle being filled
+     */
+    static class Bin {
+        final List<FileRequest> files = new ArrayList<FileRequest>();
+        long size = 0L;
+
+        boolean fits(Item item, long maxSize, int maxCount) {
+            return size + item.size < maxSize && files.size() + item.files.size() <= maxCount;
+        }
+
+        void add(Item item) {
+            files.addAll(item.files);
+            size += item.size;
+        }
+    }
+
+    private BundlePacker() { }
+
+    /**
+     * return the parent directory of a file path
+     */
+    static String dirOf(String filepath) {
+        if (filepath == null)
+            return "";
+        int i = filepath.lastIndexOf('/');
+        return (i < 0) ? "" : filepath.substring(0, i);
+    }
+
+    /**
+     * pack the given files into bundles.
+     * @param files     the files to pack; each must have its size set
+     * @param maxSize   the limit on the total size of a bundle; each bundle's size will be less
+     *                    than this.
+     * @param maxCount  the maximum number of files allowed in a bundle
+     * @return List     the bundles, each given as the list of files to include in it
+     */
+    static List<List<FileRequest>> pack(List<FileRequest> files, long maxSize, int maxCount) {
+        if (maxCount < 1) maxCount = 1;
+
+        // gather the files by directory, in the order the directories are first seen
+        Map<String, Item> dirs = new LinkedHashMap<String, Item>();
+        for (FileRequest file : files)
+            dirs.computeIfAbsent(dirOf(file.getFilePath()), Item::new).add(file);
+
+        // whole directories are packed as one item if they can fit into a single bundle
+        List<Item> items = new ArrayList<Item>(dirs.size());
+        for (Item dir : dirs.values()) {
+            if (dir.size < maxSize && dir.files.size() <= maxCount) {
+                items.add(dir);
+            }
+            else {
+                for (FileRequest file : dir.files) {
+                    Item one = new Item(dir.dir);
+                    one.add(file);
+                    items.add(one);
+                }
+            }
+        }
+
+        // first fit, largest first; the sort is stable, so equal-sized items keep their order
+        items.sort(Comparator.comparingLong((Item it) -> it.size).reversed());
+        List<Bin> bins = new ArrayList<Bin>();
+        for (Item item : items) {
+            Bin use = null;
+            for (Bin bin : bins) {
+                if (bin.fits(item, maxSize, maxCount)) {
+                    use = bin;
+                    break;
+                }
+            }
+            if (use == null) {
+                use = new Bin();
+                bins.add(use);
+            }
+            use.add(item);
+        }
+
+        List<List<FileRequest>> out = new ArrayList<List<FileRequest>>(bins.size());
+        for (Bin bin : bins) {
+            bin.files.sort(Comparator.comparing(FileRequest::getFilePath,
+                                                Comparator.nullsFirst(Comparator.naturalOrder())));
+            out.add(bin.files);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * a helper for {@link DefaultDataPackager} that downloads the members of a bundle ahead of the
+ * zip writer.
+ * <p>
+ * The prefetcher is given the ordered list of URLs for the files to go into a bundle.  It
+ * retrieves up to a fixed number of them (the <i>depth</i>) concurrently, each into a buffer that
+ * is held in memory up to a threshold size and spilled to a temporary file beyond it.  The zip
+ * writer collects the buffers in request order via {@link #take(int)}; each take allows the next
+ * file in the list to be fetched, so no more than <i>depth</i> files are ever being held or
+ * retrieved at once, keeping memory use flat regardless of the size of the bundle.  The size and
+ * CRC-32 checksum of each file are computed as it is retrieved, so that it can be written into the
+ * zip stream uncompressed without a second pass over its bytes.
+ * <p>
+ * Files are retrieved with {@link HttpURLConnection}; because each response is read to its end
+ * and closed (rather than disconnected), connections to the same server are reused via the JVM's
+ * keep-alive connection cache.  The retrievals run on an executor that is shared by all bundles
+ * being built (see {@link #createExecutor(int)}), so the total number of retrieval threads stays
+ * bounded no matter how many bundles are requested at once.
+ */
+class BundlePrefetcher implements Closeable {
+
+    protected static Logger logger = LoggerFactory.getLogger(BundlePrefetcher.class);
+
+    /**
+     * the default maximum number of threads used to retrieve files for all bundles combined
+     */
+    public static final int DEF_FETCH_THREADS = 16;
+
+    private static ExecutorService defaultExecutor = null;
+
+    private final List<String> urls;
+    private final Future<Fetched>[] fetches;
+    private final int depth;
+    private final long memThreshold;
+    private final ExecutorService exec;
+    private int nextSubmit = 0;
+    private int outstanding = 0;
+
+    /**
+     * a file retrieved into a buffer
+     */
+    static class Fetched implements Closeable {
+        private final DeferredFileOutputStream buf;
+        private final CRC32 crc = new CRC32();
+
+        Fetched(DeferredFileOutputStream buf) { this.buf = buf; }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            buf.write(b, off, len);
+            crc.update(b, off, len);
+        }
+
+        /**
+         * return the number of bytes retrieved
+         */
+        long getSize() { return buf.getByteCount(); }
+
+        /**
+         * return the CRC-32 checksum of the retrieved bytes
+         */
+        long getCrc() { return crc.getValue(); }
+
+        /**
+         * return a stream for reading the retrieved bytes
+         */
+        InputStream getInputStream() throws IOException { return buf.toInputStream(); }
+
+        /**
+         * release the buffer, removing any temporary file
+         */
+        @Override
+        public void close() {
+            Path spill = buf.getPath();
+            if (! buf.isInMemory() && spill != null) {
+                try {
+                    Files.deleteIfExists(spill);
+                } catch (IOException ex) {
+                    logger.warn("Unable to remove bundle spool file, {}: {}", spill, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * create the prefetcher and start retrieving the first files in the list using the default
+     * shared executor.
+     * @param urls          the URLs of the files in the order they will be taken; a null entry
+     *                      marks a file that will not be taken and should not be fetched.
+     * @param depth         the maximum number of files to retrieve or hold ahead of the writer
+     * @param memThreshold  the maximum number of bytes of a file to hold in memory before spilling
+     *                      the rest of it to a temporary file
+     */
+    BundlePrefetcher(List<String> urls, int depth, long memThreshold) {
+        this(urls, depth, memThreshold, null);
+    }
+
+    /**
+     * create the prefetcher and start retrieving the first files in the list.
+     * @param urls          the URLs of the files in the order they will be taken; a null entry
+     *                      marks a file that will not be taken and should not be fetched.
+     * @param depth         the maximum number of files to retrieve or hold ahead of the writer
+     * @param memThreshold  the maximum number of bytes of a file to hold in memory before spilling
+     *                      the rest of it to a temporary file
+     * @param exec          the executor to run the retrievals on, normally one shared by all
+     *                      prefetchers (see {@link #createExecutor(int)}); if null, a default 
+     *                      shared executor is used.  It is not shut down when this prefetcher is
+     *                      closed.
+     */
+    @SuppressWarnings("unchecked")
+    BundlePrefetcher(List<String> urls, int depth, long memThreshold, ExecutorService exec) {
+        this.urls = urls;
+        this.depth = Math.max(1, depth);
+        this.memThreshold = memThreshold;
+        this.fetches = (Future<Fetched>[]) new Future[urls.size()];
+        this.exec = (exec == null) ? getDefaultExecutor() : exec;
+
+        fill();
+    }
+
+    /**
+     * create an executor suitable for sharing among prefetchers.  It runs at most the given 
+     * number of retrievals at once, queuing the rest; its threads are daemon threads that exit
+     * after being idle for a minute.
+     * @param nthreads   the maximum number of threads; if less than 1, {@link #DEF_FETCH_THREADS}
+     *                   is used.
+     */
+    static ExecutorService createExecutor(int nthreads) {
+        if (nthreads < 1)
+            nthreads = DEF_FETCH_THREADS;
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadPoolExecutor out =
+            new ThreadPoolExecutor(nthreads, nthreads, 60L, TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<Runnable>(), r -> {
+                                       Thread t = new Thread(r, "bundle-fetch-" + threadCount.incrementAndGet());
+                                       t.setDaemon(true);
+                                       return t;
+                                   });
+        out.allowCoreThreadTimeOut(true);
+        return out;
+    }
+
+    private static synchronized ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null)
+            defaultExecutor = createExecutor(DEF_FETCH_THREADS);
+        return defaultExecutor;
+    }
+
+    private synchronized void fill() {
+        while (outstanding < depth && nextSubmit < urls.size()) {
+            final String url = urls.get(nextSubmit);
+            if (url != null) {
+                fetches[nextSubmit] = exec.submit(() -> fetch(url));
+                outstanding++;
+            }
+            nextSubmit++;
+        }
+    }
+
+    /**
+     * return the URL given for the file at the given position in the list, or null if the file
+     * was not to be fetched
+     */
+    String getURL(int i) { return urls.get(i); }
+
+    /**
+     * wait for and return the retrieved contents of the file at the given position in the list.
+     * The caller is responsible for closing the returned object.
+     * @param i   the position of the file in the URL list given at construction
+     * @throws IOException  if the file could not be retrieved
+     * @throws IllegalArgumentException  if the file at the given position was not requested for
+     *                                   fetching (i.e. its URL was null) or was already taken
+     */
+    Fetched take(int i) throws IOException {
+        Future<Fetched> fut = null;
+        synchronized (this) {
+            fut = fetches[i];
+            if (fut == null)
+                throw new IllegalArgumentException("File #" + i + " not fetched or already taken");
+            fetches[i] = null;
+            outstanding--;
+        }
+        fill();
+
+        try {
+            return fut.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + urls.get(i));
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException("Failed to retrieve " + urls.get(i) + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private Fetched fetch(String url) throws IOException {
+        URLConnection con = null;
+        try {
+            con = URI.create(url).toURL().openConnection();
+        } catch (IllegalArgumentException ex) {
+            throw new MalformedURLException("Bad bundle file URL, " + url + ": " + ex.getMessage());
+        }
+        if (con instanceof HttpURLConnection)
+            ((HttpURLConnection) con).setInstanceFollowRedirects(true);
+        con.setConnectTimeout(10000);   // 10 seconds
+        con.setReadTimeout(100000);     // 100 seconds
+
+        DeferredFileOutputStream buf = DeferredFileOutputStream.builder()
+                                                               .setThreshold((int) Math.min(memThreshold,
+                                                                                            Integer.MAX_VALUE))
+                                                               .setPrefix("bundle-")
+                                                               .setSuffix(".part")
+                                                               .get();
+        Fetched out = new Fetched(buf);
+        try (InputStream fstream = con.getInputStream()) {
+            int len;
+            byte[] b = new byte[100000];
+            while ((len = fstream.read(b)) != -1) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new InterruptedIOException("Fetch canceled: " + url);
+                out.write(b, 0, len);
+            }
+            buf.close();
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Fetch canceled: " + url);
+            return out;
+        } catch (IOException ex) {
+            // don't leave a half-read connection in the keep-alive cache
+            if (con instanceof HttpURLConnection)
+                ((HttpURLConnection) con).disconnect();
+            buf.close();
+            out.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * stop any retrievals in progress and release all buffers not yet taken.  Retrievals for
+     * other prefetchers sharing the executor are not affected.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            nextSubmit = urls.size();     // submit nothing more
+            for (int i = 0; i < fetches.length; i++) {
+                if (fetches[i] == null)
+                    continue;
+                Future<Fetched> fut = fetches[i];
+                fetches[i] = null;
+                if (! fut.cancel(true) && fut.isDone()) {
+                    try {
+                        fut.get().close();
+                    } catch (InterruptedException | ExecutionException ex) { /* nothing to release */ }
+                }
+            }
+        }
+    }
+}
@@ -65,6 +65,14 @@ public interface DataPackager {
      */
     public String getBundleName() throws IOException;
 
+    /**
+     * return true if the bundle written by {@link getData} includes all of the requested files, 
+     * i.e. no files were left out because of errors or policy.  This should be called only after
+     * {@link getData} returns.  
+     * @return boolean -- True if the bundle is complete
+     */
+    public boolean isComplete();
+
     /**
      * validate the client's request (provided at construction time) for compliance with 
      * policies and limits.  The method may require examining the files (either on a filesystem or 
@@ -79,6 +87,23 @@ public interface DataPackager {
      */
     public void validateBundleRequest() throws DistributionException, IOException;
 
+    /**
+     * validate the client's request given the total size of the requested files as it was already 
+     * determined, e.g. when an identical request was validated earlier.  Unlike 
+     * {@link #validateBundleRequest()}, this does not examine the files themselves.  If this method 
+     * returns false, the request could not be validated this way, and {@link #validateBundleRequest()} 
+     * should be called instead.  This default implementation always returns false.  
+     * @param totalSize  the total size of the requested files
+     * @return boolean -- True if the request passed validation
+     * @throws InputLimitException -- if the request exceeds the packager's configured limits on 
+     *                                the output bundle file (such as for size).  
+     * @throws DistributionException -- if the request violates any other policy restrictions
+     * @throws IOException -- if a non-recoverable error occurs while examining the request
+     */
+    default boolean validateBundleRequest(long totalSize) throws DistributionException, IOException {
+        return false;
+    }
+
     /**
      * Check if a given URL can be included as the source of a data file for a data bundle.  
      * @param url   the URL to check
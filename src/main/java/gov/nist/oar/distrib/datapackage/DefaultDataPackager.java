@@ -16,12 +16,12 @@ import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -61,6 +61,21 @@ public class DefaultDataPackager implements DataPackager {
 	private int requestValidity = 0;	
 	private String writeLog = "";
 	private String requestedFrom = "";
+	private int prefetchDepth = DEF_PREFETCH_DEPTH;
+	private long spoolThreshold = DEF_SPOOL_THRESHOLD;
+	private ZipCompressionPolicy compressionPolicy = new ZipCompressionPolicy();
+	private ExecutorService fetchExecutor = null;
+
+	/**
+	 * the default number of files to retrieve concurrently ahead of writing them to the bundle
+	 */
+	public static final int DEF_PREFETCH_DEPTH = 4;
+
+	/**
+	 * the default number of bytes of a prefetched file to hold in memory before spilling the 
+	 * remainder to a temporary file
+	 */
+	public static final long DEF_SPOOL_THRESHOLD = 4L * 1024 * 1024;
 	
 	public DefaultDataPackager() {
 		// Default Constructor
@@ -82,9 +97,58 @@ public class DefaultDataPackager implements DataPackager {
 		this.allowedRedirects = allowedRedirects;
 	}
 
+	/**
+	 * set the maximum number of files to retrieve concurrently ahead of writing them into the 
+	 * bundle.  A value of 1 retrieves one file ahead of the zip writer.
+	 */
+	public void setPrefetchDepth(int depth) {
+		this.prefetchDepth = Math.max(1, depth);
+	}
+
+	/**
+	 * set the number of bytes of each prefetched file to hold in memory; the remainder of a 
+	 * larger file is spooled to a temporary file until it is written into the bundle.  
+	 */
+	public void setSpoolThreshold(long bytes) {
+		this.spoolThreshold = Math.max(0L, bytes);
+	}
+
+	/**
+	 * set the executor used to retrieve files ahead of the zip writer.  This is normally shared
+	 * by all packagers (see {@link #createFetchExecutor(int)}) so that the number of retrieval 
+	 * threads stays bounded across concurrent bundle requests.  If null (the default), an 
+	 * executor shared by all packagers in the JVM is used.
+	 */
+	public void setFetchExecutor(ExecutorService exec) {
+		this.fetchExecutor = exec;
+	}
+
+	/**
+	 * create an executor suitable for sharing among packagers via 
+	 * {@link #setFetchExecutor(ExecutorService)}
+	 * @param nthreads   the maximum number of files to retrieve at once across all packagers using
+	 *                   the executor
+	 */
+	public static ExecutorService createFetchExecutor(int nthreads) {
+		return BundlePrefetcher.createExecutor(nthreads);
+	}
+
+	/**
+	 * set the policy that determines which files are written into the bundle uncompressed and 
+	 * the compression level used for the others.
+	 */
+	public void setCompressionPolicy(ZipCompressionPolicy policy) {
+		if (policy != null)
+			this.compressionPolicy = policy;
+	}
+
 	/***
 	 * Read inputstream from valid urls and stream it to outputstream provided by
-	 * response handler.
+	 * response handler.  Up to {@link #setPrefetchDepth(int) a configured number} of files are 
+	 * retrieved concurrently ahead of the zip writer, which adds them to the bundle in the 
+	 * requested order.  Files in already-compressed formats (as determined by the 
+	 * {@link #setCompressionPolicy(ZipCompressionPolicy) compression policy}) are stored 
+	 * without compression.
 	 * 
 	 * @param zout ZipOutputStream
 	 * @throws DistributionException
@@ -93,11 +157,61 @@ public class DefaultDataPackager implements DataPackager {
 
 	@Override
 	public void getData(ZipOutputStream zout) throws IOException, DistributionException {
-		HttpURLConnection con = null;
 		this.validateBundleRequest();
 		
 		logger.info("Forming zip file from the the input fileurls");
 
+		zout.setLevel(compressionPolicy.getDeflateLevel());
+
+		// start retrieving the accessible files ahead of writing them into the zip stream
+		BundlePrefetcher prefetcher = new BundlePrefetcher(this.getFetchURLs(), prefetchDepth, spoolThreshold,
+		                                                   fetchExecutor);
+		try {
+			this.writeEntries(zout, prefetcher);
+		} finally {
+			prefetcher.close();
+		}
+
+		if (fileCount == 0) {
+			logger.info("The package does not contain any data. These errors :" + this.bundlelogError);
+			throw new NoContentInPackageException("No data or files written in Bundle/Package.");
+		}
+
+		 this.writeLogMessages(zout);
+	}
+
+	/**
+	 * return the list of URLs to retrieve file data from, in the order of the requested files.  
+	 * An entry will be null if its file is not accessible and should not be retrieved.  This 
+	 * selection mirrors the checks made by {@link #writeEntries(ZipOutputStream,BundlePrefetcher)} 
+	 * but does not record any messages.
+	 */
+	private List<String> getFetchURLs() {
+		List<String> urls = new ArrayList<>(inputfileList.length);
+		for (int i = 0; i < inputfileList.length; i++) {
+			String downloadurl = inputfileList[i].getDownloadUrl();
+			URLStatusLocation uLoc = listUrlsStatusSize.get(i);
+			String url = null;
+			try {
+				if (ValidationHelper.isAllowedURL(downloadurl, this.domains) &&
+				    downloadurl.equalsIgnoreCase(uLoc.getRequestedURL()) && uLoc.getStatus() == 200)
+				{
+					url = this.updateURL(uLoc.getRequestedURL());
+				}
+			} catch (MalformedURLException ex) {
+				// url stays null, so the file is not fetched; it is reported as failed when its 
+				// entry is written
+			}
+			urls.add(url);
+		}
+		return urls;
+	}
+
+	/**
+	 * write the requested files into the zip stream in request order, taking their contents 
+	 * from the given prefetcher.
+	 */
+	private void writeEntries(ZipOutputStream zout, BundlePrefetcher prefetcher) throws IOException {
 		for (int i = 0; i < inputfileList.length; i++) {
 		    writeLog += bundleRequest.getRequestId()+ ","+bundleRequest.getBundleName()+",";
 			FileRequest jobject = inputfileList[i];
@@ -146,20 +260,28 @@ public class DefaultDataPackager implements DataPackager {
 				
 				
 				if ((downloadurl.equalsIgnoreCase(uLoc.getRequestedURL())) && this.checkResponse(uLoc)) {
+					BundlePrefetcher.Fetched fetched = null;
 					InputStream fstream = null;
 					try {
-						URL obj = new URL(this.updateURL(uLoc.getRequestedURL()));
-						con = (HttpURLConnection) obj.openConnection();
-                                                con.setInstanceFollowRedirects(true);
-						fstream = con.getInputStream();
+						if (prefetcher.getURL(i) == null)
+							throw new MalformedURLException("Unable to form retrieval URL from " + downloadurl);
+						fetched = prefetcher.take(i);
+						fstream = fetched.getInputStream();
 						int len;
 						byte[] buf = new byte[100000];
-						zout.putNextEntry(new ZipEntry(modifiedFilePath));
+						ZipEntry entry = new ZipEntry(modifiedFilePath);
+						if (compressionPolicy.shouldStore(filepath)) {
+							// already-compressed format: don't spend time deflating it
+							entry.setMethod(ZipEntry.STORED);
+							entry.setSize(fetched.getSize());
+							entry.setCompressedSize(fetched.getSize());
+							entry.setCrc(fetched.getCrc());
+						}
+						zout.putNextEntry(entry);
 						while ((len = fstream.read(buf)) != -1) {
 							zout.write(buf, 0, len);
 						}
 						zout.closeEntry();
-						fstream.close();
 						fileCount++;
 						writeLog += "success \n";
 						
@@ -173,23 +295,15 @@ public class DefaultDataPackager implements DataPackager {
 					} finally {
 					       
 						logger.info("Bundle Request Details:"+ writeLog);
-						if (fstream != null)
-							fstream.close();
-						if (con != null)
-							con.disconnect();
+						quietClose(fstream);
+						if (fetched != null)
+							fetched.close();
 					}
 
 				}
 			}
 			
 		}
-
-		if (fileCount == 0) {
-			logger.info("The package does not contain any data. These errors :" + this.bundlelogError);
-			throw new NoContentInPackageException("No data or files written in Bundle/Package.");
-		}
-
-		 this.writeLogMessages(zout);
 	}
 
 	/**
@@ -360,6 +474,43 @@ public class DefaultDataPackager implements DataPackager {
 
 	}
 
+	/**
+	 * Validates the request using a total size for the requested files that was
+	 * already determined (e.g. when an identical bundle was built), so that no HEAD
+	 * calls are needed: the file count and total size are checked against the
+	 * limits, and every URL must still be from an allowed domain. If any URL is not
+	 * allowed, false is returned and the request is left for
+	 * {@link #validateBundleRequest()} to handle.
+	 */
+	@Override
+	public boolean validateBundleRequest(long totalSize) throws IOException, DistributionException {
+		if (requestValidity == 0) {
+			basicValidation();
+			try {
+				for (FileRequest fr : this.inputfileList) {
+					if (!ValidationHelper.isAllowedURL(fr.getDownloadUrl(), this.domains))
+						return false;
+				}
+			} catch (MalformedURLException ex) {
+				return false;
+			}
+
+			if (this.inputfileList.length <= 0)
+				requestValidity = 3;
+			else if (totalSize > this.mxFileSize && this.getFilesCount() > 1)
+				requestValidity = 4;
+			else if (this.getFilesCount() > this.mxFilesCount)
+				requestValidity = 5;
+			else {
+				this.totalRequestedPackageSize = totalSize;
+				requestValidity = 1;
+			}
+		}
+
+		getServiceErrorStatus(requestValidity);
+		return true;
+	}
+
 	/**
 	 * This method, helps check validation status internally to avoid doing it
 	 * multiple times. As validation status is cached for the DataPackager life
@@ -465,6 +616,16 @@ public class DefaultDataPackager implements DataPackager {
 
 	}
 
+	/**
+	 * Return true if the last call to {@link #getData(ZipOutputStream)} wrote every requested
+	 * file into the bundle without error.
+	 */
+	@Override
+	public boolean isComplete() {
+		return fileCount > 0 && inputfileList != null && fileCount == inputfileList.length
+			&& bundlelogfile.length() == 0 && bundlelogError.length() == 0;
+	}
+
 	/**
 	 * This checks whether file list is populated if not parse input JSON, validate
 	 * and get files.
@@ -17,7 +17,9 @@ import java.net.MalformedURLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -62,6 +64,7 @@ public class DownloadBundlePlanner {
 	private int allowedRedirects;
 	private long totalRequestedFileSize = 0;
 	private String requestId ;
+	private boolean packBundles = false;
 	
 	String printSummary = "";
 	List<FileRequestLogs> filesLogs = new ArrayList<FileRequestLogs>();
@@ -90,6 +93,27 @@ public class DownloadBundlePlanner {
 		this.allowedRedirects = allowedRedirects;
 	}
 
+	/**
+	 * Set whether the files should be packed into as few bundles as possible.  By default, the files
+	 * are bundled in the order requested, starting a new bundle whenever the next file would exceed
+	 * the size or count limit; with mixed-size selections, this can leave many bundles under-filled.
+	 * When packing is turned on, the files are instead arranged (via a first-fit-decreasing packing
+	 * that keeps files from the same directory together where possible) to minimize the number of
+	 * bundles, within the same limits.
+	 * @param pack  true if files should be packed
+	 */
+	public void setPackBundles(boolean pack) {
+		this.packBundles = pack;
+	}
+
+	/**
+	 * Return true if the files will be packed into as few bundles as possible.
+	 * @see #setPackBundles(boolean)
+	 */
+	public boolean isPackBundles() {
+		return this.packBundles;
+	}
+
 	/**
 	 * Get the plan to download all files after checking various limits and criteria
 	 * 
@@ -153,7 +177,10 @@ public class DownloadBundlePlanner {
 		}
 
 		if (!this.filePathUrls.isEmpty()) {
-			this.makePlan(this.filePathUrls, bundleSize);
+			if (this.packBundles)
+				this.makePackedPlans(this.filePathUrls);
+			else
+				this.makePlan(this.filePathUrls, bundleSize);
 		}
 
 		this.updateMessagesAndStatus();
@@ -232,7 +259,7 @@ public class DownloadBundlePlanner {
 		createLogs(uObj, jobject);
 		
 		String whyNotIncluded = "File not added in package; ";
-		String fileUrlWithRequestId= jobject.getDownloadUrl()+"?requestId="+this.requestId;
+		String fileUrlWithRequestId= withRequestId(jobject.getDownloadUrl());
 		if (uObj.getStatus() >= 300 && uObj.getStatus() < 400) {
 			whyNotIncluded += "There are too many redirects for this URL.";
 			notIncludedFiles.add(new NotIncludedFile(jobject.getFilePath(), fileUrlWithRequestId, whyNotIncluded));
@@ -248,6 +275,9 @@ public class DownloadBundlePlanner {
 				onefilePathUrls.add(new FileRequest(jobject.getFilePath(), fileUrlWithRequestId, individualFileSize));
 				this.makePlan(onefilePathUrls,individualFileSize);
 				
+			} else if (this.packBundles) {
+				// bundles are assigned once all the file sizes are known
+				filePathUrls.add(new FileRequest(jobject.getFilePath(), fileUrlWithRequestId, individualFileSize));
 			} else {
 				bundleSize += individualFileSize;
 				if (bundleSize < this.mxFilesBundleSize && bundledFilesCount <= this.mxBundledFilesCount) {
@@ -267,6 +297,13 @@ public class DownloadBundlePlanner {
 		}		
 	}
 
+	/**
+	 * Return the given download URL tagged with this plan's request ID, as it appears in the bundles
+	 */
+	private String withRequestId(String downloadUrl) {
+		return downloadUrl+"?requestId="+this.requestId;
+	}
+
 	/***
 	 * Create Bundle of FileList
 	 * @param fPathUrls
@@ -277,6 +314,30 @@ public class DownloadBundlePlanner {
 		bundleFilePathUrls.add(new BundleRequest(bundleName + "-" + bundleCount + ".zip", bundlefilePathUrls, bundleSize,bundlefilePathUrls.length, this.requestId));
 	}
 
+	/**
+	 * Pack the given files into as few bundles as possible and create a bundle for each.  The bundle
+	 * names recorded for the files in the request logs are updated to match.
+	 * @param fPathUrls
+	 */
+	void makePackedPlans(List<FileRequest> fPathUrls) {
+		Map<String, String> bundleOf = new HashMap<String, String>();
+		for (List<FileRequest> files : BundlePacker.pack(fPathUrls, this.mxFilesBundleSize, this.mxBundledFilesCount)) {
+			long size = 0;
+			for (FileRequest file : files)
+				size += file.getFileSize();
+			makePlan(files, size);
+			// files from different datasets can share a filepath, so key by the download URL; the
+			// bundled files carry the request ID while the logs record the URL as requested
+			for (FileRequest file : files)
+				bundleOf.put(file.getDownloadUrl(), this.bundleName + this.bundleCount);
+		}
+		for (FileRequestLogs fileLog : this.filesLogs) {
+			String url = withRequestId(fileLog.getDownloadUrl());
+			if (bundleOf.containsKey(url))
+				fileLog.setBundleName(bundleOf.get(url));
+		}
+	}
+
 	/**
 	 * Update Messages and Status
 	 */
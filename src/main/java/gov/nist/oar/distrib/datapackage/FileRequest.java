@@ -12,6 +12,8 @@
 
 package gov.nist.oar.distrib.datapackage;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import jakarta.validation.constraints.NotNull;
 
 /**
@@ -34,6 +36,13 @@ public class FileRequest {
     private String downloadUrl;
 
     private long fileSize;
+
+    /*
+     * an optional checksum for the file's content; it is used to distinguish otherwise identical 
+     * requests when caching bundles.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String checksum;
     
     public FileRequest() {
 	// DefaultConstructor
@@ -112,6 +121,21 @@ public class FileRequest {
     public void setFileSize(long fileSize) {
 	this.fileSize = fileSize;
     }
+
+    /**
+     * Return the checksum given for the file's content, or null if none was given
+     * @return String
+     */
+    public String getChecksum() {
+	return this.checksum;
+    }
+
+    /**
+     * Set the checksum for the file's content
+     */
+    public void setChecksum(String checksum) {
+	this.checksum = checksum;
+    }
     
     @Override
     public int hashCode() {
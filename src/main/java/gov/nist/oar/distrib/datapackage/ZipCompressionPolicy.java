@@ -0,0 +1,135 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import javax.activation.MimetypesFileTypeMap;
+
+/**
+ * a policy for deciding how each file added to a data bundle should be compressed.
+ * <p>
+ * Many of the file formats served by the PDR--HDF5, NetCDF, archives, compressed files, images,
+ * audio and video--are already compressed, and deflating them again costs CPU time without
+ * reducing their size.  This policy selects such files, by their file extension or by the
+ * media type that extension maps to, to be written into a bundle uncompressed (i.e. with the zip
+ * <code>STORED</code> method); all other files are deflated at a configurable level.
+ */
+public class ZipCompressionPolicy {
+
+    /**
+     * the file extensions (lower case, without the dot) that are stored without compression by default
+     */
+    public static final String[] DEF_STORE_EXTENSIONS = {
+        "h5", "hdf5", "he5", "hdf", "h4", "he4", "nc", "nc4", "cdf",
+        "zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "jar", "kmz",
+        "jpg", "jpeg", "png", "gif", "webp", "mp3", "mp4", "m4a", "m4v", "ogg", "mov", "webm",
+        "docx", "xlsx", "pptx"
+    };
+
+    /**
+     * the media types that are stored without compression by default
+     */
+    public static final String[] DEF_STORE_TYPES = {
+        "application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2",
+        "application/x-xz", "application/zstd", "application/x-7z-compressed",
+        "application/x-rar-compressed", "application/java-archive", "application/x-hdf5",
+        "application/x-hdf", "application/x-netcdf", "image/jpeg", "image/png", "image/gif",
+        "image/webp"
+    };
+
+    private final Set<String> storeExts;
+    private final Set<String> storeTypes;
+    private final MimetypesFileTypeMap mimemap;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * create a policy that stores files with the default set of extensions uncompressed.
+     */
+    public ZipCompressionPolicy() {
+        this(null);
+    }
+
+    /**
+     * create a policy that stores files with the default set of extensions and media types
+     * uncompressed.
+     * @param mimemap   the map to use to determine a file's media type from its name; if null,
+     *                  only file extensions will be consulted.
+     */
+    public ZipCompressionPolicy(MimetypesFileTypeMap mimemap) {
+        this(mimemap, Arrays.asList(DEF_STORE_EXTENSIONS), Arrays.asList(DEF_STORE_TYPES));
+    }
+
+    /**
+     * create a policy that stores files with the given extensions and media types uncompressed.
+     * @param mimemap     the map to use to determine a file's media type from its name; if null,
+     *                    only file extensions will be consulted.
+     * @param extensions  the file extensions (without the leading dot) to store uncompressed
+     * @param mediaTypes  the media types to store uncompressed; in addition, all audio and video
+     *                    types are stored uncompressed.
+     */
+    public ZipCompressionPolicy(MimetypesFileTypeMap mimemap,
+                                Collection<String> extensions, Collection<String> mediaTypes)
+    {
+        this.mimemap = mimemap;
+        storeExts = new HashSet<String>();
+        for (String ext : extensions)
+            storeExts.add(ext.toLowerCase());
+        storeTypes = new HashSet<String>(mediaTypes);
+    }
+
+    /**
+     * set the compression level to use for files that are deflated
+     * @param level   a value from 0 (no compression) to 9 (best compression), or -1 for the
+     *                default level
+     * @throws IllegalArgumentException  if level is out of range
+     */
+    public void setDeflateLevel(int level) {
+        if (level < -1 || level > 9)
+            throw new IllegalArgumentException("Deflate level out of range [-1, 9]: " + level);
+        this.level = level;
+    }
+
+    /**
+     * return the compression level to use for files that are deflated
+     */
+    public int getDeflateLevel() { return level; }
+
+    /**
+     * return true if the file with the given path should be written into the bundle without
+     * compression.
+     * @param filepath   the path or name of the file
+     */
+    public boolean shouldStore(String filepath) {
+        if (filepath == null)
+            return false;
+        int slash = filepath.lastIndexOf('/');
+        String name = (slash >= 0) ? filepath.substring(slash + 1) : filepath;
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot == name.length() - 1)
+            return false;
+
+        if (storeExts.contains(name.substring(dot + 1).toLowerCase()))
+            return true;
+
+        if (mimemap != null) {
+            String type = mimemap.getContentType(name);
+            if (type.startsWith("video/") || type.startsWith("audio/") || storeTypes.contains(type))
+                return true;
+        }
+        return false;
+    }
+}
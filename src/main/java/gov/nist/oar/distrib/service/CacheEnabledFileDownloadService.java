@@ -17,10 +17,15 @@ import gov.nist.oar.distrib.FileDescription;
 import gov.nist.oar.distrib.StreamHandle;
 import gov.nist.oar.distrib.Checksum;
 import gov.nist.oar.distrib.StorageVolumeException;
+import gov.nist.oar.distrib.cachemgr.BasicCacheManager;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheManager;
+import gov.nist.oar.distrib.cachemgr.CacheMetrics;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
+import gov.nist.oar.distrib.cachemgr.MemoryHotTier;
 import gov.nist.oar.distrib.cachemgr.pdr.HeadBagCacheManager;
+import gov.nist.oar.distrib.cachemgr.pdr.PDRDatasetCacheManager;
 import gov.nist.oar.clients.rmm.ComponentInfoCache;
 import gov.nist.oar.bags.preservation.BagUtils;
 import gov.nist.oar.bags.preservation.ZipBagUtils;
@@ -65,6 +70,8 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
 
     ComponentInfoCache compcache = null;
     boolean autocache = false;
+    boolean readthrough = false;
+    MemoryHotTier hottier = null;
 
     static final private int defMDCSzLim  = 1000;    // # of components cached
     static final private long defMDCTmLim = 300;     // time limit of 5 minutes
@@ -151,6 +158,56 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
         this(srcService, bagService, cachemgr, headbagcachemgr, triggercache, null);
     }
 
+    /**
+     * set whether files streamed from long-term storage (because they were not found in the cache) 
+     * should be saved into the cache as they are delivered.  This only has an effect if the 
+     * CacheManager is a {@link gov.nist.oar.distrib.cachemgr.BasicCacheManager}.
+     */
+    public void setReadThrough(boolean enable) { readthrough = enable; }
+
+    /**
+     * return true if files streamed from long-term storage will be saved into the cache as they 
+     * are delivered.
+     */
+    public boolean isReadThrough() { return readthrough; }
+
+    /**
+     * set the in-memory tier to consult for the contents of small, frequently requested files 
+     * found in the cache.  If null (the default), files are always read from their cache volumes.
+     */
+    public void setHotTier(MemoryHotTier tier) { hottier = tier; }
+
+    /**
+     * return the in-memory tier consulted for the contents of small, frequently requested files,
+     * or null if one is not in use.
+     */
+    public MemoryHotTier getHotTier() { return hottier; }
+
+    /**
+     * prepare this service to quickly serve requests for files from the given dataset.  This makes sure
+     * the latest head bag for the dataset is in the head bag cache, loads its file metadata into the
+     * in-memory metadata cache, and reads the dataset's entries in the cache inventory (so that they are
+     * in the database's page cache).  This is intended to be called at start-up for datasets that are
+     * likely to be requested soon.
+     * @param dsid    the dataset identifier for the dataset to prepare for
+     * @throws ResourceNotFoundException   if the dsid is not recognized
+     * @throws DistributionException       if an internal error occurs while restoring the head bag
+     */
+    public void prewarm(String dsid) throws ResourceNotFoundException, DistributionException {
+        try {
+            compcache.cacheResource(hbcmgr.resolveAIPID(dsid, null), false, null, dsid);
+            if (cmgr instanceof PDRDatasetCacheManager)
+                ((PDRDatasetCacheManager) cmgr).summarizeDataset(dsid);
+        }
+        catch (CacheManagementException ex) {
+            throw new DistributionException("Failed to pre-load metadata for "+dsid+": "+ex.getMessage(), ex);
+        }
+    }
+
+    private String cacheName() {
+        return (cmgr instanceof BasicCacheManager) ? ((BasicCacheManager) cmgr).getCacheName() : null;
+    }
+
     private String cacheid(String dsid, String filepath, String version) {
         String id = dsid + "/" + filepath;
         if (version != null && version.length() > 0)
@@ -290,13 +347,16 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
                                  dsid, filepath);
                     out = null;
                 }
-                if (out != null)
+                if (out != null) {
+                    CacheMetrics.getDefault().recordLookup(cacheName(), out.volname, true);
                     return out;
+                }
             }
             catch (CacheManagementException ex) {
                 logger.error("Failure while searching cache: {} (skipping)", ex.getMessage());
                 logger.warn("Ignoring cached version due to error");
             }
+            CacheMetrics.getDefault().recordLookup(cacheName(), null, false);
         }
                 
         return null;
@@ -316,7 +376,7 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
 
         URL out = null;
         try {
-            out = co.volume.getRedirectFor(co.name);
+            out = co.volume.getRedirectFor(co.name, co.exportMetadata());
         }
         catch (UnsupportedOperationException ex) { }
         catch (StorageVolumeException ex) {
@@ -342,7 +402,10 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
      * given a {@link gov.nist.oar.distrib.cachemgr.CacheObject}, return a {@link gov.nist.oar.distrib.StreamHandle}
      * to the object.  This is a convenience function to be used in the use case described for {@link #redirectFor}:
      * if that function returns null--i.e. there is no redirect URL available--one can open a stream to the
-     * object in the cache via this function.
+     * object in the cache via this function.  If an in-memory tier is set (see 
+     * {@link #setHotTier(MemoryHotTier)}), a copy held there is delivered instead.  If the object cannot 
+     * be opened, any remembered lookup of it is forgotten so that the next search of the cache consults 
+     * the inventory afresh.
      */
     public StreamHandle openStreamFor(CacheObject co) throws StorageVolumeException {
         try {
@@ -351,7 +414,26 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
         catch (CacheManagementException ex) {
             logger.error("Failure confirming access for object, {}: {}", co.name, ex.getMessage());
         }
-        return cacheObject2StreamHandle(co);
+        try {
+            if (hottier != null && co.id != null) {
+                InputStream is = hottier.open(co.id, co);
+                if (is != null)
+                    return new StreamHandle(is, cacheObject2FileDesc(co));
+            }
+
+            // user reads count toward the volume's demand so that background work backs off
+            StreamHandle out = cacheObject2StreamHandle(co);
+            out.dataStream = IOScheduler.getDefault().throttle(out.dataStream, co.volname);
+            return out;
+        }
+        catch (StorageVolumeException ex) {
+            if (co.id != null && cmgr instanceof BasicCacheManager)
+                // the object's location may have been remembered from an earlier lookup
+                ((BasicCacheManager) cmgr).forgetLookup(co.id);
+            if (hottier != null && co.id != null)
+                hottier.invalidate(co.id);
+            throw ex;
+        }
     }
     
     /**
@@ -378,8 +460,19 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
         if (cmgr != null) {
             try {
                 CacheObject co = findCachedObject(dsid, filepath, version);
-                if (co != null && co.volume != null) 
-                    return cacheObject2StreamHandle(co);
+                if (co != null && co.volume != null) {
+                    StreamHandle out = null;
+                    if (hottier != null) {
+                        InputStream is = hottier.open(cacheid(dsid, filepath, version), co);
+                        if (is != null)
+                            out = new StreamHandle(is, cacheObject2FileDesc(co));
+                    }
+                    if (out == null) {
+                        out = cacheObject2StreamHandle(co);
+                        out.dataStream = IOScheduler.getDefault().throttle(out.dataStream, co.volname);
+                    }
+                    return out;
+                }
             }
             catch (CacheManagementException ex) {
                 logger.error("Trouble searching cache for {}: {}", cacheid(dsid, filepath, version),
@@ -389,11 +482,53 @@ public class CacheEnabledFileDownloadService implements FileDownloadService {
                 logger.error("Error opening cache object for {}: {}", cacheid(dsid, filepath, version),
                              ex.getMessage());
                 logger.warn("Falling back on direct extraction due to cache error");
+                if (cmgr instanceof BasicCacheManager)
+                    // the object's location may have been remembered from an earlier lookup
+                    ((BasicCacheManager) cmgr).forgetLookup(cacheid(dsid, filepath, version));
+                if (hottier != null)
+                    hottier.invalidate(cacheid(dsid, filepath, version));
             }
         }
 
         // last resort: straight from long-term storage
+        return getDataFileFromSource(dsid, filepath, version);
+    }
+
+    /**
+     * Download the data file with the given filepath from long-term storage, without first checking 
+     * the cache.  This is the fallback used by {@link #getDataFile(String,String,String)} when the file
+     * is not cached; it is provided for callers that have already searched the cache (via 
+     * {@link #findCachedObject(String,String,String)}).  If so configured, the file will be cached 
+     * as it is read or queued for caching.
+     * @param dsid    the dataset identifier for the desired dataset
+     * @param filepath  the path within the dataset to the desired file
+     * @param version   the version of the dataset.  If null, the latest version is returned.
+     * @return StreamHandle - an open stream to the file data accompanied by file metadata
+     * @throws ResourceNotFoundException   if the dsid is not recognized or there is no such version
+     *                                        available for the dataset with dsid.
+     * @throws FileNotFoundException       if the filepath is not found in the requested version of 
+     *                                        the identified dataset
+     * @throws DistributionException       if an internal error has occurred
+     */
+    public StreamHandle getDataFileFromSource(String dsid, String filepath, String version)
+        throws ResourceNotFoundException, DistributionException, FileNotFoundException
+    {
         StreamHandle out = srcsvc.getDataFile(dsid, filepath, version);  // may throw an exception
+        out.dataStream = IOScheduler.getDefault().throttle(out.dataStream, IOScheduler.LTS_CHANNEL);
+        if (readthrough && cmgr instanceof BasicCacheManager) {
+            // save the file into the cache as it is delivered
+            try {
+                InputStream rts = ((BasicCacheManager) cmgr).cacheWhileReading(cacheid(dsid, filepath, version),
+                                                                               out.dataStream,
+                                                                               out.getInfo().contentLength);
+                if (rts != null)
+                    out.dataStream = rts;
+            }
+            catch (Exception ex) {
+                logger.warn("Unable to cache {} while streaming: {}: {}", cacheid(dsid, filepath, version),
+                            ex.getClass().getName(), ex.getMessage());
+            }
+        }
         if (autocache) {
             try {
                 // possibly cache the requested dataset for the next request
@@ -15,6 +15,7 @@ package gov.nist.oar.distrib.service;
 import java.io.IOException;
 
 import gov.nist.oar.distrib.DistributionException;
+import gov.nist.oar.distrib.datapackage.BundleCache;
 import gov.nist.oar.distrib.datapackage.BundleDownloadPlan;
 import gov.nist.oar.distrib.datapackage.BundleRequest;
 import gov.nist.oar.distrib.datapackage.DataPackager;
@@ -84,4 +85,11 @@ public interface DataPackagingService {
      */
     public BundleDownloadPlan getBundlePlan(BundleRequest br, String bundleName)
         throws DistributionException, InvalidInputException;
+
+    /**
+     * Return the cache used to store finished bundles so that identical requests can be served 
+     * without rebuilding them.
+     * @return BundleCache -- the cache, or null if this service does not cache bundles.
+     */
+    public BundleCache getBundleCache();
 }
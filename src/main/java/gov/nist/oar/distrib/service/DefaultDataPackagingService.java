@@ -13,15 +13,18 @@
 package gov.nist.oar.distrib.service;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 import org.springframework.beans.factory.annotation.Value;
 
 import gov.nist.oar.distrib.DistributionException;
+import gov.nist.oar.distrib.datapackage.BundleCache;
 import gov.nist.oar.distrib.datapackage.BundleDownloadPlan;
 import gov.nist.oar.distrib.datapackage.BundleRequest;
 import gov.nist.oar.distrib.datapackage.DefaultDataPackager;
 import gov.nist.oar.distrib.datapackage.DownloadBundlePlanner;
 import gov.nist.oar.distrib.datapackage.InputLimitException;
+import gov.nist.oar.distrib.datapackage.ZipCompressionPolicy;
 import gov.nist.oar.distrib.web.InvalidInputException;
 
 /**
@@ -36,6 +39,12 @@ public class DefaultDataPackagingService implements DataPackagingService {
     int numOfFiles = 0;
     int allowedRedirects = 0;
     String domains;
+    int prefetchDepth = DefaultDataPackager.DEF_PREFETCH_DEPTH;
+    long spoolThreshold = DefaultDataPackager.DEF_SPOOL_THRESHOLD;
+    ExecutorService fetchExecutor = null;
+    ZipCompressionPolicy compressionPolicy = null;
+    BundleCache bundleCache = null;
+    boolean packBundles = false;
     DownloadBundlePlanner dwnldPlanner;
     
     public DefaultDataPackagingService() {
@@ -55,13 +64,76 @@ public class DefaultDataPackagingService implements DataPackagingService {
 	this.allowedRedirects = allowedRedirects;
     }
 
+    /**
+     * set the number of bundle files that packagers should retrieve concurrently
+     * @see DefaultDataPackager#setPrefetchDepth(int)
+     */
+    public void setPrefetchDepth(int depth) {
+	this.prefetchDepth = depth;
+    }
+
+    /**
+     * set the number of bytes of each prefetched file that packagers should hold in memory
+     * @see DefaultDataPackager#setSpoolThreshold(long)
+     */
+    public void setSpoolThreshold(long bytes) {
+	this.spoolThreshold = bytes;
+    }
+
+    /**
+     * set the maximum number of files that all packagers created by this service may retrieve
+     * at once, combined.  The packagers share a single executor of this size.
+     * @see DefaultDataPackager#setFetchExecutor(ExecutorService)
+     */
+    public void setFetchThreads(int nthreads) {
+	this.fetchExecutor = DefaultDataPackager.createFetchExecutor(nthreads);
+    }
+
+    /**
+     * set whether bundle plans should pack files into as few bundles as possible
+     * @see DownloadBundlePlanner#setPackBundles(boolean)
+     */
+    public void setPackBundles(boolean pack) {
+	this.packBundles = pack;
+    }
+
+    /**
+     * set the policy packagers should use to decide which files to compress
+     * @see DefaultDataPackager#setCompressionPolicy(ZipCompressionPolicy)
+     */
+    public void setCompressionPolicy(ZipCompressionPolicy policy) {
+	this.compressionPolicy = policy;
+    }
+
+    /**
+     * set the cache to use to store and reuse finished bundles
+     * @param cache   the bundle cache; if null, bundles will not be cached.
+     */
+    public void setBundleCache(BundleCache cache) {
+	this.bundleCache = cache;
+    }
+
+    /**
+     * return the cache used to store and reuse finished bundles, or null if bundles are not
+     * cached.
+     */
+    @Override
+    public BundleCache getBundleCache() {
+	return bundleCache;
+    }
+
     /**
      * Get input request and return DataPackager.
      */
     @Override
     public DefaultDataPackager getDataPackager(BundleRequest br)
 	    throws DistributionException {
-	return new DefaultDataPackager(br, maxFileSize, numOfFiles, domains, allowedRedirects);
+	DefaultDataPackager dp = new DefaultDataPackager(br, maxFileSize, numOfFiles, domains, allowedRedirects);
+	dp.setPrefetchDepth(prefetchDepth);
+	dp.setSpoolThreshold(spoolThreshold);
+	dp.setFetchExecutor(fetchExecutor);
+	dp.setCompressionPolicy(compressionPolicy);
+	return dp;
     }
 
     /*
@@ -82,6 +154,7 @@ public class DefaultDataPackagingService implements DataPackagingService {
         throws DistributionException, InvalidInputException
     {
 	dwnldPlanner = new DownloadBundlePlanner(br, maxFileSize, numOfFiles, domains, bundleName, allowedRedirects);
+	dwnldPlanner.setPackBundles(packBundles);
 	return dwnldPlanner.getBundleDownloadPlan();
     }
 
@@ -0,0 +1,272 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * an index of the downloadable files in a dataset, organized as a tree of directories.
+ * <p>
+ * The index is built once from the <code>components</code> list of a dataset's NERDm record, so
+ * that listing the contents of any one directory costs only as much as the number of entries in
+ * that directory.  Only components that are downloadable <code>DataFile</code>s (i.e. that have a
+ * <code>downloadURL</code>) are included; their parent directories are created implicitly.  Each
+ * file entry records the file's size and modification time (taken from the component's
+ * <code>size</code> and <code>modified</code> properties, falling back to the resource-level
+ * <code>modified</code> date); each directory entry records the total size of the files below it
+ * and the latest modification time among them.
+ * <p>
+ * Entries within a directory are ordered (and de-duplicated) by name, ignoring case.  An index is
+ * not modified after it is built and so can be shared across threads.
+ */
+public class NerdmDirectoryIndex {
+
+    /**
+     * a rough estimate of the memory, in bytes, taken up by one entry in the index, including its
+     * name and its place in its parent's list of children
+     */
+    public static final int ENTRY_SIZE_ESTIMATE = 200;
+
+    private final Entry root = new Entry("", true);
+    private int fileCount = 0;
+    private int nodeCount = 1;
+
+    /**
+     * a file or directory within the index
+     */
+    public static class Entry {
+        private final String name;
+        private final boolean directory;
+        private long size = 0L;
+        private Instant modified = null;
+        private TreeMap<String, Entry> children = null;
+
+        Entry(String name, boolean directory) {
+            this.name = name;
+            this.directory = directory;
+        }
+
+        /**
+         * the name of the entry within its parent directory.  Directory names end in a slash.
+         */
+        public String getName() { return name; }
+
+        /**
+         * return true if this entry is a directory
+         */
+        public boolean isDirectory() { return directory; }
+
+        /**
+         * the size of the file in bytes, or for a directory, the total size of all files below it.
+         * A value of -1 indicates that the size of a file is unknown.
+         */
+        public long getSize() { return size; }
+
+        /**
+         * the last modification time of the file, or for a directory, the latest modification
+         * time of the files below it.  This will be null if unknown.
+         */
+        public Instant getModified() { return modified; }
+
+        /**
+         * return the entries within this directory, sorted by name.  The list will be empty if
+         * this entry is a file.
+         */
+        public Collection<Entry> getChildren() {
+            if (children == null)
+                return Collections.emptyList();
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        Entry child(String name) {
+            return (children == null) ? null : children.get(name);
+        }
+
+        Entry addChild(Entry child) {
+            if (children == null)
+                children = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            Entry had = children.putIfAbsent(child.name, child);
+            return (had != null) ? had : child;
+        }
+
+        void account(long sz, Instant mod) {
+            if (sz > 0)
+                size += sz;
+            if (mod != null && (modified == null || mod.isAfter(modified)))
+                modified = mod;
+        }
+    }
+
+    NerdmDirectoryIndex() { }
+
+    /**
+     * build an index from a NERDm resource record
+     * @param nerdm   the NERDm resource record; if null or if it has no components, an empty index
+     *                is returned.
+     */
+    public static NerdmDirectoryIndex fromNerdm(JsonNode nerdm) {
+        NerdmDirectoryIndex out = new NerdmDirectoryIndex();
+        if (nerdm == null)
+            return out;
+
+        Instant resmod = parseDate(nerdm.path("modified").asText(null));
+        JsonNode comps = nerdm.path("components");
+        if (comps.isArray()) {
+            for (JsonNode comp : comps)
+                out.add(comp, resmod);
+        }
+        return out;
+    }
+
+    private void add(JsonNode comp, Instant defmod) {
+        // Only include downloadable files (skip restricted or incomplete metadata)
+        if (! hasType(comp, "DataFile") || comp.get("downloadURL") == null)
+            return;
+        String filepath = comp.path("filepath").asText(null);
+        if (filepath == null)
+            return;
+
+        List<String> parts = new ArrayList<>();
+        for (String part : filepath.split("/")) {
+            if (! part.isEmpty())
+                parts.add(part);
+        }
+        if (parts.isEmpty())
+            return;
+
+        boolean isdir = hasType(comp, "Subcollection");
+        long size = isdir ? 0L : comp.path("size").asLong(-1L);
+        Instant mod = parseDate(comp.path("modified").asText(null));
+        if (mod == null)
+            mod = defmod;
+
+        Entry dir = root;
+        root.account(size, mod);
+        int last = parts.size() - 1;
+        for (int i = 0; i < last; i++) {
+            dir = addTo(dir, new Entry(parts.get(i) + "/", true));
+            dir.account(size, mod);
+        }
+
+        if (isdir) {
+            addTo(dir, new Entry(parts.get(last) + "/", true));
+            return;
+        }
+
+        Entry leaf = new Entry(parts.get(last), false);
+        if (addTo(dir, leaf) == leaf) {
+            leaf.size = size;
+            leaf.modified = mod;
+            fileCount++;
+        }
+    }
+
+    private Entry addTo(Entry dir, Entry child) {
+        Entry out = dir.addChild(child);
+        if (out == child)
+            nodeCount++;
+        return out;
+    }
+
+    /**
+     * return the entries found in the directory with the given path.  An empty list is returned
+     * if the directory does not exist in the index.
+     * @param dirpath   the path to the directory, relative to the dataset root; an empty string
+     *                  or null selects the root directory.  Leading and trailing slashes are ignored.
+     */
+    public List<Entry> list(String dirpath) {
+        Entry dir = find(dirpath);
+        if (dir == null || ! dir.directory)
+            return Collections.emptyList();
+        return new ArrayList<>(dir.getChildren());
+    }
+
+    /**
+     * return the entry with the given path or null if it is not found in the index.  Directories
+     * may be looked up with or without a trailing slash.
+     * @param path   the path to the file or directory, relative to the dataset root; an empty
+     *               string or null selects the root directory.
+     */
+    public Entry find(String path) {
+        Entry out = root;
+        if (path == null)
+            return out;
+
+        String[] parts = path.split("/");
+        for (int i = 0; i < parts.length && out != null; i++) {
+            if (parts[i].isEmpty())
+                continue;
+            Entry next = out.child(parts[i] + "/");
+            if (next == null)
+                next = out.child(parts[i]);
+            out = next;
+        }
+        return out;
+    }
+
+    /**
+     * return the total number of files in the index
+     */
+    public int getFileCount() { return fileCount; }
+
+    /**
+     * return the total number of entries--files and directories, including the root--in the index
+     */
+    public int getNodeCount() { return nodeCount; }
+
+    /**
+     * return an estimate of the memory, in bytes, taken up by this index.  This is used to weigh
+     * the index against a cache's memory budget.
+     */
+    public long estimateSize() { return (long) nodeCount * ENTRY_SIZE_ESTIMATE; }
+
+    static boolean hasType(JsonNode component, String shortType) {
+        for (JsonNode t : component.path("@type")) {
+            String txt = t.asText();
+            int idx = txt.lastIndexOf(':');
+            String local = idx >= 0 ? txt.substring(idx + 1) : txt;
+            if (shortType.equals(local))
+                return true;
+        }
+        return false;
+    }
+
+    static Instant parseDate(String date) {
+        if (date == null || date.isEmpty())
+            return null;
+        try {
+            return OffsetDateTime.parse(date).toInstant();
+        } catch (DateTimeParseException ex) {
+            try {
+                return Instant.parse(date);
+            } catch (DateTimeParseException ex2) {
+                try {
+                    return LocalDate.parse(date.length() > 10 ? date.substring(0, 10) : date)
+                                    .atStartOfDay(ZoneOffset.UTC).toInstant();
+                } catch (DateTimeParseException ex3) {
+                    return null;
+                }
+            }
+        }
+    }
+}
@@ -2,52 +2,134 @@ package gov.nist.oar.distrib.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpEntity;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A client for retrieving NERDm records from the resolver service.
+ * <p>
+ * Retrieved records are held in an in-memory, least-recently-used cache that is bounded by the
+ * total (serialized) size of the records it holds rather than by the number of records.  A cached
+ * record is returned until it has aged past the configured time-to-live.  When several threads
+ * ask for the same uncached record at the same time (e.g. an rclone crawl walking a dataset's
+ * directories in parallel), only one request is sent to the resolver; the other threads wait for
+ * and share its result.  A directory index built from a record (see
+ * {@link #fetchDirectoryIndex(String)}) is cached with the record; once built, its estimated size
+ * (see {@link NerdmDirectoryIndex#estimateSize()}) counts against the cache's size limit along with
+ * the record's.  If the record and its index together exceed the limit, only the index is kept, so
+ * that directory listings (which only need the index) can still be served from the cache.  This
+ * class is safe for use by multiple threads.
+ */
 public class NerdmDownloadService {
 
+    /**
+     * the default limit on the total size of records held in the cache: 50 MB
+     */
+    public static final long DEF_CACHE_SIZE = 50_000_000L;
+
+    /**
+     * the default time a record can remain in the cache: 5 minutes
+     */
+    public static final Duration DEF_CACHE_TTL = Duration.ofMinutes(5);
+
+    /**
+     * the default maximum number of simultaneous connections to the resolver service
+     */
+    public static final int DEF_MAX_CONNECTIONS = 20;
+
     private final String baseUrl;
     private final CloseableHttpClient httpClient;
     private final ObjectMapper mapper = new ObjectMapper();
-    // Time To Live for each cached entry - 5 minutes
-    private final Duration cacheTTL = Duration.ofMinutes(5);
+    private final Duration cacheTTL;
+    private final long cacheLimit;
 
     private static final Logger logger = LoggerFactory.getLogger(NerdmDownloadService.class);
 
-    // FIFO cache with max size 2.
-    // This uses a LinkedHashMap that holds at most 2 entries.
-    // - The false flag means insertion-order (not access-order), so it's true
-    // FIFO.
-    // - The 0.75f is a required load factor value, but it's ignored here since there is no resize
-    // - When a third entry is added, the oldest one (first inserted) will be
-    // automatically removed.
-    private final Map<String, CachedValue> nerdmCache = new LinkedHashMap<>(2, 0.75f, false) {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, CachedValue> eldest) {
-            return size() > 2;
-        }
-    };
+    // LRU cache: access-ordered, trimmed by total record size in cacheRecord().  All access
+    // must be synchronized on the map itself.
+    private final LinkedHashMap<String, CachedValue> nerdmCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheBytes = 0L;
 
-    public NerdmDownloadService(String baseUrl, CloseableHttpClient httpClient) {
+    // fetches currently in progress, used to coalesce concurrent misses for the same dsid
+    private final ConcurrentHashMap<String, CompletableFuture<CachedValue>> inflight =
+        new ConcurrentHashMap<>();
+
+    /**
+     * create the service
+     * @param baseUrl     the base URL for the resolver service; a dataset identifier appended to
+     *                    it should resolve to the dataset's NERDm record.
+     * @param httpClient  the HTTP client to use to retrieve records
+     * @param cacheLimit  the maximum total size, in bytes, of the records held in the cache,
+     *                    counting serialized JSON plus estimated directory index sizes; if zero
+     *                    or less, no records will be cached.
+     * @param cacheTTL    the maximum time a record may be returned from the cache before it is
+     *                    re-retrieved from the resolver
+     */
+    public NerdmDownloadService(String baseUrl, CloseableHttpClient httpClient,
+                                long cacheLimit, Duration cacheTTL)
+    {
         this.baseUrl = baseUrl;
         this.httpClient = httpClient;
+        this.cacheLimit = cacheLimit;
+        this.cacheTTL = cacheTTL;
+    }
+
+    /**
+     * create the service with default cache limits
+     * @param baseUrl     the base URL for the resolver service
+     * @param httpClient  the HTTP client to use to retrieve records
+     */
+    public NerdmDownloadService(String baseUrl, CloseableHttpClient httpClient) {
+        this(baseUrl, httpClient, DEF_CACHE_SIZE, DEF_CACHE_TTL);
+    }
+
+    /**
+     * create the service using a pooled HTTP client
+     * @param baseUrl     the base URL for the resolver service
+     * @param cacheLimit  the maximum total size, in bytes, of the records (and their directory
+     *                    indexes) held in the cache
+     * @param cacheTTL    the maximum time a record may be returned from the cache
+     * @param maxConns    the maximum number of simultaneous connections to open to the resolver
+     */
+    public NerdmDownloadService(String baseUrl, long cacheLimit, Duration cacheTTL, int maxConns) {
+        this(baseUrl, createPooledClient(maxConns), cacheLimit, cacheTTL);
     }
 
+    /**
+     * create the service using a pooled HTTP client and default cache limits
+     * @param baseUrl     the base URL for the resolver service
+     */
     public NerdmDownloadService(String baseUrl) {
-        this(baseUrl, HttpClients.createDefault());
+        this(baseUrl, DEF_CACHE_SIZE, DEF_CACHE_TTL, DEF_MAX_CONNECTIONS);
+    }
+
+    private static CloseableHttpClient createPooledClient(int maxConns) {
+        if (maxConns < 1)
+            maxConns = DEF_MAX_CONNECTIONS;
+        return HttpClients.custom()
+                          .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                                                                                         .setMaxConnTotal(maxConns)
+                                                                                         .setMaxConnPerRoute(maxConns)
+                                                                                         .build())
+                          .build();
     }
 
     /**
@@ -55,7 +137,8 @@ public class NerdmDownloadService {
      * If the record is already cached and the age of the
      * cached record is less than the cache TTL, that cached value is returned.  If the
      * cached record is old or does not exist, the service is queried and the result is
-     * cached (with a successful or failed result) and returned.
+     * cached and returned.  If another thread is already retrieving the same record, this
+     * method waits for and returns that thread's result.
      *
      * @param dsid  the dataset identifier
      * @return  the JSON representation of the NERDm record of the dataset with the given
@@ -64,55 +147,265 @@ public class NerdmDownloadService {
      *                      return a record for the given dataset
      */
     public JsonNode fetchNerdm(String dsid) throws IOException {
-        Instant now = Instant.now();
-        CachedValue cached = nerdmCache.get(dsid);
+        return fetchCachedValue(dsid, true).data;
+    }
 
-        if (cached != null && Duration.between(cached.timestamp, now).compareTo(cacheTTL) < 0) {
+    /**
+     * Return an index of the directories and downloadable files in the dataset with the given
+     * identifier.  The index is built from the dataset's NERDm record the first time it is
+     * requested and is then cached along with the record (and expires with it).  
+     *
+     * @param dsid  the dataset identifier
+     * @return  the directory index for the dataset
+     * @throws IOException  if a network error occurs or if the NERDm service fails to
+     *                      return a record for the given dataset
+     */
+    public NerdmDirectoryIndex fetchDirectoryIndex(String dsid) throws IOException {
+        CachedValue cached = fetchCachedValue(dsid, false);
+        NerdmDirectoryIndex out = cached.getIndex();
+        accountIndex(dsid, cached);
+        return out;
+    }
+
+    /**
+     * return the cache entry for the given dataset, retrieving the record from the resolver
+     * if necessary.
+     * @param needRecord  if true, an entry holding only the dataset's directory index is not 
+     *                    sufficient; the record will be retrieved (but not cached in place of 
+     *                    the index).
+     */
+    CachedValue fetchCachedValue(String dsid, boolean needRecord) throws IOException {
+        CachedValue cached = getCached(dsid, needRecord);
+        if (cached != null) {
             logger.debug("Returning cached NERDm record for dsid={}", dsid);
-            if (cached.data.isPresent())
-                return cached.data.get();
-            else
-                throw new IOException("Cached NERDm fetch previously failed for dsid=" + dsid);
+            return cached;
+        }
+
+        CompletableFuture<CachedValue> mine = new CompletableFuture<>();
+        CompletableFuture<CachedValue> leader = inflight.putIfAbsent(dsid, mine);
+        if (leader != null) {
+            logger.debug("Waiting on in-progress NERDm fetch for dsid={}", dsid);
+            return awaitFetch(dsid, leader);
+        }
+
+        try {
+            // check again in case a fetch completed while we were setting up
+            cached = getCached(dsid, needRecord);
+            if (cached == null) {
+                cached = load(dsid);
+                cacheRecord(dsid, cached);
+            }
+            mine.complete(cached);
+            return cached;
+        }
+        catch (IOException | RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+        finally {
+            inflight.remove(dsid, mine);
+        }
+    }
+
+    private CachedValue awaitFetch(String dsid, CompletableFuture<CachedValue> fetch) throws IOException {
+        try {
+            return fetch.get();
         }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for NERDm record for dsid=" + dsid, ex);
+        }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof NerdmNotFoundException)
+                throw new NerdmNotFoundException(dsid);
+            if (cause instanceof IOException)
+                throw new IOException(cause.getMessage(), cause);
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException("NERDm fetch failed for dsid=" + dsid + ": " + cause.getMessage(), cause);
+        }
+    }
 
+    /**
+     * retrieve the record from the resolver service, parsing it directly from the response stream
+     */
+    private CachedValue load(String dsid) throws IOException {
         String url = baseUrl.endsWith("/") ? baseUrl + dsid : baseUrl + "/" + dsid;
         logger.info("Fetching NERDm from URL: {}", url);
 
         HttpGet get = new HttpGet(url);
+        return httpClient.execute(get, response -> {
+            int status = response.getCode();
+            logger.debug("Received status {} for dsid={}", status, dsid);
 
-        // Fetch the NERDm record from resolver
-        try {
-            JsonNode result = httpClient.execute(get, response -> {
-                int status = response.getCode();
-                logger.debug("Received status {} for dsid={}", status, dsid);
+            if (status == 404)
+                throw new NerdmNotFoundException(dsid);
+            else if (status != 200)
+                throw new IOException("NERDm fetch failed: HTTP " + status);
+
+            HttpEntity entity = response.getEntity();
+            if (entity == null)
+                throw new IOException("NERDm fetch failed: empty response for dsid=" + dsid);
+
+            try (InputStream is = entity.getContent()) {
+                BoundedInputStream counted = BoundedInputStream.builder().setInputStream(is).get();
+                JsonNode data = mapper.readTree(counted);
+                return new CachedValue(data, counted.getCount(), Instant.now());
+            }
+        });
+    }
+
+    private CachedValue getCached(String dsid, boolean needRecord) {
+        synchronized (nerdmCache) {
+            CachedValue cached = nerdmCache.get(dsid);
+            if (cached == null)
+                return null;
+            if (Duration.between(cached.timestamp, Instant.now()).compareTo(cacheTTL) < 0)
+                return (needRecord && cached.data == null) ? null : cached;
+
+            // expired
+            nerdmCache.remove(dsid);
+            cacheBytes -= cached.weight();
+            return null;
+        }
+    }
+
+    private void cacheRecord(String dsid, CachedValue value) {
+        if (value.size > cacheLimit) {
+            logger.debug("NERDm record for dsid={} too large to cache ({} bytes)", dsid, value.size);
+            return;
+        }
+
+        synchronized (nerdmCache) {
+            CachedValue old = nerdmCache.get(dsid);
+            if (old != null && old.data == null &&
+                Duration.between(old.timestamp, Instant.now()).compareTo(cacheTTL) < 0)
+                // the record did not fit with its index; keep the index
+                return;
+            nerdmCache.put(dsid, value);
+            if (old != null)
+                cacheBytes -= old.weight();
+            cacheBytes += value.weight();
+            trim(value);
+        }
+    }
+
+    /**
+     * add the size of a newly built directory index to the weight of its cache entry.  Nothing is
+     * done if the entry has since been removed from the cache or its index was already counted.
+     */
+    private void accountIndex(String dsid, CachedValue value) {
+        synchronized (nerdmCache) {
+            if (value.indexSize > 0L || nerdmCache.get(dsid) != value)
+                return;
+            value.indexSize = value.getIndex().estimateSize();
+            cacheBytes += value.indexSize;
+            if (value.weight() > cacheLimit) {
+                nerdmCache.remove(dsid);
+                cacheBytes -= value.weight();
+                if (value.indexSize > cacheLimit) {
+                    logger.info("Directory index for dsid={} too large to cache ({} bytes)",
+                                dsid, value.indexSize);
+                    return;
+                }
 
-                if (status == 404)
-                    throw new NerdmNotFoundException(dsid);
-                else if (status != 200)
-                    throw new IOException("NERDm fetch failed: HTTP " + status);
+                logger.info("NERDm record and index for dsid={} too large to cache together ({} bytes); " +
+                            "caching index only", dsid, value.weight());
+                value = value.indexOnly();
+                nerdmCache.put(dsid, value);
+                cacheBytes += value.weight();
+            }
+            trim(value);
+        }
+    }
 
-                String body = EntityUtils.toString(response.getEntity());
-                return mapper.readTree(body);
-            });
+    /**
+     * evict least recently used records until the cache is under its limit.  The caller must
+     * hold the lock on nerdmCache.
+     * @param keep   an entry that should not be evicted
+     */
+    private void trim(CachedValue keep) {
+        Iterator<Map.Entry<String, CachedValue>> it = nerdmCache.entrySet().iterator();
+        while (cacheBytes > cacheLimit && it.hasNext()) {
+            Map.Entry<String, CachedValue> eldest = it.next();
+            if (eldest.getValue() == keep)
+                continue;
+            cacheBytes -= eldest.getValue().weight();
+            it.remove();
+        }
+    }
 
-            nerdmCache.put(dsid, new CachedValue(Optional.of(result), now));
-            return result;
+    /**
+     * remove the record for the given dataset from the cache, if it is there.
+     */
+    public void invalidate(String dsid) {
+        synchronized (nerdmCache) {
+            CachedValue old = nerdmCache.remove(dsid);
+            if (old != null)
+                cacheBytes -= old.weight();
+        }
+    }
 
-        } catch (IOException e) {
-            // logger.error("Error fetching NERDm for dsid={}: {}", dsid, e.getMessage(), e);
-            // nerdmCache.put(dsid, new CachedValue(Optional.empty(), now));
-            throw e;
+    /**
+     * return the number of records currently held in the cache
+     */
+    public int getCachedCount() {
+        synchronized (nerdmCache) {
+            return nerdmCache.size();
         }
     }
 
+    /**
+     * return the total size, in bytes, of the records currently held in the cache:  the size of the
+     * serialized JSON records plus the estimated size of any directory indexes built from them
+     */
+    public long getCachedSize() {
+        synchronized (nerdmCache) {
+            return cacheBytes;
+        }
+    }
 
-    private static class CachedValue {
-        final Optional<JsonNode> data;
+    static class CachedValue {
+        final JsonNode data;     // null if only the directory index is held
+        final long size;
         final Instant timestamp;
 
-        CachedValue(Optional<JsonNode> data, Instant timestamp) {
+        private volatile NerdmDirectoryIndex index = null;
+        long indexSize = 0L;     // guarded by the service's nerdmCache lock
+
+        CachedValue(JsonNode data, long size, Instant timestamp) {
             this.data = data;
+            this.size = size;
             this.timestamp = timestamp;
         }
+
+        /**
+         * return an entry that holds only this entry's directory index (which must already be 
+         * built and accounted for); its record (<code>data</code>) is null.
+         */
+        CachedValue indexOnly() {
+            CachedValue out = new CachedValue(null, 0L, timestamp);
+            out.index = index;
+            out.indexSize = indexSize;
+            return out;
+        }
+
+        /**
+         * the amount this entry counts against the cache's size limit
+         */
+        long weight() { return size + indexSize; }
+
+        NerdmDirectoryIndex getIndex() {
+            NerdmDirectoryIndex out = index;
+            if (out == null) {
+                synchronized (this) {
+                    if (index == null)
+                        index = NerdmDirectoryIndex.fromNerdm(data);
+                    out = index;
+                }
+            }
+            return out;
+        }
     }
-}
\ No newline at end of file
+}
@@ -22,6 +22,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A DataCachingService implementation that leverages the {@link PDRCacheManager} to cache a dataset.
@@ -29,12 +38,32 @@ import java.util.Set;
  * todo@omar: add story/description of the service
  * <p>
  * This implementation uses the {@link PDRCacheManager} to cache a dataset of Restricted Public Data.
+ * A dataset can be cached either synchronously (via {@link #cacheAndGenerateRandomId(String, String)})
+ * or as a tracked background job (via {@link #startCaching(String, String)}), in which case the random 
+ * ID is returned right away and the progress of the caching can be followed via 
+ * {@link #retrieveMetadata(String)}.  Background jobs are run on a bounded pool of threads (see 
+ * {@link RPAConfiguration#getCachingThreads()} and {@link RPAConfiguration#getCachingQueueSize()}).
+ * The state of each job is recorded in the cache's inventory (see 
+ * {@link PDRDatasetCacheManager#saveCachingJob(String, JSONObject)}) so that it is not lost when the 
+ * service is restarted; jobs interrupted by a restart are started over by {@link #resumeJobs()}.  A 
+ * requester waiting on a job (see {@link #notifyWhenCached(String, String)}) is told when it finishes 
+ * via the {@link CachingListener} set with {@link #setCachingListener(CachingListener)}; this, too, is 
+ * recorded so that it survives a restart.
  */
 public class RPACachingService implements DataCachingService, PDRCacheRoles {
 
     public static final int RANDOM_ID_LENGTH = 20;
+
+    /**
+     * how long to remember a finished background caching job
+     */
+    static final long JOB_RETENTION_MILLIS = 24L * 3600L * 1000L;
+
     private PDRDatasetCacheManager pdrCacheManager;
     private RPAConfiguration rpaConfiguration;
+    private ThreadPoolExecutor cachingExecutor = null;
+    private final Map<String, CachingJob> jobs = new ConcurrentHashMap<>();
+    private volatile CachingListener listener = null;
 
     protected static Logger logger = LoggerFactory.getLogger(RPACachingService.class);
 
@@ -50,6 +79,140 @@ public class RPACachingService implements DataCachingService, PDRCacheRoles {
         this.rpaConfiguration = rpaConfiguration;
     }
 
+    /**
+     * a receiver of the news that a dataset someone is waiting on has finished caching (see 
+     * {@link #notifyWhenCached(String, String)}).  It is called on the thread that finished the caching, 
+     * so it should hand off any lengthy work (e.g. sending email).
+     */
+    @FunctionalInterface
+    public interface CachingListener {
+        /**
+         * the caching of a dataset has finished
+         * @param randomId  the temporary random id that the dataset was cached under
+         * @param recordId  the identifier of the request record waiting on the dataset
+         * @param cached    true if the dataset was cached successfully
+         */
+        void cachingFinished(String randomId, String recordId, boolean cached);
+    }
+
+    /**
+     * the state of a dataset being cached in the background (see {@link #startCaching(String, String)}).
+     */
+    public static class CachingJob {
+        public static final String QUEUED = "queued";
+        public static final String CACHING = "caching";
+        public static final String READY = "ready";
+        public static final String FAILED = "failed";
+
+        private final String randomId;
+        private final String dsid;
+        private final String version;
+        private final long created;
+        private volatile String status = QUEUED;
+        private volatile String message = null;
+        private volatile long finished = 0L;
+        private volatile String recordId = null;
+        private final AtomicBoolean notifying = new AtomicBoolean(false);
+        private final ReentrantLock saving = new ReentrantLock();
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        CachingJob(String randomId, String dsid, String version) {
+            this(randomId, dsid, version, System.currentTimeMillis());
+        }
+
+        CachingJob(String randomId, String dsid, String version, long created) {
+            this.randomId = randomId;
+            this.dsid = dsid;
+            this.version = version;
+            this.created = created;
+        }
+
+        /**
+         * recreate a job from its recorded state (see {@link #toRecord()}).  If the recorded job had 
+         * finished, the returned job is done; otherwise, it is queued.
+         */
+        static CachingJob fromRecord(String randomId, JSONObject rec) {
+            CachingJob out = new CachingJob(randomId, rec.getString("dsid"), rec.optString("version", null),
+                                            rec.optLong("since", System.currentTimeMillis()));
+            out.recordId = rec.optString("recordid", null);
+            String status = rec.optString("status", QUEUED);
+            if (READY.equals(status) || FAILED.equals(status)) {
+                out.status = status;
+                out.message = rec.optString("message", null);
+                out.finished = rec.optLong("finished", System.currentTimeMillis());
+                out.done.complete(READY.equals(status));
+            }
+            return out;
+        }
+
+        public String getRandomId() { return randomId; }
+        public String getDatasetId() { return dsid; }
+
+        /**
+         * return the identifier of the request record whose requester is waiting to be told that this 
+         * job has finished, or null if there is none (or the requester has already been told)
+         */
+        public String getRecordId() { return recordId; }
+        public String getStatus() { return status; }
+
+        /**
+         * return an explanation of why the caching failed, or null if it has not failed
+         */
+        public String getMessage() { return message; }
+
+        public boolean isDone() { return done.isDone(); }
+        public boolean isFailed() { return FAILED.equals(status); }
+
+        /**
+         * return a handle that completes when the caching finishes; its value is true if the dataset 
+         * was cached successfully.
+         */
+        public CompletableFuture<Boolean> whenDone() { return done; }
+
+        void started() { status = CACHING; }
+
+        /**
+         * record the outcome of the job; call {@link #release()} to signal its waiters.
+         */
+        void finished(String failure) {
+            message = failure;
+            status = (failure == null) ? READY : FAILED;
+            finished = System.currentTimeMillis();
+        }
+
+        void release() { done.complete(READY.equals(status)); }
+
+        /**
+         * return the state of the job in the form saved to the inventory
+         */
+        JSONObject toRecord() {
+            JSONObject out = new JSONObject();
+            out.put("dsid", dsid);
+            if (version != null)
+                out.put("version", version);
+            out.put("status", status);
+            if (message != null)
+                out.put("message", message);
+            out.put("since", created);
+            out.put("finished", finished);
+            if (recordId != null)
+                out.put("recordid", recordId);
+            return out;
+        }
+
+        JSONObject toJSON() {
+            JSONObject out = new JSONObject();
+            out.put("status", status);
+            out.put("ready", READY.equals(status));
+            out.put("requested", created);
+            if (finished > 0L)
+                out.put("finished", finished);
+            if (message != null)
+                out.put("message", message);
+            return out;
+        }
+    }
+
     /**
      * Cache all data that is part of the given version of a dataset, and generate a temporary random id.
      *
@@ -63,6 +226,276 @@ public class RPACachingService implements DataCachingService, PDRCacheRoles {
 
         logger.debug("Request to cache dataset with ID=" + datasetID);
 
+        String dsid = parseDatasetID(datasetID);
+        // append "rpa-" with the generated random ID
+        String randomID = "rpa-" + generateRandomID(RANDOM_ID_LENGTH, true, true);
+
+        cacheDatasetAs(dsid, version, randomID);
+
+        // record it so that it can be asked about like a background job
+        CachingJob job = new CachingJob(randomID, dsid, version);
+        job.finished(null);
+        persist(job);
+        job.release();
+        jobs.put(randomID, job);
+        return randomID;
+    }
+
+    /**
+     * Start caching all data that is part of the given version of a dataset in the background, returning 
+     * right away with the temporary random id that the cached data will be available under.  The progress 
+     * of the caching can be followed via {@link #retrieveMetadata(String)} or {@link #getCachingJob(String)}.
+     *
+     * @param datasetID the identifier for the dataset.
+     * @param version   the version of the dataset to cache.  If null, the latest is cached.
+     * @return String -- the temporary random that will be used to fetch metadata.
+     * @throws CacheManagementException if the dataset cannot be queued for caching because too many 
+     *                                  datasets are already waiting to be cached
+     */
+    public String startCaching(String datasetID, String version)
+            throws CacheManagementException, IllegalArgumentException {
+
+        logger.debug("Request to cache dataset in the background with ID=" + datasetID);
+
+        String dsid = parseDatasetID(datasetID);
+        String randomID = "rpa-" + generateRandomID(RANDOM_ID_LENGTH, true, true);
+
+        purgeFinishedJobs();
+        CachingJob job = new CachingJob(randomID, dsid, version);
+        jobs.put(randomID, job);
+        persist(job);
+        try {
+            getCachingExecutor().execute(() -> runCachingJob(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(randomID);
+            forget(randomID);
+            throw new CacheManagementException("Too many datasets waiting to be cached; unable to cache " +
+                    datasetID + " at this time");
+        }
+        return randomID;
+    }
+
+    /**
+     * Return the caching job for the dataset being cached under the given random id, or null if no such 
+     * job is known (e.g. because it was cached long ago).  If the job was recorded before the service was 
+     * last restarted and did not finish, it is started over.
+     */
+    public CachingJob getCachingJob(String randomID) {
+        CachingJob job = jobs.get(randomID);
+        if (job != null)
+            return job;
+
+        JSONObject rec = null;
+        try {
+            rec = pdrCacheManager.getCachingJob(randomID);
+        } catch (CacheManagementException e) {
+            logger.warn("Unable to look up caching job {}: {}", randomID, e.getMessage());
+        }
+        if (rec == null)
+            return null;
+
+        CachingJob found = CachingJob.fromRecord(randomID, rec);
+        job = jobs.putIfAbsent(randomID, found);
+        if (job != null)
+            return job;
+        if (! found.isDone())
+            restart(found);
+        return found;
+    }
+
+    /**
+     * Resume the work left unfinished when the service was last stopped:  caching jobs that were 
+     * interrupted are started over, and requesters of jobs that finished without their being told (see 
+     * {@link #notifyWhenCached(String, String)}) are told.  This should be called once, when the service 
+     * starts up.
+     *
+     * @return int -- the number of jobs resumed
+     */
+    public int resumeJobs() {
+        List<JSONObject> pending = null;
+        try {
+            pending = pdrCacheManager.getPendingCachingJobs();
+        } catch (CacheManagementException e) {
+            logger.error("Unable to look up unfinished caching jobs: {}", e.getMessage());
+            return 0;
+        }
+
+        int count = 0;
+        for (JSONObject rec : pending) {
+            CachingJob job = CachingJob.fromRecord(rec.getString("jobid"), rec);
+            if (jobs.putIfAbsent(job.randomId, job) != null)
+                continue;
+            count++;
+            if (job.isDone())
+                notifyRequester(job);
+            else
+                restart(job);
+        }
+        if (count > 0)
+            logger.info("Resumed {} unfinished caching job{}", count, (count == 1) ? "" : "s");
+        return count;
+    }
+
+    /**
+     * start over a job that was interrupted by a restart of the service
+     */
+    private void restart(CachingJob job) {
+        logger.info("Restarting interrupted caching of dataset {} as {}", job.dsid, job.randomId);
+        try {
+            getCachingExecutor().execute(() -> runCachingJob(job));
+        } catch (RejectedExecutionException e) {
+            // leave it recorded as unfinished so that it is tried again later
+            jobs.remove(job.randomId, job);
+            job.finished("Too many datasets waiting to be cached");
+            job.release();
+        }
+    }
+
+    /**
+     * Set the receiver of the news that datasets that requesters are waiting on have finished caching.
+     * Requesters of jobs that have already finished (e.g. ones resumed by {@link #resumeJobs()}) are 
+     * told right away.
+     */
+    public void setCachingListener(CachingListener listener) {
+        this.listener = listener;
+        for (CachingJob job : jobs.values())
+            notifyRequester(job);
+    }
+
+    /**
+     * Arrange for the requester of the given request record to be told, via the {@link CachingListener}, 
+     * when the dataset being cached under the given random id has finished caching.  The arrangement is 
+     * recorded with the job so that it is kept across restarts of the service.  If the caching has 
+     * already finished, the requester is told right away.
+     *
+     * @param randomID  the temporary random id the dataset is being cached under
+     * @param recordId  the identifier of the request record
+     * @return boolean -- false if no caching is known for the random id
+     */
+    public boolean notifyWhenCached(String randomID, String recordId) {
+        CachingJob job = getCachingJob(randomID);
+        if (job == null)
+            return false;
+        job.recordId = recordId;
+        persist(job);
+        notifyRequester(job);
+        return true;
+    }
+
+    /**
+     * Return a handle that completes when the dataset being cached under the given random id has finished 
+     * caching; its value is true if the caching succeeded.  The handle is not remembered across restarts 
+     * of the service; use {@link #notifyWhenCached(String, String)} to have a requester told reliably.  If no caching is known for the id, the 
+     * dataset is considered not cached, and the returned handle is already complete with the value false.
+     */
+    public CompletableFuture<Boolean> whenCached(String randomID) {
+        CachingJob job = getCachingJob(randomID);
+        if (job == null) {
+            logger.warn("No record of caching a dataset as {}; assuming it is not cached", randomID);
+            return CompletableFuture.completedFuture(false);
+        }
+        return job.whenDone();
+    }
+
+    private void runCachingJob(CachingJob job) {
+        job.started();
+        persist(job);
+        try {
+            cacheDatasetAs(job.dsid, job.version, job.randomId);
+            job.finished(null);
+            logger.info("Finished caching dataset {} as {}", job.dsid, job.randomId);
+        } catch (Exception e) {
+            logger.error("Failed to cache dataset {} as {}: {}", job.dsid, job.randomId, e.getMessage(), e);
+            job.finished((e.getMessage() != null) ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        persist(job);
+        job.release();
+        notifyRequester(job);
+    }
+
+    /**
+     * tell the requester waiting on a job, if any, that the job has finished.  This does nothing if 
+     * the job has not finished, no one is waiting on it, or no listener has been set yet.
+     */
+    private void notifyRequester(CachingJob job) {
+        CachingListener lsnr = listener;
+        String recordId = job.recordId;
+        if (lsnr == null || recordId == null || ! job.isDone() || ! job.notifying.compareAndSet(false, true))
+            return;
+
+        try {
+            lsnr.cachingFinished(job.randomId, recordId, ! job.isFailed());
+        } catch (RuntimeException e) {
+            logger.error("Failed to notify requester of record {} of cached dataset {}: {}",
+                         recordId, job.randomId, e.getMessage(), e);
+            job.notifying.set(false);
+            return;
+        }
+        job.recordId = null;
+        persist(job);
+    }
+
+    /**
+     * save the state of a job to the cache's inventory
+     */
+    private void persist(CachingJob job) {
+        // keep concurrent updates of the same job from being saved out of order
+        job.saving.lock();
+        try {
+            pdrCacheManager.saveCachingJob(job.randomId, job.toRecord());
+        } catch (CacheManagementException e) {
+            logger.warn("Unable to record state of caching job {}: {}", job.randomId, e.getMessage());
+        }
+        finally {
+            job.saving.unlock();
+        }
+    }
+
+    /**
+     * remove the record of a job from the cache's inventory
+     */
+    private void forget(String randomID) {
+        try {
+            pdrCacheManager.removeCachingJob(randomID);
+        } catch (CacheManagementException e) {
+            logger.warn("Unable to remove record of caching job {}: {}", randomID, e.getMessage());
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - JOB_RETENTION_MILLIS;
+        jobs.values().removeIf(j -> j.finished > 0L && j.finished < cutoff);
+        try {
+            pdrCacheManager.removeFinishedCachingJobs(cutoff);
+        } catch (CacheManagementException e) {
+            logger.warn("Unable to purge records of finished caching jobs: {}", e.getMessage());
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getCachingExecutor() {
+        if (cachingExecutor == null) {
+            int nthreads = rpaConfiguration.getCachingThreads();
+            if (nthreads <= 0)
+                nthreads = 2;
+            int qsize = rpaConfiguration.getCachingQueueSize();
+            if (qsize <= 0)
+                qsize = 100;
+            AtomicInteger count = new AtomicInteger(0);
+            cachingExecutor = new ThreadPoolExecutor(nthreads, nthreads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(qsize), r -> {
+                        Thread t = new Thread(r, "rpa-cacher-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            cachingExecutor.allowCoreThreadTimeOut(true);
+        }
+        return cachingExecutor;
+    }
+
+    /**
+     * convert the given dataset identifier (which may be an ARK ID) into the local form used by the cache
+     */
+    private String parseDatasetID(String datasetID) throws IllegalArgumentException {
         // this is to handle ark IDs
         String dsid = datasetID;
         if (datasetID.startsWith("ark:/")) {
@@ -73,11 +506,15 @@ public class RPACachingService implements DataCachingService, PDRCacheRoles {
             }
             dsid = parts[2];
         }
+        return dsid;
+    }
 
+    /**
+     * cache the given dataset under the given random id
+     */
+    private Set<String> cacheDatasetAs(String dsid, String version, String randomID)
+            throws CacheManagementException, ResourceNotFoundException, StorageVolumeException {
         logger.debug("Caching dataset with dsid=" + dsid);
-        // append "rpa-" with the generated random ID
-        String randomID = "rpa-" + generateRandomID(RANDOM_ID_LENGTH, true, true);
-
 
         int prefs = ROLE_RESTRICTED_DATA;
         if (version != null && !version.isEmpty())
@@ -90,19 +527,27 @@ public class RPACachingService implements DataCachingService, PDRCacheRoles {
         for (String file : files) {
             logger.debug("- " + file);
         }
-        return randomID;
+        return files;
     }
 
 
     /**
      * Retrieve metadata given the random id that was previously generated and used to cache the dataset.
+     * If the dataset is still being cached in the background, the result will describe only the files 
+     * cached so far, and its <code>ready</code> property will be false; it will also include the 
+     * <code>status</code> of the caching and the number of files and bytes cached so far.
      *
      * @param randomID the random ID used to cache the dataset.
      * @return Map<String, Object> -- metadata about files in dataset
+     * @throws RequestProcessingException if the background caching of the dataset failed
      */
     public Map<String, Object> retrieveMetadata(String randomID) throws CacheManagementException,
             MetadataNotFoundException, RequestProcessingException {
         logger.debug("Requesting metadata for temporary ID=" + randomID);
+        CachingJob job = getCachingJob(randomID);
+        if (job != null && job.isFailed())
+            throw new RequestProcessingException("Caching of dataset failed: " + job.getMessage());
+
         JSONArray metadata = new JSONArray();
         List<CacheObject> objects = this.pdrCacheManager.selectDatasetObjects(randomID,
                 this.pdrCacheManager.VOL_FOR_GET);
@@ -116,10 +561,25 @@ public class RPACachingService implements DataCachingService, PDRCacheRoles {
                 }
             }
         }
+        JSONObject result = new JSONObject();
+        if (job != null && ! job.isDone()) {
+            // report progress so far
+            long bytes = 0L;
+            for (int i = 0; i < metadata.length(); i++)
+                bytes += metadata.getJSONObject(i).optLong("size", 0L);
+            result = job.toJSON();
+            result.put("filesCached", metadata.length());
+            result.put("bytesCached", bytes);
+            result.put("randomId", randomID);
+            result.put("metadata", metadata);
+            return result.toMap();
+        }
+
         if (metadata.isEmpty()) {
             throw new MetadataNotFoundException("metadata list is empty");
         }
-        JSONObject result = new JSONObject();
+        if (job != null)
+            result = job.toJSON();
         result.put("randomId", randomID);
         result.put("metadata", metadata);
         // Log the JSON object
@@ -286,17 +746,20 @@ public class RPACachingService implements DataCachingService, PDRCacheRoles {
         }
 
         logger.debug("Request to uncache dataset with ID=" + randomId);
+        jobs.remove(randomId);
+        forget(randomId);
+
+        // Release any aliases to shared copies; the copies themselves expire once unreferenced
+        boolean isUncached = this.pdrCacheManager.releaseAliases(randomId) > 0;
 
-        // Retrieve dataset objects using the randomId
+        // Retrieve dataset objects cached directly under the randomId
         List<CacheObject> objects = this.pdrCacheManager.selectDatasetObjects(randomId, this.pdrCacheManager.VOL_FOR_INFO);
 
         if (objects.isEmpty()) {
             logger.debug("No objects found for ID=" + randomId);
-            return false;
+            return isUncached;
         }
 
-        boolean isUncached = false;
-
         // Iterate through the retrieved objects and attempt to uncache them
         for (CacheObject obj : objects) {
             try {
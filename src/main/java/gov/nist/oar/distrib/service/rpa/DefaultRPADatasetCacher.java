@@ -5,6 +5,8 @@ import gov.nist.oar.distrib.service.rpa.exceptions.RequestProcessingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 
 /**
  * An implementation of the {@link RPADatasetCacher} interface that uses {@link RPACachingService} to cache datasets.
@@ -40,6 +42,38 @@ public class DefaultRPADatasetCacher implements RPADatasetCacher {
         return randomId;
     }
 
+    /**
+     * Starts caching the dataset with the given ID in the background using the {@link RPACachingService}.
+     *
+     * @param datasetId the ID of the dataset to cache
+     * @return a random ID generated by the RPA caching service to represent the cached dataset
+     * @throws RequestProcessingException if the dataset could not be queued for caching
+     */
+    @Override
+    public String startCaching(String datasetId) throws RequestProcessingException {
+        try {
+            // null selects the latest version (see cache() above)
+            return rpaCachingService.startCaching(datasetId, null);
+        } catch (Exception e) {
+            this.logCachingException(e);
+            throw new RequestProcessingException(e.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> whenCached(String randomId) {
+        return rpaCachingService.whenCached(randomId);
+    }
+
+    /**
+     * Arranges, via {@link RPACachingService#notifyWhenCached(String, String)}, for the requester of the 
+     * given record to be told when the dataset has been cached.
+     */
+    @Override
+    public boolean notifyWhenCached(String randomId, String recordId) {
+        return rpaCachingService.notifyWhenCached(randomId, recordId);
+    }
+
     @Override
     public boolean uncache(String randomId) {
         boolean uncached = false;
@@ -39,6 +39,7 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -656,10 +657,11 @@ public class HttpURLConnectionRPARequestHandlerService implements RPARequestHand
         String datasetId = record.getUserInfo().getSubject();
         String randomId = null;
 
-        // If the record is being approved
+        // If the record is being approved, start caching the dataset in the background; the random ID
+        // is issued right away so that it can be recorded with the approval.
         if (RECORD_APPROVED_STATUS.equalsIgnoreCase(status)) {
             LOGGER.info("Starting caching...");
-            randomId = this.rpaDatasetCacher.cache(datasetId);
+            randomId = this.rpaDatasetCacher.startCaching(datasetId);
             if (randomId == null) {
                 throw new RequestProcessingException("Caching process returned a null randomId");
             }
@@ -732,7 +734,13 @@ public class HttpURLConnectionRPARequestHandlerService implements RPARequestHand
 
         // Check if status is approved
         if (recordStatus.getApprovalStatus().toLowerCase().contains("approved")) {
-            this.recordResponseHandler.onRecordUpdateApproved(record, randomId);
+            // send the download link once the dataset has finished caching; the cacher remembers to do
+            // this across restarts (see handleAfterCaching())
+            if (! this.rpaDatasetCacher.notifyWhenCached(randomId, recordId)) {
+                // this cacher caches synchronously, so the dataset is ready now
+                CompletableFuture<Boolean> cached = this.rpaDatasetCacher.whenCached(randomId);
+                this.handleAfterCaching(recordId, randomId, Boolean.TRUE.equals(cached.getNow(false)));
+            }
         } else {
             this.recordResponseHandler.onRecordUpdateDeclined(record);
         }
@@ -740,6 +748,29 @@ public class HttpURLConnectionRPARequestHandlerService implements RPARequestHand
         return recordStatus;
     }
 
+    /**
+     * Notifies the requester of an approved record that the dataset has finished caching, sending the
+     * download link if the caching succeeded.
+     *
+     * @param recordId The ID of the approved record.
+     * @param randomId The temporary random ID that the dataset was cached under.
+     * @param cached   True if the dataset was cached successfully.
+     * @throws RecordNotFoundException    If the record is not found.
+     * @throws RequestProcessingException If there is an error retrieving the record.
+     */
+    @Override
+    public void handleAfterCaching(String recordId, String randomId, boolean cached)
+            throws RecordNotFoundException, RequestProcessingException {
+        Record record = this.getRecord(recordId).getRecord();
+        if (cached) {
+            this.recordResponseHandler.onRecordUpdateApproved(record, randomId);
+        } else {
+            LOGGER.error("Caching of dataset {} failed for approved record {}",
+                    record.getUserInfo().getSubject(), recordId);
+            this.recordResponseHandler.onFailure(record);
+        }
+    }
+
     private String extractRandomIdFromCurrentStatus(String currentStatus) {
         if (currentStatus != null && currentStatus.startsWith("Approved_")) {
             String[] parts = currentStatus.split("_");
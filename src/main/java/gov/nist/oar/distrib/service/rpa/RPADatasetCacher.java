@@ -2,6 +2,8 @@ package gov.nist.oar.distrib.service.rpa;
 
 import gov.nist.oar.distrib.service.rpa.exceptions.RequestProcessingException;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface RPADatasetCacher for caching datasets
  */
@@ -15,5 +17,43 @@ public interface RPADatasetCacher {
      */
     String cache(String datasetId) throws RequestProcessingException;
 
+    /**
+     * Method to start caching a dataset using a given dataset ID, returning before the caching is
+     * necessarily complete.  Use {@link #whenCached(String)} to learn when the caching is done.  This
+     * default implementation caches the dataset synchronously via {@link #cache(String)}.
+     *
+     * @param datasetId the ID of the dataset to cache
+     * @return the randomId that the cached dataset will be available under
+     * @throws RequestProcessingException
+     */
+    default String startCaching(String datasetId) throws RequestProcessingException {
+        return cache(datasetId);
+    }
+
+    /**
+     * Return a handle that completes when the caching started by {@link #startCaching(String)} is
+     * done; its value is true if the dataset was cached successfully.  This default implementation
+     * returns a handle that is already complete.
+     *
+     * @param randomId the ID returned by {@link #startCaching(String)}
+     */
+    default CompletableFuture<Boolean> whenCached(String randomId) {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Arrange for the requester of the given request record to be told when the caching started by
+     * {@link #startCaching(String)} is done, in a way that survives a restart of the service.  This 
+     * default implementation makes no such arrangement and returns false, leaving it to the caller to
+     * tell the requester (e.g. via {@link #whenCached(String)}).
+     *
+     * @param randomId the ID returned by {@link #startCaching(String)}
+     * @param recordId the ID of the request record
+     * @return true if the requester will be told, false if the caller must tell the requester itself
+     */
+    default boolean notifyWhenCached(String randomId, String recordId) {
+        return false;
+    }
+
     boolean uncache(String randomId);
 }
@@ -68,4 +68,17 @@ public interface RPARequestHandler {
         public void handleAfterRecordCreation(RecordWrapper wrapper, UserInfoWrapper input, int code)
                         throws RequestProcessingException;
 
+        /**
+         * Handles the completion of the caching of a dataset for an approved record by notifying the
+         * requester of the outcome.
+         *
+         * @param recordId The ID of the approved record.
+         * @param randomId The temporary random ID that the dataset was cached under.
+         * @param cached   True if the dataset was cached successfully.
+         * @throws RecordNotFoundException    If the record is not found.
+         * @throws RequestProcessingException If an error occurs while notifying the requester.
+         */
+        public void handleAfterCaching(String recordId, String randomId, boolean cached)
+                        throws RecordNotFoundException, RequestProcessingException;
+
 }
@@ -19,6 +19,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Pattern;
 
 import gov.nist.oar.bags.preservation.BagUtils;
@@ -27,6 +28,8 @@ import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.StorageStateException;
 import gov.nist.oar.distrib.StorageVolumeException;
 import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
@@ -52,6 +55,7 @@ public class AWSS3LongTermStorage extends PDRBagStorageBase {
 
     public final String bucket;
     protected S3Client s3client;
+    protected S3AsyncClient asyncClient = null;
     protected Integer pagesz = null; // null means use default page size
     private long checksumSizeLim = defaultChecksumSizeLimit;
 
@@ -64,6 +68,15 @@ public class AWSS3LongTermStorage extends PDRBagStorageBase {
         pagesz = sz;
     }
 
+    /**
+     * set an asynchronous client to use to read files.  An asynchronous client (particularly one 
+     * backed by the AWS Common Runtime) can deliver higher throughput for large files.  If null, 
+     * files will be read with the synchronous client provided at construction.
+     */
+    public void setAsyncClient(S3AsyncClient client) {
+        asyncClient = client;
+    }
+
     /**
      * create the storage instance
      * 
@@ -132,6 +145,8 @@ public class AWSS3LongTermStorage extends PDRBagStorageBase {
     public InputStream openFile(String filename) throws FileNotFoundException, StorageVolumeException {
         try {
             GetObjectRequest request = GetObjectRequest.builder().bucket(bucket).key(filename).build();
+            if (asyncClient != null)
+                return openFileAsync(request);
             ResponseInputStream<GetObjectResponse> response = s3client.getObject(request);
             return response;
         } catch (NoSuchKeyException ex) {
@@ -141,6 +156,16 @@ public class AWSS3LongTermStorage extends PDRBagStorageBase {
         }
     }
 
+    private InputStream openFileAsync(GetObjectRequest request) {
+        try {
+            return asyncClient.getObject(request, AsyncResponseTransformer.toBlockingInputStream()).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof S3Exception)
+                throw (S3Exception) ex.getCause();
+            throw ex;
+        }
+    }
+
     /**
      * return the checksum for the given file
      * 
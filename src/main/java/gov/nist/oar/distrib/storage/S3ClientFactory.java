@@ -0,0 +1,272 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.storage;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.S3CrtAsyncClientBuilder;
+import software.amazon.awssdk.services.s3.crt.S3CrtHttpConfiguration;
+
+/**
+ * a factory for S3 clients with a tuned HTTP connection pool.
+ * <p>
+ * The SDK's default HTTP client allows only 50 concurrent connections per client and waits
+ * indefinitely-long for a free one; under heavy download and caching load, this becomes the
+ * bottleneck.  This factory creates clients with a configurable pool size, connection-acquisition
+ * timeout, socket timeouts, and TCP keep-alive, and it attaches a publisher from an
+ * {@link S3PoolMetrics} to each so that the state of the pools can be monitored.  Each client is
+ * created with a name (e.g. "lts" for the long-term storage client) that identifies its pool in
+ * the metrics.
+ * <p>
+ * Asynchronous clients, appropriate for large transfers, can be created via
+ * {@link #createAsyncClient(String,String,int)}, either backed by Netty or by the AWS Common Runtime
+ * (CRT).  Note that the latter requires the optional {@code software.amazon.awssdk.crt:aws-crt}
+ * library to be available at runtime.
+ */
+public class S3ClientFactory {
+
+    protected AwsCredentialsProvider credProvider = null;
+    protected String region = null;
+    protected String endpoint = null;
+    protected S3PoolMetrics metrics = null;
+
+    private int maxConns = 200;
+    private Duration acquireTimeout = Duration.ofSeconds(10);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration socketTimeout = Duration.ofSeconds(30);
+    private Duration maxIdleTime = Duration.ofSeconds(60);
+    private boolean tcpKeepAlive = true;
+    private boolean checksumValidation = true;
+
+    static Logger log = LoggerFactory.getLogger(S3ClientFactory.class);
+
+    /**
+     * create the factory
+     * @param creds    the credentials to use to connect to S3
+     * @param region   the AWS region to connect to
+     * @param metrics  the collector to send connection pool statistics to; if null, a new one
+     *                   will be created.
+     */
+    public S3ClientFactory(AwsCredentialsProvider creds, String region, S3PoolMetrics metrics) {
+        this(creds, region, null, metrics);
+    }
+
+    /**
+     * create the factory for clients that connect to a custom endpoint (e.g. a mock S3 service)
+     * @param creds     the credentials to use to connect to S3
+     * @param region    the AWS region to connect to
+     * @param endpoint  the custom endpoint URL; if null, the default AWS endpoint will be used.
+     * @param metrics   the collector to send connection pool statistics to; if null, a new one
+     *                    will be created.
+     */
+    public S3ClientFactory(AwsCredentialsProvider creds, String region, String endpoint,
+                           S3PoolMetrics metrics)
+    {
+        credProvider = creds;
+        this.region = region;
+        this.endpoint = endpoint;
+        if (metrics == null)
+            metrics = new S3PoolMetrics();
+        this.metrics = metrics;
+    }
+
+    /**
+     * return the collector of connection pool statistics for the clients created by this factory
+     */
+    public S3PoolMetrics getMetrics() { return metrics; }
+
+    /**
+     * return the default maximum number of connections a client's pool may hold open
+     */
+    public int getMaxConnections() { return maxConns; }
+
+    /**
+     * set the default maximum number of connections a client's pool may hold open
+     */
+    public void setMaxConnections(int max) {
+        if (max <= 0)
+            throw new IllegalArgumentException("setMaxConnections(): max must be positive");
+        maxConns = max;
+    }
+
+    /**
+     * return the maximum time a request will wait for a connection from the pool to become free
+     */
+    public Duration getConnectionAcquisitionTimeout() { return acquireTimeout; }
+
+    /**
+     * set the maximum time a request will wait for a connection from the pool to become free
+     */
+    public void setConnectionAcquisitionTimeout(Duration timeout) { acquireTimeout = timeout; }
+
+    /**
+     * return the maximum time to wait while establishing a new connection
+     */
+    public Duration getConnectionTimeout() { return connectTimeout; }
+
+    /**
+     * set the maximum time to wait while establishing a new connection
+     */
+    public void setConnectionTimeout(Duration timeout) { connectTimeout = timeout; }
+
+    /**
+     * return the maximum time to wait for data on an open connection
+     */
+    public Duration getSocketTimeout() { return socketTimeout; }
+
+    /**
+     * set the maximum time to wait for data on an open connection
+     */
+    public void setSocketTimeout(Duration timeout) { socketTimeout = timeout; }
+
+    /**
+     * return the time after which an idle connection is closed
+     */
+    public Duration getConnectionMaxIdleTime() { return maxIdleTime; }
+
+    /**
+     * set the time after which an idle connection is closed
+     */
+    public void setConnectionMaxIdleTime(Duration time) { maxIdleTime = time; }
+
+    /**
+     * return true if TCP keep-alive is enabled on pooled connections
+     */
+    public boolean isTcpKeepAlive() { return tcpKeepAlive; }
+
+    /**
+     * set whether TCP keep-alive should be enabled on pooled connections
+     */
+    public void setTcpKeepAlive(boolean keepalive) { tcpKeepAlive = keepalive; }
+
+    /**
+     * return true if the clients will validate the checksums of data transferred
+     */
+    public boolean isChecksumValidation() { return checksumValidation; }
+
+    /**
+     * set whether the clients will validate the checksums of data transferred
+     */
+    public void setChecksumValidation(boolean validate) { checksumValidation = validate; }
+
+    /**
+     * create a synchronous client whose pool is limited to the default maximum number of connections
+     * @param name   the name to identify the client's pool by in the metrics
+     */
+    public S3Client createClient(String name) {
+        return createClient(name, maxConns);
+    }
+
+    /**
+     * create a synchronous client
+     * @param name      the name to identify the client's pool by in the metrics
+     * @param maxConns  the maximum number of connections the client's pool may hold open
+     */
+    public S3Client createClient(String name, int maxConns) {
+        log.info("Creating S3 client, {}, with up to {} connections", name, maxConns);
+        ApacheHttpClient.Builder http = ApacheHttpClient.builder()
+                                                        .maxConnections(maxConns)
+                                                        .connectionAcquisitionTimeout(acquireTimeout)
+                                                        .connectionTimeout(connectTimeout)
+                                                        .socketTimeout(socketTimeout)
+                                                        .connectionMaxIdleTime(maxIdleTime)
+                                                        .tcpKeepAlive(tcpKeepAlive)
+                                                        .useIdleConnectionReaper(true);
+
+        S3ClientBuilder builder = S3Client.builder()
+                                          .httpClientBuilder(http)
+                                          .credentialsProvider(credProvider)
+                                          .region(Region.of(region))
+                                          .serviceConfiguration(serviceConfiguration())
+                                          .overrideConfiguration(overrides(name));
+        if (endpoint != null)
+            builder.endpointOverride(URI.create(endpoint));
+        return builder.build();
+    }
+
+    /**
+     * create an asynchronous client
+     * @param name            the name to identify the client's pool by in the metrics
+     * @param type            the type of HTTP client to use, either "netty" or "crt"
+     * @param maxConcurrency  the maximum number of concurrent requests the client may make
+     * @throws IllegalArgumentException  if type is not one of the recognized values
+     */
+    public S3AsyncClient createAsyncClient(String name, String type, int maxConcurrency) {
+        log.info("Creating {} asynchronous S3 client, {}, with up to {} connections",
+                 type, name, maxConcurrency);
+
+        if ("crt".equalsIgnoreCase(type)) {
+            // the CRT client manages its own connections and does not publish SDK metrics
+            S3CrtAsyncClientBuilder builder = S3AsyncClient.crtBuilder()
+                                                           .credentialsProvider(credProvider)
+                                                           .region(Region.of(region))
+                                                           .maxConcurrency(maxConcurrency)
+                                                           .checksumValidationEnabled(checksumValidation)
+                                                           .httpConfiguration(
+                                                               S3CrtHttpConfiguration.builder()
+                                                                   .connectionTimeout(connectTimeout)
+                                                                   .build());
+            if (endpoint != null)
+                builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+            return builder.build();
+        }
+        else if ("netty".equalsIgnoreCase(type)) {
+            NettyNioAsyncHttpClient.Builder http =
+                NettyNioAsyncHttpClient.builder()
+                                       .maxConcurrency(maxConcurrency)
+                                       .connectionAcquisitionTimeout(acquireTimeout)
+                                       .connectionTimeout(connectTimeout)
+                                       .readTimeout(socketTimeout)
+                                       .connectionMaxIdleTime(maxIdleTime)
+                                       .tcpKeepAlive(tcpKeepAlive);
+
+            S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                                                        .httpClientBuilder(http)
+                                                        .credentialsProvider(credProvider)
+                                                        .region(Region.of(region))
+                                                        .serviceConfiguration(serviceConfiguration())
+                                                        .overrideConfiguration(overrides(name));
+            if (endpoint != null)
+                builder.endpointOverride(URI.create(endpoint));
+            return builder.build();
+        }
+
+        throw new IllegalArgumentException("Unsupported asynchronous S3 client type: " + type);
+    }
+
+    private S3Configuration serviceConfiguration() {
+        return S3Configuration.builder()
+                              .checksumValidationEnabled(checksumValidation)
+                              .pathStyleAccessEnabled(endpoint != null)
+                              .build();
+    }
+
+    private ClientOverrideConfiguration overrides(String name) {
+        return ClientOverrideConfiguration.builder()
+                                          .addMetricPublisher(metrics.publisherFor(name))
+                                          .build();
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.storage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * a collector of connection-pool statistics for the S3 clients created by an {@link S3ClientFactory}.
+ * <p>
+ * The AWS SDK reports the state of a client's HTTP connection pool with the metrics it collects for
+ * each API call.  This class provides a {@link MetricPublisher} for each named client (via
+ * {@link #publisherFor(String)}) that records the most recently reported pool state--the maximum,
+ * leased, and available connections and the number of requests waiting for a connection--along with
+ * running totals of calls made and of the time spent waiting to acquire connections.  A snapshot of
+ * all pools is available via {@link #getStatus()}.
+ */
+public class S3PoolMetrics {
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+
+    /**
+     * the statistics for a single client's connection pool
+     */
+    public static class Pool implements MetricPublisher {
+        final String name;
+        volatile int maxConnections = 0;
+        volatile int leased = 0;
+        volatile int available = 0;
+        volatile int pending = 0;
+        final AtomicLong calls = new AtomicLong(0L);
+        final AtomicLong waited = new AtomicLong(0L);
+        final AtomicLong acquireNanos = new AtomicLong(0L);
+        final AtomicLong maxAcquireNanos = new AtomicLong(0L);
+
+        Pool(String name) { this.name = name; }
+
+        /**
+         * return the name of the client the pool belongs to
+         */
+        public String getName() { return name; }
+
+        /**
+         * return the maximum number of concurrent connections last reported for the pool
+         */
+        public int getMaxConnections() { return maxConnections; }
+
+        /**
+         * return the number of connections last reported as in use
+         */
+        public int getLeased() { return leased; }
+
+        /**
+         * return the number of idle connections last reported as ready for use
+         */
+        public int getAvailable() { return available; }
+
+        /**
+         * return the number of requests last reported as waiting for a connection
+         */
+        public int getPending() { return pending; }
+
+        /**
+         * return the number of API calls made with the client
+         */
+        public long getCalls() { return calls.get(); }
+
+        @Override
+        public void publish(MetricCollection metrics) {
+            calls.incrementAndGet();
+            record(metrics);
+        }
+
+        private void record(MetricCollection metrics) {
+            Integer ival = last(metrics, HttpMetric.MAX_CONCURRENCY);
+            if (ival != null) maxConnections = ival;
+            ival = last(metrics, HttpMetric.LEASED_CONCURRENCY);
+            if (ival != null) leased = ival;
+            ival = last(metrics, HttpMetric.AVAILABLE_CONCURRENCY);
+            if (ival != null) available = ival;
+            ival = last(metrics, HttpMetric.PENDING_CONCURRENCY_ACQUIRES);
+            if (ival != null) pending = ival;
+
+            for (Duration wait : metrics.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION)) {
+                long nanos = wait.toNanos();
+                acquireNanos.addAndGet(nanos);
+                maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+                if (nanos > 1000000L)
+                    waited.incrementAndGet();
+            }
+
+            for (MetricCollection child : metrics.children())
+                record(child);
+        }
+
+        private static <T> T last(MetricCollection metrics, SdkMetric<T> metric) {
+            List<T> vals = metrics.metricValues(metric);
+            return (vals.isEmpty()) ? null : vals.get(vals.size()-1);
+        }
+
+        @Override
+        public void close() { }
+
+        /**
+         * return a snapshot of the pool's statistics
+         */
+        public JSONObject toJSON() {
+            JSONObject out = new JSONObject();
+            out.put("maxConnections", maxConnections);
+            out.put("leased", leased);
+            out.put("available", available);
+            out.put("pending", pending);
+            out.put("calls", calls.get());
+            out.put("waitedForConnection", waited.get());
+            out.put("acquireTimeTotalMillis", acquireNanos.get() / 1000000L);
+            out.put("acquireTimeMaxMillis", maxAcquireNanos.get() / 1000000L);
+            return out;
+        }
+    }
+
+    /**
+     * return the publisher that records statistics for the client with the given name.  The same
+     * instance is returned for the same name.
+     */
+    public Pool publisherFor(String clientName) {
+        return pools.computeIfAbsent(clientName, Pool::new);
+    }
+
+    /**
+     * return the statistics for the client with the given name or null if no client by that name
+     * is being tracked.
+     */
+    public Pool getPool(String clientName) {
+        return pools.get(clientName);
+    }
+
+    /**
+     * return the names of the clients being tracked
+     */
+    public Set<String> clientNames() {
+        return pools.keySet();
+    }
+
+    /**
+     * return a snapshot of the statistics of all tracked pools, keyed by client name
+     */
+    public JSONObject getStatus() {
+        JSONObject out = new JSONObject();
+        for (Pool pool : pools.values())
+            out.put(pool.getName(), pool.toJSON());
+        return out;
+    }
+}
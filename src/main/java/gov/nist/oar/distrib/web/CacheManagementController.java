@@ -22,16 +22,24 @@ import gov.nist.oar.distrib.DistributionException;
 import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.StorageVolumeException;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URL;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
@@ -55,6 +63,7 @@ import jakarta.servlet.http.HttpServletRequest;
 
 import org.json.JSONObject;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -139,41 +148,69 @@ public class CacheManagementController {
     }
 
     /**
-     * return a summary of the contents of the cache
+     * return a summary of the contents of the cache.  The summaries are streamed to the client one at 
+     * a time; if the <code>limit</code> query parameter is given, at most that many are returned, 
+     * wrapped in a page object (see {@link JSONPageWriter}).
      */
     @Operation(summary="Summarize the contents of the cache", 
-               description="Each item describes a dataset, some portion of which is cached")
+               description="Each item describes a dataset, some portion of which is cached.  Use limit and after to page through the list.")
     @GetMapping(value="/objects/", produces = "application/json")
-    public List<Object> summarizeContents()
+    public void summarizeContents(@Parameter(hidden=true) HttpServletRequest request,
+                                  @Parameter(hidden=true) HttpServletResponse response)
         throws InventoryException, StorageVolumeException, NotOperatingException, CacheManagementException
     {
         _checkForManager();
-        return mgr.summarizeContents(null).toList();
+        int limit = getLimitParam(request);
+        JSONArray after = getCursorParam(request);
+        if (after != null) {
+            // check the cursor before anything is written
+            try {
+                after.getLong(0);
+                after.getString(1);
+            } catch (JSONException ex) {
+                throw new ServiceSyntaxException("after", request.getParameter("after"), "bad cursor", ex);
+            }
+        }
+
+        JSONPageWriter<JSONObject> page =
+            new JSONPageWriter<JSONObject>(response, limit, after != null, "datasets", null,
+                                           o -> o, o -> new JSONArray().put(o.getLong("checked"))
+                                                                       .put(o.getString("ediid")));
+        try {
+            page.writeAll(after, (cur, max, batch) ->
+                mgr.forEachDatasetSummary(null, (cur == null) ? null : cur.getString(1),
+                                          (cur == null) ? 0L : cur.getLong(0), max, batch));
+            page.finish();
+        }
+        catch (IOException ex) {
+            page.handleWriteError(ex);
+        }
     }
 
     /**
      * return a listing of the files from a particular dataset known to the cache.  This will include 
      * files for which the manager has metadata but are not currently stored in the cache (because they 
-     * were deleted).  
+     * were deleted).  The file descriptions are streamed to the client one at a time; if the 
+     * <code>limit</code> query parameter is given, at most that many are returned, followed by a 
+     * "next" cursor (see {@link JSONPageWriter}).
      */
     @Operation(summary="List objects from a dataset collection", 
-               description="Each item describes a dataset which may or may not currently exist in the cache")
+               description="Each item describes a dataset which may or may not currently exist in the cache.  Use limit and after to page through the files.")
     @GetMapping(value="/objects/{dsid}", produces = "application/json")
-    public Map<String,Object> summarizeDataset(@PathVariable("dsid") String dsid)
+    public void summarizeDataset(@PathVariable("dsid") String dsid,
+                                 @Parameter(hidden=true) HttpServletRequest request,
+                                 @Parameter(hidden=true) HttpServletResponse response)
         throws ResourceNotFoundException, StorageVolumeException, NotOperatingException, CacheManagementException
     {
         _checkForManager();
+        int limit = getLimitParam(request);
+        JSONArray after = getCursorParam(request);
         JSONObject summary = mgr.summarizeDataset(dsid);
         if (summary == null)
             throw new ResourceNotFoundException(dsid);
-        JSONArray files = new JSONArray();
-        List<CacheObject> filelist = mgr.selectDatasetObjects(dsid, mgr.VOL_FOR_INFO);
-        if (filelist.size() > 0) {
-            for (CacheObject co : filelist) 
-                files.put(toJSONObject(co));
-        }
-        summary.put("files", files);
-        return summary.toMap();
+
+        streamDatasetObjects(response, dsid, mgr.VOL_FOR_INFO, limit, after, request.getParameter("after"),
+                             summary);
     }
 
     static final Pattern SEL_PATH_FIELD = Pattern.compile("/?(:\\w+)$");
@@ -200,6 +237,9 @@ public class CacheManagementController {
      *       list will be empty.</li>
      * </ul>
      * If a filepath is given and no information exists about it in the inventory, 404 is returned.  
+     * Lists of the whole dataset (i.e. when only a selector is given) are streamed to the client and 
+     * can be paged through using the <code>limit</code> and <code>after</code> query parameters (see 
+     * {@link JSONPageWriter}).
      */
     @Operation(summary="Return a description of an object in the cache", 
                description="The returned object describes what is known about the object, including a flag indicating whether is cached.")
@@ -231,19 +271,21 @@ public class CacheManagementController {
                 purpose = mgr.VOL_FOR_GET;
         }
 
-        List<CacheObject> files = mgr.selectDatasetObjects(dsid, mgr.VOL_FOR_INFO);
+        if (filepath.length() == 0) {
+            // a listing of the whole dataset: stream it
+            streamDatasetObjects(response, dsid, purpose, getLimitParam(request), getCursorParam(request),
+                                 request.getParameter("after"), null);
+            return;
+        }
 
-        if (filepath.length() > 0)
-            files = mgr.selectFileObjects(dsid, filepath, purpose);
-        else if (purpose != mgr.VOL_FOR_INFO)
-            files = mgr.selectDatasetObjects(dsid, purpose);
+        List<CacheObject> files = mgr.selectFileObjects(dsid, filepath, purpose);
 
         // Ensure that a ResourceNotFoundException is thrown if the files list is empty
         // after all the selection logic has been applied
         if (files.size() == 0)
             throw new ResourceNotFoundException(dsid);
 
-        if (selector == null && filepath.length() > 0) {
+        if (selector == null) {
             // return a single JSON object; get the one that's cached
             List<CacheObject> use = files.stream().filter(c -> c.cached).collect(Collectors.toList());
             if (use.size() == 0)
@@ -260,6 +302,264 @@ public class CacheManagementController {
         }
     }
 
+    /**
+     * stream the descriptions of the objects in a dataset to the client.  
+     * @param summary   if not null, the descriptions will be written as the "files" property of this 
+     *                  summary object; otherwise, they are written as an array (or a page object if 
+     *                  paging was requested).
+     */
+    private void streamDatasetObjects(HttpServletResponse response, String dsid, int purpose, int limit,
+                                      JSONArray after, String afterParam, JSONObject summary)
+        throws ResourceNotFoundException, CacheManagementException
+    {
+        if (after != null) {
+            // check the cursor before anything is written
+            try {
+                after.getString(0);
+                after.getString(1);
+            } catch (JSONException ex) {
+                throw new ServiceSyntaxException("after", afterParam, "bad cursor", ex);
+            }
+        }
+
+        JSONPageWriter<CacheObject> page =
+            new JSONPageWriter<CacheObject>(response, limit, after != null, "files", summary,
+                                            CacheManagementController::toJSONObject,
+                                            co -> new JSONArray().put(co.id).put(co.volname));
+        try {
+            page.writeAll(after, (cur, max, batch) ->
+                mgr.forEachDatasetObject(dsid, purpose, (cur == null) ? null : cur.getString(0),
+                                         (cur == null) ? null : cur.getString(1), max, batch));
+
+            // nothing has been written yet if nothing was found
+            if (page.count() == 0 && summary == null && after == null)
+                throw new ResourceNotFoundException(dsid);
+            page.finish();
+        }
+        catch (IOException ex) {
+            page.handleWriteError(ex);
+        }
+    }
+
+    /**
+     * return the value of the <code>limit</code> query parameter, or 0 (for no limit) if it was not 
+     * provided.
+     * @throws ServiceSyntaxException  if the value is not a positive integer
+     */
+    static int getLimitParam(HttpServletRequest request) {
+        String val = request.getParameter("limit");
+        if (val == null || val.length() == 0)
+            return 0;
+        try {
+            int limit = Integer.parseInt(val);
+            if (limit > 0)
+                return limit;
+        } catch (NumberFormatException ex) { }
+        throw new ServiceSyntaxException("limit", val, "not a positive integer", null);
+    }
+
+    /**
+     * decode the value of the <code>after</code> query parameter, a cursor returned as the "next" 
+     * property of a previous page, or return null if it was not provided.
+     * @throws ServiceSyntaxException  if the value is not a legal cursor
+     */
+    static JSONArray getCursorParam(HttpServletRequest request) {
+        String val = request.getParameter("after");
+        if (val == null || val.length() == 0)
+            return null;
+        try {
+            return new JSONArray(new String(Base64.getUrlDecoder().decode(val), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException | JSONException ex) {
+            throw new ServiceSyntaxException("after", val, "bad cursor", ex);
+        }
+    }
+
+    /**
+     * a writer of a list of JSON objects to the client.  Via {@link #writeAll(JSONArray,Fetcher)}, the 
+     * items are read from the inventory in batches of at most {@link #BATCH_SIZE}; each batch is held 
+     * in memory only while it is written out, so that the inventory's database connection is not held 
+     * open while waiting on a (possibly slow) client.  Nothing is written until the first item arrives 
+     * (or {@link #finish()} is called), so that an error can still be returned if nothing is found.  
+     * If the inventory fails after part of the list has been sent, the response is aborted rather 
+     * than completed (see {@link #abort(CacheManagementException)}).
+     * <p>
+     * Without paging, the items are written as a JSON array (or, if a summary object is provided, as 
+     * a property of that object).  If paging is requested--via the <code>limit</code> or 
+     * <code>after</code> query parameters--the array is written as a property of a page object that 
+     * also includes a "next" property; when there are more items to retrieve, its value is an opaque 
+     * cursor to pass as the <code>after</code> query parameter to get the next page; otherwise, it is 
+     * null.
+     */
+    class JSONPageWriter<T> implements Consumer<T> {
+        static final int BATCH_SIZE = 500;
+
+        final HttpServletResponse response;
+        final int limit;
+        final boolean paged;
+        final String arrayprop;
+        final JSONObject summary;
+        final Function<T, JSONObject> tojson;
+        final Function<T, JSONArray> tocursor;
+        Writer out = null;
+        int count = 0;
+        T last = null;
+        boolean more = false;
+
+        JSONPageWriter(HttpServletResponse response, int limit, boolean paged, String arrayprop,
+                       JSONObject summary, Function<T, JSONObject> tojson, Function<T, JSONArray> tocursor)
+        {
+            this.response = response;
+            this.limit = limit;
+            this.paged = paged || limit > 0;
+            this.arrayprop = arrayprop;
+            this.summary = summary;
+            this.tojson = tojson;
+            this.tocursor = tocursor;
+        }
+
+        /**
+         * return the number of items to request from the inventory:  one more than the page size 
+         * (so as to learn if there are more), or 0 for unlimited.
+         */
+        int queryLimit() { return (limit > 0) ? limit + 1 : 0; }
+
+        /**
+         * return the number of items written so far
+         */
+        int count() { return count; }
+
+        /**
+         * read the items from the inventory, one batch at a time, and write them to the client.  
+         * @param after    the cursor for the item to start after (as given by the client), or null to 
+         *                 start at the beginning
+         * @param fetcher  the function that reads a batch of items from the inventory
+         */
+        void writeAll(JSONArray after, Fetcher<T> fetcher) throws CacheManagementException, IOException {
+            int want = queryLimit();
+            int fetched = 0;
+            List<T> batch = new ArrayList<T>(BATCH_SIZE);
+            while (want <= 0 || fetched < want) {
+                int max = (want > 0) ? Math.min(BATCH_SIZE, want - fetched) : BATCH_SIZE;
+                batch.clear();
+                try {
+                    // the inventory's connection is closed by the time this returns
+                    fetcher.fetch(after, max, batch::add);
+                }
+                catch (CacheManagementException ex) {
+                    abort(ex);
+                }
+
+                fetched += batch.size();
+                try {
+                    for (T item : batch)
+                        accept(item);
+                }
+                catch (UncheckedIOException ex) {
+                    throw ex.getCause();
+                }
+                if (batch.size() < max)
+                    break;
+                after = tocursor.apply(batch.get(batch.size()-1));
+            }
+        }
+
+        /**
+         * handle a failure to read from the inventory.  If nothing has been sent to the client yet, 
+         * the buffered output is discarded and the exception is rethrown so that an error response 
+         * can be returned.  Otherwise, the client has already received a success status; so that 
+         * it does not mistake a truncated list for a complete one, the exception is rethrown 
+         * as an unchecked exception that this controller does not handle, causing the servlet 
+         * container to abort the response.
+         */
+        void abort(CacheManagementException ex) throws CacheManagementException {
+            if (! response.isCommitted()) {
+                out = null;
+                response.reset();
+                throw ex;
+            }
+            log.error("Inventory failure after sending {} items; aborting response: {}",
+                      count, ex.getMessage());
+            throw new IllegalStateException("Listing aborted after "+count+" items: "+ex.getMessage(), ex);
+        }
+
+        private void open() throws IOException {
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(),
+                                                            StandardCharsets.UTF_8));
+            if (summary != null) {
+                // write the summary's properties, leaving the object open for the array
+                String head = summary.toString();
+                out.write(head, 0, head.length()-1);
+                out.write((summary.isEmpty()) ? "" : ",");
+                out.write(JSONObject.quote(arrayprop));
+                out.write(":");
+            }
+            else if (paged) {
+                out.write("{");
+                out.write(JSONObject.quote(arrayprop));
+                out.write(":");
+            }
+            out.write("[");
+        }
+
+        @Override
+        public void accept(T item) {
+            if (limit > 0 && count >= limit) {
+                more = true;
+                return;
+            }
+            try {
+                if (out == null) open();
+                out.write((count == 0) ? "\n  " : ",\n  ");
+                tojson.apply(item).write(out);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            count++;
+            last = item;
+        }
+
+        /**
+         * complete the JSON document and flush it to the client
+         */
+        void finish() throws IOException {
+            if (out == null) open();
+            out.write((count == 0) ? "]" : "\n]");
+            if (paged) {
+                out.write(",\"next\":");
+                if (more)
+                    out.write(JSONObject.quote(Base64.getUrlEncoder().withoutPadding().encodeToString(
+                                  tocursor.apply(last).toString().getBytes(StandardCharsets.UTF_8))));
+                else
+                    out.write("null");
+            }
+            if (summary != null || paged)
+                out.write("}");
+            out.write("\n");
+            out.flush();
+        }
+
+        void handleWriteError(IOException ex) throws CacheManagementException {
+            log.error("Trouble sending back JSON data: {}", ex.getMessage());
+            if (! response.isCommitted())
+                throw new CacheManagementException("Trouble sending JSON data: "+ex.getMessage());
+        }
+    }
+
+    /**
+     * a function that reads a batch of items for a {@link JSONPageWriter} from the inventory
+     */
+    @FunctionalInterface
+    interface Fetcher<T> {
+        /**
+         * pass at most <code>max</code> items that follow the item identified by the given cursor 
+         * (or from the start, if the cursor is null) to the consumer
+         */
+        int fetch(JSONArray after, int max, Consumer<T> consumer) throws CacheManagementException;
+    }
+
     static JSONObject toJSONObject(CacheObject co) {
         JSONObject info = co.exportMetadata();
         info.put("cached", co.cached);
@@ -563,6 +863,13 @@ public class CacheManagementController {
         return new ErrorInfo(req.getRequestURI(), 404, "Resource ID not found");
     }
     
+    @ExceptionHandler(ServiceSyntaxException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorInfo handleServiceSyntaxException(ServiceSyntaxException ex, HttpServletRequest req) {
+        log.info("Malformed input detected in " + req.getRequestURI() + "\n  " + ex.getMessage());
+        return new ErrorInfo(req.getRequestURI(), 400, "Malformed input");
+    }
+
     @ExceptionHandler(CacheManagementException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ErrorInfo handleInternalError(DistributionException ex, HttpServletRequest req) {
@@ -19,11 +19,15 @@ import gov.nist.oar.distrib.service.PreservationBagService;
 import software.amazon.awssdk.services.s3.S3Client;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.BasicCache;
+import gov.nist.oar.distrib.cachemgr.MemoryHotTier;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRDatasetRestorer;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRCacheManager;
 import gov.nist.oar.distrib.cachemgr.pdr.HeadBagCacheManager;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import javax.activation.MimetypesFileTypeMap;
 
 import org.springframework.lang.Nullable;
@@ -187,10 +191,43 @@ public class CacheManagerProvider {
                                                       MimetypesFileTypeMap mimemap)
         throws ConfigurationException
     {
-        if (canProvideManager()) 
-            return new CacheEnabledFileDownloadService(bagService, getPDRCacheManager(),
-                                                       getHeadBagManager(), cfg.getTriggerCache(), mimemap);
+        if (canProvideManager()) {
+            CacheEnabledFileDownloadService out =
+                new CacheEnabledFileDownloadService(bagService, getPDRCacheManager(),
+                                                    getHeadBagManager(), cfg.getTriggerCache(), mimemap);
+            out.setReadThrough(cfg.getReadThrough());
+            if (cfg.getHotTierBudget() > 0)
+                out.setHotTier(new MemoryHotTier(cfg.getHotTierBudget(), cfg.getHotTierMaxObjectSize()));
+            return out;
+        }
 
         return new NerdmDrivenFromBagFileDownloadService(bagService, mimemap);
     }
+
+    /**
+     * Create a CacheWarmer that will pre-load the datasets configured for start-up warm-up into the
+     * given service's caches.  If no warm-up is configured or the service does not use a cache, a
+     * warmer that does nothing is returned.  The returned warmer has not been started.
+     * @param dlsvc   the download service (as returned by {@link #getFileDownloadService}) whose
+     *                   caches should be loaded.
+     */
+    public CacheWarmer createCacheWarmer(FileDownloadService dlsvc) throws ConfigurationException {
+        List<String> listed = cfg.getWarmupDatasets();
+        int count = cfg.getWarmupCount();
+        if (! (dlsvc instanceof CacheEnabledFileDownloadService) ||
+            (count <= 0 && (listed == null || listed.isEmpty())))
+            return new CacheWarmer();
+
+        PDRCacheManager mgr = getPDRCacheManager();
+        Callable<List<String>> selector = () -> {
+            List<String> out = new ArrayList<String>();
+            if (listed != null)
+                out.addAll(listed);
+            if (count > 0 && mgr != null)
+                out.addAll(mgr.selectRecentDatasets(count));
+            return out;
+        };
+        return new CacheWarmer(selector, ((CacheEnabledFileDownloadService) dlsvc)::prewarm,
+                               cfg.getWarmupParallelism(), cfg.getWarmupReadyFraction());
+    }
 }
@@ -0,0 +1,224 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.web;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
+
+/**
+ * a background task that loads the metadata for a set of datasets into the service's caches at
+ * start-up, along with a health indicator that reports on its progress.
+ * <p>
+ * After a restart, the first request for a file from a dataset requires restoring the dataset's head
+ * bag, extracting its NERDm metadata, and reading from a cold inventory database.  This class does
+ * that work ahead of time for the datasets most likely to be requested:  those given explicitly in the
+ * configuration followed by those whose files were most recently accessed from the cache.  Datasets
+ * are loaded concurrently, up to a configured limit.
+ * <p>
+ * As a {@link HealthIndicator}, this class reports OUT_OF_SERVICE until a configured fraction of the
+ * datasets have been attempted (whether or not they loaded successfully), and UP thereafter.  To hold
+ * off traffic until then, include this indicator (named "warmup") in the readiness health group.
+ */
+public class CacheWarmer implements HealthIndicator {
+
+    /**
+     * the function that loads a dataset into the caches
+     */
+    @FunctionalInterface
+    public interface Warmup {
+        public void warm(String dsid) throws Exception;
+    }
+
+    private Callable<List<String>> selector = null;
+    private Warmup warmup = null;
+    private int parallelism = 1;
+    private double readyfrac = 0.0;
+
+    private volatile int total = -1;       // -1 means the datasets have not been selected yet
+    private volatile String error = null;
+    private final AtomicInteger done = new AtomicInteger(0);
+    private final AtomicInteger failed = new AtomicInteger(0);
+    private Thread runner = null;
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * create a warmer that does nothing.  Its health is always reported as UP.
+     */
+    public CacheWarmer() { }
+
+    /**
+     * create the warmer
+     * @param datasets     the function that returns the identifiers of the datasets to load; it is
+     *                       called once, in the background, when the warmer is started.
+     * @param warmup       the function that loads a single dataset
+     * @param parallelism  the maximum number of datasets to load at once
+     * @param readyFraction  the fraction of the datasets that must be attempted before this indicator
+     *                       will report UP; a value of zero or less means always UP.
+     */
+    public CacheWarmer(Callable<List<String>> datasets, Warmup warmup, int parallelism,
+                       double readyFraction)
+    {
+        selector = datasets;
+        this.warmup = warmup;
+        this.parallelism = Math.max(1, parallelism);
+        readyfrac = Math.min(1.0, readyFraction);
+    }
+
+    /**
+     * return true if this warmer has work to do
+     */
+    public boolean isEnabled() { return selector != null && warmup != null; }
+
+    /**
+     * return the number of datasets to be loaded or -1 if they have not been selected yet
+     */
+    public int getTotal() { return total; }
+
+    /**
+     * return the number of datasets that have been attempted so far, including those that failed
+     */
+    public int getDone() { return done.get(); }
+
+    /**
+     * return the number of datasets that could not be loaded
+     */
+    public int getFailed() { return failed.get(); }
+
+    /**
+     * return true if the warm-up has been attempted for all selected datasets (or if this warmer
+     * has nothing to do).
+     */
+    public boolean isFinished() {
+        if (! isEnabled() || error != null)
+            return true;
+        return total >= 0 && done.get() >= total;
+    }
+
+    /**
+     * return true if enough of the warm-up has completed for the service to take requests
+     */
+    public boolean isReady() {
+        if (readyfrac <= 0.0 || isFinished())
+            return true;
+        if (total < 0)
+            return false;
+        return done.get() >= readyfrac * total;
+    }
+
+    /**
+     * start loading the datasets in a background thread.  This does nothing if this warmer is not
+     * enabled or has already been started.
+     */
+    public synchronized void start() {
+        if (! isEnabled() || runner != null)
+            return;
+        runner = new Thread(this::run, "cache-warmup");
+        runner.setDaemon(true);
+        runner.setPriority(Math.max(Thread.MIN_PRIORITY, Thread.currentThread().getPriority() - 2));
+        runner.start();
+    }
+
+    /**
+     * wait for the warm-up to finish
+     * @param timeoutms   the maximum time to wait in milliseconds
+     * @return boolean -- true if the warm-up finished
+     */
+    public boolean waitForCompletion(long timeoutms) throws InterruptedException {
+        Thread t = null;
+        synchronized (this) { t = runner; }
+        if (t != null)
+            t.join(timeoutms);
+        return isFinished();
+    }
+
+    void run() {
+        List<String> dsids = null;
+        try {
+            // drop duplicates, keeping the first occurrence
+            Set<String> uniq = new LinkedHashSet<String>(selector.call());
+            dsids = new ArrayList<String>(uniq);
+        }
+        catch (Exception ex) {
+            log.error("Unable to determine datasets to pre-load: {}", ex.getMessage());
+            error = ex.getMessage();
+            if (error == null) error = ex.getClass().getSimpleName();
+            return;
+        }
+        total = dsids.size();
+        log.info("Pre-loading metadata for {} dataset(s)", total);
+        long start = System.currentTimeMillis();
+
+        ExecutorService exec = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, total)), r -> {
+            Thread t = new Thread(r, "cache-warmup-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (String dsid : dsids) {
+                exec.execute(() -> {
+                    // loading for later requests should yield bandwidth to current ones
+                    IOScheduler.setThreadClass(IOScheduler.IOClass.PREFETCH);
+                    try {
+                        warmup.warm(dsid);
+                    }
+                    catch (Exception ex) {
+                        failed.incrementAndGet();
+                        log.warn("Failed to pre-load {}: {}", dsid, ex.getMessage());
+                    }
+                    finally {
+                        done.incrementAndGet();
+                    }
+                });
+            }
+            exec.shutdown();
+            exec.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            log.info("Pre-loaded {} of {} dataset(s) in {} ms", total - failed.get(), total,
+                     System.currentTimeMillis() - start);
+        }
+        catch (InterruptedException ex) {
+            log.warn("Dataset pre-loading interrupted");
+            exec.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * report on the progress of the warm-up
+     */
+    @Override
+    public Health health() {
+        if (! isEnabled())
+            return Health.up().withDetail("state", "disabled").build();
+
+        Health.Builder out = (isReady()) ? Health.up() : Health.outOfService();
+        if (error != null)
+            return out.withDetail("state", "failed").withDetail("error", error).build();
+        out.withDetail("state", (isFinished()) ? "finished" : (total < 0) ? "selecting" : "loading");
+        if (total >= 0)
+            out.withDetail("total", total).withDetail("done", done.get()).withDetail("failed", failed.get());
+        return out.build();
+    }
+}
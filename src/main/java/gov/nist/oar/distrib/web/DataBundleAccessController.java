@@ -13,12 +13,16 @@
 package gov.nist.oar.distrib.web;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.ZipOutputStream;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +40,10 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 
 import gov.nist.oar.distrib.DistributionException;
+import gov.nist.oar.distrib.StorageVolumeException;
+import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.datapackage.BundleCache;
 import gov.nist.oar.distrib.datapackage.InputLimitException;
 import gov.nist.oar.distrib.datapackage.EmptyBundleRequestException;
 import gov.nist.oar.distrib.datapackage.DataPackager;
@@ -86,11 +94,38 @@ public class DataBundleAccessController {
                           @Parameter(hidden = true) HttpServletRequest request) throws DistributionException
     {
         ZipOutputStream zout = null;
+        BundleCache.Capture capture = null;
         try {
             logger.info("Data bundled in zip requested: " + bundleRequest.getBundleName());
+
             DataPackager dataPackager = dpService.getDataPackager(bundleRequest);
+
+            // an identical bundle may have already been built.  The request must still pass the URL
+            // and size checks; for a cached bundle, they are made against the total file size
+            // recorded when it was built rather than by examining each of the files again.
+            BundleCache bcache = dpService.getBundleCache();
+            String key = null;
+            if (bcache != null) {
+                key = BundleCache.keyFor(bundleRequest);
+                CacheObject bundle = findCachedBundle(bcache, key);
+                if (bundle != null && bcache.getRequestedSize(bundle) >= 0L &&
+                    dataPackager.validateBundleRequest(bcache.getRequestedSize(bundle)) &&
+                    sendCachedBundle(bcache, bundle, key, bundleRequest, request, response))
+                {
+                    logger.info("Data bundled in zip delivered from cache: " + bundleRequest.getBundleName() +
+                                "," + bundleRequest.getBundleSize());
+                    return;
+                }
+            }
             dataPackager.validateBundleRequest();
-            zout = new ZipOutputStream(response.getOutputStream());
+
+            OutputStream out = response.getOutputStream();
+            if (bcache != null) {
+                // save a copy of the bundle as it is sent
+                capture = bcache.startCapture(key);
+                out = new TeeOutputStream(out, capture.getOutputStream());
+            }
+            zout = new ZipOutputStream(out);
             response.setHeader("Content-Type", "application/zip");
             response.setHeader("Content-Disposition", "attachment;filename=\"" + dataPackager.getBundleName() + " \"");
             String requestedFrom = request.getHeader("X-Real-IP");
@@ -101,6 +136,12 @@ public class DataBundleAccessController {
             response.flushBuffer();
             zout.close();
 
+            // only bundles that include everything requested are worth reusing
+            if (capture != null && dataPackager.isComplete()) {
+                capture.setRequestedSize(dataPackager.getTotalSize());
+                capture.commit();
+            }
+
             logger.info("Data bundled in zip delivered: " + bundleRequest.getBundleName() + ","
                         + bundleRequest.getBundleSize());
             // logger.info("Data bundled in zip delivered."+dataPackager.getBundleName());
@@ -124,6 +165,9 @@ public class DataBundleAccessController {
             logger.warn("Empty bundle request sent");
             throw new ServiceSyntaxException("Bundle Request has empty list of files and urls", ex);
         } finally {
+            if (capture != null)
+                // no-op if committed
+                capture.close();
             if (zout != null) {
                 try {
                     zout.close();
@@ -136,6 +180,121 @@ public class DataBundleAccessController {
 
     }
 
+    /**
+     * return the previously built bundle with the given key from the bundle cache, or null if it 
+     * is not available.
+     */
+    private CacheObject findCachedBundle(BundleCache bcache, String key) {
+        try {
+            return bcache.find(key);
+        } catch (CacheManagementException ex) {
+            logger.warn("Unable to access cached bundle {}; rebuilding: {}", key, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * send a previously built bundle from the bundle cache.  A single byte range (via the 
+     * <code>Range</code> header) is supported, allowing interrupted downloads to be resumed.  
+     * @param bundle   the cached bundle, as returned by {@link BundleCache#find(String)}
+     * @return boolean -- true if the bundle was sent, or false if it could not be opened 
+     *                    (in which case, nothing was written to the response)
+     */
+    protected boolean sendCachedBundle(BundleCache bcache, CacheObject bundle, String key,
+                                       BundleRequest bundleRequest,
+                                       HttpServletRequest request, HttpServletResponse response)
+        throws IOException
+    {
+        InputStream is = null;
+        try {
+            is = bcache.open(bundle);
+        } catch (StorageVolumeException ex) {
+            logger.warn("Unable to access cached bundle {}; rebuilding: {}", key, ex.getMessage());
+            return false;
+        }
+
+        try (InputStream in = is) {
+            long size = bundle.getSize();
+            String etag = "\"" + key + "\"";
+            String name = bundleRequest.getBundleName();
+            if (name == null)
+                name = "download";
+
+            response.setHeader("Accept-Ranges", "bytes");
+            response.setHeader("ETag", etag);
+            long[] range = parseRange(request.getHeader("Range"), request.getHeader("If-Range"), etag, size);
+            if (range != null && range.length == 0) {
+                response.setHeader("Content-Range", "bytes */" + size);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return true;
+            }
+
+            long start = 0L, len = size;
+            response.setHeader("Content-Type", "application/zip");
+            response.setHeader("Content-Disposition", "attachment;filename=\"" + name + " \"");
+            if (range != null) {
+                start = range[0];
+                len = range[1] - range[0] + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+            }
+            response.setContentLengthLong(len);
+            IOUtils.copyLarge(in, response.getOutputStream(), start, len);
+            response.flushBuffer();
+        }
+        return true;
+    }
+
+    /**
+     * interpret an HTTP Range header requesting a portion of an entity of a given size.  Only a 
+     * single range is supported; a request for multiple ranges is treated as a request for the 
+     * whole entity.  
+     * @param range    the value of the Range header (can be null)
+     * @param ifRange  the value of the If-Range header (can be null); if provided and it does not 
+     *                 match the given etag, the whole entity should be sent.
+     * @param etag     the entity tag for the current version of the entity
+     * @param size     the total size of the entity
+     * @return long[] -- the first and last byte positions (inclusive) to send, null if the whole 
+     *                   entity should be sent, or an empty array if the range is not satisfiable
+     */
+    static long[] parseRange(String range, String ifRange, String etag, long size) {
+        if (range == null || ! range.startsWith("bytes="))
+            return null;
+        if (ifRange != null && ! ifRange.trim().equals(etag))
+            return null;
+
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.contains(","))
+            return null;
+
+        try {
+            long start, end;
+            if (dash == 0) {
+                // suffix range: the last N bytes
+                long n = Long.parseLong(spec.substring(1).trim());
+                if (n <= 0 || size == 0)
+                    return new long[0];
+                start = Math.max(0L, size - n);
+                end = size - 1;
+            }
+            else {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                String last = spec.substring(dash + 1).trim();
+                end = (last.isEmpty()) ? size - 1 : Long.parseLong(last);
+                if (! last.isEmpty() && end < start)
+                    return null;
+                if (start >= size)
+                    return new long[0];
+                end = Math.min(end, size - 1);
+            }
+            return new long[] { start, end };
+        }
+        catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
     @ExceptionHandler(ServiceSyntaxException.class)
     @ResponseBody
     public ResponseEntity<ErrorInfo> handleServiceSyntaxException(ServiceSyntaxException ex, HttpServletRequest req) {
@@ -16,10 +16,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -45,15 +46,14 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.HandlerMapping;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import gov.nist.oar.bags.preservation.BagUtils;
 import gov.nist.oar.distrib.DistributionException;
 import gov.nist.oar.distrib.FileDescription;
 import gov.nist.oar.distrib.ResourceNotFoundException;
+import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.StreamHandle;
 import gov.nist.oar.distrib.service.FileDownloadService;
+import gov.nist.oar.distrib.service.NerdmDirectoryIndex;
 import gov.nist.oar.distrib.service.NerdmDownloadService;
 import gov.nist.oar.distrib.service.NerdmNotFoundException;
 import gov.nist.oar.distrib.service.PreservationBagService;
@@ -109,7 +109,8 @@ public class DatasetAccessController {
     @Value("${distrib.baseurl}")
     String svcbaseurl;
     
-    private final ObjectMapper mapper = new ObjectMapper();
+    private static final DateTimeFormatter listingDateFormat =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
 
     // TODO test inputs
 
@@ -447,12 +448,12 @@ public class DatasetAccessController {
 
         // CASE 1: Request is for a directory → return HTML index page
         if (fullPath.endsWith("/")) {
-            // Load nerdm.json
-            JsonNode components = loadComponents(dsid);
+            // Load the directory index built from nerdm.json
+            NerdmDirectoryIndex index = loadDirectoryIndex(dsid);
 
             // List entries
-            String subdir = fullPath.endsWith("/") ? fullPath.substring(0, fullPath.length() - 1) : fullPath;
-            List<FileInfo> entries = listDirectoryEntries(components, subdir);
+            String subdir = fullPath.substring(0, fullPath.length() - 1);
+            List<FileInfo> entries = listDirectoryEntries(index, subdir);
             long dirs = entries.stream().filter(FileInfo::isDirectory).count();
             long files = entries.size() - dirs;
 
@@ -473,95 +474,31 @@ public class DatasetAccessController {
      * Populate a list of FileInfo objects representing the contents of a directory
      * in a dataset. The list is sorted by name (case insensitive).
      *
-     * @param datasetDir   the directory where the dataset is stored
-     * @param components   the list of components in the dataset
+     * @param index        the directory index for the dataset
      * @param subdirectory the subdirectory within the dataset to list (or empty
      *                     string for root)
      * @return a list of FileInfo objects, each representing a file or subdirectory
      *         in the given subdirectory. The list is sorted by name (case
      *         insensitive).
      */
-    private List<FileInfo> listDirectoryEntries(JsonNode components, String subdirectory) {
-        String prefix = subdirectory == null || subdirectory.isEmpty() ? "" : subdirectory + "/";
-        TreeMap<String, FileInfo> entriesMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-
-        for (JsonNode component : components) {
-            // Only include downloadable files (skip restricted or incomplete metadata)
-            if (!hasType(component, "DataFile") || component.get("downloadURL") == null)
-                continue;
-
-            String filepath = component.path("filepath").asText(null);
-            if (filepath == null || !filepath.startsWith(prefix))
-                continue;
-
-            String remainder = filepath.substring(prefix.length());
-            if (remainder.isEmpty())
-                continue;
-
-            boolean isSubcollection = hasType(component, "Subcollection");
-
-            String entryName;
-            boolean isDirectory;
-
-            if (isSubcollection) {
-                entryName = remainder.endsWith("/") ? remainder : remainder + "/";
-                isDirectory = true;
-            } else if (remainder.contains("/")) {
-                entryName = remainder.substring(0, remainder.indexOf("/") + 1);
-                isDirectory = true;
-            } else {
-                entryName = remainder;
-                isDirectory = false;
-            }
-
-            // Deduplicate
-            entriesMap.computeIfAbsent(entryName, nameKey -> {
-                // href for files needs to be relative (required by rclone)
-                String href = isDirectory ? nameKey : nameKey;
-                return new FileInfo(nameKey, isDirectory, "", "", href);
-            });
+    private List<FileInfo> listDirectoryEntries(NerdmDirectoryIndex index, String subdirectory) {
+        List<NerdmDirectoryIndex.Entry> children = index.list(subdirectory);
+        List<FileInfo> out = new ArrayList<>(children.size());
+        for (NerdmDirectoryIndex.Entry ent : children) {
+            // href for files needs to be relative (required by rclone)
+            String size = (ent.isDirectory() || ent.getSize() < 0) ? "" : Long.toString(ent.getSize());
+            String modified = (ent.getModified() == null) ? "" : listingDateFormat.format(ent.getModified());
+            out.add(new FileInfo(ent.getName(), ent.isDirectory(), size, modified, ent.getName()));
         }
-
-        return new ArrayList<>(entriesMap.values());
+        return out;
     }
 
-    private boolean hasType(JsonNode component, String shortType) {
-        for (JsonNode t : component.path("@type")) {
-            String txt = t.asText();
-            int idx = txt.lastIndexOf(':');
-            String local = idx >= 0 ? txt.substring(idx + 1) : txt;
-            if (shortType.equals(local)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private JsonNode loadComponents(String dsid)
+    private NerdmDirectoryIndex loadDirectoryIndex(String dsid)
         throws ResourceNotFoundException, DistributionException
     {
-
-        JsonNode doc = fetchNerdmDoc(dsid);
-        if (doc == null)
-            throw new ResourceNotFoundException("NERDm metadata not found for " + dsid);
-
-        JsonNode comps = doc.path("components");
-        return comps.isArray() ? comps : mapper.createArrayNode();
-    }
-
-    /**
-     * Fetch the NERDm document for the specified dataset identifier.
-     *
-     * @param dsid the dataset identifier
-     * @return the NERDm document as a {@link JsonNode}
-     * @throws ResourceNotFoundException if the dataset is not found
-     * @throws DistributionException     if an error occurs during fetching or
-     *                                   parsing the NERDm document
-     */
-    private JsonNode fetchNerdmDoc(String dsid)
-            throws ResourceNotFoundException, DistributionException {
+        NerdmDirectoryIndex index = null;
         try {
-            return nerdmService.fetchNerdm(dsid);
+            index = nerdmService.fetchDirectoryIndex(dsid);
         } catch (NerdmNotFoundException e) {
             logger.warn("NERDm not found for dsid={}. Check if the dsid is correct and if the resolver service is running.", dsid);
             throw new ResourceNotFoundException(e.getMessage());
@@ -569,6 +506,9 @@ public class DatasetAccessController {
             logger.error("Failed to fetch or parse NERDm for dsid={}: {}", dsid, e.getMessage(), e);
             throw new DistributionException("Error fetching or parsing NERDm for " + dsid, e);
         }
+        if (index == null)
+            throw new ResourceNotFoundException("NERDm metadata not found for " + dsid);
+        return index;
     }
 
     public static class FileInfo {
@@ -637,9 +577,10 @@ public class DatasetAccessController {
         }
 
         StreamHandle sh = null;
+        CacheEnabledFileDownloadService cdls = null;
         try {
             try {
-                CacheEnabledFileDownloadService cdls = (CacheEnabledFileDownloadService) downl;
+                cdls = (CacheEnabledFileDownloadService) downl;
                 CacheObject co = cdls.findCachedObject(dsid, filepath, version);
                 if (co != null && co.volume != null) {
                     URL redirect = cdls.redirectFor(co);
@@ -666,6 +607,12 @@ public class DatasetAccessController {
                              dsid, file, ex.getMessage());
                 // pass through to fallback
             }
+            catch (StorageVolumeException ex) {
+                String file = filepath;
+                if (version != null) file += "#" + version;
+                logger.error("Trouble opening cached data file: {}/{}: {}", dsid, file, ex.getMessage());
+                // pass through to fallback
+            }
             catch (IOException ex) {
                 // this can only come from sendRedirect()
                 String file = filepath;
@@ -676,8 +623,9 @@ public class DatasetAccessController {
             }
 
             if (sh == null) {
-                // fallback on direct download
-                sh = downl.getDataFile(dsid, filepath, version);
+                // fallback on direct download (without searching the cache again)
+                sh = (cdls != null) ? cdls.getDataFileFromSource(dsid, filepath, version)
+                                    : downl.getDataFile(dsid, filepath, version);
                 logger.debug("{}/{}: streaming data from long-term storage", dsid, filepath);
             }
 
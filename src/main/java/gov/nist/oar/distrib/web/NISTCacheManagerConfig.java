@@ -16,11 +16,13 @@ import gov.nist.oar.distrib.cachemgr.CacheExpiryCheck;
 import gov.nist.oar.distrib.cachemgr.ConfigurableCache;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheVolume;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
 import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.storage.AWSS3CacheVolume;
 import gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume;
 import software.amazon.awssdk.services.s3.S3Client;
 import gov.nist.oar.distrib.cachemgr.VolumeStatus;
+import gov.nist.oar.distrib.cachemgr.VolumeVerifier;
 import gov.nist.oar.distrib.cachemgr.VolumeConfig;
 import gov.nist.oar.distrib.cachemgr.CacheObjectCheck;
 import gov.nist.oar.distrib.cachemgr.DeletionStrategy;
@@ -29,6 +31,7 @@ import gov.nist.oar.distrib.cachemgr.inventory.OldSelectionStrategy;
 import gov.nist.oar.distrib.cachemgr.inventory.BigOldSelectionStrategy;
 import gov.nist.oar.distrib.cachemgr.inventory.BySizeSelectionStrategy;
 import gov.nist.oar.distrib.cachemgr.inventory.ChecksumCheck;
+import gov.nist.oar.distrib.cachemgr.ByteRateLimiter;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRCacheManager;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRDatasetRestorer;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRStorageInventoryDB;
@@ -38,6 +41,7 @@ import gov.nist.oar.distrib.cachemgr.pdr.HeadBagDB;
 import gov.nist.oar.distrib.cachemgr.pdr.HeadBagRestorer;
 import gov.nist.oar.distrib.BagStorage;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.HashMap;
@@ -53,6 +57,7 @@ import java.nio.file.Paths;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.net.MalformedURLException;
+import java.time.Duration;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,6 +97,79 @@ import org.slf4j.LoggerFactory;
  *   <dt> <b><code>triggerCache</code></b> (long integer)  </dt>
  *   <dd> if True, requests for files not in the cache will trigger automatic caching of that and 
  *        related files (the other files in the dataset). </dd>
+ *   <dt> <b><code>readThrough</code></b> (boolean)  </dt>
+ *   <dd> if True, files streamed from long-term storage because they are not in the cache will be 
+ *        saved into the cache as they are delivered, avoiding a second retrieval from storage. </dd>
+ *   <dt> <b><code>readThroughFinishLimit</code></b> (long integer)  </dt>
+ *   <dd> the maximum number of bytes that may remain undelivered when a user aborts the download of 
+ *        a file being cached via <code>readThrough</code> for the rest of the file to still be 
+ *        retrieved and cached in the background; default: 100 MB </dd>
+ *   <dt> <b><code>lookupCacheTTL</code></b> (long integer)  </dt>
+ *   <dd> the time in seconds to remember where a file was found in the cache so that repeated 
+ *        requests for it need not query the inventory or the cache volume; 0 turns this off.  
+ *        Default: 10 </dd>
+ *   <dt> <b><code>lookupMissTTL</code></b> (long integer)  </dt>
+ *   <dd> the time in seconds to remember that a file was not found in the cache; 0 turns this 
+ *        off.  Default: 2 </dd>
+ *   <dt> <b><code>hotTierBudget</code></b> (long integer)  </dt>
+ *   <dd> the number of bytes of memory (outside of the Java heap) to use to hold the contents of 
+ *        small, frequently requested files so that they can be delivered without reading them from 
+ *        their cache volumes; 0 (the default) turns this off.  Note that the JVM's 
+ *        <code>-XX:MaxDirectMemorySize</code> setting must accommodate this budget. </dd>
+ *   <dt> <b><code>hotTierMaxObjectSize</code></b> (long integer)  </dt>
+ *   <dd> the size in bytes of the largest file that will be held in memory when 
+ *        <code>hotTierBudget</code> is set.  Default: 1 MB </dd>
+ *   <dt> <b><code>checkParallelism</code></b> (integer)  </dt>
+ *   <dd> the maximum number of files within a single cache volume that the integrity monitor will 
+ *        check concurrently; different volumes are checked concurrently when this is greater 
+ *        than 1.  Default: 1 </dd>
+ *   <dt> <b><code>checkMaxBytesPerSec</code></b> (long integer)  </dt>
+ *   <dd> the maximum combined rate, in bytes per second, at which the integrity monitor will read 
+ *        files to calculate their checksums; 0 (the default) means unlimited. </dd>
+ *   <dt> <b><code>checkFullPeriod</code></b> (long integer)  </dt>
+ *   <dd> if greater than zero, the integrity monitor will recalculate a file's full checksum only 
+ *        if its size, modification time, or volume-provided digest has changed since its last 
+ *        full verification or if this number of seconds has passed since then; other checks only 
+ *        compare the volume's metadata.  Default: 0 (always verify the checksum) </dd>
+ *   <dt> <b><code>volumeVerifyWait</code></b> (long integer)  </dt>
+ *   <dd> the maximum number of seconds to wait at start-up for the cache volumes to be verified as 
+ *        available (e.g. that their S3 buckets exist); volumes are verified in parallel.  A volume 
+ *        that has not been verified within this time is set to info-only status (see 
+ *        {@link gov.nist.oar.distrib.cachemgr.VolumeStatus#VOL_FOR_INFO}) and is re-checked in the 
+ *        background until it can be verified, at which point its status is restored.  A negative 
+ *        value (the default) means wait for all volumes and fail if any of them are unavailable. </dd>
+ *   <dt> <b><code>volumeVerifyRetry</code></b> (long integer)  </dt>
+ *   <dd> the number of seconds to wait before re-checking a volume that could not be verified when 
+ *        <code>volumeVerifyWait</code> is not negative.  Default: 60 </dd>
+ *   <dt> <b><code>warmupCount</code></b> (integer)  </dt>
+ *   <dd> the number of the most recently accessed datasets in the cache whose head bags and file 
+ *        metadata should be loaded in the background at start-up so that the first requests after 
+ *        a restart do not pay that cost.  Default: 0 (none) </dd>
+ *   <dt> <b><code>warmupDatasets</code></b> (list)  </dt>
+ *   <dd> the identifiers of datasets to load at start-up, ahead of (and in addition to) the 
+ *        <code>warmupCount</code> most recently accessed ones.  Default: none </dd>
+ *   <dt> <b><code>warmupParallelism</code></b> (integer)  </dt>
+ *   <dd> the maximum number of datasets to load concurrently during start-up warm-up.  Default: 2 </dd>
+ *   <dt> <b><code>warmupReadyFraction</code></b> (double)  </dt>
+ *   <dd> the fraction (between 0 and 1) of the warm-up datasets that must be loaded before the 
+ *        "warmup" health indicator will report the service as UP; 0 (the default) means warm-up 
+ *        does not delay readiness. </dd>
+ *   <dt> <b><code>virtualThreads</code></b> (boolean)  </dt>
+ *   <dd> if true, the cache manager's short-lived background work (concurrent integrity checks and 
+ *        the finishing of read-through caching) runs on virtual threads.  This is normally set 
+ *        together with <code>spring.threads.virtual.enabled</code>, which moves request handling 
+ *        and asynchronous tasks onto virtual threads.  Default: false </dd>
+ *   <dt> <b><code>ltsIOLimits</code></b> (Map&lt;String,Long&gt;)  </dt>
+ *   <dd> limits on the rate, in bytes per second, of reads from long-term storage, shared between 
+ *        user downloads and background caching (see {@link gov.nist.oar.distrib.cachemgr.IOScheduler}).
+ *        Recognized keys are <code>capacity</code> (the total rate the storage can sustain; if set,
+ *        background reads back off as user demand approaches it), <code>interactive</code>, 
+ *        <code>prefetch</code>, and <code>integrity</code> (fixed maximum rates for each class of 
+ *        I/O).  Limits for individual cache volumes are set via their <code>ioLimits</code> property
+ *        (see {@link CacheVolumeConfig}).  Default: no limits </dd>
+ *   <dt> <b><code>ioMinBackgroundShare</code></b> (double)  </dt>
+ *   <dd> the fraction of a storage channel's <code>capacity</code> that background caching and 
+ *        integrity checking are always allowed, regardless of user demand.  Default: 0.1 </dd>
  * </ul>
  */
 public class NISTCacheManagerConfig {
@@ -109,6 +187,24 @@ public class NISTCacheManagerConfig {
     String dbroot = null;
     String hbdbroot = null;
     boolean triggercache = false;
+    boolean readthrough = false;
+    long rtfinishlim = 100000000;     // default: 100 MB
+    long lookupttl = 10;              // 10 secs
+    long missttl = 2;                 // 2 secs
+    long hotbudget = 0;               // default: no in-memory tier
+    long hotmaxobj = 1000000;         // default: 1 MB
+    int checkpar = 1;                 // default: check one file at a time
+    long checkrate = 0;               // default: no limit on checksum reads
+    long fullcheckperiod = 0;         // default: always calculate full checksums
+    long volverifywait = -1;          // default: wait for all volumes to verify
+    long volverifyretry = 60;         // 1 min
+    int warmupcount = 0;              // default: no start-up warm-up
+    List<String> warmupdatasets = null;
+    int warmuppar = 2;
+    double warmupready = 0.0;         // default: warm-up does not delay readiness
+    boolean virtualthreads = false;
+    Map<String, Long> ltsiolimits = null;
+    double iominshare = 0.1;
     BasicCache theCache = null;
 
     public String getAdmindir() { return admindir; }
@@ -133,6 +229,42 @@ public class NISTCacheManagerConfig {
     public void   setHeadbagDbrootdir(String dir) { hbdbroot = dir; }
     public boolean getTriggerCache() { return triggercache; }
     public void setTriggerCache(boolean trigger) { triggercache = trigger; }
+    public boolean getReadThrough() { return readthrough; }
+    public void setReadThrough(boolean enable) { readthrough = enable; }
+    public long getReadThroughFinishLimit() { return rtfinishlim; }
+    public void setReadThroughFinishLimit(long bytes) { rtfinishlim = bytes; }
+    public long getLookupCacheTTL() { return lookupttl; }
+    public void setLookupCacheTTL(long sec) { lookupttl = sec; }
+    public long getLookupMissTTL() { return missttl; }
+    public void setLookupMissTTL(long sec) { missttl = sec; }
+    public long getHotTierBudget() { return hotbudget; }
+    public void setHotTierBudget(long bytes) { hotbudget = bytes; }
+    public long getHotTierMaxObjectSize() { return hotmaxobj; }
+    public void setHotTierMaxObjectSize(long bytes) { hotmaxobj = bytes; }
+    public int getCheckParallelism() { return checkpar; }
+    public void setCheckParallelism(int perVolume) { checkpar = perVolume; }
+    public long getCheckMaxBytesPerSec() { return checkrate; }
+    public void setCheckMaxBytesPerSec(long rate) { checkrate = rate; }
+    public long getCheckFullPeriod() { return fullcheckperiod; }
+    public void setCheckFullPeriod(long sec) { fullcheckperiod = sec; }
+    public long getVolumeVerifyWait() { return volverifywait; }
+    public void setVolumeVerifyWait(long sec) { volverifywait = sec; }
+    public long getVolumeVerifyRetry() { return volverifyretry; }
+    public void setVolumeVerifyRetry(long sec) { volverifyretry = sec; }
+    public int getWarmupCount() { return warmupcount; }
+    public void setWarmupCount(int count) { warmupcount = count; }
+    public List<String> getWarmupDatasets() { return warmupdatasets; }
+    public void setWarmupDatasets(List<String> dsids) { warmupdatasets = dsids; }
+    public int getWarmupParallelism() { return warmuppar; }
+    public void setWarmupParallelism(int count) { warmuppar = count; }
+    public double getWarmupReadyFraction() { return warmupready; }
+    public void setWarmupReadyFraction(double frac) { warmupready = frac; }
+    public boolean getVirtualThreads() { return virtualthreads; }
+    public void setVirtualThreads(boolean use) { virtualthreads = use; }
+    public Map<String, Long> getLtsIOLimits() { return ltsiolimits; }
+    public void setLtsIOLimits(Map<String, Long> limits) { ltsiolimits = limits; }
+    public double getIoMinBackgroundShare() { return iominshare; }
+    public void setIoMinBackgroundShare(double frac) { iominshare = frac; }
 
     /**
      * the configuration of a volume within the cache.  It is expected to be part of a list of 
@@ -206,6 +338,17 @@ public class NISTCacheManagerConfig {
      *   <dt> <b><code>redirectBase</code></b> (string)  </dt>
      *   <dd> a base URL for accessing objects in the volume by name (see 
      *        {@link gov.nist.oar.distrib.cachemgr.CacheVolume#getRedirectFor(String)}). </dd>
+     * 
+     *   <dt> <b><code>presignedRedirectTTL</code></b> (long)  </dt>
+     *   <dd> for S3 volumes only, the number of seconds that pre-signed redirect URLs should remain 
+     *        valid.  If greater than zero, downloads of objects in the volume will be redirected to 
+     *        pre-signed S3 URLs so that the data is delivered directly from S3; this takes precedence
+     *        over <code>redirectBase</code>.  Default: 0 (no pre-signed URLs). </dd>
+     * 
+     *   <dt> <b><code>ioLimits</code></b> (Map&lt;String,Long&gt;)  </dt>
+     *   <dd> limits on the rate, in bytes per second, of reads from and writes to this volume, shared 
+     *        between user downloads, background caching, and integrity checking.  The recognized keys
+     *        are the same as for the top-level <code>ltsIOLimits</code> property.  Default: no limits </dd>
      * </dl>
      * 
      */
@@ -219,7 +362,9 @@ public class NISTCacheManagerConfig {
         private List<String> roles = null;
         private Map<String,Object> delStrat = null;
         private String redirectbase = null;
+        private long presignttl = 0L;
         private String volname = null;
+        private Map<String,Long> iolimits = null;
 
         public long     getCapacity()           { return capacity; }
         public void     setCapacity(long cap)   { capacity = cap;  }
@@ -233,8 +378,12 @@ public class NISTCacheManagerConfig {
         public void     setDeletionStrategy(Map<String,Object> strat) { delStrat = strat; }
         public String   getRedirectBase() { return redirectbase; }
         public void     setRedirectBase(String urlbase) { redirectbase = urlbase; }
+        public long     getPresignedRedirectTTL() { return presignttl; }
+        public void     setPresignedRedirectTTL(long secs) { presignttl = secs; }
         public String   getName()             { return volname;   }
         public void     setName(String n)     { volname = n;      }
+        public Map<String,Long> getIoLimits() { return iolimits; }
+        public void     setIoLimits(Map<String,Long> limits) { iolimits = limits; }
 
         int getStatusCode() throws ConfigurationException {
             if ("info".equals(getStatus()))
@@ -310,11 +459,53 @@ public class NISTCacheManagerConfig {
                                              use.get("type").toString());
         }
 
+        /**
+         * return the AND-ed set of {@link gov.nist.oar.distrib.cachemgr.pdr.PDRCacheRoles} bits 
+         * corresponding to the <code>roles</code> labels in this configuration.
+         */
+        public int getRoleBits() {
+            int roles = 0;
+            if (getRoles() != null && getRoles().size() > 0) {
+                Collection<String> rolenms = getRoles();
+                if (rolenms.contains("general")) roles |= PDRCacheRoles.ROLE_GENERAL_PURPOSE;
+                if (rolenms.contains("fast")) roles |= PDRCacheRoles.ROLE_FAST_ACCESS;
+                if (rolenms.contains("small")) roles |= PDRCacheRoles.ROLE_SMALL_OBJECTS;
+                if (rolenms.contains("large")) roles |= PDRCacheRoles.ROLE_LARGE_OBJECTS;
+                if (rolenms.contains("old")) roles |= PDRCacheRoles.ROLE_OLD_VERSIONS;
+                if (rolenms.contains("restricted")) roles |= PDRCacheRoles.ROLE_RESTRICTED_DATA;
+                if (rolenms.contains("old-restricted")) roles |= PDRCacheRoles.ROLE_OLD_RESTRICTED_DATA;
+            }
+            return roles;
+        }
+
+        /**
+         * create the {@link gov.nist.oar.distrib.cachemgr.VolumeConfig} (status, roles, and deletion
+         * strategy) that should be used when adding the configured volume to a 
+         * {@link gov.nist.oar.distrib.cachemgr.ConfigurableCache}.
+         */
+        public VolumeConfig createVolumeConfig() throws ConfigurationException {
+            return (new VolumeConfig(getStatusCode())).withDeletionStrategy(createDeletionStrategy())
+                                                      .withRoles(getRoleBits());
+        }
+
         /**
          * create a CacheVolume as prescribed by this configuration
          */
         public CacheVolume createCacheVolume(NISTCacheManagerConfig mgrcfg, S3Client s3client)
             throws ConfigurationException, FileNotFoundException, MalformedURLException, CacheManagementException
+        {
+            return createCacheVolume(mgrcfg, s3client, true);
+        }
+
+        /**
+         * create a CacheVolume as prescribed by this configuration
+         * @param verify   if false, skip checks of the volume's storage that require calls to a remote
+         *                 service (namely, that an S3 bucket and folder exist); the caller is then 
+         *                 responsible for verifying the volume (e.g. via 
+         *                 {@link gov.nist.oar.distrib.cachemgr.storage.AWSS3CacheVolume#verify()}).
+         */
+        public CacheVolume createCacheVolume(NISTCacheManagerConfig mgrcfg, S3Client s3client, boolean verify)
+            throws ConfigurationException, FileNotFoundException, MalformedURLException, CacheManagementException
         {
             if (location == null || location.length() == 0)
                 throw new ConfigurationException("Missing cache volume config parameter: "+location);
@@ -332,9 +523,13 @@ public class NISTCacheManagerConfig {
                 // S3 bucket; note: location starts with "s3:/"
                 try {
                     Path bucketfolder = Paths.get(location.substring(m.end()));
-                    return new AWSS3CacheVolume(bucketfolder.subpath(0,1).toString(),
-                                                bucketfolder.subpath(1, bucketfolder.getNameCount()).toString(), 
-                                                getName(), s3client, getRedirectBase());
+                    AWSS3CacheVolume out =
+                        new AWSS3CacheVolume(bucketfolder.subpath(0,1).toString(),
+                                             bucketfolder.subpath(1, bucketfolder.getNameCount()).toString(), 
+                                             getName(), s3client, getRedirectBase(), verify);
+                    if (getPresignedRedirectTTL() > 0L)
+                        out.enablePresignedRedirects(Duration.ofSeconds(getPresignedRedirectTTL()));
+                    return out;
                 } catch (InvalidPathException ex) {
                     throw new ConfigurationException("Invalid s3 location URL: " + location);
                 }
@@ -406,29 +601,57 @@ public class NISTCacheManagerConfig {
         ConfigurableCache cache = new ConfigurableCache("data", sidb, volumes.size(),
                                                         LoggerFactory.getLogger("data-cache"));
 
-        // configure/attach volumes
-        VolumeConfig vc = null;
-        for(CacheVolumeConfig cfg : volumes) {
-            int roles = 0;
-            if (cfg.getRoles() != null && cfg.getRoles().size() > 0) {
-                Collection<String> rolenms = cfg.getRoles();
-                if (rolenms.contains("general")) roles |= PDRCacheRoles.ROLE_GENERAL_PURPOSE;
-                if (rolenms.contains("fast")) roles |= PDRCacheRoles.ROLE_FAST_ACCESS;
-                if (rolenms.contains("small")) roles |= PDRCacheRoles.ROLE_SMALL_OBJECTS;
-                if (rolenms.contains("large")) roles |= PDRCacheRoles.ROLE_LARGE_OBJECTS;
-                if (rolenms.contains("old")) roles |= PDRCacheRoles.ROLE_OLD_VERSIONS;
-                if (rolenms.contains("restricted")) roles |= PDRCacheRoles.ROLE_RESTRICTED_DATA;
-                if (rolenms.contains("old-restricted")) roles |= PDRCacheRoles.ROLE_OLD_RESTRICTED_DATA;
-            }
+        // share the volumes' and long-term storage's bandwidth between downloads and background work
+        IOScheduler iosched = createIOScheduler();
 
-            vc = (new VolumeConfig(cfg.getStatusCode())).withDeletionStrategy(cfg.createDeletionStrategy())
-                                                        .withRoles(roles);
-            cache.addCacheVolume(cfg.createCacheVolume(this, s3), cfg.getCapacity(), null, vc, false);
+        // configure/attach volumes; remote volumes are verified afterward, in parallel
+        VolumeVerifier verifier = new VolumeVerifier(sidb, volumes.size(), getVolumeVerifyRetry()*1000,
+                                                     LoggerFactory.getLogger("data-cache"));
+        for(CacheVolumeConfig cfg : volumes) {
+            CacheVolume cv = cfg.createCacheVolume(this, s3, false);
+            configureIOLimits(iosched, cv.getName(), cfg.getIoLimits(), "volumes[].ioLimits");
+            cache.addCacheVolume(cv, cfg.getCapacity(), null, cfg.createVolumeConfig(), false);
+            if (cv instanceof AWSS3CacheVolume)
+                verifier.add(cv.getName(), ((AWSS3CacheVolume) cv)::verify);
         }
+        if (getVolumeVerifyWait() < 0)
+            verifier.verifyAll();
+        else
+            verifier.verifyInBackground(getVolumeVerifyWait()*1000);
+        cache.setLookupCaching(getLookupCacheTTL()*1000, getLookupMissTTL()*1000, 10000);
+        IOScheduler.setDefault(iosched);
                 
         return cache;
     }
 
+    /**
+     * create an {@link IOScheduler} configured with the I/O limits set for long-term storage.  
+     * {@link #createDefaultCache(S3Client)} adds the limits set for each of the cache volumes. 
+     */
+    public IOScheduler createIOScheduler() throws ConfigurationException {
+        IOScheduler out = new IOScheduler();
+        if (getIoMinBackgroundShare() < 0.0 || getIoMinBackgroundShare() > 1.0)
+            throw new ConfigurationException("ioMinBackgroundShare", "value must be between 0 and 1: " +
+                                             getIoMinBackgroundShare());
+        out.setMinBackgroundShare(getIoMinBackgroundShare());
+        configureIOLimits(out, IOScheduler.LTS_CHANNEL, getLtsIOLimits(), "ltsIOLimits");
+        return out;
+    }
+
+    private static void configureIOLimits(IOScheduler sched, String channel, Map<String, Long> limits,
+                                          String param)
+        throws ConfigurationException
+    {
+        if (limits == null || limits.isEmpty())
+            return;
+        for (String key : limits.keySet()) {
+            if (! Arrays.asList("capacity", "interactive", "prefetch", "integrity").contains(key))
+                throw new ConfigurationException(param, "Unrecognized limit name: " + key);
+        }
+        sched.configure(channel, limits.getOrDefault("capacity", 0L), limits.getOrDefault("interactive", 0L),
+                        limits.getOrDefault("prefetch", 0L), limits.getOrDefault("integrity", 0L));
+    }
+
     public HeadBagCacheManager createHeadBagManager(BagStorage ltstore)
         throws ConfigurationException, IOException, CacheManagementException
     {
@@ -489,10 +712,21 @@ public class NISTCacheManagerConfig {
         // Get the StorageInventoryDB from the cache and add the CacheExpiryCheck to the list of checks
         StorageInventoryDB inventoryDB = cache.getInventoryDB();
         checks.add(new CacheExpiryCheck(inventoryDB));
-        checks.add(new ChecksumCheck(false, true));
+        ChecksumCheck cschk = new ChecksumCheck(false, true);
+        if (getCheckMaxBytesPerSec() > 0)
+            cschk.setRateLimiter(new ByteRateLimiter(getCheckMaxBytesPerSec()));
+        if (getCheckFullPeriod() > 0)
+            cschk.setIncremental(inventoryDB, getCheckFullPeriod()*1000);
+        checks.add(cschk);
 
         PDRCacheManager out = new PDRCacheManager(cache, rstr, checks, getCheckDutyCycle()*1000, 
                                                   getCheckGracePeriod()*1000, -1, rootdir, logger);
+        out.setReadThroughFinishLimit(getReadThroughFinishLimit());
+        if (getCheckParallelism() < 1)
+            throw new ConfigurationException("checkParallelism", "value must be positive: " +
+                                             getCheckParallelism());
+        out.setMonitorParallelism(getCheckParallelism());
+        out.setUseVirtualThreads(getVirtualThreads());
         if (getMonitorAutoStart()) {
             PDRCacheManager.MonitorThread mt = out.getMonitorThread();
             mt.setContinuous(true);
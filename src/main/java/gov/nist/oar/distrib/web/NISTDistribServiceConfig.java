@@ -12,10 +12,12 @@
 package gov.nist.oar.distrib.web;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,11 +25,13 @@ import javax.activation.MimetypesFileTypeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
@@ -37,6 +41,8 @@ import org.springframework.web.util.UrlPathHelper;
 import gov.nist.oar.distrib.BagStorage;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.datapackage.BundleCache;
+import gov.nist.oar.distrib.datapackage.ZipCompressionPolicy;
 import gov.nist.oar.distrib.service.DataPackagingService;
 import gov.nist.oar.distrib.service.DefaultDataPackagingService;
 import gov.nist.oar.distrib.service.DefaultPreservationBagService;
@@ -47,6 +53,8 @@ import gov.nist.oar.distrib.service.RPACachingService;
 import gov.nist.oar.distrib.service.rpa.RPARequestHandler;
 import gov.nist.oar.distrib.storage.AWSS3LongTermStorage;
 import gov.nist.oar.distrib.storage.FilesystemLongTermStorage;
+import gov.nist.oar.distrib.storage.S3ClientFactory;
+import gov.nist.oar.distrib.storage.S3PoolMetrics;
 
 import io.swagger.v3.oas.models.Components;
 import io.swagger.v3.oas.models.OpenAPI;
@@ -55,7 +63,6 @@ import io.swagger.v3.oas.models.info.License;
 import io.swagger.v3.oas.models.servers.Server;
 
 import software.amazon.awssdk.auth.credentials.InstanceProfileCredentialsProvider;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 
 /**
@@ -105,6 +112,65 @@ import software.amazon.awssdk.services.s3.S3Client;
  *   <dd> a pipe-delimited list of regular expressions for URLs that are allowed to appear in a data 
  *        packaging request (see
  *        {@link gov.nist.oar.distrib.service.DataPackagingService}) </dd>
+ *   <dt> {@code distrib.packaging.prefetch} </dt>
+ *   <dd> The number of files to retrieve concurrently while streaming a data package (default: 4) </dd>
+ *   <dt> {@code distrib.packaging.fetchthreads} </dt>
+ *   <dd> The maximum number of files to retrieve concurrently across all data packages being 
+ *        streamed at once (default: 16) </dd>
+ *   <dt> {@code distrib.packaging.packbundles} </dt>
+ *   <dd> If true, bundle plans pack the requested files into as few data packages as the size and
+ *        file count limits allow (keeping files from the same directory together where possible)
+ *        rather than bundling them in the order requested (default: false) </dd>
+ *   <dt> {@code distrib.packaging.spoolthreshold} </dt>
+ *   <dd> The number of bytes of each prefetched file to hold in memory; the remainder is spooled 
+ *        to a temporary file (default: 4194304) </dd>
+ *   <dt> {@code distrib.packaging.deflatelevel} </dt>
+ *   <dd> The deflate level (0-9, or -1 for the library default) used for compressible files in a 
+ *        data package; files in already-compressed formats (e.g. HDF5, NetCDF, zip, JPEG) are 
+ *        stored uncompressed. </dd>
+ *   <dt> {@code distrib.packaging.bundlecache.dir} </dt>
+ *   <dd> A local directory where finished data packages are saved so that identical requests 
+ *        can be served without rebuilding them; if not set, packages are not cached. </dd>
+ *   <dt> {@code distrib.packaging.bundlecache.capacity} </dt>
+ *   <dd> The maximum number of bytes of data packages to keep in the bundle cache 
+ *        (default: 10000000000) </dd>
+ *   <dt> {@code distrib.packaging.bundlecache.ttl} </dt>
+ *   <dd> The number of seconds a cached data package may be reused (default: 86400) </dd>
+ *   <dt> {@code distrib.nerdm.cache.maxsize} </dt>
+ *   <dd> The maximum total size, in bytes, of NERDm records--including the directory indexes
+ *        built from them--to keep in memory for rclone-style directory listings
+ *        (default: 50000000) </dd>
+ *   <dt> {@code distrib.nerdm.cache.ttl} </dt>
+ *   <dd> The number of seconds a cached NERDm record remains valid (default: 300) </dd>
+ *   <dt> {@code distrib.s3.maxconnections} </dt>
+ *   <dd> The maximum number of connections the S3 client used to access long-term storage may 
+ *        hold open (default: 200) </dd>
+ *   <dt> {@code distrib.s3.cache.maxconnections} </dt>
+ *   <dd> The maximum number of connections the S3 client used by cache volumes may hold open 
+ *        (default: 100) </dd>
+ *   <dt> {@code distrib.s3.acquiretimeout} </dt>
+ *   <dd> The number of milliseconds a request will wait for a free S3 connection (default: 10000) </dd>
+ *   <dt> {@code distrib.s3.connecttimeout} </dt>
+ *   <dd> The number of milliseconds to wait while opening an S3 connection (default: 2000) </dd>
+ *   <dt> {@code distrib.s3.sockettimeout} </dt>
+ *   <dd> The number of milliseconds to wait for data on an open S3 connection (default: 30000) </dd>
+ *   <dt> {@code distrib.s3.maxidletime} </dt>
+ *   <dd> The number of milliseconds after which an idle S3 connection is closed (default: 60000) </dd>
+ *   <dt> {@code distrib.s3.tcpkeepalive} </dt>
+ *   <dd> Whether to enable TCP keep-alive on S3 connections (default: true) </dd>
+ *   <dt> {@code distrib.s3.checksumvalidation} </dt>
+ *   <dd> Whether the S3 clients should validate the checksums of transferred data (default: true) </dd>
+ *   <dt> {@code distrib.s3.async.type} </dt>
+ *   <dd> The type of asynchronous S3 client to use for reading files from long-term storage:  
+ *        "netty", "crt" (which requires the aws-crt library), or "none" to read them with the 
+ *        synchronous client (default: none) </dd>
+ *   <dt> {@code distrib.s3.async.maxconcurrency} </dt>
+ *   <dd> The maximum number of concurrent requests the asynchronous S3 client may make 
+ *        (default: 64) </dd>
+ *   <dt> {@code spring.threads.virtual.enabled} </dt>
+ *   <dd> Whether to handle web requests and run {@code @Async} tasks on virtual threads.  When true, 
+ *        the cache manager's background workers also use virtual threads (see 
+ *        {@link NISTCacheManagerConfig}'s {@code virtualThreads} property) (default: false) </dd>
  * </dl>
  * <p>
  * See also 
@@ -178,9 +244,139 @@ public class NISTDistribServiceConfig {
     @Value("${distrib.packaging.allowedRedirects:1}")
     int allowedRedirects;
 
+    /**
+     * the number of files to retrieve concurrently while streaming a data package
+     */
+    @Value("${distrib.packaging.prefetch:4}")
+    int pkgPrefetch;
+
+    /**
+     * the maximum number of files to retrieve concurrently across all data packages being streamed
+     */
+    @Value("${distrib.packaging.fetchthreads:16}")
+    int pkgFetchThreads;
+
+    /**
+     * whether bundle plans should pack files into as few data packages as possible rather than 
+     * bundling them in the order requested
+     */
+    @Value("${distrib.packaging.packbundles:false}")
+    boolean pkgPackBundles;
+
+    /**
+     * the number of bytes of each prefetched file to hold in memory while streaming a data 
+     * package; the remainder of larger files is spooled to temporary files.
+     */
+    @Value("${distrib.packaging.spoolthreshold:4194304}")
+    long pkgSpoolThreshold;
+
+    /**
+     * the deflate compression level (0-9, or -1 for the default) to use for compressible files 
+     * in a data package.  Files in already-compressed formats are always stored uncompressed.
+     */
+    @Value("${distrib.packaging.deflatelevel:-1}")
+    int pkgDeflateLevel;
+
+    /**
+     * the directory where finished data packages are cached for reuse; if null, packages are not
+     * cached.
+     */
+    @Value("${distrib.packaging.bundlecache.dir:@null}")
+    String bundleCacheDir;
+
+    /**
+     * the maximum number of bytes of data packages to keep in the bundle cache
+     */
+    @Value("${distrib.packaging.bundlecache.capacity:10000000000}")
+    long bundleCacheCapacity;
+
+    /**
+     * the number of seconds a cached data package may be reused before it is rebuilt
+     */
+    @Value("${distrib.packaging.bundlecache.ttl:86400}")
+    long bundleCacheTTL;
+
     @Value("${distrib.nerdm.baseurl}")
     String nerdmBaseUrl;
 
+    /**
+     * the maximum total size, in bytes, of the NERDm records held in memory by the 
+     * {@link NerdmDownloadService}
+     */
+    @Value("${distrib.nerdm.cache.maxsize:50000000}")
+    long nerdmCacheSize;
+
+    /**
+     * the number of seconds a NERDm record can be served from the {@link NerdmDownloadService}'s 
+     * cache before it is refetched
+     */
+    @Value("${distrib.nerdm.cache.ttl:300}")
+    long nerdmCacheTTL;
+
+    /**
+     * the maximum number of simultaneous connections the {@link NerdmDownloadService} will open 
+     * to the resolver service
+     */
+    @Value("${distrib.nerdm.maxconnections:20}")
+    int nerdmMaxConns;
+
+    /**
+     * the maximum number of connections the long-term storage S3 client may hold open
+     */
+    @Value("${distrib.s3.maxconnections:200}")
+    int s3MaxConns;
+
+    /**
+     * the maximum number of connections the cache volumes' S3 client may hold open
+     */
+    @Value("${distrib.s3.cache.maxconnections:100}")
+    int s3CacheMaxConns;
+
+    /**
+     * the number of milliseconds a request will wait for a free S3 connection
+     */
+    @Value("${distrib.s3.acquiretimeout:10000}")
+    long s3AcquireTimeout;
+
+    /**
+     * the number of milliseconds to wait while opening an S3 connection
+     */
+    @Value("${distrib.s3.connecttimeout:2000}")
+    long s3ConnectTimeout;
+
+    /**
+     * the number of milliseconds to wait for data on an open S3 connection
+     */
+    @Value("${distrib.s3.sockettimeout:30000}")
+    long s3SocketTimeout;
+
+    /**
+     * the number of milliseconds after which an idle S3 connection is closed
+     */
+    @Value("${distrib.s3.maxidletime:60000}")
+    long s3MaxIdleTime;
+
+    @Value("${distrib.s3.tcpkeepalive:true}")
+    boolean s3TcpKeepAlive;
+
+    @Value("${distrib.s3.checksumvalidation:true}")
+    boolean s3ChecksumValidation;
+
+    /**
+     * the type of asynchronous S3 client to use for long-term storage reads ("netty", "crt", or "none")
+     */
+    @Value("${distrib.s3.async.type:none}")
+    String s3AsyncType;
+
+    @Value("${distrib.s3.async.maxconcurrency:64}")
+    int s3AsyncMaxConcurrency;
+
+    /**
+     * true if request handling and asynchronous tasks run on virtual threads
+     */
+    @Value("${spring.threads.virtual.enabled:false}")
+    boolean virtualThreads;
+
     S3Client             s3client;    // set via getter below
     BagStorage                lts;    // set via getter below
     MimetypesFileTypeMap  mimemap;    // set via getter below
@@ -190,12 +386,23 @@ public class NISTDistribServiceConfig {
      * the storage service to use to access the bags
      */
     @Bean
-    public BagStorage getLongTermStorage(S3Client s3client) throws ConfigurationException {
+    public BagStorage getLongTermStorage(S3Client s3client, S3ClientFactory s3factory)
+        throws ConfigurationException
+    {
         logger.info("Bagstore mode: " + mode);
         logger.info("Bagstore location: " + bagstore);
         try {
             if (mode.equals("aws") || mode.equals("remote")) {
-                return new AWSS3LongTermStorage(bagstore, s3client);
+                AWSS3LongTermStorage out = new AWSS3LongTermStorage(bagstore, s3client);
+                if (s3AsyncType != null && ! "none".equalsIgnoreCase(s3AsyncType)) {
+                    try {
+                        out.setAsyncClient(s3factory.createAsyncClient("lts-async", s3AsyncType,
+                                                                       s3AsyncMaxConcurrency));
+                    } catch (IllegalArgumentException ex) {
+                        throw new ConfigurationException("distrib.s3.async.type", ex.getMessage(), ex);
+                    }
+                }
+                return out;
             } else if (mode.equals("local")) {
                 return new FilesystemLongTermStorage(bagstore);
             } else {
@@ -213,24 +420,57 @@ public class NISTDistribServiceConfig {
 
 
     /**
-     * the client for access S3 storage
+     * the collector of statistics on the S3 clients' connection pools
      */
     @Bean
-    public S3Client getAmazonS3() throws ConfigurationException {
-        logger.info("Creating S3 client");
+    public S3PoolMetrics getS3PoolMetrics() {
+        return new S3PoolMetrics();
+    }
+
+    /**
+     * the actuator endpoint that exports the S3 connection pool statistics
+     */
+    @Bean
+    public S3PoolMetricsEndpoint getS3PoolMetricsEndpoint(S3PoolMetrics metrics) {
+        return new S3PoolMetricsEndpoint(metrics);
+    }
 
+    /**
+     * the factory for creating S3 clients with the configured connection pool settings
+     */
+    @Bean
+    public S3ClientFactory getS3ClientFactory(S3PoolMetrics metrics) throws ConfigurationException {
         // Check if "remote" mode is supported
         if ("remote".equalsIgnoreCase(mode)) {
             throw new ConfigurationException("Remote credentials not supported yet");
         }
 
+        // Use instance profile credentials (supports EC2 instance profiles)
+        S3ClientFactory out = new S3ClientFactory(InstanceProfileCredentialsProvider.create(),
+                                                  region, metrics);
         try {
-            // Use default credential provider chain (supports EC2 instance profiles)
-            S3Client client = S3Client.builder()
-                    .credentialsProvider(InstanceProfileCredentialsProvider.create())
-                    .region(Region.of(region))
-                    .build();
+            out.setMaxConnections(s3MaxConns);
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigurationException("distrib.s3.maxconnections", ex.getMessage(), ex);
+        }
+        out.setConnectionAcquisitionTimeout(Duration.ofMillis(s3AcquireTimeout));
+        out.setConnectionTimeout(Duration.ofMillis(s3ConnectTimeout));
+        out.setSocketTimeout(Duration.ofMillis(s3SocketTimeout));
+        out.setConnectionMaxIdleTime(Duration.ofMillis(s3MaxIdleTime));
+        out.setTcpKeepAlive(s3TcpKeepAlive);
+        out.setChecksumValidation(s3ChecksumValidation);
+        return out;
+    }
 
+    /**
+     * the client for access S3 storage; this is used to access the long-term storage
+     */
+    @Bean
+    @Primary
+    public S3Client getAmazonS3(S3ClientFactory s3factory) throws ConfigurationException {
+        logger.info("Creating S3 client");
+        try {
+            S3Client client = s3factory.createClient("lts", s3MaxConns);
             logger.info("S3 client created successfully for region: {}", region);
             return client;
         } catch (Exception e) {
@@ -239,6 +479,23 @@ public class NISTDistribServiceConfig {
         }
     }
 
+    /**
+     * the client used by S3-based cache volumes.  This has its own connection pool so that cache 
+     * traffic does not starve access to long-term storage (and vice versa).
+     */
+    @Bean("cacheS3Client")
+    public S3Client getCacheS3Client(S3ClientFactory s3factory) throws ConfigurationException {
+        if (s3CacheMaxConns <= 0)
+            throw new ConfigurationException("distrib.s3.cache.maxconnections",
+                                             "value must be positive: " + s3CacheMaxConns);
+        try {
+            return s3factory.createClient("cache", s3CacheMaxConns);
+        } catch (Exception e) {
+            logger.error("Failed to create cache S3 client: {}", e.getMessage(), e);
+            throw new ConfigurationException("Error creating cache S3 client: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * the MIME type assignments to use when setting content types
      */
@@ -275,13 +532,47 @@ public class NISTDistribServiceConfig {
      * the service implementation to use to package data into bundles
      */
     @Bean
-    public DataPackagingService getDataPackagingService(){
-        return new DefaultDataPackagingService(allowedUrls, maxPkgSize, maxFileCount, allowedRedirects);
+    public DataPackagingService getDataPackagingService(MimetypesFileTypeMap mimemap)
+        throws ConfigurationException
+    {
+        DefaultDataPackagingService svc =
+            new DefaultDataPackagingService(allowedUrls, maxPkgSize, maxFileCount, allowedRedirects);
+        svc.setPrefetchDepth(pkgPrefetch);
+        svc.setFetchThreads(pkgFetchThreads);
+        svc.setSpoolThreshold(pkgSpoolThreshold);
+        svc.setPackBundles(pkgPackBundles);
+
+        ZipCompressionPolicy zpolicy = new ZipCompressionPolicy(mimemap);
+        try {
+            zpolicy.setDeflateLevel(pkgDeflateLevel);
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigurationException("distrib.packaging.deflatelevel", ex.getMessage(), ex);
+        }
+        svc.setCompressionPolicy(zpolicy);
+
+        if (bundleCacheDir != null && ! bundleCacheDir.equals("@null")) {
+            try {
+                File bcdir = new File(bundleCacheDir);
+                if (! bcdir.exists()) bcdir.mkdirs();
+                BundleCache bcache = BundleCache.create(bcdir, bundleCacheCapacity);
+                bcache.setTimeToLive(Duration.ofSeconds(bundleCacheTTL));
+                svc.setBundleCache(bcache);
+                logger.info("Caching data packages under {}", bcdir);
+            } catch (FileNotFoundException ex) {
+                throw new ConfigurationException("distrib.packaging.bundlecache.dir",
+                                                 "Not an existing directory: " + bundleCacheDir, ex);
+            } catch (CacheManagementException ex) {
+                throw new ConfigurationException("distrib.packaging.bundlecache.dir",
+                                                 "Unable to set up bundle cache: " + ex.getMessage(), ex);
+            }
+        }
+        return svc;
     }
 
     @Bean
     public NerdmDownloadService getNerdmDownloadService() {
-        return new NerdmDownloadService(nerdmBaseUrl);
+        return new NerdmDownloadService(nerdmBaseUrl, nerdmCacheSize, Duration.ofSeconds(nerdmCacheTTL),
+                                        nerdmMaxConns);
     }
 
     /**
@@ -300,11 +591,28 @@ public class NISTDistribServiceConfig {
      */
     @Bean
     public CacheManagerProvider getCacheManagerProvider(NISTCacheManagerConfig config,
-                                                        BagStorage bagstor, S3Client s3client)
+                                                        BagStorage bagstor,
+                                                        @Qualifier("cacheS3Client") S3Client s3client)
     {
+        if (virtualThreads)
+            config.setVirtualThreads(true);
         return new CacheManagerProvider(config, bagstor, s3client);
     }
 
+    /**
+     * the start-up pre-loading of recently used datasets into the download service's caches.  As a
+     * health indicator (named "warmup"), it reports whether enough of the datasets have been loaded
+     * to take requests.
+     */
+    @Bean("warmupHealthIndicator")
+    public CacheWarmer getCacheWarmer(FileDownloadService dlsvc, CacheManagerProvider cmprovider)
+        throws ConfigurationException
+    {
+        CacheWarmer out = cmprovider.createCacheWarmer(dlsvc);
+        out.start();
+        return out;
+    }
+
 
     /**
      * create a configuration object for Restricted Public Access (RPA)
@@ -348,7 +656,7 @@ public class NISTDistribServiceConfig {
 
     @Bean
     public RPAAsyncExecutor getRPAAsyncExecutor(RPACachingServiceProvider rpaCachingServiceProvider,
-            RPAServiceProvider rpaServiceProvider, S3Client s3)
+            RPAServiceProvider rpaServiceProvider, @Qualifier("cacheS3Client") S3Client s3)
             throws ConfigurationException, IOException, CacheManagementException {
 
         RPACachingService cachingService = rpaCachingServiceProvider.getRPACachingService(s3);
@@ -40,4 +40,23 @@ public class RPAAsyncExecutor {
                     e.getMessage(), e);
         }
     }
+
+    /**
+     * Notify the requester of an approved record that its dataset has finished caching asynchronously.
+     * This method does not throw any exceptions; rather, it logs any errors and continues.  Its
+     * signature matches {@link gov.nist.oar.distrib.service.RPACachingService.CachingListener} so that
+     * it can be set as the caching service's listener.
+     *
+     * @param randomId The temporary random ID that the dataset was cached under.
+     * @param recordId The ID of the approved record.
+     * @param cached   True if the dataset was cached successfully.
+     */
+    @Async
+    public void handleAfterCachingAsync(String randomId, String recordId, boolean cached) {
+        try {
+            handler.handleAfterCaching(recordId, randomId, cached);
+        } catch (RuntimeException e) {
+            LOGGER.error("Async notification failed for record ID {}: {}", recordId, e.getMessage(), e);
+        }
+    }
 }
@@ -25,6 +25,7 @@ import gov.nist.oar.distrib.cachemgr.pdr.HeadBagCacheManager;
 import gov.nist.oar.distrib.cachemgr.pdr.HeadBagDB;
 import gov.nist.oar.distrib.cachemgr.pdr.HeadBagRestorer;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRDatasetCacheManager;
+import gov.nist.oar.distrib.cachemgr.pdr.PDRStorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume;
 
 import java.io.File;
@@ -182,6 +183,7 @@ public class RPACachingServiceProvider {
     {
         RestrictedDatasetRestorer rdr = new RestrictedDatasetRestorer(pubstore, getRPBagStorage(), getHeadBagCacheManager());
         rdr.setExpiryTime(rpacfg.getExpiresAfterMillis());
+        rdr.setShareContent(rpacfg.isShareCachedContent());
         return rdr;
         // return new PDRDatasetRestorer(getRPBagStorage(), getHeadBagCacheManager());
     }
@@ -192,7 +194,11 @@ public class RPACachingServiceProvider {
     public PDRDatasetCacheManager createRPACacheManager(BasicCache cache)
         throws ConfigurationException, IOException, CacheManagementException
     {
-        return new PDRDatasetCacheManager(cache, createRPDatasetRestorer(), _getLogger());
+        RestrictedDatasetRestorer rdr = createRPDatasetRestorer();
+        if (rdr.isSharingContent() && cache.getInventoryDB() instanceof PDRStorageInventoryDB)
+            // requests access shared content via aliases, including those registered before a restart
+            ((PDRStorageInventoryDB) cache.getInventoryDB()).setAliasResolution(true);
+        return new PDRDatasetCacheManager(cache, rdr, _getLogger());
     }
 
     /**
@@ -211,15 +217,18 @@ public class RPACachingServiceProvider {
 
     /**
      * return a singleton instance of RPACachingService created from the configuration for the 
-     * application.  If one has not been created yet, it will be and cached in within this class. 
+     * application.  If one has not been created yet, it will be and cached in within this class; 
+     * any caching jobs left unfinished by a previous run of the service are then resumed.
      * @param s3   an AmazonS3 interface for accessing S3 buckets for storage (as specified in
      *             the configuration); ignored if the service has already been created.
      */
     public RPACachingService getRPACachingService(S3Client s3) 
         throws ConfigurationException, IOException, CacheManagementException
     {
-        if (cacher == null && canCreateService())
+        if (cacher == null && canCreateService()) {
             cacher = createRPACachingService(s3);
+            cacher.resumeJobs();
+        }
         return cacher;
     }
 }
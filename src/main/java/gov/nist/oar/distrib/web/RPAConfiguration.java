@@ -66,6 +66,15 @@ public class RPAConfiguration {
     @JsonProperty("supportEmail")
     private String supportEmail;
 
+    @JsonProperty("cachingThreads")
+    int cachingThreads = 2;
+
+    @JsonProperty("cachingQueueSize")
+    int cachingQueueSize = 100;
+
+    @JsonProperty("shareCachedContent")
+    boolean shareCachedContent = true;
+
     public long getHeadbagCacheSize() {
         return hbCacheSize;
     }
@@ -98,6 +107,40 @@ public class RPAConfiguration {
         this.expiresAfterMillis = expiresAfterMillis;
     }
 
+    /**
+     * return the maximum number of datasets that will be cached concurrently for approved requests
+     */
+    public int getCachingThreads() {
+        return cachingThreads;
+    }
+
+    public void setCachingThreads(int threads) {
+        cachingThreads = threads;
+    }
+
+    /**
+     * return the maximum number of approved datasets that can be waiting to be cached
+     */
+    public int getCachingQueueSize() {
+        return cachingQueueSize;
+    }
+
+    public void setCachingQueueSize(int size) {
+        cachingQueueSize = size;
+    }
+
+    /**
+     * return true if the files of a dataset approved for multiple requests should be cached once and 
+     * shared by those requests
+     */
+    public boolean isShareCachedContent() {
+        return shareCachedContent;
+    }
+
+    public void setShareCachedContent(boolean share) {
+        shareCachedContent = share;
+    }
+
     public String getSupportEmail() {
         return supportEmail;
     }
@@ -13,6 +13,7 @@ import software.amazon.awssdk.services.s3.S3Client;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -50,7 +51,8 @@ public class RPADataCachingController {
     RPACachingService restrictedSrvc = null;
 
     @Autowired
-    public RPADataCachingController(RPACachingServiceProvider provider, S3Client s3)
+    public RPADataCachingController(RPACachingServiceProvider provider,
+                                    @Qualifier("cacheS3Client") S3Client s3)
         throws ConfigurationException, IOException, CacheManagementException
     {
         if (provider != null && provider.canCreateService())
@@ -133,7 +135,9 @@ public class RPADataCachingController {
     }
 
     /**
-     * Retrieve metadata of a cached dataset.
+     * Retrieve metadata of a cached dataset.  If the dataset is still being cached in the background 
+     * (as it is for approved requests), the response describes the files cached so far, and its 
+     * <code>ready</code> property is false.
      *
      * @param cacheId - the random ID representing the cached dataset.
      *
@@ -23,6 +23,7 @@ import software.amazon.awssdk.services.s3.S3Client;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -104,7 +105,7 @@ public class RPARequestHandlerController {
     @Autowired
     public RPARequestHandlerController(RPAServiceProvider rpaServiceProvider,
             RPACachingServiceProvider cachingProvider,
-            S3Client s3,
+            @Qualifier("cacheS3Client") S3Client s3,
             RPAAsyncExecutor asyncExecutor)
             throws ConfigurationException, IOException, CacheManagementException {
         this(rpaServiceProvider, getCachingServiceFromProvider(cachingProvider, s3), asyncExecutor);
@@ -128,6 +129,11 @@ public class RPARequestHandlerController {
         this.jwtTokenValidator = new JwtTokenValidator(this.configuration);
         this.recaptchaHelper = new RecaptchaVerificationHelper(this.configuration);
         this.asyncExecutor = asyncExecutor;
+
+        // requesters of approved records are told when their datasets are ready (on a separate thread,
+        // as it involves sending email)
+        if (cachingService != null && asyncExecutor != null)
+            cachingService.setCachingListener(asyncExecutor::handleAfterCachingAsync);
     }
 
     /**
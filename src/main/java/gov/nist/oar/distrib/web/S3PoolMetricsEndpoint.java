@@ -0,0 +1,43 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.web;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import gov.nist.oar.distrib.storage.S3PoolMetrics;
+
+/**
+ * an actuator endpoint that reports the state of the S3 clients' connection pools.
+ * <p>
+ * When exposed (via {@code management.endpoints.web.exposure.include}), the statistics are
+ * available at {@code /actuator/s3pools}, keyed by client name (e.g. "lts" and "cache").
+ */
+@Endpoint(id = "s3pools")
+public class S3PoolMetricsEndpoint {
+
+    private S3PoolMetrics metrics = null;
+
+    public S3PoolMetricsEndpoint(S3PoolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * return the current statistics for all of the S3 connection pools
+     */
+    @ReadOperation
+    public Map<String, Object> pools() {
+        return metrics.getStatus().toMap();
+    }
+}
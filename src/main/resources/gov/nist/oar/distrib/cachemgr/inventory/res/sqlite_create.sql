@@ -24,6 +24,12 @@ CREATE TABLE IF NOT EXISTS objects (
    checked   integer NOT NULL,
    cached    boolean,
    metadata  text,
+   contentType text,
+   filepath  text,
+   aipid     text,
+   version   text,
+   bagfile   text,
+   expires   integer,
    FOREIGN KEY (volume)    REFERENCES volumes(id),
    FOREIGN KEY (algorithm) REFERENCES algorithms(id)
 );
@@ -26,6 +26,35 @@ CREATE TABLE IF NOT EXISTS objects (
    pdrid     text DEFAULT "",
    ediid     text DEFAULT "",
    metadata  text,
+   contentType text,
+   filepath  text,
+   aipid     text,
+   version   text,
+   bagfile   text,
+   expires   integer,
    FOREIGN KEY (volume)    REFERENCES volumes(id),
    FOREIGN KEY (algorithm) REFERENCES algorithms(id)
 );
+
+CREATE TABLE IF NOT EXISTS aliases (
+   alias     text NOT NULL,
+   objid     text NOT NULL,
+   grp       text NOT NULL,
+   since     integer NOT NULL,
+   expires   integer NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS cachejobs (
+   jobid     text NOT NULL,
+   dsid      text NOT NULL,
+   version   text,
+   status    text NOT NULL,
+   message   text,
+   since     integer NOT NULL,
+   finished  integer NOT NULL,
+   recordid  text
+);
+
+CREATE INDEX IF NOT EXISTS aliases_alias ON aliases(alias);
+CREATE INDEX IF NOT EXISTS aliases_grp ON aliases(grp);
+CREATE INDEX IF NOT EXISTS aliases_objid ON aliases(objid);
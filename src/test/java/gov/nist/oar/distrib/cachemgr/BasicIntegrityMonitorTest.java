@@ -14,6 +14,7 @@
 package gov.nist.oar.distrib.cachemgr;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -178,4 +179,86 @@ public class BasicIntegrityMonitorTest {
         assertEquals(1, cos.size());
         assertEquals(failed.get(0).name, cos.get(0).name);
     }
+
+    @Test
+    public void testParallelFindCorruptedOjects()
+        throws InventoryException, StorageVolumeException, CacheManagementException
+    {
+        List<CacheObjectCheck> chks = new ArrayList<>();
+        chks.add(new SizeCheck());
+        ChecksumCheck cschk = new ChecksumCheck();
+        cschk.setRateLimiter(new ByteRateLimiter(100000000L));
+        mon = new BasicIntegrityMonitor("test", cachert.sidb, cachert.cache.volumes, chks);
+        mon.setParallelism(4);
+        assertEquals(4, mon.getParallelism());
+
+        // set an incorrect size for one object
+        List<CacheObject> cos = cachert.sidb.findObject("mds1491/trial1.json#1.1.0");
+        CacheObject co = cos.get(0);
+        JSONObject md = new JSONObject();
+        md.put("size", 10);
+        cachert.sidb.updateMetadata(co.volname, co.name, md);
+
+        ArrayList<CacheObject> failed = new ArrayList<>();
+        assertEquals(13, mon.findCorruptedObjects(20, failed, false));
+        assertEquals(1, failed.size());
+        assertEquals(co.name, failed.get(0).name);
+        assertEquals(14L, mon.getObjectsChecked());
+        assertTrue(mon.getBytesChecked() > 0L);
+
+        // check times were recorded for the objects that passed
+        cos = mon.selectObjectsToBeChecked(20);
+        assertEquals(1, cos.size());
+        assertEquals(failed.get(0).name, cos.get(0).name);
+
+        // checksums of the trial files can be verified concurrently as well
+        chks.add(cschk);
+        cos = cachert.sidb.findObject("mds1491/trial2.json#1.1.0");
+        cos.addAll(cachert.sidb.findObject("mds1491/trial3/trial3a.json#1.1.0"));
+        for (CacheObject c : cos)
+            c.volume = cachert.cache.volumes.get(c.volname);
+        failed = new ArrayList<>();
+        assertEquals(2, mon.selectCorruptedObjects(cos, failed, false));
+        assertEquals(0, failed.size());
+
+        // the same checks can be run on virtual threads
+        assertFalse(mon.usesVirtualThreads());
+        mon.setUseVirtualThreads(true);
+        assertTrue(mon.usesVirtualThreads());
+        failed = new ArrayList<>();
+        assertEquals(2, mon.selectCorruptedObjects(cos, failed, false));
+        assertEquals(0, failed.size());
+
+        try {
+            mon.setParallelism(0);
+            fail("Failed to reject non-positive parallelism");
+        } catch (IllegalArgumentException ex) { }
+    }
+
+    @Test
+    public void testParallelCheckFailureIsReported()
+        throws InventoryException, StorageVolumeException, CacheManagementException
+    {
+        List<CacheObjectCheck> chks = new ArrayList<>();
+        chks.add(co -> { throw new IllegalStateException("check broke"); });
+        mon = new BasicIntegrityMonitor("test", cachert.sidb, cachert.cache.volumes, chks);
+        mon.setParallelism(4);
+
+        List<CacheObject> cos = cachert.sidb.findObject("mds1491/trial2.json#1.1.0");
+        cos.addAll(cachert.sidb.findObject("mds1491/trial3/trial3a.json#1.1.0"));
+        for (CacheObject c : cos)
+            c.volume = cachert.cache.volumes.get(c.volname);
+
+        // a worker that dies must not look like a clean pass
+        for (boolean virt : new boolean[] { false, true }) {
+            mon.setUseVirtualThreads(virt);
+            try {
+                mon.selectCorruptedObjects(cos, new ArrayList<>(), false);
+                fail("Failed to report a failure in a worker thread (virtual="+virt+")");
+            }
+            catch (IllegalStateException ex) {
+                assertEquals("check broke", ex.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,50 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ByteRateLimiterTest {
+
+    @Test
+    public void testUnlimited() throws InterruptedException {
+        ByteRateLimiter lim = new ByteRateLimiter(0L);
+        assertEquals(0L, lim.getBytesPerSecond());
+        long start = System.nanoTime();
+        lim.acquire(1000000000L);
+        assertTrue(System.nanoTime() - start < 100000000L);
+    }
+
+    @Test
+    public void testLimit() throws InterruptedException {
+        ByteRateLimiter lim = new ByteRateLimiter(1000000L);
+
+        // the first second's worth is available as a burst
+        long start = System.nanoTime();
+        lim.acquire(1000000L);
+        assertTrue(System.nanoTime() - start < 100000000L);
+
+        // the next 200 kB must wait about 0.2 s
+        start = System.nanoTime();
+        lim.acquire(200000L);
+        long waited = System.nanoTime() - start;
+        assertTrue(waited >= 150000000L, "waited only "+waited+" ns");
+
+        lim.setBytesPerSecond(0L);
+        start = System.nanoTime();
+        lim.acquire(10000000L);
+        assertTrue(System.nanoTime() - start < 100000000L);
+    }
+}
@@ -2,16 +2,20 @@ package gov.nist.oar.distrib.cachemgr;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +31,7 @@ public class CacheExpiryCheckTest {
 
     @BeforeEach
     public void setUp() {
+        lenient().when(mockInventoryDB.getLock()).thenReturn(new ReentrantLock());
         expiryCheck = new CacheExpiryCheck(mockInventoryDB);
     }
 
@@ -149,4 +154,57 @@ public class CacheExpiryCheckTest {
         // Verify no action is taken
         verify(mockInventoryDB, never()).removeObject(anyString(), anyString());
     }
+
+    CacheObject makeSharedObject(long modified) {
+        JSONObject md = new JSONObject();
+        md.put("shared", true);
+        md.put("expires", 1000L);
+        md.put("modified", modified);
+        CacheObject co = new CacheObject("rps-abc/goober.json", md, "testVolume");
+        co.id = "rps-abc/1234/goober.json";
+        co.volume = mockVolume;
+        return co;
+    }
+
+    /**
+     * Tests that a shared object is kept (regardless of its {@code expires} metadata) while unexpired
+     * aliases refer to it and removed once none do.
+     */
+    @Test
+    public void testSharedObject() throws Exception {
+        AliasingInventoryDB aliasDB = Mockito.mock(AliasingInventoryDB.class);
+        when(aliasDB.getLock()).thenReturn(new ReentrantLock());
+        expiryCheck = new CacheExpiryCheck(aliasDB);
+        CacheObject co = makeSharedObject(Instant.now().minusSeconds(3 * 86400).toEpochMilli());
+
+        when(aliasDB.countAliases(co.id)).thenReturn(2);
+        expiryCheck.check(co);
+        verify(aliasDB).removeExpiredAliases();
+        verify(aliasDB, never()).removeObject(anyString(), anyString());
+
+        when(aliasDB.countAliases(co.id)).thenReturn(0);
+        when(mockVolume.remove(co.name)).thenReturn(true);
+        expiryCheck.check(co);
+        verify(aliasDB).removeObject(co.volname, co.name);
+    }
+
+    /**
+     * Tests that an unreferenced shared object is kept during its grace period
+     */
+    @Test
+    public void testSharedObjectGracePeriod() throws Exception {
+        AliasingInventoryDB aliasDB = Mockito.mock(AliasingInventoryDB.class);
+        expiryCheck = new CacheExpiryCheck(aliasDB);
+        CacheObject co = makeSharedObject(Instant.now().minusSeconds(3600).toEpochMilli());
+        when(aliasDB.countAliases(co.id)).thenReturn(0);
+
+        expiryCheck.check(co);
+        verify(aliasDB, never()).removeObject(anyString(), anyString());
+
+        expiryCheck.setSharedGracePeriod(60000L);
+        when(aliasDB.getLock()).thenReturn(new ReentrantLock());
+        when(mockVolume.remove(co.name)).thenReturn(true);
+        expiryCheck.check(co);
+        verify(aliasDB).removeObject(co.volname, co.name);
+    }
 }
@@ -0,0 +1,101 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CacheMetricsTest {
+
+    SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    CacheMetrics metrics = new CacheMetrics(reg);
+
+    @AfterEach
+    public void tearDown() {
+        CacheMetrics.setDefault(null);
+    }
+
+    @Test
+    public void testDefault() {
+        CacheMetrics.setDefault(null);
+        CacheMetrics def = CacheMetrics.getDefault();
+        assertSame(Metrics.globalRegistry, def.getRegistry());
+        assertSame(def, CacheMetrics.getDefault());
+
+        CacheMetrics.setDefault(metrics);
+        assertSame(metrics, CacheMetrics.getDefault());
+    }
+
+    @Test
+    public void testLookups() {
+        metrics.recordLookup("data", "fast", true);
+        metrics.recordLookup("data", "fast", true);
+        metrics.recordLookup("data", "fast", false);
+        metrics.recordLookup(null, null, false);
+
+        assertEquals(2.0, reg.get("oar.cache.lookups").tags("cache", "data", "volume", "fast", "result", "hit")
+                             .counter().count(), 0.0);
+        assertEquals(1.0, reg.get("oar.cache.lookups").tags("cache", "data", "volume", "none", "result", "miss")
+                             .counter().count(), 0.0);
+        assertEquals(1.0, reg.get("oar.cache.lookups").tags("cache", CacheMetrics.UNKNOWN, "result", "miss")
+                             .counter().count(), 0.0);
+    }
+
+    @Test
+    public void testRestore() {
+        metrics.recordRestore("data", "big", 5000L, 2000000L, true);
+        metrics.recordRestore("data", "big", 3000L, 1000000L, true);
+        metrics.recordRestore("data", "big", -1L, 500000L, false);
+
+        Timer t = reg.get("oar.cache.restore").tags("volume", "big", "outcome", "success").timer();
+        assertEquals(2L, t.count());
+        assertEquals(3.0, t.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1L, reg.get("oar.cache.restore").tags("outcome", "failure").timer().count());
+        assertEquals(8000.0, reg.get("oar.cache.restore.size").tags("cache", "data", "volume", "big")
+                                .summary().totalAmount(), 0.0);
+    }
+
+    @Test
+    public void testQueue() {
+        AtomicInteger depth = new AtomicInteger(3);
+        metrics.gaugeQueueDepth("data", depth, AtomicInteger::get);
+        assertEquals(3.0, reg.get("oar.cache.queue.depth").tags("cache", "data").gauge().value(), 0.0);
+        depth.decrementAndGet();
+        assertEquals(2.0, reg.get("oar.cache.queue.depth").gauge().value(), 0.0);
+
+        metrics.recordQueueItem("data", 1000L, true);
+        assertEquals(1L, reg.get("oar.cache.queue.items").tags("outcome", "success").timer().count());
+        assertNull(reg.find("oar.cache.queue.items").tags("outcome", "failure").timer());
+    }
+
+    @Test
+    public void testPlansAndQueries() {
+        metrics.recordDeletionPlan("old", 1000L, false);
+        metrics.recordInventoryQuery("selectObjects", 1000L);
+        metrics.recordInventoryQuery("selectObjects", 1000L);
+
+        assertNotNull(reg.find("oar.cache.deletion.plan").tags("volume", "old", "outcome", "failure").timer());
+        assertEquals(2L, reg.get("oar.cache.inventory.query").tags("op", "selectObjects").timer().count());
+    }
+}
@@ -15,6 +15,7 @@ package gov.nist.oar.distrib.cachemgr;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 import org.json.JSONObject;
@@ -72,4 +73,27 @@ public class CacheObjectTest {
         assertEquals(co.getMetadatumInt("refcount", -1), 3);
         assertEquals(co.getMetadatumLong("modified", -1L), 1648461824000L);
     }
+
+    @Test
+    public void testEncodedMetadata() {
+        JSONObject job = new JSONObject();
+        job.put("size", 31L);
+        job.put("filepath", "a/b.txt");
+
+        CacheObject co = new CacheObject("hank", job, "{\"size\": 3, \"color\": \"red\"}", "trash");
+        assertEquals(co.volname, "trash");
+        assertEquals(co.getMetadatumString("filepath", null), "a/b.txt");
+        assertEquals(co._pending, "{\"size\": 3, \"color\": \"red\"}");
+
+        // the encoded metadata gets parsed only when needed, and the explicit metadata wins
+        assertEquals(co.getMetadatumString("color", null), "red");
+        assertNull(co._pending);
+        assertEquals(co.getSize(), 31L);
+        assertEquals(co.metadatumNames().size(), 3);
+        assertEquals(co.exportMetadata().getString("color"), "red");
+
+        co = new CacheObject("hank", job, "{}", "trash");
+        assertNull(co._pending);
+        assertFalse(co.hasMetadatum("color"));
+    }
 }
@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 
 /*
@@ -304,4 +305,62 @@ public class ConfigurableCacheTest {
         strat = cache.getStrategyFor("noobie", 10, 20);
         assertTrue(strat instanceof BigOldSelectionStrategy);
     }
+
+    @Test
+    public void testLookupCaching() throws CacheManagementException {
+        cache = createCache();
+        VolumeConfig vcfg = new VolumeConfig();
+        for (CacheVolume cv : cvlist) 
+            cache.addCacheVolume(cv, 22000, null, vcfg, true);
+        cache.setLookupCaching(60000L, 60000L, 100);
+
+        // a found object is remembered, even if the inventory changes behind the cache's back
+        CacheObject co = cache.findObject("foobar1");
+        assertNotNull(co);
+        assertEquals("1", co.name);
+        assertSame(cvlist.get(0), co.volume);
+
+        // callers get their own copy of the metadata
+        co._metadata().put("note", "scribbled");
+        co = cache.findObject("foobar1");
+        assertFalse(co.hasMetadatum("note"));
+
+        sidb.removeObject("foobar", "1");
+        co = cache.findObject("foobar1");
+        assertNotNull(co);
+        assertEquals("1", co.name);
+        cache.forgetLookup("foobar1");
+        assertNull(cache.findObject("foobar1"));
+
+        // a miss is remembered until the object is saved via the cache
+        assertNull(cache.findObject("goober"));
+        JSONObject md = new JSONObject();
+        md.put("size", 10);
+        sidb.addObject("goober", "foobar", "goober", md);
+        ((NullCacheVolume) cvlist.get(0)).addObjectName("goober");
+        assertNull(cache.findObject("goober"));
+        co = new CacheObject("goober", md, cvlist.get(0));
+        co.id = "goober";
+        cache.notifyObjectSaved(co);
+        co = cache.findObject("goober");
+        assertNotNull(co);
+        assertEquals("goober", co.name);
+
+        // deletions invalidate
+        assertNotNull(cache.findObject("cranky2"));
+        sidb.removeObject("cranky", "2");
+        cache.notifyObjectsDeleted(cvlist.get(1), Arrays.asList("cranky2"), 953);
+        assertNull(cache.findObject("cranky2"));
+
+        assertNotNull(cache.findObject("cranky3"));
+        sidb.removeObject("cranky", "3");
+        cache.notifyObjectsDeleted(cvlist.get(1), null, 10031);
+        assertNull(cache.findObject("cranky3"));
+
+        // turn it off
+        assertNotNull(cache.findObject("cranky4"));
+        cache.setLookupCaching(0L, 0L, 100);
+        sidb.removeObject("cranky", "4");
+        assertNull(cache.findObject("cranky4"));
+    }
 }
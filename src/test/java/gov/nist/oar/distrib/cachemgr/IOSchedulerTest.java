@@ -0,0 +1,112 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+import gov.nist.oar.distrib.cachemgr.IOScheduler.IOClass;
+
+public class IOSchedulerTest {
+
+    @Test
+    public void testUnconfigured() throws InterruptedException {
+        IOScheduler sched = new IOScheduler();
+        assertFalse(sched.isConfigured());
+        InputStream in = new ByteArrayInputStream(new byte[10]);
+        assertSame(in, sched.throttle(in, "cv0"));
+
+        long start = System.nanoTime();
+        sched.acquire("cv0", IOClass.PREFETCH, 1000000000L);
+        assertTrue(System.nanoTime() - start < 100000000L);
+    }
+
+    @Test
+    public void testThreadClass() {
+        assertEquals(IOClass.INTERACTIVE, IOScheduler.getThreadClass());
+        IOClass prev = IOScheduler.setThreadClass(IOClass.INTEGRITY);
+        try {
+            assertEquals(IOClass.INTERACTIVE, prev);
+            assertEquals(IOClass.INTEGRITY, IOScheduler.getThreadClass());
+        }
+        finally {
+            IOScheduler.setThreadClass(prev);
+        }
+        assertEquals(IOClass.INTERACTIVE, IOScheduler.getThreadClass());
+    }
+
+    @Test
+    public void testBackOff() throws InterruptedException {
+        IOScheduler sched = new IOScheduler();
+        sched.configure("cv0", 1000000L, 0L, 0L, 500000L);
+        assertTrue(sched.isConfigured());
+        assertEquals(1000000L, sched.getAllowedRate("cv0", IOClass.PREFETCH));
+        assertEquals(500000L, sched.getAllowedRate("cv0", IOClass.INTEGRITY));
+        assertEquals(0L, sched.getAllowedRate("cv0", IOClass.INTERACTIVE));
+
+        // as user demand rises, background classes get what is left over...
+        sched.acquire("cv0", IOClass.INTERACTIVE, 700000L);
+        assertEquals(700000L, sched.getInteractiveDemand("cv0"));
+        assertEquals(300000L, sched.getAllowedRate("cv0", IOClass.PREFETCH));
+        assertEquals(300000L, sched.getAllowedRate("cv0", IOClass.INTEGRITY));
+
+        // ...but never less than their minimum share
+        sched.acquire("cv0", IOClass.INTERACTIVE, 700000L);
+        assertEquals(100000L, sched.getAllowedRate("cv0", IOClass.PREFETCH));
+        sched.setMinBackgroundShare(0.2);
+        assertEquals(200000L, sched.getAllowedRate("cv0", IOClass.PREFETCH));
+
+        // other channels are unaffected
+        assertEquals(0L, sched.getInteractiveDemand("lts"));
+        assertEquals(0L, sched.getAllowedRate("lts", IOClass.PREFETCH));
+    }
+
+    @Test
+    public void testDefaultChannel() {
+        IOScheduler sched = new IOScheduler();
+        sched.configure(IOScheduler.DEFAULT_CHANNEL, 0L, 0L, 300000L, 0L);
+        sched.configure(IOScheduler.LTS_CHANNEL, 0L, 0L, 0L, 0L);
+        assertEquals(300000L, sched.getAllowedRate("cv1", IOClass.PREFETCH));
+        assertEquals(0L, sched.getAllowedRate(IOScheduler.LTS_CHANNEL, IOClass.PREFETCH));
+    }
+
+    @Test
+    public void testThrottle() throws IOException {
+        IOScheduler sched = new IOScheduler();
+        sched.configure(IOScheduler.LTS_CHANNEL, 0L, 0L, 100000L, 0L);
+
+        // one second's worth is available as a burst; the next 50 kB must wait about 0.5 s
+        InputStream in = new ByteArrayInputStream(new byte[150000]);
+        InputStream thr = sched.throttle(in, IOScheduler.LTS_CHANNEL, IOClass.PREFETCH);
+        assertNotSame(in, thr);
+        assertSame(thr, sched.throttle(thr, IOScheduler.LTS_CHANNEL));
+        long start = System.nanoTime();
+        assertEquals(150000, thr.readAllBytes().length);
+        long waited = System.nanoTime() - start;
+        assertTrue(waited >= 300000000L, "waited only "+waited+" ns");
+
+        // interactive reads on the same channel are not held back
+        in = sched.throttle(new ByteArrayInputStream(new byte[1000000]), IOScheduler.LTS_CHANNEL);
+        start = System.nanoTime();
+        assertEquals(1000000, in.readAllBytes().length);
+        assertTrue(System.nanoTime() - start < 200000000L);
+    }
+}
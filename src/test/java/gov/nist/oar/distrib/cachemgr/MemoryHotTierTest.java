@@ -0,0 +1,194 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.nist.oar.distrib.StorageVolumeException;
+import gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume;
+
+public class MemoryHotTierTest {
+
+    @TempDir
+    File tempFolder;
+
+    private CacheVolume tvol = null;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        File vold = new File(tempFolder, "cache");
+        vold.mkdir();
+        tvol = new FilesystemCacheVolume(vold.toString(), "gary");
+    }
+
+    CacheObject save(String name, String content, String checksum) throws StorageVolumeException {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        JSONObject md = new JSONObject();
+        md.put("size", data.length);
+        md.put("checksum", checksum);
+        tvol.saveAs(new ByteArrayInputStream(data), name, md);
+        CacheObject co = new CacheObject(name, md, tvol.getName());
+        co.volume = tvol;
+        return co;
+    }
+
+    String read(InputStream is) throws IOException {
+        try (InputStream in = is) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testLoadAndHit() throws Exception {
+        MemoryHotTier tier = new MemoryHotTier(10000, 1000);
+        CacheObject co = save("hello.txt", "Hello world.", "abcdef");
+
+        // not loaded until requested twice
+        assertNull(tier.open("ds/hello.txt", co));
+        assertEquals(0, tier.size());
+
+        assertEquals("Hello world.", read(tier.open("ds/hello.txt", co)));
+        assertEquals(1, tier.size());
+        assertEquals(12L, tier.getUsedBytes());
+
+        // now served from memory, even if the file goes away
+        tvol.remove("hello.txt");
+        assertEquals("Hello world.", read(tier.open("ds/hello.txt", co)));
+        assertEquals("Hello world.", read(tier.open("ds/hello.txt", co)));
+        JSONObject status = tier.getStatus();
+        assertEquals(2L, status.getLong("hits"));
+        assertEquals(1, status.getInt("objects"));
+
+        tier.invalidate("ds/hello.txt");
+        assertEquals(0, tier.size());
+        assertEquals(0L, tier.getUsedBytes());
+    }
+
+    @Test
+    public void testStale() throws Exception {
+        MemoryHotTier tier = new MemoryHotTier(10000, 1000);
+        CacheObject co = save("hello.txt", "Hello world.", "abcdef");
+        tier.open("ds/hello.txt", co);
+        read(tier.open("ds/hello.txt", co));
+        assertEquals(1, tier.size());
+
+        // the object has been recached with different content
+        CacheObject co2 = save("hello.txt", "Goodbye world.", "fedcba");
+        assertEquals("Goodbye world.", read(tier.open("ds/hello.txt", co2)));
+        assertEquals(1, tier.size());
+        assertEquals(14L, tier.getUsedBytes());
+        assertEquals(0L, tier.getStatus().getLong("hits"));
+    }
+
+    @Test
+    public void testTooBig() throws Exception {
+        MemoryHotTier tier = new MemoryHotTier(10000, 10);
+        CacheObject co = save("hello.txt", "Hello world.", "abcdef");
+        assertNull(tier.open("ds/hello.txt", co));
+        assertNull(tier.open("ds/hello.txt", co));
+        assertNull(tier.open("ds/hello.txt", co));
+        assertEquals(0, tier.size());
+    }
+
+    @Test
+    public void testEvictionFavorsPopular() throws Exception {
+        MemoryHotTier tier = new MemoryHotTier(1000, 100);
+        String filler = "x".repeat(100);
+        CacheObject[] hot = new CacheObject[8];
+        for (int i = 0; i < hot.length; i++)
+            hot[i] = save("hot"+i, filler, "hot"+i);
+
+        // establish the popular objects
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < hot.length; i++)
+                tier.open("ds/hot"+i, hot[i]);
+        }
+        assertTrue(tier.getUsedBytes() <= 1000L);
+
+        // a scan of objects requested only twice each
+        for (int i = 0; i < 20; i++) {
+            CacheObject co = save("cold"+i, filler, "cold"+i);
+            tier.open("ds/cold"+i, co);
+            assertNotNull(tier.open("ds/cold"+i, co));
+            assertTrue(tier.getUsedBytes() <= 1000L);
+        }
+
+        // the popular objects survived the scan
+        long hits = tier.getStatus().getLong("hits");
+        for (int i = 0; i < hot.length; i++)
+            assertEquals(filler, read(tier.open("ds/hot"+i, hot[i])));
+        assertEquals(hits + hot.length, tier.getStatus().getLong("hits"));
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        File vold = new File(tempFolder, "slow");
+        vold.mkdir();
+        AtomicInteger loads = new AtomicInteger(0);
+        CountDownLatch release = new CountDownLatch(1);
+        tvol = new FilesystemCacheVolume(vold.toString(), "slow") {
+            @Override
+            public InputStream getStream(String name) throws StorageVolumeException {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getStream(name);
+            }
+        };
+        MemoryHotTier tier = new MemoryHotTier(10000, 1000);
+        CacheObject co = save("hello.txt", "Hello world.", "abcdef");
+        assertNull(tier.open("ds/hello.txt", co));
+
+        // several requests miss at once while the first load is held up
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> reads = new ArrayList<Future<String>>();
+            for (int i = 0; i < 4; i++)
+                reads.add(exec.submit(() -> read(tier.open("ds/hello.txt", co))));
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> rd : reads)
+                assertEquals("Hello world.", rd.get(10, TimeUnit.SECONDS));
+        }
+        finally {
+            exec.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, tier.size());
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.nist.oar.distrib.Checksum;
+import gov.nist.oar.distrib.cachemgr.inventory.SQLiteStorageInventoryDB;
+import gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume;
+
+public class ReadThroughCachingStreamTest {
+
+    @TempDir
+    File tempFolder;
+
+    private CacheVolume tvol = null;
+    private StorageInventoryDB tdb = null;
+
+    final String content = "Hello world, this file is being read through.";
+    final byte[] data = content.getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    public void setUp() throws IOException, InventoryException {
+        File vold = new File(tempFolder, "cache");
+        vold.mkdir();
+        tvol = new FilesystemCacheVolume(vold.toString(), "gary");
+
+        String dbf = new File(tempFolder, "testdb.sqlite").getAbsolutePath();
+        SQLiteStorageInventoryDB.initializeDB(dbf);
+        tdb = new SQLiteStorageInventoryDB(dbf);
+        tdb.registerVolume("gary", 200000, null);
+        tdb.registerAlgorithm("sha256");
+    }
+
+    private final List<Reservation> reserved = new ArrayList<Reservation>();
+
+    CacheObject save(InputStream is, JSONObject md) throws CacheManagementException {
+        Reservation resv = Reservation.reservationFor(tvol, tdb, data.length);
+        reserved.add(resv);
+        return resv.saveAs(is, "ds/hello.txt", "hello.txt", md);
+    }
+
+    JSONObject makeMD(boolean goodsum) {
+        JSONObject md = new JSONObject();
+        md.put("size", data.length);
+        md.put("contentType", "text/plain");
+        try (InputStream is = new ByteArrayInputStream(data)) {
+            String hash = Checksum.calcSHA256(is).hash;
+            if (! goodsum)
+                hash = HexFormat.of().formatHex(new byte[32]);
+            md.put("checksum", hash);
+            md.put("checksumAlgorithm", Checksum.SHA256);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return md;
+    }
+
+    ReadThroughCachingStream wrap(JSONObject md, long finishLimit, AtomicBoolean done)
+        throws IOException
+    {
+        return new ReadThroughCachingStream(new ByteArrayInputStream(data), "ds/hello.txt", this::save,
+                                            md, data.length, finishLimit, () -> done.set(true));
+    }
+
+    @Test
+    public void testReadToEnd() throws Exception {
+        AtomicBoolean done = new AtomicBoolean(false);
+        try (ReadThroughCachingStream rts = wrap(makeMD(true), 0L, done)) {
+            assertEquals(content, IOUtils.toString(rts, StandardCharsets.UTF_8));
+            CacheObject co = rts.getResult().get(10, TimeUnit.SECONDS);
+            assertNotNull(co);
+            assertEquals("hello.txt", co.name);
+        }
+
+        assertTrue(done.get());
+        assertEquals(1, reserved.size());
+        assertTrue(reserved.get(0).getSize() <= 0L);
+        assertTrue(tvol.exists("hello.txt"));
+        assertEquals(1, tdb.findObject("ds/hello.txt").size());
+        CacheObject co = tdb.findObject("ds/hello.txt").get(0);
+        assertEquals(data.length, co.getSize());
+        assertEquals("text/plain", co.getMetadatumString("contentType", null));
+        try (InputStream is = tvol.getStream("hello.txt")) {
+            assertEquals(content, IOUtils.toString(is, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testBadChecksum() throws Exception {
+        AtomicBoolean done = new AtomicBoolean(false);
+        try (ReadThroughCachingStream rts = wrap(makeMD(false), 0L, done)) {
+            assertEquals(content, IOUtils.toString(rts, StandardCharsets.UTF_8));
+            assertNull(rts.getResult().get(10, TimeUnit.SECONDS));
+        }
+
+        // no space is reserved for an object that fails verification
+        assertTrue(done.get());
+        assertEquals(0, reserved.size());
+        assertFalse(tvol.exists("hello.txt"));
+        assertEquals(0, tdb.findObject("ds/hello.txt").size());
+    }
+
+    @Test
+    public void testAbortDiscard() throws Exception {
+        AtomicBoolean done = new AtomicBoolean(false);
+        ReadThroughCachingStream rts = wrap(makeMD(true), 5L, done);
+        byte[] buf = new byte[10];
+        assertEquals(10, rts.read(buf));
+        rts.close();
+
+        // no space is reserved for an abandoned read
+        assertNull(rts.getResult().get(10, TimeUnit.SECONDS));
+        assertTrue(done.get());
+        assertEquals(0, reserved.size());
+        assertFalse(tvol.exists("hello.txt"));
+        assertEquals(0, tdb.findObject("ds/hello.txt").size());
+    }
+
+    @Test
+    public void testAbortFinish() throws Exception {
+        AtomicBoolean done = new AtomicBoolean(false);
+        ReadThroughCachingStream rts = wrap(makeMD(true), 1000L, done);
+        byte[] buf = new byte[10];
+        assertEquals(10, rts.read(buf));
+        assertEquals(5L, rts.skip(5L));
+        rts.close();
+
+        assertNotNull(rts.getResult().get(10, TimeUnit.SECONDS));
+        assertTrue(done.get());
+        assertEquals(1, tdb.findObject("ds/hello.txt").size());
+        try (InputStream is = tvol.getStream("hello.txt")) {
+            assertEquals(content, IOUtils.toString(is, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testAbortFinishIsBackgroundIO() throws Exception {
+        IOScheduler sched = new IOScheduler();
+        sched.configure(IOScheduler.LTS_CHANNEL, 1000000L, 0L, 0L, 0L);
+        InputStream src = sched.throttle(new ByteArrayInputStream(data), IOScheduler.LTS_CHANNEL,
+                                         IOScheduler.IOClass.INTERACTIVE);
+        ReadThroughCachingStream rts = new ReadThroughCachingStream(src, "ds/hello.txt", this::save,
+                                                                    makeMD(true), data.length, 1000L, null);
+        byte[] buf = new byte[10];
+        assertEquals(10, rts.read(buf));
+        rts.close();
+        assertNotNull(rts.getResult().get(10, TimeUnit.SECONDS));
+
+        // only the bytes the user read count as interactive demand
+        assertEquals(10L, sched.getInteractiveDemand(IOScheduler.LTS_CHANNEL));
+    }
+}
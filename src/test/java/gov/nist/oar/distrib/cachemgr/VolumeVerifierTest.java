@@ -0,0 +1,129 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.nist.oar.distrib.cachemgr.pdr.PDRStorageInventoryDB;
+
+public class VolumeVerifierTest {
+
+    @TempDir
+    File tempDir;
+
+    StorageInventoryDB sidb = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        String dbf = new File(tempDir, "data.sqlite").getAbsolutePath();
+        PDRStorageInventoryDB.initializeSQLiteDB(dbf);
+        sidb = PDRStorageInventoryDB.createSQLiteDB(dbf);
+        sidb.registerVolume("fast", 1000L, null);
+        sidb.registerVolume("slow", 1000L, null);
+        sidb.registerVolume("gone", 1000L, null);
+        sidb.setVolumeStatus("slow", VolumeStatus.VOL_FOR_GET);
+    }
+
+    @Test
+    public void testVerifyAll() throws CacheManagementException {
+        CountDownLatch both = new CountDownLatch(2);
+        VolumeVerifier vv = new VolumeVerifier(sidb, 4, 0L, null);
+
+        // each check waits for the other, so this only passes if they run concurrently
+        vv.add("fast", () -> { both.countDown(); both.await(5, TimeUnit.SECONDS); });
+        vv.add("slow", () -> { both.countDown(); both.await(5, TimeUnit.SECONDS); });
+        vv.verifyAll();
+        assertTrue(vv.getUnverified().isEmpty());
+
+        vv.add("gone", () -> { throw new FileNotFoundException("Not an existing bucket: gone"); });
+        try {
+            vv.verifyAll();
+            fail("verifyAll() failed to report an unavailable volume");
+        }
+        catch (CacheManagementException ex) {
+            assertTrue(ex.getMessage().contains("gone"));
+            assertTrue(ex.getCause() instanceof FileNotFoundException);
+        }
+        assertEquals(Arrays.asList("gone"), vv.getUnverified());
+        assertEquals(VolumeStatus.VOL_FOR_UPDATE, sidb.getVolumeStatus("gone"));
+    }
+
+    @Test
+    public void testVerifyInBackground() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean reachable = new AtomicBoolean(false);
+        VolumeVerifier vv = new VolumeVerifier(sidb, 4, 50L, null);
+        vv.add("fast", () -> { });
+        vv.add("slow", () -> release.await(5, TimeUnit.SECONDS));
+        vv.add("gone", () -> {
+            if (! reachable.get())
+                throw new FileNotFoundException("Not an existing bucket: gone");
+        });
+
+        assertFalse(vv.verifyInBackground(200L));
+        assertEquals(Arrays.asList("slow", "gone"), vv.getUnverified());
+        assertEquals(VolumeStatus.VOL_FOR_UPDATE, sidb.getVolumeStatus("fast"));
+        assertEquals(VolumeStatus.VOL_FOR_INFO, sidb.getVolumeStatus("slow"));
+        assertEquals(VolumeStatus.VOL_FOR_INFO, sidb.getVolumeStatus("gone"));
+
+        // as the volumes become available, their original statuses are restored
+        release.countDown();
+        reachable.set(true);
+        long until = System.currentTimeMillis() + 5000L;
+        while (! vv.getUnverified().isEmpty() && System.currentTimeMillis() < until)
+            Thread.sleep(20);
+        assertTrue(vv.getUnverified().isEmpty());
+        assertEquals(VolumeStatus.VOL_FOR_GET, sidb.getVolumeStatus("slow"));
+        assertEquals(VolumeStatus.VOL_FOR_UPDATE, sidb.getVolumeStatus("gone"));
+        vv.shutdown();
+    }
+
+    @Test
+    public void testRestoreAfterRestart() throws Exception {
+        VolumeVerifier vv = new VolumeVerifier(sidb, 4, 0L, null);
+        vv.add("slow", () -> { throw new FileNotFoundException("Not an existing bucket: slow"); });
+        vv.add("gone", () -> { throw new FileNotFoundException("Not an existing bucket: gone"); });
+        assertFalse(vv.verifyInBackground(200L));
+        vv.shutdown();
+        assertEquals(VolumeStatus.VOL_FOR_INFO, sidb.getVolumeStatus("slow"));
+        assertEquals(VolumeStatus.VOL_FOR_INFO, sidb.getVolumeStatus("gone"));
+        assertEquals(VolumeStatus.VOL_FOR_GET,
+                     sidb.getVolumeInfo("slow").getInt(VolumeVerifier.PRIOR_STATUS));
+
+        // a verifier created after a restart restores the statuses from before the lowering
+        vv = new VolumeVerifier(sidb, 4, 0L, null);
+        vv.add("slow", () -> { });
+        assertTrue(vv.verifyInBackground(2000L));
+        assertEquals(VolumeStatus.VOL_FOR_GET, sidb.getVolumeStatus("slow"));
+        assertFalse(sidb.getVolumeInfo("slow").has(VolumeVerifier.PRIOR_STATUS));
+
+        vv = new VolumeVerifier(sidb, 4, 0L, null);
+        vv.add("gone", () -> { });
+        vv.verifyAll();
+        assertEquals(VolumeStatus.VOL_FOR_UPDATE, sidb.getVolumeStatus("gone"));
+        assertFalse(sidb.getVolumeInfo("gone").has(VolumeVerifier.PRIOR_STATUS));
+    }
+}
@@ -14,8 +14,12 @@
 package gov.nist.oar.distrib.cachemgr.inventory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,12 +31,14 @@ import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 
 import gov.nist.oar.distrib.ObjectNotFoundException;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheObjectCheck;
+import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.storage.FilesystemCacheVolume;
 
 public class ChecksumCheckTest {
@@ -217,4 +223,56 @@ public class ChecksumCheckTest {
             assertEquals(12L, ex.size);
         }
     }
+
+    @Test
+    public void testIncrementalCheck() throws IOException, CacheManagementException, StorageVolumeException {
+        CacheObject co = makeobj(vol, "hello.txt", "hello world");
+        String hash = "a948904f2f0f479b8f8197694b30184b0d2ed1c1cd2a1ec0fb85d299a192a447";
+        JSONObject md = co.exportMetadata();
+        md.put("size", 12L);
+        md.put("checksum", hash);
+        md.put("checksumAlgorithm", "sha256");
+        co = new CacheObject(co.name, md, vol);
+
+        StorageInventoryDB db = mock(StorageInventoryDB.class);
+        ChecksumCheck cchk = new ChecksumCheck();
+        assertFalse(cchk.isIncremental());
+        cchk.setIncremental(db, 3600000L);
+        assertTrue(cchk.isIncremental());
+        assertEquals(3600000L, cchk.getFullCheckPeriod());
+
+        // never verified: full checksum calculated and recorded
+        cchk.check(co);
+        assertEquals(1L, cchk.getFullCheckCount());
+        assertEquals(0L, cchk.getMetadataOnlyCheckCount());
+        ArgumentCaptor<JSONObject> recorded = ArgumentCaptor.forClass(JSONObject.class);
+        verify(db).updateMetadata(eq(co.volname), eq("hello.txt"), recorded.capture());
+        assertEquals(12L, recorded.getValue().getLong("verifiedSize"));
+        assertEquals(md.getLong("modified"), recorded.getValue().getLong("verifiedModified"));
+
+        // unchanged since verification: no re-hash
+        for (String prop : recorded.getValue().keySet())
+            md.put(prop, recorded.getValue().get(prop));
+        co = new CacheObject(co.name, md, vol);
+        cchk.check(co);
+        assertEquals(1L, cchk.getFullCheckCount());
+        assertEquals(1L, cchk.getMetadataOnlyCheckCount());
+
+        // volume's view changed: re-hash
+        md.put("verifiedModified", md.getLong("verifiedModified") - 1000L);
+        co = new CacheObject(co.name, md, vol);
+        cchk.check(co);
+        assertEquals(2L, cchk.getFullCheckCount());
+
+        // full check is due
+        md.put("verifiedModified", md.getLong("modified"));
+        md.put("verified", System.currentTimeMillis() - 7200000L);
+        co = new CacheObject(co.name, md, vol);
+        cchk.check(co);
+        assertEquals(3L, cchk.getFullCheckCount());
+        assertEquals(1L, cchk.getMetadataOnlyCheckCount());
+
+        cchk.setIncremental(db, 0L);
+        assertFalse(cchk.isIncremental());
+    }
 }
@@ -31,6 +31,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.CacheMetrics;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheVolume;
 import gov.nist.oar.distrib.cachemgr.DeletionPlan;
@@ -38,6 +39,7 @@ import gov.nist.oar.distrib.cachemgr.DeletionPlanner;
 import gov.nist.oar.distrib.cachemgr.InventoryException;
 import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.storage.NullCacheVolume;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 public class DefaultDeletionPlannerTest {
 
@@ -127,6 +129,25 @@ public class DefaultDeletionPlannerTest {
         assertEquals(100311, deletables.get(0).getSize());
     }
 
+    @Test
+    public void testPlanMetrics() throws CacheManagementException {
+        SimpleMeterRegistry reg = new SimpleMeterRegistry();
+        CacheMetrics.setDefault(new CacheMetrics(reg));
+        try {
+            cv = new NullCacheVolume("foobar");
+            DeletionPlanner planr = new DefaultDeletionPlanner(sidb, cvlist,
+                                                               new BySizeSelectionStrategy(1000000));
+            planr.createDeletionPlanFor(cv, 50000);
+            assertEquals(1L, reg.get("oar.cache.deletion.plan").tags("volume", "foobar", "outcome", "success")
+                                .timer().count());
+            assertTrue(reg.get("oar.cache.inventory.query").tags("op", "selectObjectsFrom")
+                          .timer().count() > 0);
+        }
+        finally {
+            CacheMetrics.setDefault(null);
+        }
+    }
+
     @Test
     public void testOrderDeltionPlans() throws CacheManagementException {
         // this volume is overfull
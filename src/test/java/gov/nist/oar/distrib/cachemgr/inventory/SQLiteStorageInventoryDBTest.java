@@ -14,6 +14,7 @@
 package gov.nist.oar.distrib.cachemgr.inventory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -30,6 +31,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
@@ -248,4 +252,126 @@ public class SQLiteStorageInventoryDBTest {
         assertEquals(90L, notUpdated.getSize());
         assertEquals("red", notUpdated.getMetadatumString("color", null));
     }
+
+    String rawColumn(File dbf, String col, String volname, String objname) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:"+dbf.toString());
+             ResultSet rs = conn.createStatement().executeQuery(
+                 "SELECT d." + col + " FROM objects d, volumes v WHERE d.volume=v.id AND v.name='" +
+                 volname + "' AND d.name='" + objname + "'"))
+        {
+            return (rs.next()) ? rs.getString(1) : null;
+        }
+    }
+
+    @Test
+    public void testTypedColumns() throws IOException, SQLException, InventoryException {
+        File dbf = new File(createDB());
+        TestSQLiteStorageInventoryDB sidb = new TestSQLiteStorageInventoryDB(dbf.getPath());
+        sidb.registerAlgorithm("sha256");
+        sidb.registerVolume("foobar", 450000, null);
+
+        JSONObject md = new JSONObject();
+        md.put("size", 90L);
+        md.put("color", "red");
+        md.put("contentType", "text/plain");
+        md.put("filepath", "trial1.json");
+        md.put("version", "1.0.1");
+        md.put("expires", 1234567L);
+        sidb.addObject("1234/trial1.json", "foobar", "1234_trial1.json", md);
+
+        // typed values are only stored in their columns
+        assertEquals("trial1.json", rawColumn(dbf, "filepath", "foobar", "1234_trial1.json"));
+        assertEquals("1234567", rawColumn(dbf, "expires", "foobar", "1234_trial1.json"));
+        JSONObject stored = new JSONObject(rawColumn(dbf, "metadata", "foobar", "1234_trial1.json"));
+        assertEquals("red", stored.getString("color"));
+        assertFalse(stored.has("filepath"));
+        assertFalse(stored.has("size"));
+
+        CacheObject co = sidb.findObject("foobar", "1234_trial1.json");
+        assertEquals("text/plain", co.getMetadatumString("contentType", null));
+        assertEquals("trial1.json", co.getMetadatumString("filepath", null));
+        assertEquals("1.0.1", co.getMetadatumString("version", null));
+        assertEquals(1234567L, co.getMetadatumLong("expires", -1L));
+        assertEquals("red", co.getMetadatumString("color", null));
+        assertTrue(co.metadatumNames().contains("sinceDate"));
+
+        // an update only to columns leaves the JSON alone
+        assertTrue(sidb.updateMetadata("foobar", "1234_trial1.json",
+                                       new JSONObject().put("filepath", "it's.json")));
+        assertEquals(stored.toString(), rawColumn(dbf, "metadata", "foobar", "1234_trial1.json"));
+        co = sidb.findObject("foobar", "1234_trial1.json");
+        assertEquals("it's.json", co.getMetadatumString("filepath", null));
+        assertFalse(sidb.updateMetadata("foobar", "goober.json", new JSONObject().put("filepath", "a")));
+
+        // values written to the JSON before the columns existed are moved to the columns on update
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:"+dbf.toString())) {
+            conn.createStatement().execute("UPDATE objects SET bagfile=NULL, " +
+                                           "metadata='{\"color\":\"red\",\"bagfile\":\"mds2.1_0.mbag0_4-1.zip\"}'");
+        }
+        co = sidb.findObject("foobar", "1234_trial1.json");
+        assertEquals("mds2.1_0.mbag0_4-1.zip", co.getMetadatumString("bagfile", null));
+        assertTrue(sidb.updateMetadata("foobar", "1234_trial1.json", new JSONObject().put("color", "green")));
+        assertEquals("mds2.1_0.mbag0_4-1.zip", rawColumn(dbf, "bagfile", "foobar", "1234_trial1.json"));
+        co = sidb.findObject("foobar", "1234_trial1.json");
+        assertEquals("green", co.getMetadatumString("color", null));
+        assertEquals("mds2.1_0.mbag0_4-1.zip", co.getMetadatumString("bagfile", null));
+    }
+
+    @Test
+    public void testAddTypedColumns() throws IOException, SQLException, InventoryException {
+        // a database created before the typed columns were supported
+        Path dbPath = Files.createFile(tempDir.resolve("olddb.sqlite"));
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:"+dbPath.toString())) {
+            conn.createStatement().execute("CREATE TABLE algorithms (id integer PRIMARY KEY, name text NOT NULL)");
+            conn.createStatement().execute("CREATE TABLE volumes (id integer PRIMARY KEY, name text NOT NULL, " +
+                                           "priority integer, capacity integer, status integer NOT NULL, " +
+                                           "metadata text)");
+            conn.createStatement().execute("CREATE TABLE objects (objid text NOT NULL, size integer, " +
+                                           "checksum text, algorithm integer, priority integer NOT NULL, " +
+                                           "name text NOT NULL, volume integer, since integer NOT NULL, " +
+                                           "checked integer NOT NULL, cached boolean, metadata text)");
+        }
+
+        TestSQLiteStorageInventoryDB sidb = new TestSQLiteStorageInventoryDB(dbPath.toString());
+        sidb.registerAlgorithm("sha256");
+        sidb.registerVolume("foobar", 450000, null);
+        sidb.addObject("1234/trial1.json", "foobar", "1234_trial1.json",
+                       new JSONObject().put("filepath", "trial1.json"));
+
+        CacheObject co = sidb.findObject("foobar", "1234_trial1.json");
+        assertEquals("trial1.json", co.getMetadatumString("filepath", null));
+        assertEquals("trial1.json", rawColumn(dbPath.toFile(), "filepath", "foobar", "1234_trial1.json"));
+    }
+
+    @Test
+    public void testGetLock() throws Exception {
+        File dbf = new File(createDB());
+        TestSQLiteStorageInventoryDB sidb = new TestSQLiteStorageInventoryDB(dbf.getPath());
+        sidb.registerAlgorithm("sha256");
+        sidb.registerVolume("fundrum", 150000, null);
+        sidb.addObject("a/b/c", "fundrum", "a/b/c", null);
+
+        // updates made on a (virtual) thread wait while another holds the lock
+        Lock lock = sidb.getLock();
+        CompletableFuture<Void> removed = new CompletableFuture<Void>();
+        lock.lock();
+        try {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    sidb.removeObject("fundrum", "a/b/c");
+                    removed.complete(null);
+                } catch (InventoryException ex) {
+                    removed.completeExceptionally(ex);
+                }
+            });
+            Thread.sleep(200);
+            assertFalse(removed.isDone());
+            assertEquals(1, sidb.findObject("a/b/c", VolumeStatus.VOL_FOR_INFO).size());
+        }
+        finally {
+            lock.unlock();
+        }
+        removed.get(5, TimeUnit.SECONDS);
+        assertEquals(0, sidb.findObject("a/b/c").size());
+    }
 }
@@ -29,6 +29,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -441,6 +442,36 @@ public class PDRStorageInventoryDBTest {
         for (CacheObject co : cos)
             assertTrue(needschecking.contains(co.volname+":"+co.name));
     }
+
+    @Test
+    public void testUpdateCheckedTimes() throws InventoryException, IOException {
+        File dbf = new File(createDB());
+        PDRStorageInventoryDB sidb = PDRStorageInventoryDB.createSQLiteDB(dbf.getPath());
+        sidb.registerAlgorithm("sha256");
+        sidb.registerVolume("foobar", 450000, null);
+
+        JSONObject md = new JSONObject();
+        md.put("size", 456L);
+        md.put("color", "blue");
+        sidb.addObject("1234/goober.json", "foobar", "1234_goober.json", md);
+        sidb.addObject("9999/barry.json", "foobar", "9999_barry.json", md);
+        sidb.addObject("0000/hank.json", "foobar", "0000_hank.json", md);
+
+        long now = System.currentTimeMillis();
+        assertEquals(2, sidb.updateCheckedTimes("foobar",
+                                                Arrays.asList("1234_goober.json", "9999_barry.json",
+                                                              "goofy.json"), now));
+
+        List<CacheObject> cos = sidb.selectObjects("check", Integer.MAX_VALUE);
+        assertEquals(1, cos.size());
+        assertEquals("0000_hank.json", cos.get(0).name);
+
+        CacheObject co = sidb.findObject("foobar", "9999_barry.json");
+        assertEquals(now, co.getMetadatumLong("checked", -1L));
+        assertEquals("blue", co.getMetadatumString("color", null));
+
+        assertEquals(0, sidb.updateCheckedTimes("foobar", new ArrayList<String>(), now));
+    }
     
     @Test
     public void testFailAddObject() throws InventoryException, IOException {
@@ -949,6 +980,113 @@ public class PDRStorageInventoryDBTest {
         catch (VolumeNotFoundException ex) { /* success! */ }
     }
 
+    @Test
+    public void testAliases() throws InventoryException, IOException {
+        File dbf = new File(createDB());
+        PDRStorageInventoryDB sidb = PDRStorageInventoryDB.createSQLiteDB(dbf.getPath());
+        sidb.registerAlgorithm("sha256");
+        sidb.registerVolume("foobar", 450000, null);
+
+        JSONObject md = new JSONObject();
+        md.put("size", 456L);
+        md.put("shared", true);
+        sidb.addObject("rps-abc/1234/goober.json", "foobar", "rps-abc/goober.json", md);
+        sidb.addObject("rps-def/1234/goober.json#2", "foobar", "rps-def/goober.json", md);
+        sidb.addObject("rps-ghi/12345/goober.json", "foobar", "rps-ghi/goober.json", md);
+        assertEquals(0, sidb.findObject("rpa-x/1234/goober.json").size());
+        assertNull(sidb.resolveAlias("rpa-x/1234/goober.json"));
+
+        long later = System.currentTimeMillis() + 60000L;
+        sidb.addAlias("rpa-x/1234/goober.json", "rps-abc/1234/goober.json", "rpa-x", later);
+        sidb.addAlias("rpa-y/1234/goober.json", "rps-abc/1234/goober.json", "rpa-y", later);
+        sidb.addAlias("rpa-z/1234/goober.json", "rps-abc/1234/goober.json", "rpa-z", 1000L);
+        assertEquals("rps-abc/1234/goober.json", sidb.resolveAlias("rpa-x/1234/goober.json"));
+        assertNull(sidb.resolveAlias("rpa-z/1234/goober.json"));
+        assertEquals(2, sidb.countAliases("rps-abc/1234/goober.json"));
+
+        // aliases are only looked up when resolution is turned on
+        assertFalse(sidb.isResolvingAliases());
+        assertEquals(0, sidb.findObject("rpa-x/1234/goober.json", VolumeStatus.VOL_FOR_GET).size());
+        sidb.setAliasResolution(true);
+        List<CacheObject> cos = sidb.findObject("rpa-x/1234/goober.json", VolumeStatus.VOL_FOR_GET);
+        assertEquals(1, cos.size());
+        assertEquals("rps-abc/1234/goober.json", cos.get(0).id);
+        assertEquals("rps-abc/goober.json", cos.get(0).name);
+        assertEquals(0, sidb.findObject("rpa-z/1234/goober.json", VolumeStatus.VOL_FOR_GET).size());
+
+        cos = sidb.selectAliasedObjects("rpa-y", VolumeStatus.VOL_FOR_GET);
+        assertEquals(1, cos.size());
+        assertEquals("rps-abc/1234/goober.json", cos.get(0).id);
+        assertEquals(0, sidb.selectAliasedObjects("rpa-z", VolumeStatus.VOL_FOR_GET).size());
+
+        cos = sidb.selectSharedObjects("1234", null);
+        assertEquals(1, cos.size());
+        assertEquals("rps-abc/1234/goober.json", cos.get(0).id);
+        cos = sidb.selectSharedObjects("1234", "2");
+        assertEquals(1, cos.size());
+        assertEquals("rps-def/1234/goober.json#2", cos.get(0).id);
+        assertEquals(0, sidb.selectSharedObjects("1234", "3").size());
+        assertEquals(0, sidb.selectSharedObjects("12'34", null).size());
+        assertEquals(0, sidb.selectAliasedObjects("rpa-y' OR 1=1 --", VolumeStatus.VOL_FOR_GET).size());
+
+        assertEquals(1, sidb.removeExpiredAliases());
+        assertEquals(1, sidb.removeAliases("rpa-x"));
+        assertEquals(0, sidb.findObject("rpa-x/1234/goober.json").size());
+        assertEquals(1, sidb.countAliases("rps-abc/1234/goober.json"));
+        assertEquals(0, sidb.removeAliases("rpa-x"));
+    }
+
+    @Test
+    public void testCachingJobs() throws InventoryException, IOException {
+        File dbf = new File(createDB());
+        PDRStorageInventoryDB sidb = PDRStorageInventoryDB.createSQLiteDB(dbf.getPath());
+        assertNull(sidb.getCachingJob("rpa-x"));
+
+        JSONObject state = new JSONObject();
+        state.put("dsid", "1234");
+        state.put("status", "caching");
+        state.put("since", 1000L);
+        sidb.saveCachingJob("rpa-x", state);
+        JSONObject got = sidb.getCachingJob("rpa-x");
+        assertEquals("1234", got.getString("dsid"));
+        assertEquals("caching", got.getString("status"));
+        assertFalse(got.has("version"));
+        assertEquals(1000L, got.getLong("since"));
+        assertEquals(0L, got.getLong("finished"));
+
+        // saving again replaces the state
+        state.put("status", "failed");
+        state.put("message", "bag not found");
+        state.put("version", "2");
+        state.put("finished", 2000L);
+        sidb.saveCachingJob("rpa-x", state);
+        got = sidb.getCachingJob("rpa-x");
+        assertEquals("failed", got.getString("status"));
+        assertEquals("bag not found", got.getString("message"));
+        assertEquals("2", got.getString("version"));
+
+        assertFalse(got.has("recordid"));
+        assertEquals(0, sidb.selectPendingCachingJobs().size());
+
+        // a finished job is pending until its requester is told
+        state.put("recordid", "rec-1");
+        sidb.saveCachingJob("rpa-x", state);
+        assertEquals("rec-1", sidb.getCachingJob("rpa-x").getString("recordid"));
+        List<JSONObject> pending = sidb.selectPendingCachingJobs();
+        assertEquals(1, pending.size());
+        assertEquals("rpa-x", pending.get(0).getString("jobid"));
+        assertEquals("rec-1", pending.get(0).getString("recordid"));
+
+        state = new JSONObject().put("dsid", "2345").put("status", "queued");
+        sidb.saveCachingJob("rpa-y", state);
+        assertEquals(2, sidb.selectPendingCachingJobs().size());
+        assertEquals(1, sidb.removeFinishedCachingJobs(3000L));
+        assertNull(sidb.getCachingJob("rpa-x"));
+        assertNotNull(sidb.getCachingJob("rpa-y"));
+        assertEquals(1, sidb.removeCachingJob("rpa-y"));
+        assertNull(sidb.getCachingJob("rpa-y"));
+    }
+
     @Test
     public void testSummarizeDataset() throws InventoryException, IOException {
         File dbf = new File(createDB());
@@ -999,6 +1137,111 @@ public class PDRStorageInventoryDBTest {
 
     }
 
+    @Test
+    public void testSelectRecentDatasets() throws InventoryException, IOException {
+        File dbf = new File(createDB());
+        PDRStorageInventoryDB sidb = PDRStorageInventoryDB.createSQLiteDB(dbf.getPath());
+        sidb.registerAlgorithm("sha256");
+        sidb.registerVolume("foobar", 450000, null);
+        sidb.registerVolume("old", 450000, null);
+
+        assertEquals(0, sidb.selectRecentDatasets(5).size());
+
+        JSONObject md = new JSONObject();
+        md.put("size", 10L);
+        md.put("ediid", "ark:/88434/1234");
+        sidb.addObject("1234/a.json", "foobar", "1234_a.json", md);
+        sidb.addObject("1234/b.json", "foobar", "1234_b.json", md);
+        md.put("ediid", "2345");
+        sidb.addObject("2345/a.json", "foobar", "2345_a.json", md);
+        md.put("ediid", "3456");
+        sidb.addObject("3456/a.json", "foobar", "3456_a.json", md);
+        md.put("ediid", "9999");
+        sidb.addObject("9999/a.json", "old", "9999_a.json", md);
+
+        JSONObject since = new JSONObject();
+        since.put("since", 3000L);
+        sidb.updateMetadata("foobar", "1234_a.json", since);
+        since.put("since", 1000L);
+        sidb.updateMetadata("foobar", "1234_b.json", since);
+        since.put("since", 500L);
+        sidb.updateMetadata("foobar", "3456_a.json", since);
+        since.put("since", 2000L);
+        sidb.updateMetadata("foobar", "2345_a.json", since);
+
+        assertEquals(Arrays.asList("1234", "2345", "3456"), sidb.selectRecentDatasets(0));
+        assertEquals(Arrays.asList("1234", "2345"), sidb.selectRecentDatasets(2));
+
+        // files no longer cached don't count
+        sidb.removeObject("foobar", "1234_a.json");
+        assertEquals(Arrays.asList("2345", "1234"), sidb.selectRecentDatasets(2));
+    }
+
+    @Test
+    public void testForEachDatasetObject() throws InventoryException, IOException {
+        File dbf = new File(createDB());
+        PDRStorageInventoryDB sidb = PDRStorageInventoryDB.createSQLiteDB(dbf.getPath());
+        sidb.registerAlgorithm("sha256");
+        sidb.registerVolume("foobar", 450000, null);
+        sidb.registerVolume("fundrum", 450000, null);
+
+        JSONObject md = new JSONObject();
+        md.put("priority", 4);
+        md.put("size", 10L);
+        md.put("ediid", "1234");
+        sidb.addObject("1234/a.json", "foobar", "1234_a.json", md);
+        sidb.addObject("1234/a.json", "fundrum", "1234_a.json", md);
+        sidb.addObject("1234/b.json", "foobar", "1234_b.json", md);
+        sidb.addObject("1234/c.json", "fundrum", "1234_c.json", md);
+        md.put("ediid", "2345");
+        sidb.addObject("2345/a.json", "foobar", "2345_a.json", md);
+        md.put("ediid", "9999");
+        sidb.addObject("_shared/1/9999/d.json", "foobar", "9999_d.json", md);
+        sidb.addAlias("1234/d.json", "_shared/1/9999/d.json", "1234", 0L);
+
+        List<String> seen = new ArrayList<String>();
+        assertEquals(5, sidb.forEachDatasetObject("1234", VolumeStatus.VOL_FOR_INFO, null, null, 0,
+                                                  co -> seen.add(co.id + "@" + co.volname)));
+        assertEquals(Arrays.asList("1234/a.json@foobar", "1234/a.json@fundrum", "1234/b.json@foobar",
+                                   "1234/c.json@fundrum", "_shared/1/9999/d.json@foobar"), seen);
+
+        // page through the same list
+        seen.clear();
+        assertEquals(2, sidb.forEachDatasetObject("1234", VolumeStatus.VOL_FOR_INFO, null, null, 2,
+                                                  co -> seen.add(co.id + "@" + co.volname)));
+        assertEquals(2, sidb.forEachDatasetObject("1234", VolumeStatus.VOL_FOR_INFO,
+                                                  "1234/a.json", "fundrum", 2,
+                                                  co -> seen.add(co.id + "@" + co.volname)));
+        assertEquals(1, sidb.forEachDatasetObject("1234", VolumeStatus.VOL_FOR_INFO,
+                                                  "1234/c.json", "fundrum", 2,
+                                                  co -> seen.add(co.id + "@" + co.volname)));
+        assertEquals(5, seen.size());
+        assertEquals("1234/b.json@foobar", seen.get(2));
+
+        // only cached objects
+        sidb.removeObject("foobar", "1234_b.json");
+        seen.clear();
+        assertEquals(4, sidb.forEachDatasetObject("1234", VolumeStatus.VOL_FOR_GET, null, null, 0,
+                                                  co -> seen.add(co.id)));
+        assertFalse(seen.contains("1234/b.json"));
+
+        // dataset summaries, a page at a time
+        List<JSONObject> summs = new ArrayList<JSONObject>();
+        assertEquals(1, sidb.forEachDatasetSummary(null, null, 0L, 1, summs::add));
+        JSONObject last = summs.get(0);
+        assertEquals(1, sidb.forEachDatasetSummary(null, last.getString("ediid"), last.getLong("checked"),
+                                                   1, summs::add));
+        last = summs.get(1);
+        assertEquals(1, sidb.forEachDatasetSummary(null, last.getString("ediid"), last.getLong("checked"),
+                                                   2, summs::add));
+        last = summs.get(2);
+        assertEquals(0, sidb.forEachDatasetSummary(null, last.getString("ediid"), last.getLong("checked"),
+                                                   1, summs::add));
+        assertEquals(Arrays.asList("1234", "2345", "9999"),
+                     Arrays.asList(summs.get(0).getString("ediid"), summs.get(1).getString("ediid"),
+                                   summs.get(2).getString("ediid")));
+    }
+
     @Test
     public void testSummarizeContents() throws InventoryException, IOException {
         File dbf = new File(createDB());
@@ -2,6 +2,7 @@ package gov.nist.oar.distrib.cachemgr.pdr;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -12,6 +13,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -26,6 +28,7 @@ import gov.nist.oar.distrib.Checksum;
 import gov.nist.oar.distrib.ObjectNotFoundException;
 import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.StorageVolumeException;
+import gov.nist.oar.distrib.cachemgr.AliasingInventoryDB;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheVolume;
@@ -104,6 +107,23 @@ public class RestrictedDatasetRestorerTest {
         return cache;
     }
 
+    ConfigurableCache createSharingDataCache() throws CacheManagementException, IOException {
+        File croot = new File(tempDir, "shared");
+        croot.mkdir();
+        File dbf = new File(croot, "inventory.sqlite");
+        PDRStorageInventoryDB.initializeSQLiteDB(dbf.getAbsolutePath());
+        PDRStorageInventoryDB sidb = PDRStorageInventoryDB.createSQLiteDB(dbf.getPath());
+        sidb.registerAlgorithm("sha256");
+        ConfigurableCache cache = new ConfigurableCache("rpa", sidb, 2, null);
+
+        File cvdir = new File(croot, "rpa");
+        cvdir.mkdir();
+        VolumeConfig vc = new VolumeConfig();
+        vc.setRoles(PDRCacheRoles.ROLE_RESTRICTED_DATA);
+        cache.addCacheVolume(new FilesystemCacheVolume(cvdir, "rpa"), 2000000, null, vc, true);
+        return cache;
+    }
+
     @BeforeEach
     public void setUp() throws IOException, CacheManagementException {
 
@@ -436,4 +456,73 @@ public class RestrictedDatasetRestorerTest {
         assertTrue(Math.abs(expectedExpires - actualExpires) < 5000, "expires field should be set to 2 weeks from the current time");
 
     }
+
+    @Test
+    public void testSharedContent() throws StorageVolumeException, ResourceNotFoundException, CacheManagementException, IOException {
+        ConfigurableCache scache = createSharingDataCache();
+        PDRStorageInventoryDB sidb = (PDRStorageInventoryDB) scache.getInventoryDB();
+        rstr.setShareContent(true);
+
+        Set<String> cached = rstr.cacheDataset("mds1491", null, scache, true,
+                PDRCacheRoles.ROLE_RESTRICTED_DATA, "rpa-abc");
+        assertTrue(cached.contains("trial1.json"));
+        assertTrue(cached.contains("trial3/trial3a.json"));
+        assertEquals(4, cached.size());
+        assertTrue(scache.isCached("rpa-abc/mds1491/trial1.json"));
+        assertTrue(scache.isCached("rpa-abc/mds1491/trial3/trial3a.json"));
+
+        CacheObject co = scache.findObject("rpa-abc/mds1491/trial1.json");
+        assertTrue(co.id.startsWith("rps-"), "Not stored as shared content: "+co.id);
+        assertNotEquals("rpa-abc", co.id.substring(0, co.id.indexOf('/')));
+        assertTrue(co.exportMetadata().optBoolean(AliasingInventoryDB.SHARED_METADATUM, false));
+        assertFalse(co.hasMetadatum("expires"));
+        long since = co.getMetadatumLong("since", 0L);
+
+        // a second request shares the same copies
+        cached = rstr.cacheDataset("mds1491", null, scache, true,
+                PDRCacheRoles.ROLE_RESTRICTED_DATA, "rpa-def");
+        assertEquals(4, cached.size());
+        CacheObject co2 = scache.findObject("rpa-def/mds1491/trial1.json");
+        assertEquals(co.id, co2.id);
+        assertEquals(since, co2.getMetadatumLong("since", 0L), "File appears to have been recached:");
+        assertEquals(4, sidb.selectSharedObjects("mds1491", null).size());
+        assertEquals(2, sidb.countAliases(co.id));
+        assertEquals(4, sidb.selectAliasedObjects("rpa-def", VolumeStatus.VOL_FOR_GET).size());
+
+        // releasing one request leaves the content available to the other
+        assertEquals(4, sidb.removeAliases("rpa-abc"));
+        assertFalse(scache.isCached("rpa-abc/mds1491/trial1.json"));
+        assertTrue(scache.isCached("rpa-def/mds1491/trial1.json"));
+        assertEquals(0, rstr.sharingLocks.size());
+    }
+
+    @Test
+    public void testSharedContentAliasedPerFile()
+        throws StorageVolumeException, ResourceNotFoundException, CacheManagementException, IOException
+    {
+        ConfigurableCache scache = createSharingDataCache();
+        PDRStorageInventoryDB sidb = (PDRStorageInventoryDB) scache.getInventoryDB();
+        List<String> available = new ArrayList<String>();
+        rstr = new RestrictedDatasetRestorer(publicLtstore, restrictedLtstore, hbcm, 500) {
+            @Override
+            protected void fileCached(String aipid, String filepath, String forVersion, String target) {
+                super.fileCached(aipid, filepath, forVersion, target);
+                try {
+                    // the alias should be usable as soon as its file is cached
+                    if (scache.isCached("rpa-abc/"+aipid+"/"+filepath))
+                        available.add(filepath);
+                } catch (CacheManagementException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+        rstr.setShareContent(true);
+
+        Set<String> cached = rstr.cacheDataset("mds1491", null, scache, true,
+                PDRCacheRoles.ROLE_RESTRICTED_DATA, "rpa-abc");
+        assertEquals(4, cached.size());
+        assertEquals(cached, new HashSet<String>(available));
+        assertTrue(sidb.isResolvingAliases());
+        assertEquals(0, rstr.sharingLocks.size());
+    }
 }
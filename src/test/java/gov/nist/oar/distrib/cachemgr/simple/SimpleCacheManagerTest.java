@@ -15,13 +15,22 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,10 +38,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import gov.nist.oar.distrib.LongTermStorage;
+import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheVolume;
 import gov.nist.oar.distrib.cachemgr.DeletionPlanner;
+import gov.nist.oar.distrib.cachemgr.ReadThroughCachingStream;
+import gov.nist.oar.distrib.cachemgr.Reservation;
+import gov.nist.oar.distrib.cachemgr.RestorationException;
 import gov.nist.oar.distrib.cachemgr.StorageInventoryDB;
 import gov.nist.oar.distrib.cachemgr.inventory.DefaultDeletionPlanner;
 import gov.nist.oar.distrib.cachemgr.inventory.OldSelectionStrategy;
@@ -223,6 +236,75 @@ public class SimpleCacheManagerTest {
         testFill(scm, zips);
     }
 
+    @Test
+    public void testConcurrentCache() throws Exception {
+        LongTermStorage lts = new FilesystemLongTermStorage(createRepo().toString());
+        AtomicInteger restores = new AtomicInteger(0);
+        FileCopyRestorer rstr = new FileCopyRestorer(lts) {
+            @Override
+            public void restoreObject(String id, Reservation resv, String name, JSONObject md)
+                throws StorageVolumeException, RestorationException
+            {
+                restores.incrementAndGet();
+                try { Thread.sleep(300); } catch (InterruptedException ex) { }
+                super.restoreObject(id, resv, name, md);
+            }
+        };
+        SimpleCacheManager scm = new SimpleCacheManager(cache, rstr);
+
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<CacheObject>> got = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                got.add(exec.submit(() -> scm.getObject("mds1491.mbag0_2-0.zip")));
+            for (Future<CacheObject> f : got) {
+                CacheObject co = f.get();
+                assertNotNull(co);
+                assertEquals("mds1491.mbag0_2-0.zip", co.id);
+            }
+        }
+        finally {
+            exec.shutdownNow();
+        }
+
+        assertEquals(1, restores.get());
+        assertEquals(1, sidb.findObject("mds1491.mbag0_2-0.zip").size());
+        assertFalse(scm.isRestoring("mds1491.mbag0_2-0.zip"));
+    }
+
+    @Test
+    public void testCacheDuringReadThrough() throws Exception {
+        LongTermStorage lts = new FilesystemLongTermStorage(createRepo().toString());
+        SimpleCacheManager scm = new SimpleCacheManager(cache, new FileCopyRestorer(lts));
+        String id = "mds1491.mbag0_2-0.zip";
+
+        InputStream src = lts.openFile(id);
+        ReadThroughCachingStream rts = scm.cacheWhileReading(id, src, lts.getSize(id));
+        assertNotNull(rts);
+        try {
+            assertTrue(rts.read(new byte[100]) > 0);
+            assertTrue(scm.isReadingThrough(id));
+            assertFalse(scm.isRestoring(id));
+            assertNull(scm.cacheWhileReading(id, lts.openFile(id), lts.getSize(id)));
+
+            // a request to cache the object does not wait for the user's download to finish
+            assertTrue(scm.cache(id));
+            assertTrue(scm.isCached(id));
+
+            byte[] buf = new byte[32768];
+            while (rts.read(buf) >= 0) { }
+        }
+        finally {
+            rts.close();
+        }
+
+        // the read-through copy is discarded as the object was cached in the meantime
+        assertNull(rts.getResult().get(10, TimeUnit.SECONDS));
+        assertFalse(scm.isReadingThrough(id));
+        assertFalse(scm.isRestoring(id));
+        assertEquals(1, sidb.findObject(id).size());
+    }
+
     public void testFill(SimpleCacheManager scm, String[] zips) throws IOException, CacheManagementException {
         assertFalse(scm.isCached("mds1491.mbag0_2-0.zip"));
 
@@ -0,0 +1,88 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.simulate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class AccessLogReaderTest {
+
+    static final String T = "[18/Oct/2026:10:00:00 -0400]";
+
+    @Test
+    public void testToCacheId() {
+        AccessLogReader rdr = new AccessLogReader();
+        assertEquals("mds2-2106/trial1.json", rdr.toCacheId("/od/ds/mds2-2106/trial1.json"));
+        assertEquals("mds2-2106/a/b c.json", rdr.toCacheId("/od/ds/mds2-2106/a/b%20c.json?requestId=x"));
+        assertEquals("mds2-2106/trial1.json", rdr.toCacheId("/od/ds/ark:/88434/mds2-2106/trial1.json"));
+        assertEquals("mds2-2106/trial1.json#1.0.2", rdr.toCacheId("/od/ds/mds2-2106/_v/1.0.2/trial1.json"));
+        assertEquals("mds2-2106/trial1.json#1.0.2",
+                     rdr.toCacheId("/od/ds/ark:/88434/mds2-2106/_v/1.0.2/trial1.json"));
+
+        assertNull(rdr.toCacheId("/od/ds/mds2-2106/_aip/_v/1.0.2"));
+        assertNull(rdr.toCacheId("/od/ds/mds2-2106/"));
+        assertNull(rdr.toCacheId("/od/ds/mds2-2106/subdir/"));
+        assertNull(rdr.toCacheId("/od/ds/mds2-2106"));
+        assertNull(rdr.toCacheId("/od/cache/objects/mds2-2106"));
+
+        rdr = new AccessLogReader("/ds");
+        assertEquals("mds2-2106/trial1.json", rdr.toCacheId("/ds/mds2-2106/trial1.json"));
+        assertNull(rdr.toCacheId("/od/ds/mds2-2106/trial1.json"));
+    }
+
+    @Test
+    public void testParseLine() {
+        AccessLogReader rdr = new AccessLogReader();
+        AccessLogReader.Request req =
+            rdr.parseLine("10.0.0.1 - - "+T+" \"GET /od/ds/mds2-2106/trial1.json HTTP/1.1\" 200 69");
+        assertNotNull(req);
+        assertEquals("mds2-2106/trial1.json", req.id);
+        assertEquals(69L, req.size);
+        assertEquals(1792332000000L, req.time);
+
+        // a redirected download takes its size from an earlier request
+        req = rdr.parseLine("10.0.0.1 - - "+T+" \"GET /od/ds/mds2-2106/trial1.json HTTP/1.1\" 302 -");
+        assertNotNull(req);
+        assertEquals(69L, req.size);
+        assertEquals(0L, rdr.getSkippedCount());
+        assertNull(rdr.parseLine("10.0.0.1 - - "+T+" \"GET /od/ds/mds2-2106/trial2.json HTTP/1.1\" 302 -"));
+        assertEquals(1L, rdr.getSkippedCount());
+
+        assertNull(rdr.parseLine("10.0.0.1 - - "+T+" \"HEAD /od/ds/mds2-2106/trial1.json HTTP/1.1\" 200 -"));
+        assertNull(rdr.parseLine("10.0.0.1 - - "+T+" \"GET /od/ds/mds2-2106/trial1.json HTTP/1.1\" 404 120"));
+        assertNull(rdr.parseLine("10.0.0.1 - - "+T+" \"GET /od/ds/mds2-2106/trial1.json HTTP/1.1\" 206 10"));
+        assertNull(rdr.parseLine("10.0.0.1 - - "+T+" \"GET /od/ds/mds2-2106/_aip HTTP/1.1\" 200 1024"));
+        assertNull(rdr.parseLine("goober"));
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        String log =
+            "10.0.0.1 - - [18/Oct/2026:10:00:00 -0400] \"GET /od/ds/mds2-2106/trial1.json HTTP/1.1\" 200 69\n" +
+            "10.0.0.2 - - [18/Oct/2026:10:00:05 -0400] \"GET /od/ds/mds2-2106/_aip HTTP/1.1\" 200 512\n" +
+            "10.0.0.2 - - [18/Oct/2026:10:00:09 -0400] \"GET /od/ds/mds2-2106/trial2.json HTTP/1.1\" 200 70 " +
+            "\"-\" \"curl/8.5.0\"\n";
+        List<AccessLogReader.Request> reqs = new ArrayList<AccessLogReader.Request>();
+        new AccessLogReader().read(new StringReader(log), reqs);
+        assertEquals(2, reqs.size());
+        assertEquals("mds2-2106/trial2.json", reqs.get(1).id);
+        assertEquals(9000L, reqs.get(1).time - reqs.get(0).time);
+    }
+}
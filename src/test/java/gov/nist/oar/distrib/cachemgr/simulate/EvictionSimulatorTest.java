@@ -0,0 +1,138 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.cachemgr.simulate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.cachemgr.VolumeStatus;
+import gov.nist.oar.distrib.cachemgr.inventory.BigOldSelectionStrategy;
+import gov.nist.oar.distrib.cachemgr.inventory.OldSelectionStrategy;
+
+public class EvictionSimulatorTest {
+
+    static final long T0 = 1792332000000L;
+    static final long HOUR = 3600000L;
+
+    @TempDir
+    Path tempDir;
+
+    List<SimulatedVolume> volumes(String strategy) throws CacheManagementException {
+        JSONArray vols = new JSONArray(
+            "[{ \"name\": \"general\", \"capacity\": 1000, \"roles\": [\"general\"], " +
+            "   \"deletionStrategy\": { \"type\": \"" + strategy + "\" } }]");
+        return EvictionSimulator.parseVolumes(vols);
+    }
+
+    @Test
+    public void testParseVolumes() throws CacheManagementException {
+        List<SimulatedVolume> vols = volumes("bigoldest");
+        assertEquals(1, vols.size());
+        assertEquals("general", vols.get(0).getName());
+        assertEquals(1000L, vols.get(0).getCapacity());
+        assertEquals(1, vols.get(0).getVolumeConfig().getRoles());
+        assertEquals(VolumeStatus.VOL_FOR_UPDATE, vols.get(0).getVolumeConfig().getStatus().intValue());
+        assertTrue(vols.get(0).getVolumeConfig().getDeletionStrategy() instanceof BigOldSelectionStrategy);
+
+        // defaults
+        vols = EvictionSimulator.parseVolumes(new JSONArray("[{ \"capacity\": 20, \"status\": \"get\" }]"));
+        assertEquals("vol0", vols.get(0).getName());
+        assertEquals(0, vols.get(0).getVolumeConfig().getRoles());
+        assertEquals(VolumeStatus.VOL_FOR_GET, vols.get(0).getVolumeConfig().getStatus().intValue());
+        assertTrue(vols.get(0).getVolumeConfig().getDeletionStrategy() instanceof OldSelectionStrategy);
+
+        assertThrows(CacheManagementException.class, () -> EvictionSimulator.parseVolumes(
+            new JSONArray("[{ \"capacity\": 20, \"deletionStrategy\": { \"type\": \"goober\" } }]")));
+        assertThrows(CacheManagementException.class, () -> EvictionSimulator.parseVolumes(
+            new JSONArray("[{ \"capacity\": 20, \"status\": \"goober\" }]")));
+        assertThrows(CacheManagementException.class, () -> EvictionSimulator.parseVolumes(
+            new JSONArray("[{ \"name\": \"nocap\" }]")));
+    }
+
+    @Test
+    public void testReplay() throws CacheManagementException {
+        EvictionSimulator sim = new EvictionSimulator("oldest", volumes("oldest"), 10L,
+                                                      tempDir.toFile());
+        List<AccessLogReader.Request> reqs = new ArrayList<AccessLogReader.Request>();
+        reqs.add(new AccessLogReader.Request("mds2-1/a.json", T0,          400L));
+        reqs.add(new AccessLogReader.Request("mds2-1/b.json", T0 + HOUR,   400L));
+        reqs.add(new AccessLogReader.Request("mds2-1/a.json", T0 + 3*HOUR, 400L));
+
+        // needs room, so b (the least recently used) gets evicted
+        reqs.add(new AccessLogReader.Request("mds2-1/c.json", T0 + 5*HOUR, 400L));
+        reqs.add(new AccessLogReader.Request("mds2-1/a.json", T0 + 6*HOUR, 400L));
+
+        // too big for the cache
+        reqs.add(new AccessLogReader.Request("mds2-1/d.json", T0 + 7*HOUR, 2000L));
+
+        EvictionSimulator.Report rep = sim.replay(reqs);
+        assertEquals(6L, rep.requests);
+        assertEquals(2L, rep.hits);
+        assertEquals(1L, rep.evictions);
+        assertEquals(400L, rep.bytesEvicted);
+        assertEquals(1L, rep.uncached);
+        assertEquals(4000L, rep.bytesRequested);
+        assertEquals(3200L, rep.bytesRestored);
+        assertEquals(1.0/3.0, rep.getHitRatio(), 1.0e-9);
+        assertEquals(0.2, rep.getByteHitRatio(), 1.0e-9);
+
+        JSONObject json = rep.toJSON();
+        assertEquals("oldest", json.getString("name"));
+        assertEquals(2L, json.getLong("hits"));
+
+        // b is gone
+        reqs.clear();
+        reqs.add(new AccessLogReader.Request("mds2-1/b.json", T0 + 8*HOUR, 400L));
+        rep = sim.replay(reqs);
+        assertEquals(2L, rep.hits);
+    }
+
+    @Test
+    public void testSimulatedClock() {
+        long[] now = { T0 };
+        SimulatedClockStrategy strat =
+            new SimulatedClockStrategy(new OldSelectionStrategy(1000L), () -> now[0]);
+
+        JSONObject md = new JSONObject();
+        md.put("size", 100L);
+        md.put("since", T0 - HOUR / 2);
+        CacheObject young = new CacheObject("young", md, "vol");
+        md = new JSONObject(md, JSONObject.getNames(md));
+        md.put("since", T0 - 2 * HOUR);
+        CacheObject old = new CacheObject("old", md, "vol");
+
+        // ages are measured against the simulated time: younger than the 1-hour minimum age
+        // means it cannot be deleted
+        strat.reset();
+        assertEquals(0.0, strat.score(young), 0.0);
+        assertTrue(strat.score(old) > 0.0);
+        assertEquals(T0 - 2 * HOUR, old.getMetadatumLong("since", 0L));
+
+        now[0] += 2 * HOUR;
+        strat.reset();
+        assertTrue(strat.score(young) > 0.0);
+
+        assertTrue(strat.newForSize(10L, 10L) instanceof SimulatedClockStrategy);
+    }
+}
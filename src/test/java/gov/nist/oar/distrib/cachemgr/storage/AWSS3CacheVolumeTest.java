@@ -566,4 +566,41 @@ public class AWSS3CacheVolumeTest {
         String burl = "http://localhost:9090/" + bucket + "/" + folder + "/";
         assertEquals(new URL(burl + "test.txt"), s3cv.getRedirectFor("test.txt"));
     }
+
+    @Test
+    public void testPresignedRedirectFor()
+            throws StorageVolumeException, UnsupportedOperationException, IOException
+    {
+        assertFalse(s3cv.isPresigningRedirects());
+        s3cv.enablePresignedRedirects(java.time.Duration.ofMinutes(5));
+        assertTrue(s3cv.isPresigningRedirects());
+
+        JSONObject md = new JSONObject();
+        md.put("filepath", "data/trial1.json");
+        md.put("contentType", "application/json");
+        String url = s3cv.getRedirectFor("mds2-1234/data/trial1.json", md).toString();
+        assertTrue(url.startsWith("http://localhost:9090/" + bucket + "/" + folder + "/mds2-1234/data/trial1.json?"),
+                   url);
+        assertTrue(url.contains("X-Amz-Signature="), url);
+        assertTrue(url.contains("X-Amz-Expires=300"), url);
+        assertTrue(url.contains("response-content-type=application%2Fjson"), url);
+        assertTrue(url.contains("response-content-disposition=attachment%3B%20filename%3D%22data_trial1.json%22"),
+                   url);
+
+        // without metadata, the name is used for the file name
+        url = s3cv.getRedirectFor("goober.txt").toString();
+        assertTrue(url.contains("filename%3D%22goober.txt%22"), url);
+        assertFalse(url.contains("response-content-type"), url);
+
+        s3cv.enablePresignedRedirects(null);
+        assertFalse(s3cv.isPresigningRedirects());
+        assertThrows(UnsupportedOperationException.class, () -> s3cv.getRedirectFor("goober"));
+    }
+
+    @Test
+    public void testContentDisposition() {
+        assertEquals("attachment; filename=\"a_b.txt\"", AWSS3CacheVolume.contentDisposition("a/b.txt"));
+        assertEquals("attachment; filename=\"_.txt\"; filename*=UTF-8''%CE%B1.txt",
+                     AWSS3CacheVolume.contentDisposition("\u03b1.txt"));
+    }
 }
@@ -0,0 +1,130 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+
+public class BundleCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    BundleCache bcache = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        bcache = BundleCache.create(tempDir.toFile(), 100000L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bcache.close();
+    }
+
+    BundleRequest makeRequest(String name, FileRequest... files) {
+        return new BundleRequest(name, files, 0, files.length);
+    }
+
+    @Test
+    public void testKeyFor() {
+        FileRequest a = new FileRequest("/1894/a.txt", "https://data.nist.gov/od/ds/1894/a.txt", 10);
+        FileRequest b = new FileRequest("/1894/b.txt", "https://data.nist.gov/od/ds/1894/b.txt", 20);
+        String key = BundleCache.keyFor(makeRequest("goob", a, b));
+        assertEquals(64, key.length());
+
+        // order, duplicates, and bundle name don't matter
+        assertEquals(key, BundleCache.keyFor(makeRequest("gurn", b, a)));
+        assertEquals(key, BundleCache.keyFor(makeRequest("goob", a, b, a)));
+
+        // sizes and checksums do
+        FileRequest c = new FileRequest("/1894/b.txt", "https://data.nist.gov/od/ds/1894/b.txt", 21);
+        assertNotEquals(key, BundleCache.keyFor(makeRequest("goob", a, c)));
+        c = new FileRequest("/1894/b.txt", "https://data.nist.gov/od/ds/1894/b.txt", 20);
+        c.setChecksum("abcdef");
+        assertNotEquals(key, BundleCache.keyFor(makeRequest("goob", a, c)));
+    }
+
+    @Test
+    public void testCaptureAndFind() throws Exception {
+        String key = BundleCache.keyFor(makeRequest("goob",
+                                        new FileRequest("/1894/a.txt", "https://data.nist.gov/a.txt", 10)));
+        assertNull(bcache.find(key));
+
+        byte[] data = "This is a bundle.".getBytes(StandardCharsets.UTF_8);
+        try (BundleCache.Capture cap = bcache.startCapture(key)) {
+            OutputStream os = cap.getOutputStream();
+            os.write(data, 0, 5);
+            os.write(data, 5, data.length-5);
+            os.close();
+            cap.setRequestedSize(10L);
+            assertNotNull(cap.commit().get());
+            assertFalse(Files.exists(cap.file));
+        }
+
+        CacheObject co = bcache.find(key);
+        assertNotNull(co);
+        assertEquals(data.length, co.getSize());
+        assertEquals("application/zip", co.getMetadatumString("contentType", null));
+        assertEquals(10L, bcache.getRequestedSize(co));
+        try (InputStream is = bcache.open(co)) {
+            assertEquals("This is a bundle.", IOUtils.toString(is, StandardCharsets.UTF_8));
+        }
+
+        bcache.setTimeToLive(Duration.ZERO);
+        Thread.sleep(5);
+        assertNull(bcache.find(key));
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        String key = "deadbeef";
+        Path file = null;
+        try (BundleCache.Capture cap = bcache.startCapture(key)) {
+            file = cap.file;
+            cap.getOutputStream().write(new byte[100]);
+            assertTrue(Files.exists(file));
+        }
+        assertFalse(Files.exists(file));
+        assertNull(bcache.find(key));
+    }
+
+    @Test
+    public void testTooLarge() throws Exception {
+        String key = "deadbeef";
+        bcache.setMaxBundleSize(50);
+        try (BundleCache.Capture cap = bcache.startCapture(key)) {
+            cap.getOutputStream().write(new byte[100]);
+            assertNull(cap.commit().get());
+        }
+        assertNull(bcache.find(key));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class BundlePackerTest {
+
+    FileRequest file(String path, long size) {
+        return new FileRequest(path, "https://data.nist.gov/od/ds/" + path, size);
+    }
+
+    long sizeOf(List<FileRequest> bundle) {
+        long out = 0L;
+        for (FileRequest f : bundle)
+            out += f.getFileSize();
+        return out;
+    }
+
+    @Test
+    public void testDirOf() {
+        assertEquals("mds2-2106/a", BundlePacker.dirOf("mds2-2106/a/b.json"));
+        assertEquals("", BundlePacker.dirOf("b.json"));
+        assertEquals("", BundlePacker.dirOf(null));
+    }
+
+    @Test
+    public void testPackMixedSizes() {
+        // bundled in order, these would need 6 bundles
+        List<FileRequest> files = new ArrayList<FileRequest>();
+        for (int i=0; i < 3; i++) {
+            files.add(file("d" + i + "/small.txt", 10L));
+            files.add(file("e" + i + "/big.dat", 95L));
+        }
+
+        List<List<FileRequest>> bundles = BundlePacker.pack(files, 100L, 10);
+        assertEquals(4, bundles.size());
+        int count = 0;
+        for (List<FileRequest> bundle : bundles) {
+            assertTrue(sizeOf(bundle) < 100L);
+            count += bundle.size();
+        }
+        assertEquals(6, count);
+        assertEquals(3, bundles.get(3).size());
+        assertEquals("d0/small.txt", bundles.get(3).get(0).getFilePath());
+    }
+
+    @Test
+    public void testPackCountLimit() {
+        List<FileRequest> files = new ArrayList<FileRequest>();
+        for (int i=0; i < 5; i++)
+            files.add(file("d/f" + i + ".txt", 1L));
+
+        List<List<FileRequest>> bundles = BundlePacker.pack(files, 100L, 2);
+        assertEquals(3, bundles.size());
+        for (List<FileRequest> bundle : bundles)
+            assertTrue(bundle.size() <= 2);
+    }
+
+    @Test
+    public void testPackKeepsDirectoriesTogether() {
+        List<FileRequest> files = new ArrayList<FileRequest>();
+        files.add(file("a/1.txt", 30L));
+        files.add(file("b/1.txt", 30L));
+        files.add(file("a/2.txt", 30L));
+        files.add(file("b/2.txt", 30L));
+
+        List<List<FileRequest>> bundles = BundlePacker.pack(files, 100L, 10);
+        assertEquals(2, bundles.size());
+        for (List<FileRequest> bundle : bundles) {
+            assertEquals(2, bundle.size());
+            assertEquals(BundlePacker.dirOf(bundle.get(0).getFilePath()),
+                         BundlePacker.dirOf(bundle.get(1).getFilePath()));
+        }
+        assertEquals("a/1.txt", bundles.get(0).get(0).getFilePath());
+        assertEquals("a/2.txt", bundles.get(0).get(1).getFilePath());
+
+        // a directory too big for one bundle gets split up
+        files.add(file("a/3.txt", 50L));
+        bundles = BundlePacker.pack(files, 100L, 10);
+        assertEquals(2, bundles.size());
+        assertEquals(170L, sizeOf(bundles.get(0)) + sizeOf(bundles.get(1)));
+        for (List<FileRequest> bundle : bundles)
+            assertTrue(sizeOf(bundle) < 100L);
+    }
+}
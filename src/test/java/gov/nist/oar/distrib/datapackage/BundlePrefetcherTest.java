@@ -0,0 +1,124 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BundlePrefetcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    List<String> urls = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        for (int i = 0; i < 6; i++) {
+            Path f = tempDir.resolve("file" + i + ".txt");
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j <= i * 100; j++)
+                sb.append("file").append(i);
+            Files.writeString(f, sb.toString());
+            urls.add(f.toUri().toString());
+        }
+    }
+
+    String read(BundlePrefetcher.Fetched f) throws IOException {
+        try (InputStream is = f.getInputStream()) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        } finally {
+            f.close();
+        }
+    }
+
+    @Test
+    public void testTakeInOrder() throws IOException {
+        // tiny threshold forces larger files to spill to disk
+        try (BundlePrefetcher pf = new BundlePrefetcher(urls, 2, 100)) {
+            for (int i = 0; i < urls.size(); i++) {
+                BundlePrefetcher.Fetched f = pf.take(i);
+                assertEquals(Files.size(tempDir.resolve("file" + i + ".txt")), f.getSize());
+                CRC32 crc = new CRC32();
+                crc.update(Files.readAllBytes(tempDir.resolve("file" + i + ".txt")));
+                assertEquals(crc.getValue(), f.getCrc());
+                String content = read(f);
+                assertEquals("file" + i, content.substring(0, 5));
+                assertEquals(Files.readString(tempDir.resolve("file" + i + ".txt")), content);
+            }
+        }
+    }
+
+    @Test
+    public void testSkipped() throws IOException {
+        List<String> some = Arrays.asList(urls.get(0), null, urls.get(2), null);
+        try (BundlePrefetcher pf = new BundlePrefetcher(some, 1, 1000000)) {
+            assertEquals("file0", read(pf.take(0)));
+            assertThrows(IllegalArgumentException.class, () -> pf.take(1));
+            assertEquals("file2", read(pf.take(2)).substring(0, 5));
+            assertThrows(IllegalArgumentException.class, () -> pf.take(2));
+        }
+    }
+
+    @Test
+    public void testSharedExecutor() throws IOException {
+        // two bundles share a single retrieval thread; closing one leaves the executor usable
+        ExecutorService exec = BundlePrefetcher.createExecutor(1);
+        try {
+            BundlePrefetcher pf1 = new BundlePrefetcher(urls, 2, 100, exec);
+            try (BundlePrefetcher pf2 = new BundlePrefetcher(urls, 2, 100, exec)) {
+                assertEquals("file0", read(pf1.take(0)));
+                pf1.close();
+                for (int i = 0; i < urls.size(); i++)
+                    assertEquals("file" + i, read(pf2.take(i)).substring(0, 5));
+            }
+            assertFalse(exec.isShutdown());
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        List<String> some = Arrays.asList(urls.get(0), tempDir.resolve("goob.txt").toUri().toString(),
+                                          urls.get(1));
+        try (BundlePrefetcher pf = new BundlePrefetcher(some, 3, 100)) {
+            assertEquals("file0", read(pf.take(0)));
+            assertThrows(IOException.class, () -> pf.take(1));
+            assertEquals("file1", read(pf.take(2)).substring(0, 5));
+        }
+    }
+
+    @Test
+    public void testCloseEarly() throws IOException {
+        BundlePrefetcher pf = new BundlePrefetcher(urls, 3, 10);
+        assertEquals("file0", read(pf.take(0)));
+        pf.close();
+    }
+}
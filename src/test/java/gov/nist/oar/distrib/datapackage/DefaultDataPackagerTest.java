@@ -13,6 +13,7 @@
 package gov.nist.oar.distrib.datapackage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -110,6 +111,22 @@ public class DefaultDataPackagerTest {
         assertTrue(dp.getTotalSize() < mxFileSize);
     }
 
+    @Test
+    public void testValidateBundleRequestWithKnownSize() throws DistributionException, IOException {
+        // no files are examined, so the given size is taken as the total
+        assertTrue(dp.validateBundleRequest(500L));
+        assertEquals(500L, dp.getTotalSize());
+
+        dp = new DefaultDataPackager(bundleRequest, mxFileSize, numberofFiles, domains, redirectURLTrials);
+        assertThrows(InputLimitException.class, () -> dp.validateBundleRequest(mxFileSize + 1));
+
+        // a URL that is no longer allowed must go through full validation
+        FileRequest[] files = { inputfileList[0], new FileRequest("/evil.txt", "https://evil.example.com/evil.txt") };
+        dp = new DefaultDataPackager(new BundleRequest("testdatabundle", files, 0, 2),
+                                     mxFileSize, numberofFiles, domains, redirectURLTrials);
+        assertFalse(dp.validateBundleRequest(500L));
+    }
+
     @Test
     public void testGetData() throws DistributionException, MalformedURLException, IOException, InputLimitException {
         val1 = "{\"filePath\":\"/1894/license.pdf\",\"downloadUrl\":\"https://s3.amazonaws.com/nist-midas/1894/license.pdf\"}";
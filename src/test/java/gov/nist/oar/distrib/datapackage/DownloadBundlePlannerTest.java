@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -69,4 +71,34 @@ public class DownloadBundlePlannerTest {
         assertEquals(62562, plan.getSize());
         assertEquals("complete", plan.getStatus());
     }
+
+    @Test
+    public void testPackedPlansNameBundlesInLogs() {
+        dplanner = new DownloadBundlePlanner(bundleRequest, 100, numberofFiles, domains, "bundlename", redirectURLTrials);
+        dplanner.bundleFilePathUrls = new ArrayList<BundleRequest>();
+        dplanner.notIncludedFiles = new ArrayList<NotIncludedFile>();
+        dplanner.messages = new ArrayList<String>();
+        List<FileRequest> files = new ArrayList<FileRequest>();
+        String[] names = { "a/big.dat", "b/big.dat", "a/small.dat" };
+        long[] sizes = { 60, 60, 30 };
+        for (int i=0; i < names.length; i++) {
+            String url = "https://s3.amazonaws.com/nist-midas/" + names[i];
+            dplanner.filesLogs.add(new FileRequestLogs(null, "bundlename1", "", names[i], sizes[i], url, ""));
+            files.add(new FileRequest(names[i], url + "?requestId=null", sizes[i]));
+        }
+        dplanner.makePackedPlans(files);
+
+        BundleDownloadPlan plan = dplanner.makeBundlePlan();
+        assertEquals(2, plan.getBundleCount());
+        int i = 0;
+        for (BundleRequest bundle : plan.getBundleNameFilePathUrl()) {
+            i++;
+            for (FileRequest file : bundle.getIncludeFiles()) {
+                FileRequestLogs log = dplanner.filesLogs.stream()
+                                              .filter(l -> file.getFilePath().equals(l.getFilePath()))
+                                              .findFirst().get();
+                assertEquals("bundlename" + i, log.getBundleName());
+            }
+        }
+    }
 }
@@ -0,0 +1,69 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.datapackage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.Deflater;
+
+import javax.activation.MimetypesFileTypeMap;
+
+import org.junit.jupiter.api.Test;
+
+public class ZipCompressionPolicyTest {
+
+    @Test
+    public void testByExtension() {
+        ZipCompressionPolicy policy = new ZipCompressionPolicy();
+        assertTrue(policy.shouldStore("mds2-1234/data/run1.h5"));
+        assertTrue(policy.shouldStore("mds2-1234/data/RUN1.NC"));
+        assertTrue(policy.shouldStore("archive.tar.gz"));
+        assertTrue(policy.shouldStore("photo.jpg"));
+        assertFalse(policy.shouldStore("mds2-1234/data/table.csv"));
+        assertFalse(policy.shouldStore("README"));
+        assertFalse(policy.shouldStore("mds2-1234/data.h5/README"));
+        assertFalse(policy.shouldStore("trailing."));
+        assertFalse(policy.shouldStore(null));
+        assertEquals(Deflater.DEFAULT_COMPRESSION, policy.getDeflateLevel());
+    }
+
+    @Test
+    public void testByMediaType() throws Exception {
+        MimetypesFileTypeMap mimemap = null;
+        try (InputStream mis = getClass().getResourceAsStream("/mime.types")) {
+            mimemap = new MimetypesFileTypeMap(mis);
+        }
+
+        ZipCompressionPolicy policy = new ZipCompressionPolicy(mimemap, Collections.emptyList(),
+                                                               Arrays.asList("application/x-hdf5"));
+        assertTrue(policy.shouldStore("data/run1.h5"));
+        assertTrue(policy.shouldStore("movie.avi"));
+        assertTrue(policy.shouldStore("sound.mp3"));
+        assertFalse(policy.shouldStore("data/run1.nc"));
+        assertFalse(policy.shouldStore("data/table.json"));
+    }
+
+    @Test
+    public void testDeflateLevel() {
+        ZipCompressionPolicy policy = new ZipCompressionPolicy();
+        policy.setDeflateLevel(1);
+        assertEquals(1, policy.getDeflateLevel());
+        assertThrows(IllegalArgumentException.class, () -> policy.setDeflateLevel(10));
+        assertThrows(IllegalArgumentException.class, () -> policy.setDeflateLevel(-2));
+    }
+}
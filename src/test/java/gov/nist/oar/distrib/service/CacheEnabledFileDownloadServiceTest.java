@@ -31,12 +31,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import gov.nist.oar.distrib.BagStorage;
 import gov.nist.oar.distrib.DistributionException;
 import gov.nist.oar.distrib.FileDescription;
 import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.StreamHandle;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.CacheMetrics;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
+import gov.nist.oar.distrib.cachemgr.IOScheduler.IOClass;
 import gov.nist.oar.distrib.cachemgr.CacheObject;
 import gov.nist.oar.distrib.cachemgr.CacheObjectCheck;
 import gov.nist.oar.distrib.cachemgr.CacheVolume;
@@ -362,4 +367,66 @@ public class CacheEnabledFileDownloadServiceTest {
         co = svc.findCachedObject("mds1491", "trial3/trial3a.json", "0");
         assertTrue(accesstime < co.getMetadatumLong("since", -1L));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMetrics()
+        throws ResourceNotFoundException, DistributionException, IOException
+    {
+        SimpleMeterRegistry reg = new SimpleMeterRegistry();
+        CacheMetrics.setDefault(new CacheMetrics(reg));
+        try {
+            assertNull(svc.findCachedObject("mds1491", "trial3/trial3a.json", "0"));
+            assertEquals(1.0, reg.get("oar.cache.lookups").tags("result", "miss").counter().count(), 0.0);
+
+            // streaming from long-term storage after a lookup does not count as another lookup
+            try (StreamHandle sh = svc.getDataFileFromSource("mds1491", "trial1.json.sha256", null)) {
+                assertNotNull(sh.dataStream);
+            }
+            assertEquals(1.0, reg.get("oar.cache.lookups").tags("result", "miss").counter().count(), 0.0);
+
+            // restores are recorded wherever the object is saved into the cache
+            mgr.cache("mds1491/trial3/trial3a.json#0");
+            assertEquals(1L, reg.get("oar.cache.restore").tags("volume", "old", "outcome", "success")
+                                .timer().count());
+            assertEquals(70.0, reg.get("oar.cache.restore.size").tags("volume", "old")
+                                  .summary().totalAmount(), 0.0);
+
+            assertNotNull(svc.findCachedObject("mds1491", "trial3/trial3a.json", "0"));
+            try (StreamHandle sh = svc.getDataFile("mds1491", "trial3/trial3a.json", "0")) {
+                assertNotNull(sh.dataStream);
+            }
+            assertEquals(2.0, reg.get("oar.cache.lookups").tags("result", "hit").counter().count(), 0.0);
+            assertEquals(1.0, reg.get("oar.cache.lookups").tags("result", "miss").counter().count(), 0.0);
+        }
+        finally {
+            CacheMetrics.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testOpenStreamForIsThrottled()
+        throws ResourceNotFoundException, DistributionException, IOException
+    {
+        IOScheduler sched = new IOScheduler();
+        sched.configure("old", 1000000L, 0L, 1000000L, 0L);
+        IOScheduler.setDefault(sched);
+        try {
+            mgr.cache("mds1491/trial3/trial3a.json#0");
+            CacheObject co = svc.findCachedObject("mds1491", "trial3/trial3a.json", "0");
+            assertEquals("old", co.volname);
+            long demand = sched.getInteractiveDemand("old");
+            long allowed = sched.getAllowedRate("old", IOClass.PREFETCH);
+
+            // reading a file streamed from the volume is user demand, leaving less for prefetching
+            byte[] buf = new byte[200];
+            try (StreamHandle sh = svc.openStreamFor(co)) {
+                assertEquals(70, sh.dataStream.read(buf));
+            }
+            assertTrue(sched.getInteractiveDemand("old") > demand);
+            assertTrue(sched.getAllowedRate("old", IOClass.PREFETCH) < allowed);
+        }
+        finally {
+            IOScheduler.setDefault(null);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class NerdmDirectoryIndexTest {
+
+    static final String nerdm = "{ \"modified\": \"2024-01-02T00:00:00Z\", \"components\": [" +
+        "{\"filepath\": \"readme.txt\", \"@type\": [\"nrdp:DataFile\"], \"size\": 10, " +
+        " \"downloadURL\": \"https://data.nist.gov/od/ds/X/readme.txt\"}," +
+        "{\"filepath\": \"data\", \"@type\": [\"nrdp:Subcollection\"]}," +
+        "{\"filepath\": \"data/a/one.h5\", \"@type\": [\"nrdp:DataFile\"], \"size\": 100, " +
+        " \"modified\": \"2024-03-01T12:00:00Z\"," +
+        " \"downloadURL\": \"https://data.nist.gov/od/ds/X/data/a/one.h5\"}," +
+        "{\"filepath\": \"data/a/Two.h5\", \"@type\": [\"nrdp:DataFile\"], \"size\": 200, " +
+        " \"downloadURL\": \"https://data.nist.gov/od/ds/X/data/a/Two.h5\"}," +
+        "{\"filepath\": \"data/b.csv\", \"@type\": [\"nrdp:DataFile\", \"dcat:Distribution\"], \"size\": 5, " +
+        " \"downloadURL\": \"https://data.nist.gov/od/ds/X/data/b.csv\"}," +
+        "{\"filepath\": \"data/secret.csv\", \"@type\": [\"nrdp:RestrictedAccessPage\"]}" +
+        "]}";
+
+    NerdmDirectoryIndex index = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        index = NerdmDirectoryIndex.fromNerdm(new ObjectMapper().readTree(nerdm));
+    }
+
+    @Test
+    public void testListRoot() {
+        List<NerdmDirectoryIndex.Entry> ents = index.list("");
+        assertEquals(2, ents.size());
+        assertEquals("data/", ents.get(0).getName());
+        assertTrue(ents.get(0).isDirectory());
+        assertEquals(305L, ents.get(0).getSize());
+        assertEquals(Instant.parse("2024-03-01T12:00:00Z"), ents.get(0).getModified());
+
+        assertEquals("readme.txt", ents.get(1).getName());
+        assertFalse(ents.get(1).isDirectory());
+        assertEquals(10L, ents.get(1).getSize());
+        assertEquals(Instant.parse("2024-01-02T00:00:00Z"), ents.get(1).getModified());
+
+        assertEquals(4, index.getFileCount());
+        assertEquals(ents.size(), index.list(null).size());
+    }
+
+    @Test
+    public void testNodeCount() {
+        // root, readme.txt, data/, data/a/, data/a/one.h5, data/a/Two.h5, data/b.csv
+        assertEquals(7, index.getNodeCount());
+        assertEquals(7L * NerdmDirectoryIndex.ENTRY_SIZE_ESTIMATE, index.estimateSize());
+    }
+
+    @Test
+    public void testListSubdirectory() {
+        List<NerdmDirectoryIndex.Entry> ents = index.list("data");
+        assertEquals(2, ents.size());
+        assertEquals("a/", ents.get(0).getName());
+        assertEquals("b.csv", ents.get(1).getName());
+
+        ents = index.list("/data/a/");
+        assertEquals(2, ents.size());
+        assertEquals("one.h5", ents.get(0).getName());
+        assertEquals("Two.h5", ents.get(1).getName());
+        assertEquals(200L, ents.get(1).getSize());
+    }
+
+    @Test
+    public void testListMissing() {
+        assertTrue(index.list("goob").isEmpty());
+        assertTrue(index.list("readme.txt").isEmpty());
+        assertNull(index.find("data/goob"));
+        assertEquals("b.csv", index.find("data/b.csv").getName());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        NerdmDirectoryIndex empty = NerdmDirectoryIndex.fromNerdm(null);
+        assertTrue(empty.list("").isEmpty());
+        empty = NerdmDirectoryIndex.fromNerdm(new ObjectMapper().readTree("{\"components\": []}"));
+        assertTrue(empty.list("").isEmpty());
+        assertEquals(0, empty.getFileCount());
+        assertEquals(1, empty.getNodeCount());
+    }
+}
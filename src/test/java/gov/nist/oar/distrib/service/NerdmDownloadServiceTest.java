@@ -8,6 +8,14 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
@@ -111,4 +119,176 @@ public class NerdmDownloadServiceTest {
                 ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
     }
 
-}
\ No newline at end of file
+    private CloseableHttpClient mockClientFor(String json, CountDownLatch gate) throws Exception {
+        CloseableHttpClient mockClient = Mockito.mock(CloseableHttpClient.class);
+        when(mockClient.execute(
+            any(HttpUriRequest.class),
+            ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any()))
+        .thenAnswer(invocation -> {
+            if (gate != null)
+                gate.await(5, TimeUnit.SECONDS);
+            HttpClientResponseHandler<JsonNode> handler = invocation.getArgument(1);
+            return handler.handleResponse(new BasicClassicHttpResponse(200) {{
+                setEntity(new StringEntity(json));
+            }});
+        });
+        return mockClient;
+    }
+
+    /**
+     * Tests that the least recently used records are evicted once the size limit is exceeded.
+     */
+    @Test
+    public void testFetchNerdm_evictsBySize() throws Exception {
+        String json = "{\"components\": [{\"name\": \"file1\"}]}";
+        CloseableHttpClient mockClient = mockClientFor(json, null);
+
+        // room for two records
+        NerdmDownloadService service = new NerdmDownloadService("http://mockserver", mockClient,
+                                                                 2 * json.length() + 1, Duration.ofMinutes(5));
+        service.fetchNerdm("ds1");
+        service.fetchNerdm("ds2");
+        assertEquals(2, service.getCachedCount());
+        assertEquals(2 * json.length(), service.getCachedSize());
+
+        service.fetchNerdm("ds1");   // ds2 is now least recently used
+        service.fetchNerdm("ds3");
+        assertEquals(2, service.getCachedCount());
+        service.fetchNerdm("ds1");
+        service.fetchNerdm("ds3");
+        Mockito.verify(mockClient, Mockito.times(3)).execute(
+                any(HttpUriRequest.class),
+                ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
+
+        service.fetchNerdm("ds2");
+        Mockito.verify(mockClient, Mockito.times(4)).execute(
+                any(HttpUriRequest.class),
+                ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
+
+        service.invalidate("ds2");
+        assertEquals(1, service.getCachedCount());
+        assertEquals(json.length(), service.getCachedSize());
+    }
+
+    /**
+     * Tests that expired records are refetched.
+     */
+    @Test
+    public void testFetchNerdm_expires() throws Exception {
+        String json = "{\"components\": []}";
+        CloseableHttpClient mockClient = mockClientFor(json, null);
+
+        NerdmDownloadService service = new NerdmDownloadService("http://mockserver", mockClient,
+                                                                 10000L, Duration.ZERO);
+        service.fetchNerdm("ds1");
+        service.fetchNerdm("ds1");
+        Mockito.verify(mockClient, Mockito.times(2)).execute(
+                any(HttpUriRequest.class),
+                ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
+    }
+
+    /**
+     * Tests that concurrent requests for the same uncached record result in a single fetch.
+     */
+    @Test
+    public void testFetchNerdm_singleFlight() throws Exception {
+        String json = "{\"components\": [{\"name\": \"shared\"}]}";
+        CountDownLatch gate = new CountDownLatch(1);
+        CloseableHttpClient mockClient = mockClientFor(json, gate);
+        NerdmDownloadService service = new NerdmDownloadService("http://mockserver", mockClient);
+
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<JsonNode>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                results.add(exec.submit(() -> service.fetchNerdm("ds1")));
+            Thread.sleep(200);
+            gate.countDown();
+
+            for (Future<JsonNode> res : results)
+                assertEquals("shared", res.get(5, TimeUnit.SECONDS).get("components").get(0).get("name").asText());
+        } finally {
+            exec.shutdownNow();
+        }
+
+        Mockito.verify(mockClient, Mockito.times(1)).execute(
+                any(HttpUriRequest.class),
+                ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
+    }
+
+    /**
+     * Tests that the directory index is built once and cached with the record.
+     */
+    @Test
+    public void testFetchDirectoryIndex() throws Exception {
+        String json = "{\"components\": [{\"filepath\": \"a/b.txt\", \"@type\": [\"nrdp:DataFile\"], " +
+                      "\"downloadURL\": \"http://mockserver/a/b.txt\", \"size\": 3}]}";
+        CloseableHttpClient mockClient = mockClientFor(json, null);
+        NerdmDownloadService service = new NerdmDownloadService("http://mockserver", mockClient);
+
+        NerdmDirectoryIndex index = service.fetchDirectoryIndex("ds1");
+        assertEquals(1, index.getFileCount());
+        assertEquals("b.txt", index.list("a").get(0).getName());
+        assertTrue(index == service.fetchDirectoryIndex("ds1"));
+        service.fetchNerdm("ds1");
+
+        // the index counts (once) against the cache's size limit
+        assertEquals(json.length() + index.estimateSize(), service.getCachedSize());
+
+        Mockito.verify(mockClient, Mockito.times(1)).execute(
+                any(HttpUriRequest.class),
+                ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
+    }
+
+    /**
+     * Tests that a record is evicted when its directory index pushes it over the cache limit.
+     */
+    @Test
+    public void testFetchDirectoryIndex_overLimit() throws Exception {
+        String json = "{\"components\": [{\"filepath\": \"a/b.txt\", \"@type\": [\"nrdp:DataFile\"], " +
+                      "\"downloadURL\": \"http://mockserver/a/b.txt\", \"size\": 3}]}";
+        CloseableHttpClient mockClient = mockClientFor(json, null);
+        NerdmDownloadService service = new NerdmDownloadService("http://mockserver", mockClient,
+                                                                 json.length() + 100L, Duration.ofMinutes(5));
+        service.fetchNerdm("ds1");
+        assertEquals(1, service.getCachedCount());
+
+        NerdmDirectoryIndex index = service.fetchDirectoryIndex("ds1");
+        assertEquals(1, index.getFileCount());
+        assertEquals(0, service.getCachedCount());
+        assertEquals(0L, service.getCachedSize());
+    }
+
+    /**
+     * Tests that only the directory index is kept when it fits in the cache but not together
+     * with its record.
+     */
+    @Test
+    public void testFetchDirectoryIndex_indexOnly() throws Exception {
+        String json = "{\"components\": [{\"filepath\": \"a/b.txt\", \"@type\": [\"nrdp:DataFile\"], " +
+                      "\"downloadURL\": \"http://mockserver/a/b.txt\", \"size\": 3}]}";
+        CloseableHttpClient mockClient = mockClientFor(json, null);
+        long indexSize = 3 * NerdmDirectoryIndex.ENTRY_SIZE_ESTIMATE;
+        NerdmDownloadService service = new NerdmDownloadService("http://mockserver", mockClient,
+                                                                 indexSize + 10L, Duration.ofMinutes(5));
+
+        NerdmDirectoryIndex index = service.fetchDirectoryIndex("ds1");
+        assertEquals(indexSize, index.estimateSize());
+        assertEquals(1, service.getCachedCount());
+        assertEquals(indexSize, service.getCachedSize());
+
+        // listings are served from the cache
+        assertTrue(index == service.fetchDirectoryIndex("ds1"));
+        Mockito.verify(mockClient, Mockito.times(1)).execute(
+                any(HttpUriRequest.class),
+                ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
+
+        // the record itself must be retrieved again, but it does not displace the index
+        assertTrue(service.fetchNerdm("ds1").has("components"));
+        Mockito.verify(mockClient, Mockito.times(2)).execute(
+                any(HttpUriRequest.class),
+                ArgumentMatchers.<HttpClientResponseHandler<JsonNode>>any());
+        assertTrue(index == service.fetchDirectoryIndex("ds1"));
+        assertEquals(indexSize, service.getCachedSize());
+    }
+}
@@ -1,13 +1,29 @@
 package gov.nist.oar.distrib.service.rpa;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,8 +31,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.pdr.PDRCacheManager;
 import gov.nist.oar.distrib.service.RPACachingService;
 import gov.nist.oar.distrib.service.rpa.exceptions.RequestProcessingException;
+import gov.nist.oar.distrib.web.RPAConfiguration;
 
 @ExtendWith(MockitoExtension.class)
 public class DefaultRPADatasetCacherTest {
@@ -79,4 +97,123 @@ public class DefaultRPADatasetCacherTest {
             rpaDatasetCacher.cache(invalidDatasetId);
         });
     }
+
+    @Test
+    public void testStartCaching_Success() throws Exception {
+        String randomId = "randomId123";
+        when(rpaCachingService.startCaching(datasetId, version)).thenReturn(randomId);
+        when(rpaCachingService.whenCached(randomId)).thenReturn(CompletableFuture.completedFuture(true));
+
+        assertEquals(randomId, rpaDatasetCacher.startCaching(datasetId));
+        assertTrue(rpaDatasetCacher.whenCached(randomId).get());
+        verify(rpaCachingService, times(1)).startCaching(datasetId, version);
+    }
+
+    @Test
+    public void testStartCaching_requestProcessingException() throws Exception {
+        when(rpaCachingService.startCaching(datasetId, version))
+                .thenThrow(new CacheManagementException("Too many datasets waiting to be cached"));
+
+        assertThrows(RequestProcessingException.class, () -> {
+            rpaDatasetCacher.startCaching(datasetId);
+        });
+    }
+
+    @Test
+    public void testStartCaching_inBackground() throws Exception {
+        // use a real caching service whose cache manager blocks until released
+        PDRCacheManager pdrCacheManager = mock(PDRCacheManager.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(pdrCacheManager.cacheDataset(eq(datasetId), any(), anyBoolean(), anyInt(), any()))
+                .thenAnswer(inv -> {
+                    release.await(10, TimeUnit.SECONDS);
+                    return new HashSet<String>();
+                });
+        RPACachingService service = new RPACachingService(pdrCacheManager, mock(RPAConfiguration.class));
+        rpaDatasetCacher = new DefaultRPADatasetCacher(service);
+
+        String randomId = rpaDatasetCacher.startCaching(datasetId);
+        assertTrue(randomId.startsWith("rpa-"));
+        CompletableFuture<Boolean> done = rpaDatasetCacher.whenCached(randomId);
+        assertFalse(done.isDone());
+
+        Map<String, Object> progress = service.retrieveMetadata(randomId);
+        assertEquals(false, progress.get("ready"));
+        assertEquals(0, progress.get("filesCached"));
+        assertEquals(randomId, progress.get("randomId"));
+
+        release.countDown();
+        assertTrue(done.get(10, TimeUnit.SECONDS));
+        assertEquals(RPACachingService.CachingJob.READY, service.getCachingJob(randomId).getStatus());
+        verify(pdrCacheManager).cacheDataset(eq(datasetId), eq(null), eq(true),
+                                             eq(RPACachingService.ROLE_RESTRICTED_DATA), eq(randomId));
+    }
+
+    @Test
+    public void testWhenCached_afterRestart() throws Exception {
+        // the service remembers jobs via the cache inventory
+        PDRCacheManager pdrCacheManager = mock(PDRCacheManager.class);
+        when(pdrCacheManager.cacheDataset(eq(datasetId), any(), anyBoolean(), anyInt(), any()))
+                .thenReturn(new HashSet<String>());
+        when(pdrCacheManager.getCachingJob("rpa-interrupted"))
+                .thenReturn(new JSONObject().put("dsid", datasetId).put("status", "caching").put("since", 1L));
+        when(pdrCacheManager.getCachingJob("rpa-done"))
+                .thenReturn(new JSONObject().put("dsid", datasetId).put("status", "ready").put("finished", 2L));
+        RPACachingService service = new RPACachingService(pdrCacheManager, mock(RPAConfiguration.class));
+        rpaDatasetCacher = new DefaultRPADatasetCacher(service);
+
+        // a job that finished before the restart is not repeated
+        assertTrue(rpaDatasetCacher.whenCached("rpa-done").get(10, TimeUnit.SECONDS));
+        verify(pdrCacheManager, never()).cacheDataset(any(), any(), anyBoolean(), anyInt(), eq("rpa-done"));
+
+        // one that was interrupted is started over
+        assertTrue(rpaDatasetCacher.whenCached("rpa-interrupted").get(10, TimeUnit.SECONDS));
+        verify(pdrCacheManager).cacheDataset(eq(datasetId), eq(null), eq(true),
+                                             eq(RPACachingService.ROLE_RESTRICTED_DATA), eq("rpa-interrupted"));
+        verify(pdrCacheManager).saveCachingJob(eq("rpa-interrupted"),
+                                               argThat(rec -> "ready".equals(rec.optString("status"))));
+
+        // an unknown job is not cached
+        assertFalse(rpaDatasetCacher.whenCached("rpa-unknown").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNotifyWhenCached_afterRestart() throws Exception {
+        // before the restart, one job was interrupted and another finished without its requester being told
+        PDRCacheManager pdrCacheManager = mock(PDRCacheManager.class);
+        when(pdrCacheManager.cacheDataset(eq(datasetId), any(), anyBoolean(), anyInt(), any()))
+                .thenReturn(new HashSet<String>());
+        when(pdrCacheManager.getPendingCachingJobs()).thenReturn(List.of(
+                new JSONObject().put("jobid", "rpa-interrupted").put("dsid", datasetId)
+                                .put("status", "caching").put("since", 1L).put("recordid", "rec-1"),
+                new JSONObject().put("jobid", "rpa-done").put("dsid", datasetId)
+                                .put("status", "ready").put("finished", 2L).put("recordid", "rec-2")));
+        RPACachingService service = new RPACachingService(pdrCacheManager, mock(RPAConfiguration.class));
+        rpaDatasetCacher = new DefaultRPADatasetCacher(service);
+
+        assertEquals(2, service.resumeJobs());
+        assertTrue(rpaDatasetCacher.whenCached("rpa-interrupted").get(10, TimeUnit.SECONDS));
+
+        // requesters are told once a listener is set, even if the caching finished before that
+        Map<String, String> told = new ConcurrentHashMap<>();
+        CountDownLatch resumed = new CountDownLatch(2);
+        CountDownLatch later = new CountDownLatch(3);
+        service.setCachingListener((randomId, recordId, cached) -> {
+            assertTrue(cached);
+            told.put(recordId, randomId);
+            resumed.countDown();
+            later.countDown();
+        });
+        assertTrue(resumed.await(10, TimeUnit.SECONDS));
+        assertEquals(Map.of("rec-1", "rpa-interrupted", "rec-2", "rpa-done"), told);
+        assertEquals(null, service.getCachingJob("rpa-done").getRecordId());
+        verify(pdrCacheManager).saveCachingJob(eq("rpa-done"), argThat(rec -> ! rec.has("recordid")));
+
+        // a requester that starts waiting later is told when the caching finishes
+        String randomId = rpaDatasetCacher.startCaching(datasetId);
+        assertTrue(rpaDatasetCacher.notifyWhenCached(randomId, "rec-3"));
+        assertTrue(later.await(10, TimeUnit.SECONDS));
+        assertEquals(randomId, told.get("rec-3"));
+        assertFalse(rpaDatasetCacher.notifyWhenCached("rpa-unknown", "rec-4"));
+    }
 }
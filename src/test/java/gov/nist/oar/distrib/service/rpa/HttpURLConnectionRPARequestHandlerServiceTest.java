@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -24,6 +25,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -719,7 +721,8 @@ public class HttpURLConnectionRPARequestHandlerServiceTest {
         // Mock behavior of getRecord method
         doReturn(getTestRecordWrapper(expectedApprovalStatus, email, country)).when(service).getRecord("record12345");
 
-        when(rpaDatasetCacher.cache(anyString())).thenReturn(mockRandomId);
+        when(rpaDatasetCacher.startCaching(anyString())).thenReturn(mockRandomId);
+        when(rpaDatasetCacher.whenCached(mockRandomId)).thenReturn(CompletableFuture.completedFuture(true));
 
         // Mock HttpResponse
         CloseableHttpResponse httpResponse = mock(CloseableHttpResponse.class);
@@ -758,6 +761,39 @@ public class HttpURLConnectionRPARequestHandlerServiceTest {
         // - A random ID (composed of word characters including underscore, alphanumeric, and possibly -) at the end.
         String expectedFormat = "Approved_\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3,9}Z_[\\w.-]+@[\\w.-]+\\.\\w+_\\w+"; //  d{3,9} -- up to 9 digits to include nanoseconds
         assertTrue(payloadObject.get("Approval_Status__c").toString().matches(expectedFormat));
+
+        // the download email is sent once caching is complete
+        verify(recordResponseHandler).onRecordUpdateApproved(any(), eq(mockRandomId));
+    }
+
+    @Test
+    public void testUpdateRecord_notifiedByCacher() throws Exception {
+        String recordId = "record12345";
+        String email = "test@example.com";
+        String mockRandomId = "mockRandomId123";
+        String approvalStatus = "Approved_2023-05-09T15:59:03.872Z_" + email + "_" + mockRandomId;
+        doReturn(getTestRecordWrapper(approvalStatus, email, "United States")).when(service).getRecord(recordId);
+        when(rpaDatasetCacher.startCaching(anyString())).thenReturn(mockRandomId);
+        when(rpaDatasetCacher.notifyWhenCached(mockRandomId, recordId)).thenReturn(true);
+
+        CloseableHttpResponse httpResponse = mock(CloseableHttpResponse.class);
+        when(httpResponse.getStatusLine()).thenReturn(mock(StatusLine.class));
+        when(httpResponse.getStatusLine().getStatusCode()).thenReturn(200);
+        when(httpResponse.getEntity()).thenReturn(new StringEntity(
+                "{\"approvalStatus\":\"" + approvalStatus + "\",\"recordId\":\"" + recordId + "\"}",
+                ContentType.APPLICATION_JSON));
+        doReturn(httpResponse).when(mockHttpClient).execute(any(HttpPatch.class));
+
+        service.updateRecord(recordId, "Approved", email);
+
+        // the cacher tells the requester once the dataset is cached, not the request thread
+        verify(rpaDatasetCacher).notifyWhenCached(mockRandomId, recordId);
+        verify(recordResponseHandler, never()).onRecordUpdateApproved(any(), anyString());
+
+        service.handleAfterCaching(recordId, mockRandomId, true);
+        verify(recordResponseHandler).onRecordUpdateApproved(any(), eq(mockRandomId));
+        service.handleAfterCaching(recordId, mockRandomId, false);
+        verify(recordResponseHandler).onFailure(any());
     }
 
     /**
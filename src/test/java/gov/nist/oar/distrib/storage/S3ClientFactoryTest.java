@@ -0,0 +1,147 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.time.Duration;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.adobe.testing.s3mock.junit5.S3MockExtension;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+public class S3ClientFactoryTest {
+
+    @RegisterExtension
+    static final S3MockExtension S3_MOCK = S3MockExtension.builder()
+            .withSecureConnection(false)
+            .withHttpPort(9090)
+            .silent()
+            .build();
+
+    static final String bucket = "oar-s3factory-test";
+
+    S3ClientFactory createFactory() {
+        return new S3ClientFactory(
+            StaticCredentialsProvider.create(AwsBasicCredentials.create("foo", "bar")),
+            "us-east-1", "http://localhost:9090/", null);
+    }
+
+    @Test
+    public void testSettings() {
+        S3ClientFactory fact = createFactory();
+        assertNotNull(fact.getMetrics());
+        assertEquals(200, fact.getMaxConnections());
+        assertEquals(Duration.ofSeconds(10), fact.getConnectionAcquisitionTimeout());
+        assertTrue(fact.isTcpKeepAlive());
+        assertTrue(fact.isChecksumValidation());
+
+        fact.setMaxConnections(20);
+        fact.setConnectionAcquisitionTimeout(Duration.ofMillis(500));
+        fact.setTcpKeepAlive(false);
+        assertEquals(20, fact.getMaxConnections());
+        assertEquals(Duration.ofMillis(500), fact.getConnectionAcquisitionTimeout());
+        assertFalse(fact.isTcpKeepAlive());
+
+        assertThrows(IllegalArgumentException.class, () -> fact.setMaxConnections(0));
+        assertThrows(IllegalArgumentException.class, () -> fact.createAsyncClient("x", "goober", 4));
+    }
+
+    @Test
+    public void testCreateClient() throws Exception {
+        S3ClientFactory fact = createFactory();
+        S3PoolMetrics metrics = fact.getMetrics();
+        assertNull(metrics.getPool("lts"));
+
+        try (S3Client s3 = fact.createClient("lts", 10)) {
+            s3.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+            s3.putObject(PutObjectRequest.builder().bucket(bucket).key("hello.txt").build(),
+                         RequestBody.fromString("hello"));
+
+            S3PoolMetrics.Pool pool = metrics.getPool("lts");
+            assertNotNull(pool);
+            assertEquals(2L, pool.getCalls());
+            assertEquals(10, pool.getMaxConnections());
+
+            AWSS3LongTermStorage lts = new AWSS3LongTermStorage(bucket, s3);
+            try (InputStream is = lts.openFile("hello.txt")) {
+                assertEquals("hello", new String(is.readAllBytes()));
+            }
+        }
+    }
+
+    @Test
+    public void testAsyncOpenFile() throws Exception {
+        S3ClientFactory fact = createFactory();
+        try (S3Client s3 = fact.createClient("lts");
+             S3AsyncClient async = fact.createAsyncClient("lts-async", "netty", 4))
+        {
+            s3.createBucket(CreateBucketRequest.builder().bucket(bucket+"-async").build());
+            s3.putObject(PutObjectRequest.builder().bucket(bucket+"-async").key("hello.txt").build(),
+                         RequestBody.fromString("hello"));
+
+            AWSS3LongTermStorage lts = new AWSS3LongTermStorage(bucket+"-async", s3);
+            lts.setAsyncClient(async);
+            try (InputStream is = lts.openFile("hello.txt")) {
+                assertEquals("hello", new String(is.readAllBytes()));
+            }
+            assertThrows(java.io.FileNotFoundException.class, () -> lts.openFile("goober.txt"));
+            assertNotNull(fact.getMetrics().getPool("lts-async"));
+        }
+    }
+
+    @Test
+    public void testPoolMetrics() {
+        S3PoolMetrics metrics = new S3PoolMetrics();
+        S3PoolMetrics.Pool pool = metrics.publisherFor("cache");
+        assertSame(pool, metrics.publisherFor("cache"));
+
+        MetricCollector call = MetricCollector.create("ApiCall");
+        MetricCollector http = call.createChild("HttpClient");
+        http.reportMetric(HttpMetric.MAX_CONCURRENCY, 50);
+        http.reportMetric(HttpMetric.LEASED_CONCURRENCY, 3);
+        http.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, 1);
+        http.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 0);
+        http.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, Duration.ofMillis(5));
+        pool.publish(call.collect());
+
+        assertEquals(1L, pool.getCalls());
+        assertEquals(50, pool.getMaxConnections());
+        assertEquals(3, pool.getLeased());
+        assertEquals(1, pool.getAvailable());
+        assertEquals(0, pool.getPending());
+
+        JSONObject status = metrics.getStatus();
+        assertTrue(status.has("cache"));
+        assertEquals(5L, status.getJSONObject("cache").getLong("acquireTimeMaxMillis"));
+        assertEquals(1L, status.getJSONObject("cache").getLong("waitedForConnection"));
+    }
+}
@@ -14,11 +14,14 @@ package gov.nist.oar.distrib.web;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -41,6 +44,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.util.FileSystemUtils;
@@ -48,6 +52,7 @@ import org.springframework.util.FileSystemUtils;
 import gov.nist.oar.distrib.ResourceNotFoundException;
 import gov.nist.oar.distrib.StorageVolumeException;
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
+import gov.nist.oar.distrib.cachemgr.InventoryException;
 import gov.nist.oar.distrib.cachemgr.pdr.HeadBagCacheManager;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRCacheManager;
 
@@ -219,6 +224,45 @@ public class CacheManagementControllerTest {
         assertEquals(3, summary.length());
     }
 
+    @Test
+    public void testListObjectsPaged() {
+        HttpEntity<String> req = new HttpEntity<>(null, headers);
+        ResponseEntity<String> resp = websvc.exchange(getBaseURL() + "/cache/objects/mds1491/:files?limit=2",
+                                                      HttpMethod.GET, req, String.class);
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        JSONObject page = new JSONObject(new JSONTokener(resp.getBody()));
+        assertEquals(2, page.getJSONArray("files").length());
+        String next = page.getString("next");
+
+        resp = websvc.exchange(getBaseURL() + "/cache/objects/mds1491/:files?limit=2&after=" + next,
+                               HttpMethod.GET, req, String.class);
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        page = new JSONObject(new JSONTokener(resp.getBody()));
+        assertEquals(1, page.getJSONArray("files").length());
+        assertTrue(page.isNull("next"));
+
+        resp = websvc.exchange(getBaseURL() + "/cache/objects/mds1491?limit=2",
+                               HttpMethod.GET, req, String.class);
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        page = new JSONObject(new JSONTokener(resp.getBody()));
+        assertEquals("3A1EE2F169DD3B8CE0531A570681DB5D1491", page.optString("aipid", null));
+        assertEquals(2, page.getJSONArray("files").length());
+        assertEquals(next, page.getString("next"));
+
+        resp = websvc.exchange(getBaseURL() + "/cache/objects/?limit=1", HttpMethod.GET, req, String.class);
+        assertEquals(HttpStatus.OK, resp.getStatusCode());
+        page = new JSONObject(new JSONTokener(resp.getBody()));
+        assertEquals(1, page.getJSONArray("datasets").length());
+        assertTrue(page.isNull("next"));
+
+        resp = websvc.exchange(getBaseURL() + "/cache/objects/mds1491/:files?limit=goober",
+                               HttpMethod.GET, req, String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
+        resp = websvc.exchange(getBaseURL() + "/cache/objects/mds1491/:files?after=goober",
+                               HttpMethod.GET, req, String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
+    }
+
     @Test
     public void testListObjectsFor3() {
         HttpEntity<String> req = new HttpEntity<>(null, headers);
@@ -448,6 +492,60 @@ public class CacheManagementControllerTest {
     }
 
 
+    @Test
+    public void testPageWriterReadsInBatches() throws Exception {
+        CacheManagementController ctrl = new CacheManagementController(null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CacheManagementController.JSONPageWriter<JSONObject> page =
+            ctrl.new JSONPageWriter<JSONObject>(response, 0, false, "items", null, o -> o,
+                                                o -> new JSONArray().put(o.getInt("n")));
+        List<Integer> maxes = new ArrayList<Integer>();
+        page.writeAll(null, (cur, max, batch) -> {
+            maxes.add(max);
+            int start = (cur == null) ? 0 : cur.getInt(0) + 1;
+            int n = 0;
+            for (int i = start; i < 1200 && n < max; i++, n++)
+                batch.accept(new JSONObject().put("n", i));
+            return n;
+        });
+        page.finish();
+
+        assertEquals(3, maxes.size());
+        JSONArray items = new JSONArray(response.getContentAsString());
+        assertEquals(1200, items.length());
+        assertEquals(1199, items.getJSONObject(1199).getInt("n"));
+    }
+
+    @Test
+    public void testPageWriterAbortsOnFailure() throws Exception {
+        CacheManagementController ctrl = new CacheManagementController(null);
+
+        // a failure before anything is sent can still be reported as an error
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CacheManagementController.JSONPageWriter<JSONObject> page =
+            ctrl.new JSONPageWriter<JSONObject>(response, 0, false, "items", null, o -> o,
+                                                o -> new JSONArray().put(o.getInt("n")));
+        assertThrows(CacheManagementException.class, () -> page.writeAll(null, (cur, max, batch) -> {
+            throw new InventoryException("db gone");
+        }));
+        assertFalse(response.isCommitted());
+
+        // a failure after part of the list was sent aborts the response
+        MockHttpServletResponse response2 = new MockHttpServletResponse();
+        CacheManagementController.JSONPageWriter<JSONObject> page2 =
+            ctrl.new JSONPageWriter<JSONObject>(response2, 0, false, "items", null, o -> o,
+                                                o -> new JSONArray().put(o.getInt("n")));
+        assertThrows(IllegalStateException.class, () -> page2.writeAll(null, (cur, max, batch) -> {
+            if (cur != null) {
+                response2.setCommitted(true);
+                throw new InventoryException("db gone");
+            }
+            for (int i = 0; i < max; i++)
+                batch.accept(new JSONObject().put("n", i));
+            return max;
+        }));
+    }
+
     private String getBaseURL() {
         return "http://localhost:" + port + "/od";
     }
@@ -0,0 +1,109 @@
+/**
+ * This software was developed at the National Institute of Standards and Technology by employees of
+ * the Federal Government in the course of their official duties. Pursuant to title 17 Section 105
+ * of the United States Code this software is not subject to copyright protection and is in the
+ * public domain. This is an experimental system. NIST assumes no responsibility whatsoever for its
+ * use by other parties, and makes no guarantees, expressed or implied, about its quality,
+ * reliability, or any other characteristic. We would appreciate acknowledgement if the software is
+ * used. This software can be redistributed and/or modified freely provided that any derivative
+ * works bear some notice that they are derived from it, and any modified versions bear some notice
+ * that they have been modified.
+ */
+package gov.nist.oar.distrib.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+public class CacheWarmerTest {
+
+    @Test
+    public void testDisabled() {
+        CacheWarmer warmer = new CacheWarmer();
+        assertFalse(warmer.isEnabled());
+        assertTrue(warmer.isReady());
+        warmer.start();
+        assertEquals(Status.UP, warmer.health().getStatus());
+        assertEquals("disabled", warmer.health().getDetails().get("state"));
+    }
+
+    @Test
+    public void testWarmAll() throws InterruptedException {
+        ConcurrentLinkedQueue<String> seen = new ConcurrentLinkedQueue<String>();
+        CacheWarmer warmer = new CacheWarmer(() -> Arrays.asList("a", "b", "a", "c", "bad"),
+                                             dsid -> {
+                                                 if ("bad".equals(dsid))
+                                                     throw new IllegalStateException("no such dataset");
+                                                 seen.add(dsid);
+                                             },
+                                             2, 1.0);
+        assertTrue(warmer.isEnabled());
+        assertFalse(warmer.isReady());
+        assertEquals(Status.OUT_OF_SERVICE, warmer.health().getStatus());
+
+        warmer.start();
+        assertTrue(warmer.waitForCompletion(10000L));
+        assertEquals(4, warmer.getTotal());
+        assertEquals(4, warmer.getDone());
+        assertEquals(1, warmer.getFailed());
+        assertEquals(3, seen.size());
+        assertTrue(seen.containsAll(Arrays.asList("a", "b", "c")));
+
+        Health h = warmer.health();
+        assertEquals(Status.UP, h.getStatus());
+        assertEquals("finished", h.getDetails().get("state"));
+        assertEquals(1, h.getDetails().get("failed"));
+    }
+
+    @Test
+    public void testReadyFraction() throws InterruptedException {
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger(0);
+        List<String> dsids = Arrays.asList("a", "b", "c", "d");
+        CacheWarmer warmer = new CacheWarmer(() -> dsids,
+                                             dsid -> {
+                                                 // let only the first two through until released
+                                                 if (calls.incrementAndGet() > 2)
+                                                     gate.await(10, TimeUnit.SECONDS);
+                                             },
+                                             1, 0.5);
+        warmer.start();
+
+        long until = System.currentTimeMillis() + 10000L;
+        while (warmer.getDone() < 2 && System.currentTimeMillis() < until)
+            Thread.sleep(10);
+        assertTrue(warmer.isReady());
+        assertFalse(warmer.isFinished());
+        assertEquals(Status.UP, warmer.health().getStatus());
+        assertEquals("loading", warmer.health().getDetails().get("state"));
+
+        gate.countDown();
+        assertTrue(warmer.waitForCompletion(10000L));
+        assertEquals(4, warmer.getDone());
+    }
+
+    @Test
+    public void testSelectionFailure() throws InterruptedException {
+        CacheWarmer warmer = new CacheWarmer(() -> { throw new IllegalStateException("db gone"); },
+                                             dsid -> { }, 2, 1.0);
+        warmer.start();
+        assertTrue(warmer.waitForCompletion(10000L));
+
+        // don't hold the service out of service because warm-up could not be done
+        Health h = warmer.health();
+        assertEquals(Status.UP, h.getStatus());
+        assertEquals("failed", h.getDetails().get("state"));
+        assertEquals("db gone", h.getDetails().get("error"));
+    }
+}
@@ -12,10 +12,21 @@
  */
 package gov.nist.oar.distrib.web;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -32,6 +43,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -39,9 +52,16 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.json.JSONObject;
+
 import gov.nist.oar.RequireWebSite;
+import gov.nist.oar.distrib.cachemgr.CacheObject;
+import gov.nist.oar.distrib.datapackage.BundleCache;
 import gov.nist.oar.distrib.datapackage.BundleRequest;
+import gov.nist.oar.distrib.datapackage.DataPackager;
 import gov.nist.oar.distrib.datapackage.FileRequest;
+import gov.nist.oar.distrib.datapackage.InputLimitException;
+import gov.nist.oar.distrib.service.DataPackagingService;
 
 /**
  * @author Deoyani Nandrekar-Heinis
@@ -180,4 +200,87 @@ public class DataBundleAccessControllerTest {
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(),
             "Numeric overflow should return 400 Bad Request, not 500 Internal Server Error");
     }
+
+    @Test
+    public void testCachedBundleValidatedFirst() throws Exception {
+        // a request that fails validation is rejected before any cached bundle is sent
+        DataPackagingService svc = mock(DataPackagingService.class);
+        DataPackager dp = mock(DataPackager.class);
+        BundleCache bcache = mock(BundleCache.class);
+        when(svc.getDataPackager(any())).thenReturn(dp);
+        when(svc.getBundleCache()).thenReturn(bcache);
+        doThrow(new InputLimitException("Total size of bundle too large")).when(dp).validateBundleRequest();
+
+        DataBundleAccessController ctrl = new DataBundleAccessController();
+        ctrl.dpService = svc;
+        FileRequest[] inputfiles = {
+            new FileRequest("someid/path/file1", "https://evil.example.com/file1")
+        };
+        BundleRequest br = new BundleRequest("testdatabundle", inputfiles, 0, 1);
+
+        // not cached
+        assertThrows(InputLimitException.class,
+                     () -> ctrl.getBundle(br, new MockHttpServletResponse(), null, new MockHttpServletRequest()));
+
+        // cached:  checked against the size recorded with the bundle
+        CacheObject bundle = new CacheObject("bundle.zip", new JSONObject().put("size", 10L), "bundles");
+        when(bcache.find(anyString())).thenReturn(bundle);
+        when(bcache.getRequestedSize(bundle)).thenReturn(5000000L);
+        doThrow(new InputLimitException("Total size of bundle too large")).when(dp).validateBundleRequest(5000000L);
+        assertThrows(InputLimitException.class,
+                     () -> ctrl.getBundle(br, new MockHttpServletResponse(), null, new MockHttpServletRequest()));
+        verify(bcache, never()).open(any());
+    }
+
+    @Test
+    public void testCachedBundleSkipsFileChecks() throws Exception {
+        // a cached bundle is validated without examining each of its files
+        DataPackagingService svc = mock(DataPackagingService.class);
+        DataPackager dp = mock(DataPackager.class);
+        BundleCache bcache = mock(BundleCache.class);
+        when(svc.getDataPackager(any())).thenReturn(dp);
+        when(svc.getBundleCache()).thenReturn(bcache);
+        CacheObject bundle = new CacheObject("bundle.zip", new JSONObject().put("size", 10L), "bundles");
+        when(bcache.find(anyString())).thenReturn(bundle);
+        when(bcache.getRequestedSize(bundle)).thenReturn(500L);
+        when(bcache.open(bundle)).thenReturn(new ByteArrayInputStream("0123456789".getBytes()));
+        when(dp.validateBundleRequest(500L)).thenReturn(true);
+
+        DataBundleAccessController ctrl = new DataBundleAccessController();
+        ctrl.dpService = svc;
+        FileRequest[] inputfiles = {
+            new FileRequest("someid/path/file1", "https://s3.amazonaws.com/nist-midas/file1")
+        };
+        BundleRequest br = new BundleRequest("testdatabundle", inputfiles, 0, 1);
+
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        ctrl.getBundle(br, resp, null, new MockHttpServletRequest());
+        assertEquals("0123456789", resp.getContentAsString());
+        verify(dp, never()).validateBundleRequest();
+        verify(dp, never()).getData(any());
+    }
+
+    @Test
+    public void testParseRange() {
+        String etag = "\"abc\"";
+        assertNull(DataBundleAccessController.parseRange(null, null, etag, 100));
+        assertNull(DataBundleAccessController.parseRange("items=0-5", null, etag, 100));
+        assertArrayEquals(new long[] { 0, 9 },
+                          DataBundleAccessController.parseRange("bytes=0-9", null, etag, 100));
+        assertArrayEquals(new long[] { 50, 99 },
+                          DataBundleAccessController.parseRange("bytes=50-", null, etag, 100));
+        assertArrayEquals(new long[] { 90, 99 },
+                          DataBundleAccessController.parseRange("bytes=-10", null, etag, 100));
+        assertArrayEquals(new long[] { 90, 99 },
+                          DataBundleAccessController.parseRange("bytes=90-200", etag, etag, 100));
+
+        // unsatisfiable
+        assertEquals(0, DataBundleAccessController.parseRange("bytes=100-", null, etag, 100).length);
+
+        // ignored
+        assertNull(DataBundleAccessController.parseRange("bytes=0-9", "\"def\"", etag, 100));
+        assertNull(DataBundleAccessController.parseRange("bytes=0-9,20-29", null, etag, 100));
+        assertNull(DataBundleAccessController.parseRange("bytes=9-0", null, etag, 100));
+        assertNull(DataBundleAccessController.parseRange("bytes=a-b", null, etag, 100));
+    }
 }
@@ -44,6 +44,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import gov.nist.oar.distrib.service.NerdmDirectoryIndex;
 import gov.nist.oar.distrib.service.NerdmDownloadService;
 
 @ExtendWith(SpringExtension.class)
@@ -78,7 +79,11 @@ public class DatasetAccessControllerTest {
     private JsonNode mockNerdm(String dsid) throws IOException {
         String json = Files.readString(Paths.get("src/test/resources/datasets/" + dsid + "/nerdm.json"));
         return new ObjectMapper().readTree(json);
-}
+    }
+
+    private NerdmDirectoryIndex mockIndex(String dsid) throws IOException {
+        return NerdmDirectoryIndex.fromNerdm(mockNerdm(dsid));
+    }
 
     @Test
     public void testDescribeAIPs() throws JSONException {
@@ -270,7 +275,7 @@ public class DatasetAccessControllerTest {
     public void testRcloneIndexOrInvalidDatasetID() throws JSONException {
 
         try {
-                when(nermService.fetchNerdm("mds1491")).thenReturn(mockNerdm("mds1491"));
+                when(nermService.fetchDirectoryIndex("mds1491")).thenReturn(mockIndex("mds1491"));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -436,7 +441,7 @@ public class DatasetAccessControllerTest {
     @Test
     public void testRcloneIndexRootFolder() throws Exception  {
         try {
-                when(nermService.fetchNerdm("mds1491")).thenReturn(mockNerdm("mds1491"));
+                when(nermService.fetchDirectoryIndex("mds1491")).thenReturn(mockIndex("mds1491"));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -457,7 +462,7 @@ public class DatasetAccessControllerTest {
     public void testRcloneIndexSubfolder() {
 
         try {
-                when(nermService.fetchNerdm("mds1491")).thenReturn(mockNerdm("mds1491"));
+                when(nermService.fetchDirectoryIndex("mds1491")).thenReturn(mockIndex("mds1491"));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -477,7 +482,7 @@ public class DatasetAccessControllerTest {
     public void testRcloneIndexRestrictedComponentsAreSkipped() {
 
         try {
-                when(nermService.fetchNerdm("mds1491")).thenReturn(mockNerdm("mds1491"));
+                when(nermService.fetchDirectoryIndex("mds1491")).thenReturn(mockIndex("mds1491"));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -493,7 +498,7 @@ public class DatasetAccessControllerTest {
     @Test
     public void testRcloneIndexEmptyFolder() {
         try {
-                when(nermService.fetchNerdm("emptydataset")).thenReturn(mockNerdm("emptydataset"));
+                when(nermService.fetchDirectoryIndex("emptydataset")).thenReturn(mockIndex("emptydataset"));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -509,7 +514,7 @@ public class DatasetAccessControllerTest {
 
     @Test
     public void testRcloneIndexEmptyFolderMissingNerdm() throws IOException, JSONException {
-        when(nermService.fetchNerdm("emptydataset")).thenReturn(null);
+        when(nermService.fetchDirectoryIndex("emptydataset")).thenReturn(null);
 
         HttpEntity<String> req = new HttpEntity<>(null, headers);
         ResponseEntity<String> resp = websvc.exchange(
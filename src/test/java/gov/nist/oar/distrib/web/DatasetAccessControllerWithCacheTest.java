@@ -43,7 +43,9 @@ import org.springframework.util.FileSystemUtils;
 
 import gov.nist.oar.distrib.cachemgr.CacheManagementException;
 import gov.nist.oar.distrib.cachemgr.CacheManager;
+import gov.nist.oar.distrib.cachemgr.MemoryHotTier;
 import gov.nist.oar.distrib.cachemgr.pdr.HeadBagCacheManager;
+import gov.nist.oar.distrib.service.CacheEnabledFileDownloadService;
 import gov.nist.oar.distrib.service.NerdmDownloadService;
 
 @ExtendWith(SpringExtension.class)
@@ -195,6 +197,32 @@ public class DatasetAccessControllerWithCacheTest {
         assertEquals(69, resp.getBody().length());
     }
 
+    @Test
+    public void testDownloadFileFromHotTier() throws CacheManagementException, ConfigurationException {
+        CacheManager cm = provider.getPDRCacheManager();
+        cm.cache("mds1491/trial1.json");
+
+        CacheEnabledFileDownloadService cdls = (CacheEnabledFileDownloadService) ctrlr.downl;
+        MemoryHotTier tier = new MemoryHotTier(100000, 1000);
+        cdls.setHotTier(tier);
+        try {
+            HttpEntity<String> req = new HttpEntity<>(null, headers);
+            for (int i = 0; i < 3; i++) {
+                ResponseEntity<String> resp = websvc.exchange(getBaseURL() + "/ds/mds1491/trial1.json",
+                                                              HttpMethod.GET, req, String.class);
+                assertEquals(HttpStatus.OK, resp.getStatusCode());
+                assertEquals(69, resp.getBody().length());
+
+                // the object is loaded into memory upon its second request
+                assertEquals((i < 1) ? 0 : 1, tier.size());
+            }
+            assertEquals(1L, tier.getStatus().getLong("hits"));
+        }
+        finally {
+            cdls.setHotTier(null);
+        }
+    }
+
     @Test
     public void testDownloadFileViaARK() throws CacheManagementException, ConfigurationException {
         CacheManager cm = provider.getPDRCacheManager();
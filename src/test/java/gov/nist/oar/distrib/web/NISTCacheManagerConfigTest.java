@@ -27,6 +27,7 @@ import gov.nist.oar.distrib.cachemgr.pdr.PDRCacheManager;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRCacheRoles;
 import gov.nist.oar.distrib.cachemgr.pdr.PDRDatasetRestorer;
 import gov.nist.oar.distrib.cachemgr.BasicCache;
+import gov.nist.oar.distrib.cachemgr.IOScheduler;
 
 import org.json.JSONObject;
 import org.slf4j.LoggerFactory;
@@ -210,6 +211,33 @@ public class NISTCacheManagerConfigTest {
         assertEquals(PDRCacheRoles.ROLE_OLD_RESTRICTED_DATA, cvi.getInt("roles"));
     }
 
+    @Test
+    public void testIOLimits() throws ConfigurationException, IOException, CacheManagementException {
+        Map<String, Long> limits = new HashMap<>();
+        limits.put("capacity", 1000000L);
+        limits.put("integrity", 200000L);
+        cfg.getVolumes().get(0).setIoLimits(limits);
+        limits = new HashMap<>();
+        limits.put("prefetch", 500000L);
+        cfg.setLtsIOLimits(limits);
+
+        try {
+            cfg.createDefaultCache(null);
+            IOScheduler sched = IOScheduler.getDefault();
+            assertTrue(sched.isConfigured());
+            assertEquals(1000000L, sched.getAllowedRate("king", IOScheduler.IOClass.PREFETCH));
+            assertEquals(200000L, sched.getAllowedRate("king", IOScheduler.IOClass.INTEGRITY));
+            assertEquals(0L, sched.getAllowedRate("pratt", IOScheduler.IOClass.PREFETCH));
+            assertEquals(500000L, sched.getAllowedRate(IOScheduler.LTS_CHANNEL, IOScheduler.IOClass.PREFETCH));
+        }
+        finally {
+            IOScheduler.setDefault(null);
+        }
+
+        limits.put("goober", 1L);
+        assertThrows(ConfigurationException.class, () -> cfg.createIOScheduler());
+    }
+
     @Test
     public void testCreateCacheManager() throws ConfigurationException, IOException, CacheManagementException {
         BagStorage bags = makeBagStorage();